@@ -1,25 +1,395 @@
 package org.example;
 
+import org.example.analyze.AnalysisReport;
+import org.example.analyze.MigrationAnalyzer;
+import org.example.converter.ConversionManifest;
+import org.example.converter.ConversionResult;
 import org.example.converter.JUnit4ToJUnit5Converter;
-import org.example.util.ModifyFileCmd;
+import org.example.converter.ModuleScheduler;
+import org.example.converter.Shard;
+import org.example.converter.TokenSpanRewriter;
+import org.example.converter.WriteBackStage;
+import org.example.daemon.ConversionDaemon;
+import org.example.metrics.ProgressReporter;
+import org.example.metrics.RunReport;
+import org.example.util.CachedTypeSolver;
+import org.example.util.HeapBudget;
+import org.example.util.JavaFileDiscovery;
+import org.example.util.MavenReactor;
+import org.example.verify.CompileVerifier;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * 用法：StartCoverterMain 目录或文件 [--include glob]... [--exclude glob]... [--parallelism n]
+ * [--source-root dir]... [--jar file]... [--type-cache file] [--metrics file] [--manifest file]
+ * [--heap-budget mb] [--daemon] [--socket file] [--watch dir]... [--reactor pom]
+ * [--verify | --verify-rollback] [--classpath path] [--sourcepath dir]... [--shard i/N] [--report file]
+ * [--journal file] [--recover resume|rollback] [--fast-path-threshold kb|off] [--analyze]
+ * <br>
+ * StartCoverterMain --merge 输出文件 分片报告...
+ * <br>
+ * 除 --reactor 与常驻进程（--daemon、--socket、--watch）之外必须指定要转换的目录或文件，缺少时输出用法并以状态 2 退出。
+ * <p>
+ * 指定 --source-root 或 --jar 时启用共享的 symbol solver，用于判断断言参数是否为 String；
+ * --type-cache 指定解析结果的持久化缓存文件，源码根目录或 jar 有任何变化时整个缓存失效。
+ * --manifest 启用增量转换：内容哈希、工具版本与处理器集合都和清单记录一致的文件直接跳过。
+ * --heap-budget 指定同时驻留的语法树的内存预算（MB），默认为最大堆的 60%，预算随 GC 压力自动收缩。
+ * 运行过程中在 stderr 输出进度行；结束时把各阶段、各处理器的耗时与改写次数写到 --metrics 指定的文件
+ * （.csv 为 CSV，其它为 JSON），未指定时以 JSON 输出到 stderr。
+ * 各阶段与处理器同时发出 JFR 事件（分类 "JUnit Migration"），可用 -XX:StartFlightRecording 录制
+ * --reactor 读取 Maven reactor 的模块树，转换所有模块的测试源码目录，大文件优先调度，结束时按模块输出统计。
+ * --verify 在转换结束后于进程内并行编译改写过的文件（见 {@link CompileVerifier}），报告被改坏的文件；
+ * --verify-rollback 同时把它们恢复为改写前的内容。--classpath 为编译所需的类路径（按平台路径分隔符分隔），
+ * --sourcepath 为解析其它测试类的源码根目录，未指定时使用转换的目录（--reactor 时为各模块的测试源码目录）。
+ * --shard i/N 只转换 N 个分片中的第 i 个（见 {@link Shard}），N 台机器各执行一片即覆盖全部文件；
+ * --report 把统计与每个文件的结果写成一份报告（见 {@link RunReport}），分片运行时默认为 junit5-shard-i-of-N.csv。
+ * --merge 把各分片的报告合并为一份，并输出汇总。
+ * 转换结果由单独的写回线程经临时文件原子替换写回（见 {@link WriteBackStage}）；--journal 指定写回日志，
+ * 上次运行中断留下日志时先按 --recover 处理：resume（默认）完成已提交的写入后继续转换，
+ * rollback 把中断的那次运行写过的文件恢复为原内容后退出。
+ * --fast-path-threshold 指定按 token 区间改写的大文件阈值（KB，默认 256，见 {@link TokenSpanRewriter}），off 关闭。
+ * --analyze 只做只读分析（见 {@link MigrationAnalyzer}）：按模块统计还需要迁移的写法，输出表格，
+ * 指定 --report 时同时写成 CSV（见 {@link AnalysisReport}），不修改任何文件。
+ * <p>
+ * --daemon、--socket、--watch 以常驻进程运行（见 {@link ConversionDaemon}）：--daemon 从 stdin 读取请求，
+ * --socket 在指定的 Unix socket 上接受请求，--watch 监听目录并在文件变化后立即转换，三者可以组合。
+ */
 public class StartCoverterMain {
 
-  static String scriptPath = "/Users/didi/IdeaProjects/hadoop-junit-tool/shell/JUnit4ToJUnit5.sh";
-
-  static String converterDir = "/Users/didi/IdeaProjects/hadoop/hadoop-hdfs-project/hadoop-hdfs-rbf/src/test/java/org/apache/hadoop/hdfs/server/federation/router/TestRouterAdminCLI.java";
+  static final String USAGE = "usage: StartCoverterMain <dir or file> [--include glob]... [--exclude glob]..."
+      + " [--parallelism n]\n"
+      + "    [--source-root dir]... [--jar file]... [--type-cache file] [--metrics file] [--manifest file]"
+      + " [--heap-budget mb]\n"
+      + "    [--daemon] [--socket file] [--watch dir]... [--reactor pom] [--verify | --verify-rollback]"
+      + " [--classpath path] [--sourcepath dir]...\n"
+      + "    [--shard i/N] [--report file] [--journal file] [--recover resume|rollback]"
+      + " [--fast-path-threshold kb|off] [--analyze]\n"
+      + "       StartCoverterMain --merge <output> <shard report>...";
 
   public static void main(String[] args) throws IOException {
-    List<String> files = ModifyFileCmd.getModifyFile(scriptPath, converterDir);
+    if (args.length > 0 && "--merge".equals(args[0])) {
+      merge(args);
+      return;
+    }
+    Path root = null;
+    JavaFileDiscovery discovery = new JavaFileDiscovery();
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    List<Path> sourceRoots = new ArrayList<>();
+    List<Path> jars = new ArrayList<>();
+    Path typeCache = null;
+    Path metricsFile = null;
+    Path manifestFile = null;
+    long heapBudgetMb = 0;
+    boolean stdinDaemon = false;
+    Path socketFile = null;
+    List<Path> watchRoots = new ArrayList<>();
+    Path reactor = null;
+    boolean verify = false;
+    boolean rollback = false;
+    List<Path> classpath = new ArrayList<>();
+    List<Path> sourcepath = new ArrayList<>();
+    Shard shard = Shard.ALL;
+    Path reportFile = null;
+    Path journalFile = null;
+    boolean recoverRollback = false;
+    long fastPathThreshold = JUnit4ToJUnit5Converter.DEFAULT_FAST_PATH_THRESHOLD;
+    boolean analyze = false;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--include" -> discovery.include(args[++i]);
+        case "--exclude" -> discovery.exclude(args[++i]);
+        case "--parallelism" -> parallelism = Integer.parseInt(args[++i]);
+        case "--source-root" -> sourceRoots.add(Path.of(args[++i]));
+        case "--jar" -> jars.add(Path.of(args[++i]));
+        case "--type-cache" -> typeCache = Path.of(args[++i]);
+        case "--metrics" -> metricsFile = Path.of(args[++i]);
+        case "--manifest" -> manifestFile = Path.of(args[++i]);
+        case "--heap-budget" -> heapBudgetMb = Long.parseLong(args[++i]);
+        case "--daemon" -> stdinDaemon = true;
+        case "--socket" -> socketFile = Path.of(args[++i]);
+        case "--watch" -> watchRoots.add(Path.of(args[++i]));
+        case "--reactor" -> reactor = Path.of(args[++i]);
+        case "--verify" -> verify = true;
+        case "--verify-rollback" -> {
+          verify = true;
+          rollback = true;
+        }
+        case "--classpath" -> {
+          for (String entry : args[++i].split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+              classpath.add(Path.of(entry));
+            }
+          }
+        }
+        case "--sourcepath" -> sourcepath.add(Path.of(args[++i]));
+        case "--shard" -> shard = Shard.parse(args[++i]);
+        case "--report" -> reportFile = Path.of(args[++i]);
+        case "--journal" -> journalFile = Path.of(args[++i]);
+        case "--recover" -> recoverRollback = "rollback".equals(args[++i]);
+        case "--fast-path-threshold" -> {
+          String threshold = args[++i];
+          fastPathThreshold = "off".equals(threshold) ? Long.MAX_VALUE : Long.parseLong(threshold) << 10;
+        }
+        case "--analyze" -> analyze = true;
+        default -> root = Path.of(args[i]);
+      }
+    }
+    boolean daemon = stdinDaemon || socketFile != null || !watchRoots.isEmpty();
+    if (root == null && reactor == null && (analyze || !daemon)) {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+
+    if (analyze) {
+      analyze(root, reactor, discovery, parallelism, sourceRoots, jars, typeCache, reportFile);
+      return;
+    }
+
+    if (journalFile != null && Files.exists(journalFile)) {
+      List<Path> recovered = WriteBackStage.recover(journalFile, recoverRollback);
+      System.err.println((recoverRollback ? "Rolled back " : "Resumed ") + recovered.size()
+          + " files from interrupted run: " + journalFile);
+      if (recoverRollback) {
+        return;
+      }
+    }
+
+    CachedTypeSolver typeSolver = null;
+    if (!sourceRoots.isEmpty() || !jars.isEmpty()) {
+      typeSolver = new CachedTypeSolver(sourceRoots, jars, typeCache);
+      CachedTypeSolver.install(typeSolver);
+    }
+
     JUnit4ToJUnit5Converter converter = new JUnit4ToJUnit5Converter();
+    if (heapBudgetMb > 0) {
+      converter.setHeapBudget(new HeapBudget(heapBudgetMb << 20));
+    }
+    ConversionManifest manifest = null;
+    if (manifestFile != null) {
+      manifest = new ConversionManifest(manifestFile, converter.getEngine().getProcessorNames());
+      converter.setManifest(manifest);
+    }
+    converter.setFastPathThreshold(fastPathThreshold);
+    converter.setRetainOriginals(verify);
+    WriteBackStage writeBack = new WriteBackStage(journalFile);
+    converter.setWriteBack(writeBack);
+    if (daemon) {
+      runDaemon(new ConversionDaemon(converter, discovery, parallelism, manifest, typeSolver), writeBack,
+          stdinDaemon, socketFile, watchRoots);
+      return;
+    }
+    List<ConversionResult> results;
+    List<ModuleScheduler.ModuleResult> moduleResults = null;
+    // 分片与报告中的相对路径以它为根
+    Path base;
+    ProgressReporter progress = new ProgressReporter(converter.getMetrics(), System.err, Duration.ofSeconds(1));
+    try {
+      if (reactor != null) {
+        Path pom = reactor.toAbsolutePath().normalize();
+        base = Files.isDirectory(pom) ? pom : pom.getParent();
+        moduleResults = new ModuleScheduler(converter, discovery)
+            .run(MavenReactor.read(reactor), parallelism, shard, base);
+        results = moduleResults.stream().flatMap(module -> module.results().stream()).toList();
+      } else if (shard.isAll()) {
+        base = Files.isDirectory(root) ? root : root.getParent();
+        results = converter.convertTree(root, discovery, parallelism);
+      } else {
+        // 分片需要完整的文件列表，先遍历再转换
+        base = Files.isDirectory(root) ? root : root.getParent();
+        results = converter.convertAll(shard.select(base, discovery.discover(root, parallelism)), parallelism);
+      }
+    } finally {
+      progress.close();
+    }
+
+    // 等待写回线程写完，写回失败的文件计为 FAILED
+    if (moduleResults != null) {
+      List<ModuleScheduler.ModuleResult> flushed = new ArrayList<>(moduleResults.size());
+      for (ModuleScheduler.ModuleResult module : moduleResults) {
+        flushed.add(new ModuleScheduler.ModuleResult(module.module(), converter.flush(module.results())));
+      }
+      moduleResults = flushed;
+      results = flushed.stream().flatMap(module -> module.results().stream()).toList();
+    } else {
+      results = converter.flush(results);
+    }
+    writeBack.close();
+
+    if (verify) {
+      if (sourcepath.isEmpty()) {
+        if (moduleResults != null) {
+          moduleResults.forEach(module -> sourcepath.addAll(module.module().testRoots()));
+        } else if (Files.isDirectory(root)) {
+          sourcepath.add(root);
+        }
+      }
+      verify(converter.getOriginals(), classpath, sourcepath, parallelism, rollback, manifest);
+    }
+
+    if (typeSolver != null) {
+      typeSolver.persist();
+    }
+    if (manifest != null) {
+      manifest.persist();
+    }
+
+    for (ConversionResult result : results) {
+      switch (result.status()) {
+        case CONVERTED -> System.out.println(result.path());
+        case FAILED -> System.err.println("Failed: " + result.path() + " -> " + result.error());
+        default -> {
+        }
+      }
+    }
+
+    if (moduleResults != null) {
+      printModules(moduleResults);
+    }
+    if (metricsFile != null) {
+      converter.getMetrics().writeSummary(metricsFile);
+    } else {
+      System.err.print(converter.getMetrics().toJson());
+    }
+    if (reportFile == null && !shard.isAll()) {
+      reportFile = Path.of("junit5-shard-" + shard.index() + "-of-" + shard.count() + ".csv");
+    }
+    if (reportFile != null) {
+      RunReport.of(shard, base, results, converter.getMetrics()).write(reportFile);
+    }
+  }
+
+  /**
+   * --analyze：只读分析，不恢复写回日志、不更新清单与类型缓存。没有 --reactor 时整个目录作为一个模块
+   */
+  private static void analyze(Path root, Path reactor, JavaFileDiscovery discovery, int parallelism,
+                              List<Path> sourceRoots, List<Path> jars, Path typeCache, Path reportFile)
+      throws IOException {
+    if (!sourceRoots.isEmpty() || !jars.isEmpty()) {
+      CachedTypeSolver.install(new CachedTypeSolver(sourceRoots, jars, typeCache));
+    }
+    List<MavenReactor.Module> modules = reactor != null ? MavenReactor.read(reactor)
+        : List.of(new MavenReactor.Module(root.toAbsolutePath().normalize().getFileName().toString(), root,
+            List.of(root)));
+    AnalysisReport report = new MigrationAnalyzer(discovery).analyze(modules, parallelism);
+    report.print(System.out);
+    if (reportFile != null) {
+      report.write(reportFile);
+    }
+  }
+
+  /**
+   * --merge 输出文件 分片报告...
+   */
+  private static void merge(String[] args) throws IOException {
+    if (args.length < 3) {
+      throw new IllegalArgumentException("usage: --merge <output> <shard report>...");
+    }
+    List<RunReport> reports = new ArrayList<>();
+    for (int i = 2; i < args.length; i++) {
+      reports.add(RunReport.read(Path.of(args[i])));
+    }
+    RunReport merged = RunReport.merge(reports);
+    merged.write(Path.of(args[1]));
+    merged.printSummary(System.err);
+  }
+
+  private static void printModules(List<ModuleScheduler.ModuleResult> modules) {
+    System.err.printf("%-40s %8s %10s %8s %8s %8s %10s%n",
+        "module", "files", "converted", "skipped", "current", "failed", "cpu-ms");
+    for (ModuleScheduler.ModuleResult module : modules) {
+      System.err.printf("%-40s %8d %10d %8d %8d %8d %10d%n", module.module().artifactId(),
+          module.results().size(),
+          module.count(ConversionResult.Status.CONVERTED),
+          module.count(ConversionResult.Status.SKIPPED),
+          module.count(ConversionResult.Status.UP_TO_DATE),
+          module.count(ConversionResult.Status.FAILED),
+          module.elapsedNanos() / 1_000_000);
+    }
+  }
+
+  /**
+   * 编译校验改写过的文件，输出无法编译的文件与错误；rollback 时恢复被改坏的文件，并从清单中移除，下次重新转换
+   */
+  private static void verify(Map<Path, String> originals, List<Path> classpath, List<Path> sourcepath,
+                             int parallelism, boolean rollback, ConversionManifest manifest) throws IOException {
+    long start = System.nanoTime();
+    List<CompileVerifier.Result> results;
+    try (CompileVerifier verifier = new CompileVerifier(classpath, sourcepath)) {
+      results = verifier.verify(originals, parallelism);
+    }
+    int broken = 0;
+    int unverifiable = 0;
+    for (CompileVerifier.Result result : results) {
+      switch (result.status()) {
+        case BROKEN -> {
+          broken++;
+          if (rollback) {
+            CompileVerifier.rollback(result, originals.get(result.path()));
+            if (manifest != null) {
+              manifest.forget(result.path());
+            }
+          }
+          System.err.println((rollback ? "Rolled back: " : "Broken: ") + result.path());
+        }
+        case UNVERIFIABLE -> {
+          unverifiable++;
+          System.err.println("Unverifiable: " + result.path());
+        }
+        default -> {
+          continue;
+        }
+      }
+      for (String diagnostic : result.diagnostics()) {
+        System.err.println("    " + diagnostic);
+      }
+    }
+    System.err.printf("verified %d files in %d ms: ok=%d broken=%d unverifiable=%d%n", results.size(),
+        (System.nanoTime() - start) / 1_000_000, results.size() - broken - unverifiable, broken, unverifiable);
+  }
+
+  private static void runDaemon(ConversionDaemon daemon, WriteBackStage writeBack, boolean stdin, Path socketFile,
+                                List<Path> watchRoots) throws IOException {
+    // 被 kill 时同样持久化清单与类型缓存，并写完队列中的文件
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      daemon.close();
+      closeQuietly(writeBack);
+    }, "conversion-daemon-shutdown"));
+    if (!watchRoots.isEmpty()) {
+      daemon.watch(watchRoots, new PrintWriter(System.err, true, StandardCharsets.UTF_8));
+    }
+    if (stdin) {
+      Thread thread = new Thread(daemon::serveStdin, "conversion-stdin");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    if (socketFile != null) {
+      daemon.serveSocket(socketFile);
+    }
+    try {
+      daemon.awaitShutdown();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    daemon.close();
+    closeQuietly(writeBack);
+  }
 
-    for (String file : files) {
-      System.out.println(file);
-      converter.converter(Path.of(file));
+  private static void closeQuietly(WriteBackStage writeBack) {
+    try {
+      writeBack.close();
+    } catch (IOException e) {
+      System.err.println("Failed to close write-back: " + e);
     }
   }
-}
\ No newline at end of file
+}
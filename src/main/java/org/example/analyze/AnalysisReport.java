@@ -0,0 +1,140 @@
+package org.example.analyze;
+
+import org.example.analyze.MigrationAnalyzer.Construct;
+import org.example.analyze.MigrationAnalyzer.FileAnalysis;
+import org.example.util.MavenReactor;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 按模块汇总的只读分析结果，可以输出为表格，或写成每行一个 (模块, 写法, 个数) 的 CSV：
+ * <pre>
+ * module,construct,count
+ * hadoop-hdfs,files,2310
+ * hadoop-hdfs,junit4-files,1985
+ * hadoop-hdfs,test-expected,412
+ * hadoop-hdfs,rule:ExpectedException,57
+ * </pre>
+ * 除 files、junit4-files、failed 外每行对应一种 {@link Construct}，规则字段另有按类型的 rule:类型 明细；
+ * 个数为 0 的行不输出。每次提交都重新生成时，两份报告直接 diff 即可看出迁移进度。
+ */
+public final class AnalysisReport {
+
+  private static final String HEADER = "module,construct,count";
+
+  /**
+   * 单个模块的统计
+   *
+   * @param constructs 按 {@link Construct#ordinal()} 排列的个数
+   * @param rules      规则字段的类型简单名 -> 字段个数
+   */
+  public record ModuleCounts(String module, int files, int junit4Files, int failed, long[] constructs,
+                             Map<String, Long> rules) {
+  }
+
+  private final List<ModuleCounts> modules = new ArrayList<>();
+
+  // 读取或解析失败的文件
+  private final List<FileAnalysis> failures = new ArrayList<>();
+
+  private final long elapsedNanos;
+
+  AnalysisReport(List<MavenReactor.Module> modules, List<List<FileAnalysis>> results, long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+    for (int i = 0; i < modules.size(); i++) {
+      int junit4Files = 0;
+      int failed = 0;
+      long[] constructs = new long[Construct.values().length];
+      Map<String, Long> rules = new TreeMap<>();
+      for (FileAnalysis file : results.get(i)) {
+        if (file.junit4()) {
+          junit4Files++;
+        }
+        if (file.error() != null) {
+          failed++;
+          failures.add(file);
+        }
+        for (int c = 0; c < constructs.length; c++) {
+          constructs[c] += file.counts()[c];
+        }
+        file.rules().forEach((type, count) -> rules.merge(type, (long) count, Long::sum));
+      }
+      this.modules.add(new ModuleCounts(modules.get(i).artifactId(), results.get(i).size(), junit4Files, failed,
+          constructs, rules));
+    }
+  }
+
+  public List<ModuleCounts> modules() {
+    return List.copyOf(modules);
+  }
+
+  public void write(Path file) throws IOException {
+    StringBuilder sb = new StringBuilder(HEADER).append('\n');
+    for (ModuleCounts module : modules) {
+      row(sb, module.module(), "files", module.files());
+      row(sb, module.module(), "junit4-files", module.junit4Files());
+      row(sb, module.module(), "failed", module.failed());
+      for (Construct construct : Construct.values()) {
+        row(sb, module.module(), construct.label(), module.constructs()[construct.ordinal()]);
+      }
+      module.rules().forEach((type, count) -> row(sb, module.module(), "rule:" + type, count));
+    }
+    Files.writeString(file, sb, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 输出每个模块一行的表格、合计与失败的文件
+   */
+  public void print(PrintStream out) {
+    out.printf("%-40s %7s %7s %9s %7s %9s %9s %9s %10s %7s%n", "module", "files", "junit4", "expected", "rules",
+        "hamcrest", "unmapped", "msg-first", "ext-assert", "failed");
+    long[] total = new long[Construct.values().length];
+    int files = 0;
+    int junit4Files = 0;
+    int failed = 0;
+    for (ModuleCounts module : modules) {
+      print(out, module.module(), module.files(), module.junit4Files(), module.constructs(), module.failed());
+      for (int c = 0; c < total.length; c++) {
+        total[c] += module.constructs()[c];
+      }
+      files += module.files();
+      junit4Files += module.junit4Files();
+      failed += module.failed();
+    }
+    if (modules.size() > 1) {
+      print(out, "total", files, junit4Files, total, failed);
+    }
+    for (FileAnalysis failure : failures) {
+      out.println("Failed: " + failure.path() + " -> " + failure.error());
+    }
+    out.printf("analyzed %d files in %d ms%n", files, elapsedNanos / 1_000_000);
+  }
+
+  private static void print(PrintStream out, String module, int files, int junit4Files, long[] constructs,
+                            int failed) {
+    out.printf("%-40s %7d %7d %9d %7d %9d %9d %9d %10d %7d%n", module, files, junit4Files,
+        constructs[Construct.TEST_EXPECTED.ordinal()],
+        constructs[Construct.RULE_FIELD.ordinal()],
+        constructs[Construct.HAMCREST_MATCHER.ordinal()],
+        constructs[Construct.UNMAPPED_MATCHER.ordinal()],
+        constructs[Construct.MESSAGE_FIRST_ASSERT.ordinal()],
+        constructs[Construct.EXTENDS_ASSERT.ordinal()],
+        failed);
+  }
+
+  private static void row(StringBuilder sb, String module, String construct, long count) {
+    if (count == 0) {
+      return;
+    }
+    // 模块名来自 artifactId，不会包含逗号与换行
+    sb.append(module).append(',').append(construct).append(',').append(count).append('\n');
+  }
+}
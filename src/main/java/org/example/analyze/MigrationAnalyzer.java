@@ -0,0 +1,154 @@
+package org.example.analyze;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import org.example.converter.ModuleScheduler;
+import org.example.converter.Shard;
+import org.example.converter.SourcePrefilter;
+import org.example.converter.processor.AssertArgumentsProcessor;
+import org.example.converter.processor.ClassExtendsAssertProcessor;
+import org.example.converter.processor.HamcrestToAssertJTransformer;
+import org.example.converter.processor.TestExpectedProcessor;
+import org.example.util.CachedTypeSolver;
+import org.example.util.DeclarationTypeIndex;
+import org.example.util.JavaFileDiscovery;
+import org.example.util.MavenReactor;
+import org.example.util.TestClassIndex;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 只读的迁移分析：统计每个模块中还有多少需要迁移的写法（见 {@link Construct}），不修改语法树，也不写回任何文件。
+ * <p>
+ * 判断条件直接复用各处理器的只读方法（{@link TestExpectedProcessor#expectedPair}、
+ * {@link AssertArgumentsProcessor#messageOrder} 等），统计结果与实际转换时改写的位置一致。
+ * 文件的遍历与调度同 {@link ModuleScheduler}（大文件优先），没有引用 JUnit4 的文件由 {@link SourcePrefilter} 跳过，
+ * 其余文件只解析一次、遍历一次，不需要 LexicalPreservingPrinter.setup，耗时主要是解析本身，远小于转换。
+ * 构建完成后无状态，可在线程间共享。
+ */
+public class MigrationAnalyzer {
+
+  /**
+   * 统计的写法
+   */
+  public enum Construct {
+    // 方法上的 @Test(expected = ...)
+    TEST_EXPECTED("test-expected"),
+    // @Rule / @ClassRule 字段，按类型的明细见 FileAnalysis#rules
+    RULE_FIELD("rule"),
+    // assertThat(actual, matcher) 与 assertThat(reason, actual, matcher)
+    HAMCREST_MATCHER("hamcrest"),
+    // 其中没有对应 AssertJ 规则、需要人工处理的
+    UNMAPPED_MATCHER("hamcrest-unmapped"),
+    // 消息在第一个参数的 JUnit4 风格断言
+    MESSAGE_FIRST_ASSERT("message-first-assert"),
+    // extends Assert 的类
+    EXTENDS_ASSERT("extends-assert");
+
+    private final String label;
+
+    Construct(String label) {
+      this.label = label;
+    }
+
+    public String label() {
+      return label;
+    }
+  }
+
+  /**
+   * 单个文件的分析结果
+   *
+   * @param junit4 是否引用 JUnit4，没有引用时不解析，counts 全为 0
+   * @param counts 按 {@link Construct#ordinal()} 排列的个数
+   * @param rules  规则字段的类型简单名 -> 字段个数
+   * @param error  读取或解析失败的原因，成功时为 null
+   */
+  public record FileAnalysis(Path path, boolean junit4, int[] counts, Map<String, Integer> rules, String error) {
+  }
+
+  // 只判断是否引用 JUnit4，与转换时跳过的文件一致
+  private final SourcePrefilter prefilter = new SourcePrefilter();
+
+  private final JavaFileDiscovery discovery;
+
+  // 每个工作线程独享一个解析器；注释不参与判断，不需要归属到节点上。
+  // 只有 symbol solver 需要节点的位置，没有配置时不保存 token，解析快约三分之一
+  private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> new JavaParser(
+      new ParserConfiguration().setAttributeComments(false).setStoreTokens(CachedTypeSolver.shared().isPresent())));
+
+  public MigrationAnalyzer(JavaFileDiscovery discovery) {
+    this.discovery = discovery;
+  }
+
+  /**
+   * 并行分析所有模块的测试源码目录
+   */
+  public AnalysisReport analyze(List<MavenReactor.Module> modules, int parallelism) {
+    long start = System.nanoTime();
+    List<List<FileAnalysis>> results =
+        ModuleScheduler.schedule(discovery, modules, parallelism, Shard.ALL, null, this::analyzeQuietly);
+    return new AnalysisReport(modules, results, System.nanoTime() - start);
+  }
+
+  /**
+   * 分析单个文件，读取或解析失败时记录在结果中而不是抛出
+   */
+  public FileAnalysis analyzeQuietly(Path path) {
+    int[] counts = new int[Construct.values().length];
+    Map<String, Integer> rules = new TreeMap<>();
+    SourcePrefilter.Candidate candidate;
+    try {
+      candidate = prefilter.readIfMigratable(path);
+    } catch (Exception e) {
+      return new FileAnalysis(path, false, counts, rules, e.toString());
+    }
+    if (candidate == null) {
+      return new FileAnalysis(path, false, counts, rules, null);
+    }
+    ParseResult<CompilationUnit> parsed = parsers.get().parse(candidate.source());
+    if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+      String problem = parsed.getProblems().isEmpty() ? "" : ": " + parsed.getProblems().get(0).getMessage();
+      return new FileAnalysis(path, true, counts, rules, "parse error" + problem);
+    }
+    CompilationUnit cu = parsed.getResult().get();
+    DeclarationTypeIndex index = new DeclarationTypeIndex(cu);
+    cu.walk(node -> {
+      if (node instanceof NormalAnnotationExpr annotation) {
+        if (TestExpectedProcessor.expectedPair(annotation).isPresent()) {
+          counts[Construct.TEST_EXPECTED.ordinal()]++;
+        }
+      } else if (node instanceof ClassOrInterfaceDeclaration type) {
+        if (ClassExtendsAssertProcessor.extendsAssert(type)) {
+          counts[Construct.EXTENDS_ASSERT.ordinal()]++;
+        }
+        TestClassIndex classIndex = new TestClassIndex(type);
+        for (String ruleType : classIndex.ruleTypes()) {
+          int fields = classIndex.ruleFields(ruleType).size();
+          counts[Construct.RULE_FIELD.ordinal()] += fields;
+          rules.merge(ruleType, fields, Integer::sum);
+        }
+      } else if (node instanceof MethodCallExpr call) {
+        if (AssertArgumentsProcessor.messageOrder(call, AssertArgumentsProcessor.SWAP_TWO_ARGS_METHODS,
+            AssertArgumentsProcessor.SHIFT_THREE_ARGS_METHODS, index) != null) {
+          counts[Construct.MESSAGE_FIRST_ASSERT.ordinal()]++;
+        }
+        if (HamcrestToAssertJTransformer.isMatcherAssert(call)) {
+          counts[Construct.HAMCREST_MATCHER.ordinal()]++;
+          if (HamcrestToAssertJTransformer.RULES.match(call.getArguments().getLast().orElseThrow()) == null) {
+            counts[Construct.UNMAPPED_MATCHER.ordinal()]++;
+          }
+        }
+      }
+    });
+    return new FileAnalysis(path, true, counts, rules, null);
+  }
+}
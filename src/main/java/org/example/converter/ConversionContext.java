@@ -0,0 +1,206 @@
+package org.example.converter;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import org.example.metrics.FileMetrics;
+import org.example.util.DeclarationTypeIndex;
+import org.example.util.ImportIndex;
+import org.example.util.TestClassIndex;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个文件一次转换过程中的状态
+ * 每个文件独立创建，不在线程之间共享，替代原先 converter() 中的局部 AtomicBoolean 标记
+ */
+public class ConversionContext {
+
+  private final Path path;
+
+  // 各阶段与各处理器的耗时、改写次数
+  private final FileMetrics metrics;
+
+  // 读取时的文件内容哈希，只在启用增量清单时计算
+  private String contentHash;
+
+  // 已替换 import 的 JUnit4 类名，用于判断注解与 Assert.xxx 调用是否来自 JUnit4
+  private Set<String> migratedJUnit4Names = Set.of();
+
+  // 当前文件的声明索引，第一次查询时才真正构建
+  private DeclarationTypeIndex declarationTypeIndex;
+
+  // 当前文件的 import 索引，处理器对 import 的修改都记录在这里，遍历结束后一次写回
+  private ImportIndex importIndex;
+
+  // 每个类的成员索引，第一次查询时构建，同一个类上的多个处理器共享
+  private final Map<ClassOrInterfaceDeclaration, TestClassIndex> testClassIndexes = new IdentityHashMap<>();
+
+  // 是否有 @Rule 字段被迁移，遍历结束后据此清理 org.junit.Rule 等 import
+  private final AtomicBoolean migratedRules = new AtomicBoolean(false);
+
+  // 规则迁移等处理器需要在遍历结束后插入的 import，按登记顺序
+  private final Set<String> requiredImports = new LinkedHashSet<>();
+
+  // 是否需要插入 org.junit.jupiter.api.Timeout
+  private final AtomicBoolean needTimeoutImport = new AtomicBoolean(false);
+
+  // 是否需要插入 java.util.concurrent.TimeUnit
+  private final AtomicBoolean needTimeUnitImport = new AtomicBoolean(false);
+
+  // 是否需要插入 org.junit.jupiter.api.Assertions
+  private final AtomicBoolean needAssertionsImport = new AtomicBoolean(false);
+
+  // 代码中是否调用了 assertThat
+  private final AtomicBoolean usedAssertThat = new AtomicBoolean(false);
+
+  // 是否有 Hamcrest 风格的 assertThat 没有规则可以转换，此时保留 hamcrest 的 import
+  private final AtomicBoolean untranslatedAssertThat = new AtomicBoolean(false);
+
+  // 遍历过程中收集到的 Assertions.assertThat(...) 调用，遍历结束后统一处理
+  private final List<MethodCallExpr> scopedAssertThatCalls = new ArrayList<>();
+
+  // 语法树第一次被修改前执行的回调，用于延迟 LexicalPreservingPrinter.setup
+  private Runnable beforeFirstRewrite;
+
+  // 是否有处理器修改过语法树
+  private boolean rewritten;
+
+  public ConversionContext(Path path) {
+    this.path = path;
+    this.metrics = new FileMetrics(path);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public FileMetrics getMetrics() {
+    return metrics;
+  }
+
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  public void setContentHash(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  public Set<String> getMigratedJUnit4Names() {
+    return migratedJUnit4Names;
+  }
+
+  public void setMigratedJUnit4Names(Set<String> migratedJUnit4Names) {
+    this.migratedJUnit4Names = migratedJUnit4Names;
+  }
+
+  public DeclarationTypeIndex getDeclarationTypeIndex() {
+    return declarationTypeIndex;
+  }
+
+  public void setDeclarationTypeIndex(DeclarationTypeIndex declarationTypeIndex) {
+    this.declarationTypeIndex = declarationTypeIndex;
+  }
+
+  /**
+   * 第一次调用时扫描 cu 的 import 构建索引；索引记录修改时自动调用 {@link #prepareRewrite()}
+   */
+  public ImportIndex getImportIndex(CompilationUnit cu) {
+    if (importIndex == null) {
+      importIndex = new ImportIndex(cu, this::prepareRewrite);
+    }
+    return importIndex;
+  }
+
+  /**
+   * 把 import 索引中记录的修改写回语法树，所有处理器执行完之后调用
+   */
+  public void applyImports() {
+    if (importIndex != null) {
+      importIndex.apply();
+    }
+  }
+
+  public TestClassIndex getTestClassIndex(ClassOrInterfaceDeclaration type) {
+    return testClassIndexes.computeIfAbsent(type, TestClassIndex::new);
+  }
+
+  public AtomicBoolean getMigratedRules() {
+    return migratedRules;
+  }
+
+  public Set<String> getRequiredImports() {
+    return requiredImports;
+  }
+
+  public void requireImport(String name) {
+    requiredImports.add(name);
+  }
+
+  public AtomicBoolean getNeedTimeoutImport() {
+    return needTimeoutImport;
+  }
+
+  public AtomicBoolean getNeedTimeUnitImport() {
+    return needTimeUnitImport;
+  }
+
+  public AtomicBoolean getNeedAssertionsImport() {
+    return needAssertionsImport;
+  }
+
+  public AtomicBoolean getUsedAssertThat() {
+    return usedAssertThat;
+  }
+
+  public AtomicBoolean getUntranslatedAssertThat() {
+    return untranslatedAssertThat;
+  }
+
+  public List<MethodCallExpr> getScopedAssertThatCalls() {
+    return scopedAssertThatCalls;
+  }
+
+  public void setBeforeFirstRewrite(Runnable beforeFirstRewrite) {
+    this.beforeFirstRewrite = beforeFirstRewrite;
+  }
+
+  /**
+   * 释放对语法树的引用（声明索引、回调、收集到的节点），文件写回后即可回收，
+   * 不必等到统计汇总结束
+   */
+  public void releaseSyntaxTree() {
+    declarationTypeIndex = null;
+    importIndex = null;
+    testClassIndexes.clear();
+    beforeFirstRewrite = null;
+    scopedAssertThatCalls.clear();
+  }
+
+  /**
+   * 处理器在每次修改语法树之前必须调用：记录文件已被修改并计入当前处理器的改写次数，
+   * 第一次调用时执行 beforeFirstRewrite 回调。没有任何处理器调用过的文件不会被重新打印和写回
+   */
+  public void prepareRewrite() {
+    metrics.countRewrite();
+    if (rewritten) {
+      return;
+    }
+    rewritten = true;
+    if (beforeFirstRewrite != null) {
+      beforeFirstRewrite.run();
+    }
+  }
+
+  public boolean isRewritten() {
+    return rewritten;
+  }
+}
@@ -0,0 +1,135 @@
+package org.example.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量转换清单：以文件路径为键，记录上次处理后文件内容的哈希、工具版本与应用过的处理器。
+ * 再次运行时，内容哈希、工具版本、处理器集合都一致的文件直接跳过，不解码也不解析。
+ * <p>
+ * 转换成功（包括没有需要修改的内容）后记录的是写回后的内容哈希，因此下次运行时已转换的文件同样被跳过；
+ * 转换失败的文件从清单中删除，下次重新处理。
+ * 可在线程间共享，运行结束时调用 {@link #persist()} 写回磁盘。
+ */
+public class ConversionManifest {
+
+  private static final String VERSION_RESOURCE = "/hadoop-junit-tool.properties";
+
+  private static final String SEPARATOR = "|";
+
+  private final Path manifestFile;
+
+  // 工具版本|处理器集合，清单中每个条目的后缀
+  private final String fingerprint;
+
+  // 路径 -> 内容哈希|工具版本|处理器集合
+  private final Map<String, String> entries = new ConcurrentHashMap<>();
+
+  /**
+   * @param processors 本次运行会应用的处理器，集合变化后所有文件都会重新处理
+   */
+  public ConversionManifest(Path manifestFile, List<String> processors) throws IOException {
+    this.manifestFile = manifestFile;
+    this.fingerprint = toolVersion() + SEPARATOR + String.join(",", processors);
+    if (Files.exists(manifestFile)) {
+      load();
+    }
+  }
+
+  /**
+   * 内容哈希，不修改 buffer 的 position
+   */
+  public static String hash(ByteBuffer content) {
+    MessageDigest digest = newDigest();
+    digest.update(content.duplicate());
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  public static String hash(byte[] content) {
+    return HexFormat.of().formatHex(newDigest().digest(content));
+  }
+
+  /**
+   * 文件内容与清单中的记录一致，且由相同版本、相同处理器集合处理过
+   */
+  public boolean isUpToDate(Path path, String contentHash) {
+    return (contentHash + SEPARATOR + fingerprint).equals(entries.get(key(path)));
+  }
+
+  public void record(Path path, String contentHash) {
+    entries.put(key(path), contentHash + SEPARATOR + fingerprint);
+  }
+
+  public void forget(Path path) {
+    entries.remove(key(path));
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * 先写临时文件再原子替换，避免中断时留下损坏的清单
+   */
+  public void persist() throws IOException {
+    Properties properties = new Properties();
+    properties.putAll(entries);
+    Path parent = manifestFile.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path tmp = Files.createTempFile(parent, manifestFile.getFileName().toString(), ".tmp");
+    try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      properties.store(writer, "hadoop-junit-tool conversion manifest");
+    }
+    Files.move(tmp, manifestFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void load() throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    properties.forEach((k, v) -> entries.put((String) k, (String) v));
+  }
+
+  private static String key(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // 所有 JDK 都必须支持 SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toolVersion() {
+    try (InputStream in = ConversionManifest.class.getResourceAsStream(VERSION_RESOURCE)) {
+      if (in == null) {
+        return "unknown";
+      }
+      Properties properties = new Properties();
+      properties.load(in);
+      return properties.getProperty("version", "unknown");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
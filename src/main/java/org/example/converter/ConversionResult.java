@@ -0,0 +1,45 @@
+package org.example.converter;
+
+import java.nio.file.Path;
+
+/**
+ * 单个文件的转换结果
+ *
+ * @param path     被转换的文件
+ * @param status   转换状态
+ * @param error    失败时的异常，成功时为 null
+ * @param elapsedNanos 转换耗时（纳秒）
+ */
+public record ConversionResult(Path path, Status status, Throwable error, long elapsedNanos) {
+
+  public enum Status {
+    // 转换完成并写回
+    CONVERTED,
+    // 没有需要迁移的内容，未改动
+    SKIPPED,
+    // 内容与增量清单中的记录一致，未重新处理
+    UP_TO_DATE,
+    // 解析或写回失败
+    FAILED
+  }
+
+  public static ConversionResult converted(Path path, long elapsedNanos) {
+    return new ConversionResult(path, Status.CONVERTED, null, elapsedNanos);
+  }
+
+  public static ConversionResult skipped(Path path, long elapsedNanos) {
+    return new ConversionResult(path, Status.SKIPPED, null, elapsedNanos);
+  }
+
+  public static ConversionResult upToDate(Path path, long elapsedNanos) {
+    return new ConversionResult(path, Status.UP_TO_DATE, null, elapsedNanos);
+  }
+
+  public static ConversionResult failed(Path path, Throwable error, long elapsedNanos) {
+    return new ConversionResult(path, Status.FAILED, error, elapsedNanos);
+  }
+
+  public boolean isFailed() {
+    return status == Status.FAILED;
+  }
+}
@@ -1,86 +1,487 @@
 package org.example.converter;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
-import org.example.converter.processor.*;
+import org.example.metrics.ConversionMetrics;
+import org.example.metrics.FileEvent;
+import org.example.metrics.FileMetrics;
+import org.example.metrics.Phase;
+import org.example.util.CachedTypeSolver;
+import org.example.util.DeclarationTypeIndex;
+import org.example.util.HeapBudget;
+import org.example.util.JavaFileDiscovery;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 public class JUnit4ToJUnit5Converter {
 
-  public static String fileName = "/Users/didi/IdeaProjects/hadoop/hadoop-hdfs-project/hadoop-hdfs-rbf/src/test/java/org/apache/hadoop/hdfs/server/federation/router/TestRouterAdminCLI.java";
+  /**
+   * 默认的快速路径阈值：256K 字符，这样的文件 LexicalPreservingPrinter 的 setup 与打印占了大部分耗时
+   */
+  public static final long DEFAULT_FAST_PATH_THRESHOLD = 256 * 1024;
+
+  // 通过 ServiceLoader 加载的处理器，无状态，每个文件的状态保存在 ConversionContext 中，可在线程间共享
+  private final MigrationEngine engine;
 
-  // 需要交换两个参数
-  final Set<String> swapTwoArgsMethods;
+  // 按处理器的触发词构建，无状态，可在线程间共享
+  private final SourcePrefilter prefilter;
 
-  // 需要交换三个参数
-  final Set<String> shiftThreeArgsMethods;
+  // 整个运行期间的统计，每个文件结束时汇总
+  private final ConversionMetrics metrics = new ConversionMetrics();
+
+  // 大文件的快速路径，无状态，可在线程间共享
+  private final TokenSpanRewriter spanRewriter;
+
+  // 每个工作线程独享一个解析器，避免依赖 StaticJavaParser 的全局配置
+  private final ThreadLocal<JavaParser> parsers =
+      ThreadLocal.withInitial(() -> new JavaParser(new ParserConfiguration()));
 
   public JUnit4ToJUnit5Converter() {
-    shiftThreeArgsMethods = Set.of(
-        "assertEquals",
-        "assertNotEquals",
-        "assertSame",
-        "assertNotSame",
-        "assertArrayEquals"
-    );
+    this(MigrationEngine.load());
+  }
+
+  public JUnit4ToJUnit5Converter(MigrationEngine engine) {
+    this.engine = engine;
+    this.prefilter = new SourcePrefilter(engine.getProcessors());
+    this.spanRewriter = new TokenSpanRewriter(engine.getProcessors());
+    setHeapBudget(HeapBudget.forMaxHeap());
+  }
+
+  // 增量转换清单，为 null 时每次都完整处理所有文件
+  private volatile ConversionManifest manifest;
+
+  // 同时驻留的语法树的内存预算，为 null 时只受并行度限制
+  private volatile HeapBudget heapBudget;
+
+  // 改写过的文件 -> 改写前的内容，供编译校验与回滚使用，为 null 时不保留
+  private volatile Map<Path, String> originals;
+
+  // 异步写回，为 null 时在转换线程中同步写回
+  private volatile WriteBackStage writeBack;
+
+  // 不小于该长度（字符数）的文件先尝试 TokenSpanRewriter 的快速路径
+  private volatile long fastPathThreshold = DEFAULT_FAST_PATH_THRESHOLD;
+
+  // 异步写回失败的文件，由 flush 转为 FAILED 结果
+  private final Map<Path, IOException> writeFailures = new ConcurrentHashMap<>();
+
+  public ConversionMetrics getMetrics() {
+    return metrics;
+  }
+
+  public MigrationEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * 启用增量转换：内容与清单记录一致的文件直接跳过，处理过的文件记录到清单中
+   */
+  public void setManifest(ConversionManifest manifest) {
+    this.manifest = manifest;
+  }
+
+  /**
+   * 设置堆内存预算，默认为最大堆的 {@link HeapBudget#DEFAULT_HEAP_FRACTION}，传 null 取消限制
+   */
+  public void setHeapBudget(HeapBudget heapBudget) {
+    this.heapBudget = heapBudget;
+    metrics.setHeapBudget(heapBudget);
+  }
+
+  /**
+   * 保留改写过的文件在改写前的内容（见 {@link #getOriginals()}），供 {@link org.example.verify.CompileVerifier} 校验与回滚。
+   * 只保留实际写回的文件，内存占用与改写的文件总大小相当
+   */
+  public void setRetainOriginals(boolean retain) {
+    this.originals = retain ? new ConcurrentHashMap<>() : null;
+  }
+
+  /**
+   * @return 改写过的文件 -> 改写前的内容，未启用 {@link #setRetainOriginals} 时为空
+   */
+  public Map<Path, String> getOriginals() {
+    Map<Path, String> originals = this.originals;
+    return originals == null ? Map.of() : originals;
+  }
+
+  /**
+   * 启用异步写回：转换线程只把结果交给 writeBack，调用方在使用结果前必须调用 {@link #flush}
+   */
+  public void setWriteBack(WriteBackStage writeBack) {
+    this.writeBack = writeBack;
+  }
+
+  /**
+   * 不小于 threshold 个字符的文件先按 token 区间改写（见 {@link TokenSpanRewriter}），不支持的文件再走完整路径。
+   * 传 0 对所有文件启用，传 {@link Long#MAX_VALUE} 关闭
+   */
+  public void setFastPathThreshold(long threshold) {
+    this.fastPathThreshold = threshold;
+  }
 
-    swapTwoArgsMethods = Set.of(
-        "assertTrue",
-        "assertFalse",
-        "assertNull",
-        "assertNotNull"
-    );
+  /**
+   * 等待异步写回完成，写回失败的文件在返回的结果中改为 FAILED；未启用异步写回时原样返回
+   */
+  public List<ConversionResult> flush(List<ConversionResult> results) throws IOException {
+    WriteBackStage writeBack = this.writeBack;
+    if (writeBack == null) {
+      return results;
+    }
+    writeBack.flush();
+    List<ConversionResult> flushed = new ArrayList<>(results.size());
+    for (ConversionResult result : results) {
+      IOException error = result.status() == ConversionResult.Status.CONVERTED
+          ? writeFailures.remove(result.path()) : null;
+      if (error != null) {
+        metrics.reclassify(ConversionResult.Status.CONVERTED, ConversionResult.Status.FAILED);
+        result = ConversionResult.failed(result.path(), error, result.elapsedNanos());
+      }
+      flushed.add(result);
+    }
+    return flushed;
   }
 
   /**
    * 对外主入口
    */
   public void converter(Path path) throws IOException {
-    String source = Files.readString(path);
-    CompilationUnit cu = StaticJavaParser.parse(source);
-    // 启用词法级保留打印，保留原始代码格式
-    LexicalPreservingPrinter.setup(cu);
+    try {
+      convert(path, new ConversionContext(path));
+    } catch (IOException | RuntimeException e) {
+      forget(path);
+      throw e;
+    }
+  }
+
+  /**
+   * 并行批量转换，使用 work-stealing 线程池
+   * 每个文件拥有独立的 ConversionContext，每个工作线程拥有独立的 JavaParser，
+   * 单个文件失败不会影响其它文件，结果顺序与入参顺序一致
+   *
+   * @param paths       需要转换的文件
+   * @param parallelism 并行度，一般取 CPU 核数
+   * @return 每个文件的转换结果
+   */
+  public List<ConversionResult> convertAll(Collection<Path> paths, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    Path[] files = paths.toArray(new Path[0]);
+    ConversionResult[] results = new ConversionResult[files.length];
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new ConvertTask(files, results, 0, files.length));
+    } finally {
+      pool.shutdown();
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * 边遍历目录边转换：目录遍历与文件转换共用同一个 work-stealing 线程池，
+   * 发现的文件立即作为子任务提交，不需要先收集完整的文件列表
+   *
+   * @param root        扫描根目录（也可以是单个文件）
+   * @param discovery   include/exclude 规则
+   * @param parallelism 并行度，一般取 CPU 核数
+   * @return 每个候选文件的转换结果，顺序不固定
+   */
+  public List<ConversionResult> convertTree(Path root, JavaFileDiscovery discovery, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      return convertTree(root, discovery, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * 在调用方提供的线程池中转换，常驻进程复用同一个线程池，工作线程的解析器保持预热
+   */
+  public List<ConversionResult> convertTree(Path root, JavaFileDiscovery discovery, ForkJoinPool pool) {
+    Queue<ConversionResult> results = new ConcurrentLinkedQueue<>();
+    pool.invoke(ForkJoinTask.adapt(
+        () -> discovery.walk(root, path -> results.add(convertQuietly(path)))));
+    return List.copyOf(results);
+  }
+
+  /**
+   * 转换单个文件并捕获异常，供批量转换使用，结果计入 {@link #getMetrics()}
+   */
+  public ConversionResult convertQuietly(Path path) {
+    FileEvent event = new FileEvent();
+    event.begin();
+    long start = System.nanoTime();
+    ConversionContext context = new ConversionContext(path);
+    ConversionResult result;
+    try {
+      ConversionResult.Status status = convert(path, context);
+      result = new ConversionResult(path, status, null, System.nanoTime() - start);
+    } catch (IOException | RuntimeException e) {
+      forget(path);
+      result = ConversionResult.failed(path, e, System.nanoTime() - start);
+    }
+
+    FileMetrics fileMetrics = context.getMetrics();
+    metrics.record(fileMetrics, result);
+    fileMetrics.commitProcessorEvents();
+    event.end();
+    if (event.shouldCommit()) {
+      event.path = path.toString();
+      event.status = result.status().name();
+      event.rewrites = fileMetrics.getRewrites();
+      event.commit();
+    }
+    return result;
+  }
+
+  /**
+   * @return 写回时为 CONVERTED；没有引用 JUnit4，或处理后内容没有任何变化时为 SKIPPED；
+   * 与增量清单记录一致时为 UP_TO_DATE。后两种情况文件不会被写回
+   */
+  private ConversionResult.Status convert(Path path, ConversionContext context) throws IOException {
+    FileMetrics fileMetrics = context.getMetrics();
+    ConversionManifest manifest = this.manifest;
 
-    // 先处理那些 `extends Assert` 的类
-    ClassExtendsAssertProcessor.processClassExtendsAssert(cu);
+    // 字节级预过滤，没有触发词的文件不解码也不解析；启用清单时先在同一份映射内存上比对内容哈希
+    SourcePrefilter.Candidate candidate;
+    FileMetrics.PhaseTimer readTimer = fileMetrics.time(Phase.READ);
+    try {
+      candidate = prefilter.readIfMigratable(path, manifest == null ? null : content -> {
+        context.setContentHash(ConversionManifest.hash(content));
+        return !manifest.isUpToDate(path, context.getContentHash());
+      });
+    } finally {
+      readTimer.close();
+    }
+    if (manifest != null && manifest.isUpToDate(path, context.getContentHash())) {
+      return ConversionResult.Status.UP_TO_DATE;
+    }
+    if (candidate == null) {
+      record(path, context.getContentHash());
+      return ConversionResult.Status.SKIPPED;
+    }
+    String source = candidate.source();
 
-    // 1) 先对断言方法(如 assertEquals) 做参数迁移
-    AssertArgumentsProcessor.processAssertArguments(cu, swapTwoArgsMethods, shiftThreeArgsMethods);
+    // 解析前按源码大小申请内存预算，预算不足时等待其它文件写回、释放语法树
+    HeapBudget budget = this.heapBudget;
+    HeapBudget.Permit permit = null;
+    if (budget != null) {
+      FileMetrics.PhaseTimer admissionTimer = fileMetrics.time(Phase.ADMISSION);
+      try {
+        permit = budget.acquire(source.length());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while waiting for heap budget: " + path);
+      } finally {
+        admissionTimer.close();
+      }
+    }
+    try {
+      return rewrite(path, source, candidate.processors(), context);
+    } finally {
+      // 语法树只被 context 与本次调用引用，写回后立即释放，再归还预算
+      context.releaseSyntaxTree();
+      if (permit != null) {
+        permit.close();
+      }
+    }
+  }
 
-    // 2) 独立处理 @Test(timeout=xxx)
-    AtomicBoolean needTimeoutImport = new AtomicBoolean(false);
-    TestTimeoutProcessor.processTestTimeout(cu, needTimeoutImport);
+  private ConversionResult.Status rewrite(Path path, String source, long processors,
+                                          ConversionContext context) throws IOException {
+    FileMetrics fileMetrics = context.getMetrics();
+    if (source.length() >= fastPathThreshold) {
+      String converted;
+      FileMetrics.PhaseTimer spanRewriteTimer = fileMetrics.time(Phase.SPAN_REWRITE);
+      try {
+        converted = spanRewriter.rewrite(source, processors);
+      } finally {
+        spanRewriteTimer.close();
+      }
+      if (converted != null) {
+        return store(path, source, converted, context);
+      }
+    }
+    CompilationUnit cu;
+    FileMetrics.PhaseTimer parseTimer = fileMetrics.time(Phase.PARSE);
+    try {
+      cu = parse(source);
+    } finally {
+      parseTimer.close();
+    }
+    // 记录文件路径与内容哈希，供类型解析缓存使用
+    cu.setStorage(path, StandardCharsets.UTF_8);
+    if (CachedTypeSolver.shared().isPresent()) {
+      CachedTypeSolver.recordSource(cu, source);
+    }
+    context.setDeclarationTypeIndex(new DeclarationTypeIndex(cu));
+    // 启用词法级保留打印，保留原始代码格式。
+    // setup 需要遍历整棵树并为每个节点注册观察者，延迟到第一个处理器真正修改语法树之前才执行
+    context.setBeforeFirstRewrite(() -> {
+      FileMetrics.PhaseTimer lexicalSetupTimer = fileMetrics.time(Phase.LEXICAL_SETUP);
+      try {
+        LexicalPreservingPrinter.setup(cu);
+      } finally {
+        lexicalSetupTimer.close();
+      }
+    });
 
-    // 3) 独立处理 @Test(expected=xxx)
-    AtomicBoolean needAssertionsImport = new AtomicBoolean(false);
-    TestExpectedProcessor.processTestExpected(cu, needAssertionsImport);
+    FileMetrics.PhaseTimer processTimer = fileMetrics.time(Phase.PROCESS);
+    try {
+      engine.process(cu, context, processors);
+    } finally {
+      processTimer.close();
+    }
 
-    // 4) 根据需要插入 import
-    TimeoutImportAdder.addTimeoutImportIfNeeded(cu, needTimeoutImport.get());
-    AssertionsImportAdder.addAssertionsImportIfNeeded(cu, needAssertionsImport.get());
+    // 没有任何处理器修改语法树时不重新打印，也不写回，避免改变文件的修改时间
+    if (!context.isRewritten()) {
+      record(path, context.getContentHash());
+      return ConversionResult.Status.SKIPPED;
+    }
+    String converted;
+    FileMetrics.PhaseTimer printTimer = fileMetrics.time(Phase.PRINT);
+    try {
+      converted = LexicalPreservingPrinter.print(cu);
+    } finally {
+      printTimer.close();
+    }
+    return store(path, source, converted, context);
+  }
 
-    // 5) 处理 "import static org.hamcrest.MatcherAssertions.assertThat"
-    //    以及将 assertThat(...) 转为 AssertJ 风格。
-    HamcrestToAssertJTransformer.transformHamcrestAssertToAssertJ(cu);
+  /**
+   * 写回改写后的内容
+   */
+  private ConversionResult.Status store(Path path, String source, String converted,
+                                        ConversionContext context) throws IOException {
+    FileMetrics fileMetrics = context.getMetrics();
+    // 修改后又改回原样（例如 import 去重后与原来一致）时同样不写回
+    if (converted.equals(source)) {
+      record(path, context.getContentHash());
+      return ConversionResult.Status.SKIPPED;
+    }
+    // 最终写回文件：经临时文件原子替换，启用异步写回时交给写回线程
+    byte[] bytes = converted.getBytes(StandardCharsets.UTF_8);
+    Map<Path, String> originals = this.originals;
+    if (originals != null) {
+      // 同一次运行中被转换多次（常驻进程）时保留最早的内容
+      originals.putIfAbsent(path, source);
+    }
+    String hash = manifest == null ? null : ConversionManifest.hash(bytes);
+    WriteBackStage writeBack = this.writeBack;
+    if (writeBack != null) {
+      writeBack.submit(path, bytes, (nanos, error) -> written(path, source, hash, nanos, error));
+      return ConversionResult.Status.CONVERTED;
+    }
+    FileMetrics.PhaseTimer writeTimer = fileMetrics.time(Phase.WRITE);
+    try {
+      WriteBackStage.writeAtomically(path, bytes);
+    } catch (IOException e) {
+      if (originals != null) {
+        originals.remove(path, source);
+      }
+      throw e;
+    } finally {
+      writeTimer.close();
+    }
+    record(path, hash);
+    return ConversionResult.Status.CONVERTED;
+  }
 
-    // 6) 处理 "org.assertj.core.api.Assertions" 和 “org.junit.jupiter.api.Assertions” 重名问题
-    RedundantAssertionsImportProcessor.processRedundantAssertionsImport(cu);
+  /**
+   * 异步写回结束，在写回线程中调用：成功时记录清单，失败时留给 {@link #flush} 报告
+   */
+  private void written(Path path, String source, String hash, long nanos, IOException error) {
+    metrics.record(Phase.WRITE, nanos);
+    if (error == null) {
+      writeFailures.remove(path);
+      record(path, hash);
+      return;
+    }
+    writeFailures.put(path, error);
+    forget(path);
+    Map<Path, String> originals = this.originals;
+    if (originals != null) {
+      originals.remove(path, source);
+    }
+  }
 
-    // 7） 处理@Rule注解
-    //RuleAnnotateProcessor.processJUnit4Rules(cu);
+  /**
+   * 把处理后的内容哈希记录到清单，未启用清单时忽略
+   */
+  private void record(Path path, String contentHash) {
+    ConversionManifest manifest = this.manifest;
+    if (manifest != null && contentHash != null) {
+      manifest.record(path, contentHash);
+    }
+  }
 
-    // 最终写回文件
-    Files.writeString(path, LexicalPreservingPrinter.print(cu));
+  private void forget(Path path) {
+    ConversionManifest manifest = this.manifest;
+    if (manifest != null) {
+      manifest.forget(path);
+    }
   }
 
-  public static void main(String[] args) throws IOException {
-    JUnit4ToJUnit5Converter converter = new JUnit4ToJUnit5Converter();
-    converter.converter(Path.of(fileName));
+  private CompilationUnit parse(String source) {
+    ParseResult<CompilationUnit> result = parsers.get().parse(source);
+    if (!result.isSuccessful() || result.getResult().isEmpty()) {
+      throw new ParseProblemException(result.getProblems());
+    }
+    return result.getResult().get();
+  }
+
+  /**
+   * 按下标区间二分拆分的转换任务，空闲线程可以窃取尚未执行的一半
+   */
+  private class ConvertTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path[] files;
+    private final ConversionResult[] results;
+    private final int from;
+    private final int to;
+
+    ConvertTask(Path[] files, ConversionResult[] results, int from, int to) {
+      this.files = files;
+      this.results = results;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= 1) {
+        if (from < to) {
+          results[from] = convertQuietly(files[from]);
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new ConvertTask(files, results, from, mid),
+          new ConvertTask(files, results, mid, to));
+    }
   }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package org.example.converter;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import org.example.converter.processor.MigrationProcessor;
+import org.example.metrics.FileMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单次遍历引擎：按 {@link MigrationProcessor} SPI 组织所有处理器，一次后序遍历 CompilationUnit，
+ * 每个节点只分发给订阅了该节点类型、且在当前文件中启用的处理器。
+ * <p>
+ * 处理器按排序约束做稳定的拓扑排序，同一节点上、遍历前后的钩子都按这个顺序执行；
+ * 前一个处理器替换了节点时，后续的处理器收到替换后的节点。
+ * 每个文件启用哪些处理器由 {@link SourcePrefilter} 扫描触发词得到，以位掩码表示（第 i 位对应第 i 个处理器），
+ * 因此最多支持 63 个处理器。所有启用的处理器都不订阅节点时直接跳过遍历。
+ * 每个处理器的调用都计入 {@link FileMetrics}，用于按处理器统计耗时与改写次数。
+ * 引擎本身无状态，可在线程间共享。
+ */
+public class MigrationEngine {
+
+  // 预过滤的分组 0 留给 JUnit4 引用，其余分组依次对应处理器
+  static final int MAX_PROCESSORS = Long.SIZE - 1;
+
+  private final MigrationProcessor[] processors;
+
+  private final String[] names;
+
+  // 订阅了节点类型的处理器
+  private final long traversalMask;
+
+  // 节点的具体类型 -> 订阅它（或其父类型）的处理器下标，按处理器顺序排列
+  private final Map<Class<?>, int[]> subscribers = new ConcurrentHashMap<>();
+
+  public MigrationEngine(List<? extends MigrationProcessor> processors) {
+    List<MigrationProcessor> sorted = sort(processors);
+    if (sorted.size() > MAX_PROCESSORS) {
+      throw new IllegalStateException("too many migration processors: " + sorted.size()
+          + " (at most " + MAX_PROCESSORS + ")");
+    }
+    this.processors = sorted.toArray(new MigrationProcessor[0]);
+    this.names = new String[this.processors.length];
+    long mask = 0;
+    for (int i = 0; i < this.processors.length; i++) {
+      names[i] = this.processors[i].name();
+      if (!this.processors[i].nodeTypes().isEmpty()) {
+        mask |= 1L << i;
+      }
+    }
+    this.traversalMask = mask;
+  }
+
+  /**
+   * 通过 ServiceLoader 加载内置处理器与 classpath 上的第三方处理器
+   */
+  public static MigrationEngine load() {
+    List<MigrationProcessor> processors = new ArrayList<>();
+    ServiceLoader.load(MigrationProcessor.class).forEach(processors::add);
+    return new MigrationEngine(processors);
+  }
+
+  /**
+   * @return 排序后的处理器
+   */
+  public List<MigrationProcessor> getProcessors() {
+    return List.of(processors);
+  }
+
+  /**
+   * @return 排序后的处理器名称，记录在增量清单中，集合或顺序变化后所有文件都会重新处理
+   */
+  public List<String> getProcessorNames() {
+    return List.of(names);
+  }
+
+  /**
+   * @return 启用所有处理器的掩码
+   */
+  public long allProcessors() {
+    return (1L << processors.length) - 1;
+  }
+
+  /**
+   * 对单个文件执行所有启用的处理器
+   *
+   * @param activeProcessors 启用的处理器掩码，见 {@link SourcePrefilter.Candidate#processors()}
+   */
+  public void process(CompilationUnit cu, ConversionContext context, long activeProcessors) {
+    FileMetrics metrics = context.getMetrics();
+    for (int i = 0; i < processors.length; i++) {
+      if ((activeProcessors & (1L << i)) != 0) {
+        metrics.beginProcessor(names[i]);
+        processors[i].beforeTraversal(cu, context);
+        metrics.endProcessor();
+      }
+    }
+
+    if ((activeProcessors & traversalMask) != 0) {
+      walk(cu, context, activeProcessors);
+    }
+
+    for (int i = 0; i < processors.length; i++) {
+      if ((activeProcessors & (1L << i)) != 0) {
+        metrics.beginProcessor(names[i]);
+        processors[i].afterTraversal(cu, context);
+        metrics.endProcessor();
+      }
+    }
+    context.applyImports();
+  }
+
+  /**
+   * 后序遍历：先处理子节点，再把节点分发给处理器。
+   * 遍历子节点的快照，处理器插入的新节点不会再被访问，与 ModifierVisitor 的行为一致
+   */
+  private void walk(Node node, ConversionContext context, long activeProcessors) {
+    List<Node> children = node.getChildNodes();
+    if (!children.isEmpty()) {
+      for (Node child : children.toArray(new Node[0])) {
+        walk(child, context, activeProcessors);
+      }
+    }
+    dispatch(node, context, activeProcessors);
+  }
+
+  private void dispatch(Node node, ConversionContext context, long activeProcessors) {
+    int[] indexes = subscribers.computeIfAbsent(node.getClass(), this::findSubscribers);
+    if (indexes.length == 0) {
+      return;
+    }
+    // 处理器可能把节点挂到新节点下面（例如 Hamcrest 的链式调用），需要先记下原来的父节点
+    Node parent = node.getParentNode().orElse(null);
+    Node current = node;
+    FileMetrics metrics = context.getMetrics();
+    for (int i : indexes) {
+      if ((activeProcessors & (1L << i)) == 0) {
+        continue;
+      }
+      // 节点已被替换时，只交给同样订阅了替换后节点类型的处理器
+      if (current != node && Arrays.binarySearch(
+          subscribers.computeIfAbsent(current.getClass(), this::findSubscribers), i) < 0) {
+        continue;
+      }
+      metrics.beginProcessor(names[i]);
+      Node result = processors[i].visit(current, context);
+      metrics.endProcessor();
+      if (result != current) {
+        // 立即替换到原位置，后续的处理器收到的替换后节点已经有父节点
+        if (parent != null) {
+          parent.replace(current, result);
+        }
+        current = result;
+      }
+    }
+  }
+
+  private int[] findSubscribers(Class<?> nodeClass) {
+    List<Integer> found = new ArrayList<>();
+    for (int i = 0; i < processors.length; i++) {
+      for (Class<? extends Node> type : processors[i].nodeTypes()) {
+        if (type.isAssignableFrom(nodeClass)) {
+          found.add(i);
+          break;
+        }
+      }
+    }
+    return found.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * 按 runsAfter/runsBefore 做拓扑排序，没有约束的处理器保持原来的相对顺序
+   */
+  static List<MigrationProcessor> sort(List<? extends MigrationProcessor> processors) {
+    int n = processors.size();
+    Map<String, Integer> indexByName = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      String name = processors.get(i).name();
+      if (indexByName.put(name, i) != null) {
+        throw new IllegalStateException("duplicate migration processor: " + name);
+      }
+    }
+
+    List<Set<Integer>> successors = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      successors.add(new HashSet<>());
+    }
+    for (int i = 0; i < n; i++) {
+      MigrationProcessor processor = processors.get(i);
+      for (String after : processor.runsAfter()) {
+        Integer j = indexByName.get(after);
+        if (j != null) {
+          successors.get(j).add(i);
+        }
+      }
+      for (String before : processor.runsBefore()) {
+        Integer j = indexByName.get(before);
+        if (j != null) {
+          successors.get(i).add(j);
+        }
+      }
+    }
+    int[] inDegree = new int[n];
+    for (Set<Integer> next : successors) {
+      for (int j : next) {
+        inDegree[j]++;
+      }
+    }
+
+    PriorityQueue<Integer> ready = new PriorityQueue<>();
+    for (int i = 0; i < n; i++) {
+      if (inDegree[i] == 0) {
+        ready.add(i);
+      }
+    }
+    List<MigrationProcessor> sorted = new ArrayList<>(n);
+    while (!ready.isEmpty()) {
+      int i = ready.poll();
+      sorted.add(processors.get(i));
+      for (int j : successors.get(i)) {
+        if (--inDegree[j] == 0) {
+          ready.add(j);
+        }
+      }
+    }
+    if (sorted.size() < n) {
+      List<String> cyclic = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        if (inDegree[i] > 0) {
+          cyclic.add(processors.get(i).name());
+        }
+      }
+      throw new IllegalStateException("cyclic ordering constraints between processors: " + cyclic);
+    }
+    return sorted;
+  }
+}
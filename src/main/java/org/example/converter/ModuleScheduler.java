@@ -0,0 +1,148 @@
+package org.example.converter;
+
+import org.example.util.JavaFileDiscovery;
+import org.example.util.MavenReactor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 按 Maven 模块组织的批量转换：先并行遍历所有模块的测试源码目录并按文件大小估算工作量，
+ * 再按从大到小的顺序分发给工作线程（LPT 调度），避免最后才开始的大测试类（TestDFSShell 这类上万行的文件）
+ * 拖长整体耗时。每个工作线程处理完一个文件后领取剩余文件中最大的一个，结果按模块汇总。
+ */
+public class ModuleScheduler {
+
+  private final JUnit4ToJUnit5Converter converter;
+
+  private final JavaFileDiscovery discovery;
+
+  /**
+   * 单个模块的转换结果
+   */
+  public record ModuleResult(MavenReactor.Module module, List<ConversionResult> results) {
+
+    public long count(ConversionResult.Status status) {
+      return results.stream().filter(result -> result.status() == status).count();
+    }
+
+    /**
+     * @return 模块内所有文件的转换耗时之和（纳秒），并行执行时大于实际经过的时间
+     */
+    public long elapsedNanos() {
+      return results.stream().mapToLong(ConversionResult::elapsedNanos).sum();
+    }
+  }
+
+  private record Job(Path path, long size, int module) {
+  }
+
+  public ModuleScheduler(JUnit4ToJUnit5Converter converter, JavaFileDiscovery discovery) {
+    this.converter = converter;
+    this.discovery = discovery;
+  }
+
+  /**
+   * @return 每个模块的结果，顺序与 modules 一致
+   */
+  public List<ModuleResult> run(List<MavenReactor.Module> modules, int parallelism) {
+    return run(modules, parallelism, Shard.ALL, null);
+  }
+
+  /**
+   * 只转换属于 shard 的文件，其余文件不读取、不计入结果
+   *
+   * @param base 分片使用的相对路径的根目录，一般为 reactor 根目录
+   * @return 每个模块的结果，顺序与 modules 一致
+   */
+  public List<ModuleResult> run(List<MavenReactor.Module> modules, int parallelism, Shard shard, Path base) {
+    List<List<ConversionResult>> results =
+        schedule(discovery, modules, parallelism, shard, base, converter::convertQuietly);
+    List<ModuleResult> moduleResults = new ArrayList<>(modules.size());
+    for (int i = 0; i < modules.size(); i++) {
+      moduleResults.add(new ModuleResult(modules.get(i), results.get(i)));
+    }
+    return moduleResults;
+  }
+
+  /**
+   * 按同样的大文件优先顺序对每个文件执行 task，转换与只读分析（见 {@link org.example.analyze.MigrationAnalyzer}）共用
+   *
+   * @param task 处理单个文件，会被多个线程并发调用，不能抛出异常
+   * @return 每个模块中各文件的结果，顺序与 modules 一致
+   */
+  public static <R> List<List<R>> schedule(JavaFileDiscovery discovery, List<MavenReactor.Module> modules,
+                                           int parallelism, Shard shard, Path base, Function<Path, R> task) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      Job[] discovered = discover(discovery, modules, pool);
+      Job[] jobs = shard.isAll() ? discovered
+          : shard.select(Arrays.asList(discovered), base, Job::path, job -> Shard.weight(job.path()))
+          .toArray(new Job[0]);
+      // 大文件优先，相同大小按路径排序保证顺序稳定
+      Arrays.sort(jobs, Comparator.comparingLong(Job::size).reversed().thenComparing(Job::path));
+
+      List<Queue<R>> results = new ArrayList<>();
+      for (int i = 0; i < modules.size(); i++) {
+        results.add(new ConcurrentLinkedQueue<>());
+      }
+      // 每个工作线程循环领取下一个文件，而不是预先切分区间，保证严格按大小顺序开始
+      AtomicInteger next = new AtomicInteger();
+      List<ForkJoinTask<?>> workers = new ArrayList<>();
+      for (int w = 0; w < parallelism; w++) {
+        workers.add(ForkJoinTask.adapt(() -> {
+          int i;
+          while ((i = next.getAndIncrement()) < jobs.length) {
+            Job job = jobs[i];
+            results.get(job.module()).add(task.apply(job.path()));
+          }
+        }));
+      }
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(workers)));
+
+      List<List<R>> moduleResults = new ArrayList<>(modules.size());
+      for (Queue<R> module : results) {
+        moduleResults.add(List.copyOf(module));
+      }
+      return moduleResults;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static Job[] discover(JavaFileDiscovery discovery, List<MavenReactor.Module> modules, ForkJoinPool pool) {
+    Queue<Job> found = new ConcurrentLinkedQueue<>();
+    List<ForkJoinTask<?>> walks = new ArrayList<>();
+    for (int i = 0; i < modules.size(); i++) {
+      int module = i;
+      for (Path root : modules.get(i).testRoots()) {
+        walks.add(ForkJoinTask.adapt(() -> discovery.walk(root, path -> found.add(new Job(path, size(path), module)))));
+      }
+    }
+    pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(walks)));
+    return found.toArray(new Job[0]);
+  }
+
+  private static long size(Path path) {
+    try {
+      return Files.size(path);
+    } catch (IOException e) {
+      // 遍历后被删除等，留给转换时报告失败
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package org.example.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 多台机器分担一次转换时的分片：--shard i/N 表示共 N 片中的第 i 片（从 1 开始）
+ * <p>
+ * 每台机器都遍历完整的文件集合，再按同样的规则独立算出自己的那一片，不需要任何协调：
+ * 文件按权重从大到小（相同权重按相对路径）排序，依次分给当前累计权重最少的分片（LPT），
+ * 各片的工作量按文件大小均衡，而不是按文件个数。
+ * <p>
+ * 权重是不计 '\r' 的字节数（见 {@link #weight(Path)}），而不是 Files.size：同一次提交在 Windows 上按 CRLF 检出时
+ * 每个文件的字节数都不同，按原始大小排序与累加会得到另一种划分，两边的分片既会重叠也会漏掉文件。
+ * 路径是相对于扫描根目录、统一用 / 分隔的相对路径。因此只要各机器检出的是同一次提交，
+ * 无论检出目录、操作系统与换行符设置如何，划分都相同，各片互不相交且合起来正好是全部文件。
+ * <p>
+ * 分片在增量清单检查之前完成，划分不受各机器清单状态的影响。
+ */
+public record Shard(int index, int count) {
+
+  public static final Shard ALL = new Shard(1, 1);
+
+  public Shard {
+    if (count < 1 || index < 1 || index > count) {
+      throw new IllegalArgumentException("invalid shard " + index + "/" + count);
+    }
+  }
+
+  /**
+   * @param spec "i/N"，例如 "2/8"
+   */
+  public static Shard parse(String spec) {
+    int slash = spec.indexOf('/');
+    if (slash < 0) {
+      throw new IllegalArgumentException("shard must be i/N: " + spec);
+    }
+    return new Shard(Integer.parseInt(spec.substring(0, slash).trim()),
+        Integer.parseInt(spec.substring(slash + 1).trim()));
+  }
+
+  public boolean isAll() {
+    return count == 1;
+  }
+
+  /**
+   * 选出 base 下属于本分片的文件，权重用 {@link #weight(Path)} 读取
+   */
+  public List<Path> select(Path base, Collection<Path> files) {
+    return select(files, base, Function.identity(), Shard::weight);
+  }
+
+  /**
+   * 选出属于本分片的元素
+   *
+   * @param base   计算相对路径的根目录，各机器上指向同一个检出目录
+   * @param weight 元素的权重，必须与检出方式无关，通常是 {@link #weight(Path)}；只有分片时才调用
+   * @return 本分片的元素，按权重从大到小排列
+   */
+  public <T> List<T> select(Collection<T> items, Path base, Function<T, Path> path, ToLongFunction<T> weight) {
+    if (isAll()) {
+      return new ArrayList<>(items);
+    }
+    record Entry<T>(T item, String key, long weight) {
+    }
+    List<Entry<T>> entries = new ArrayList<>(items.size());
+    for (T item : items) {
+      entries.add(new Entry<>(item, key(base, path.apply(item)), weight.applyAsLong(item)));
+    }
+    entries.sort(Comparator.<Entry<T>>comparingLong(Entry::weight).reversed().thenComparing(Entry::key));
+
+    long[] loads = new long[count];
+    List<T> selected = new ArrayList<>();
+    for (Entry<T> entry : entries) {
+      int target = 0;
+      for (int i = 1; i < count; i++) {
+        if (loads[i] < loads[target]) {
+          target = i;
+        }
+      }
+      // 空文件也算一个字节，避免大量空文件都落在同一片
+      loads[target] += Math.max(entry.weight(), 1);
+      if (target == index - 1) {
+        selected.add(entry.item());
+      }
+    }
+    return selected;
+  }
+
+  @Override
+  public String toString() {
+    return index + "/" + count;
+  }
+
+  private static String key(Path base, Path file) {
+    Path relative = file.startsWith(base) ? base.relativize(file) : file;
+    return relative.toString().replace(File.separatorChar, '/');
+  }
+
+  /**
+   * 文件中除 '\r' 以外的字节数，LF 与 CRLF 检出的同一文件权重相同。
+   * 需要读取整个文件，只在分片时调用；只有一片时不读取
+   */
+  public static long weight(Path path) {
+    byte[] buffer = new byte[64 * 1024];
+    long weight = 0;
+    try (InputStream in = Files.newInputStream(path)) {
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        weight += n;
+        for (int i = 0; i < n; i++) {
+          if (buffer[i] == '\r') {
+            weight--;
+          }
+        }
+      }
+      return weight;
+    } catch (IOException e) {
+      // 遍历后被删除等，留给转换时报告失败
+      return 0;
+    }
+  }
+}
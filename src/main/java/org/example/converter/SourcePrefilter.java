@@ -0,0 +1,126 @@
+package org.example.converter;
+
+import org.example.converter.processor.MigrationProcessor;
+import org.example.util.ByteMultiPatternMatcher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 解析前的字节级预过滤：把文件映射到内存，用多模式匹配扫描触发词，
+ * 没有任何触发词的文件不会被解码、解析，也不会调用 LexicalPreservingPrinter.setup。
+ * <p>
+ * 是否需要迁移以引用 JUnit4 为准：org.junit.[A-Z]（原 grep 的条件）、import org.junit.*、junit.framework.TestCase。
+ * 同一次扫描中还会匹配每个处理器的 {@link MigrationProcessor#triggers()}，得到当前文件启用的处理器；
+ * 此时扫描不会在第一个命中处结束，而是直到所有分组都已命中或文件结束。
+ * 命中后直接从映射的内存中解码出源码，文件只读取一次。构建完成后不可变，可在线程间共享。
+ */
+public class SourcePrefilter {
+
+  public static final int JUNIT4_REFERENCE = 0;
+
+  private final ByteMultiPatternMatcher matcher;
+
+  // 所有分组都命中后即可结束扫描
+  private final long stopMask;
+
+  // 没有触发词、对所有需要迁移的文件都启用的处理器
+  private final long unconditional;
+
+  /**
+   * 只判断是否引用 JUnit4，不区分处理器
+   */
+  public SourcePrefilter() {
+    this(List.of());
+  }
+
+  /**
+   * @param processors 按 {@link MigrationEngine} 排序后的处理器，第 i 个处理器对应分组 i + 1
+   */
+  public SourcePrefilter(List<MigrationProcessor> processors) {
+    if (processors.size() > MigrationEngine.MAX_PROCESSORS) {
+      throw new IllegalArgumentException("too many migration processors: " + processors.size());
+    }
+    ByteMultiPatternMatcher.Builder builder = ByteMultiPatternMatcher.builder();
+    for (char c = 'A'; c <= 'Z'; c++) {
+      builder.add(JUNIT4_REFERENCE, "org.junit." + c);
+    }
+    builder.add(JUNIT4_REFERENCE, "org.junit.*", "junit.framework.TestCase");
+    long groups = 1L << JUNIT4_REFERENCE;
+    long always = 0;
+    for (int i = 0; i < processors.size(); i++) {
+      List<String> triggers = List.copyOf(processors.get(i).triggers());
+      if (triggers.isEmpty()) {
+        always |= 1L << i;
+      } else {
+        builder.add(i + 1, triggers.toArray(new String[0]));
+        groups |= 1L << (i + 1);
+      }
+    }
+    this.matcher = builder.build();
+    this.stopMask = groups;
+    this.unconditional = always;
+  }
+
+  /**
+   * 需要迁移的文件
+   *
+   * @param source     文件内容
+   * @param processors 当前文件启用的处理器掩码，第 i 位对应第 i 个处理器
+   */
+  public record Candidate(String source, long processors) {
+  }
+
+  /**
+   * @return 文件内容与启用的处理器；没有触发词时返回 null
+   */
+  public Candidate readIfMigratable(Path path) throws IOException {
+    return readIfMigratable(path, null);
+  }
+
+  /**
+   * @param inspector 扫描前对文件原始字节的检查（例如与增量清单比对内容哈希），返回 false 时直接跳过该文件，
+   *                  可以为 null
+   * @return 文件内容与启用的处理器；没有引用 JUnit4 或 inspector 返回 false 时返回 null
+   */
+  public Candidate readIfMigratable(Path path, Predicate<ByteBuffer> inspector) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size == 0) {
+        return null;
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("file too large: " + path);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (inspector != null && !inspector.test(buffer)) {
+        return null;
+      }
+      long found = matcher.scan(buffer, stopMask);
+      if ((found & (1L << JUNIT4_REFERENCE)) == 0) {
+        return null;
+      }
+      return new Candidate(decode(buffer), unconditional | (found >>> 1));
+    }
+  }
+
+  /**
+   * 与 Files.readString 一致，遇到非法 UTF-8 字节时抛出异常而不是替换
+   */
+  private static String decode(MappedByteBuffer buffer) throws CharacterCodingException {
+    return StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT)
+        .decode(buffer)
+        .toString();
+  }
+}
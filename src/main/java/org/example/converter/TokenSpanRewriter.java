@@ -0,0 +1,1005 @@
+package org.example.converter;
+
+import com.github.javaparser.GeneratedJavaParserTokenManager;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Position;
+import com.github.javaparser.SimpleCharStream;
+import com.github.javaparser.StringProvider;
+import com.github.javaparser.Token;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MemberValuePair;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import org.example.converter.processor.AssertArgumentsProcessor;
+import org.example.converter.processor.ClassExtendsAssertProcessor;
+import org.example.converter.processor.JUnit4AnnotationProcessor;
+import org.example.converter.processor.JUnit4ImportProcessor;
+import org.example.converter.processor.MigrationProcessor;
+import org.example.converter.processor.TestTimeoutProcessor;
+import org.example.converter.processor.TimeoutImportAdder;
+import org.example.util.CachedTypeSolver;
+import org.example.util.DeclarationTypeIndex;
+import org.example.util.ImportIndex;
+import org.example.util.JUnitMigrationUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.javaparser.GeneratedJavaParserConstants.ASSIGN;
+import static com.github.javaparser.GeneratedJavaParserConstants.AT;
+import static com.github.javaparser.GeneratedJavaParserConstants.BOOLEAN;
+import static com.github.javaparser.GeneratedJavaParserConstants.BYTE;
+import static com.github.javaparser.GeneratedJavaParserConstants.CHAR;
+import static com.github.javaparser.GeneratedJavaParserConstants.CLASS;
+import static com.github.javaparser.GeneratedJavaParserConstants.COMMA;
+import static com.github.javaparser.GeneratedJavaParserConstants.DOT;
+import static com.github.javaparser.GeneratedJavaParserConstants.DOUBLE;
+import static com.github.javaparser.GeneratedJavaParserConstants.EOF;
+import static com.github.javaparser.GeneratedJavaParserConstants.EXTENDS;
+import static com.github.javaparser.GeneratedJavaParserConstants.FLOAT;
+import static com.github.javaparser.GeneratedJavaParserConstants.GT;
+import static com.github.javaparser.GeneratedJavaParserConstants.IDENTIFIER;
+import static com.github.javaparser.GeneratedJavaParserConstants.IMPORT;
+import static com.github.javaparser.GeneratedJavaParserConstants.INT;
+import static com.github.javaparser.GeneratedJavaParserConstants.INTERFACE;
+import static com.github.javaparser.GeneratedJavaParserConstants.LBRACE;
+import static com.github.javaparser.GeneratedJavaParserConstants.LBRACKET;
+import static com.github.javaparser.GeneratedJavaParserConstants.LONG;
+import static com.github.javaparser.GeneratedJavaParserConstants.LPAREN;
+import static com.github.javaparser.GeneratedJavaParserConstants.LT;
+import static com.github.javaparser.GeneratedJavaParserConstants.PACKAGE;
+import static com.github.javaparser.GeneratedJavaParserConstants.PERMITS;
+import static com.github.javaparser.GeneratedJavaParserConstants.RBRACE;
+import static com.github.javaparser.GeneratedJavaParserConstants.RBRACKET;
+import static com.github.javaparser.GeneratedJavaParserConstants.RECORD;
+import static com.github.javaparser.GeneratedJavaParserConstants.REQUIRES;
+import static com.github.javaparser.GeneratedJavaParserConstants.RPAREN;
+import static com.github.javaparser.GeneratedJavaParserConstants.RSIGNEDSHIFT;
+import static com.github.javaparser.GeneratedJavaParserConstants.RUNSIGNEDSHIFT;
+import static com.github.javaparser.GeneratedJavaParserConstants.SEALED;
+import static com.github.javaparser.GeneratedJavaParserConstants.SEMICOLON;
+import static com.github.javaparser.GeneratedJavaParserConstants.SHORT;
+import static com.github.javaparser.GeneratedJavaParserConstants.STAR;
+import static com.github.javaparser.GeneratedJavaParserConstants.STATIC;
+import static com.github.javaparser.GeneratedJavaParserConstants.THIS;
+import static com.github.javaparser.GeneratedJavaParserConstants.TRANSITIVE;
+import static com.github.javaparser.GeneratedJavaParserConstants.VOID;
+import static com.github.javaparser.GeneratedJavaParserConstants.YIELD;
+
+/**
+ * 大文件的快速路径：整个文件只做一次词法分析，不构建完整的语法树，也不执行 LexicalPreservingPrinter。
+ * <p>
+ * 按 token 找出需要改写的区间：import、JUnit4 注解、extends Assert 与 Assert.xxx(...) 的限定名、
+ * {@code @Test(timeout = n)}、需要调整参数顺序的断言调用，只替换这些区间的文本，其余内容原样复制。
+ * 断言参数是否为消息仍由 {@link JUnitMigrationUtils#isLikelyMessageParameter} 判断：只解析调用所在的顶层成员
+ * （方法、内部类等），和所在类的字段一起放进一个很小的编译单元，供 {@link DeclarationTypeIndex} 查询声明类型。
+ * <p>
+ * 只支持改写范围是局部区间的内置处理器（{@link #SUPPORTED}）。文件启用了其它处理器、配置了共享的 symbol solver，
+ * 出现快速路径不处理的写法（全限定的 JUnit4 注解、重复的 import、改名后重复等），或者没有需要修改的地方时返回 null，
+ * 由调用方走完整路径。快速路径不检查未解析部分的语法，语法错误只会在完整路径或编译校验中报告。
+ * 与完整路径的差别只在格式：{@code @Test(timeout = n)} 与其它代码在同一行时 @Timeout 接在同一行；
+ * 跨行的断言参数交换位置时保留原来的分隔符，不按 LexicalPreservingPrinter 的方式重排换行。
+ * 无状态，可在线程间共享。
+ */
+public class TokenSpanRewriter {
+
+  static final Set<String> SUPPORTED = Set.of(
+      JUnit4ImportProcessor.class.getSimpleName(),
+      JUnit4AnnotationProcessor.class.getSimpleName(),
+      ClassExtendsAssertProcessor.class.getSimpleName(),
+      AssertArgumentsProcessor.class.getSimpleName(),
+      TestTimeoutProcessor.class.getSimpleName(),
+      TimeoutImportAdder.class.getSimpleName()
+  );
+
+  private static final String JUNIT5_ASSERTIONS = "org.junit.jupiter.api.Assertions";
+
+  private static final ImportIndex.Import TIMEOUT_IMPORT = ImportIndex.Import.of("org.junit.jupiter.api.Timeout");
+
+  private static final ImportIndex.Import TIME_UNIT_IMPORT = ImportIndex.Import.of("java.util.concurrent.TimeUnit");
+
+  // 只解析断言所在的成员、断言调用与 @Test 注解，不需要注释归属；节点的位置依赖 token，必须保留
+  private static final ThreadLocal<JavaParser> PARSERS = ThreadLocal.withInitial(() -> new JavaParser(
+      new ParserConfiguration().setAttributeComments(false)));
+
+  // 快速路径支持的处理器的掩码
+  private final long supported;
+
+  private final long imports;
+  private final long annotations;
+  private final long assertScope;
+  private final long assertArguments;
+  private final long testTimeout;
+  private final long timeoutImport;
+
+  /**
+   * @param processors 按 {@link MigrationEngine} 排序后的处理器，第 i 个处理器对应掩码的第 i 位
+   */
+  public TokenSpanRewriter(List<MigrationProcessor> processors) {
+    Map<String, Long> bits = new HashMap<>();
+    long mask = 0;
+    for (int i = 0; i < processors.size(); i++) {
+      String name = processors.get(i).name();
+      if (SUPPORTED.contains(name)) {
+        bits.put(name, 1L << i);
+        mask |= 1L << i;
+      }
+    }
+    this.supported = mask;
+    this.imports = bits.getOrDefault(JUnit4ImportProcessor.class.getSimpleName(), 0L);
+    this.annotations = bits.getOrDefault(JUnit4AnnotationProcessor.class.getSimpleName(), 0L);
+    this.assertScope = bits.getOrDefault(ClassExtendsAssertProcessor.class.getSimpleName(), 0L);
+    this.assertArguments = bits.getOrDefault(AssertArgumentsProcessor.class.getSimpleName(), 0L);
+    this.testTimeout = bits.getOrDefault(TestTimeoutProcessor.class.getSimpleName(), 0L);
+    this.timeoutImport = bits.getOrDefault(TimeoutImportAdder.class.getSimpleName(), 0L);
+  }
+
+  /**
+   * 改写单个文件
+   *
+   * @param processors 当前文件启用的处理器掩码，见 {@link SourcePrefilter.Candidate#processors()}
+   * @return 改写后的内容；没有需要修改的地方，或需要走完整路径时为 null
+   */
+  public String rewrite(String source, long processors) {
+    if ((processors & ~supported) != 0 || CachedTypeSolver.shared().isPresent()) {
+      return null;
+    }
+    try {
+      return new FileRewrite(source, processors).run();
+    } catch (Fallback e) {
+      return null;
+    }
+  }
+
+  /**
+   * 遇到快速路径不处理的写法，整个文件改走完整路径
+   */
+  private static final class Fallback extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    Fallback() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * 一处替换：text 不为 null 时把 [begin, end) 替换为 text；
+   * 否则是参数换位，ranges 为各参数的 [begin, end)，按 order 的顺序输出，参数之间原来的分隔符保留在原位
+   */
+  private record Edit(int begin, int end, String text, int[] ranges, int[] order) {
+
+    static Edit replace(int begin, int end, String text) {
+      return new Edit(begin, end, text, null, null);
+    }
+
+    // 嵌套在本次替换中的 [begin, end) 是否落在某个参数之内
+    boolean encloses(int begin, int end) {
+      if (ranges == null) {
+        return false;
+      }
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (begin >= ranges[i] && end <= ranges[i + 1]) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * 单个文件的改写状态，只在一次 {@link #rewrite} 中使用
+   */
+  private final class FileRewrite {
+
+    private final String source;
+    private final long processors;
+
+    // 每行第一个字符的下标，行号从 1 开始，与 JavaCC 的行号一致（\r\n、\n、\r 都算一次换行）
+    private final int[] lineStarts;
+
+    // 词法分析的结果，不含空白与注释
+    private int size;
+    private int[] kinds;
+    private int[] begins;
+    private int[] ends;
+    private int[] lines;
+    private int[] columns;
+
+    private final List<Edit> edits = new ArrayList<>();
+
+    private final Set<String> migratedNames = new HashSet<>();
+
+    // 顶层类型中的成员：[第一个 token, 最后一个 token, 所属的顶层类型]
+    private final List<int[]> members = new ArrayList<>();
+
+    // 顶层类型 -> 只含字段的类，查询声明类型时把正在处理的成员临时挂在它下面
+    private final Map<Integer, ClassOrInterfaceDeclaration> holders = new HashMap<>();
+
+    FileRewrite(String source, long processors) {
+      this.source = source;
+      this.processors = processors;
+      this.lineStarts = lineStarts(source);
+    }
+
+    String run() {
+      tokenize();
+      int body = (processors & imports) != 0 ? imports() : skipImports();
+      List<Integer> calls = new ArrayList<>();
+      boolean needTimeoutImport = scan(body, calls);
+      if (!calls.isEmpty()) {
+        members(body);
+        arguments(calls);
+      }
+      if (needTimeoutImport && (processors & timeoutImport) != 0) {
+        addTimeoutImport();
+      }
+      // 没有需要修改的地方时交给完整路径：只解析、不执行 LexicalPreservingPrinter，同时报告语法错误
+      if (edits.isEmpty()) {
+        throw new Fallback();
+      }
+      edits.sort(Comparator.comparingInt(Edit::begin).thenComparing(Edit::end, Comparator.reverseOrder()));
+      checkNesting();
+      return render(0, source.length());
+    }
+
+    // ---- 词法分析 ----
+
+    private void tokenize() {
+      int capacity = Math.max(16, source.length() / 4);
+      kinds = new int[capacity];
+      begins = new int[capacity];
+      ends = new int[capacity];
+      lines = new int[capacity];
+      columns = new int[capacity];
+      try {
+        GeneratedJavaParserTokenManager lexer =
+            new GeneratedJavaParserTokenManager(new SimpleCharStream(new StringProvider(source)));
+        for (Token token = lexer.getNextToken(); token.kind != EOF; token = lexer.getNextToken()) {
+          int begin = offset(token.beginLine, token.beginColumn);
+          // 位置换算与原文对不上（例如 unicode 转义）时不冒险
+          if (begin < 0 || !source.startsWith(token.image, begin)) {
+            throw new Fallback();
+          }
+          add(token.kind, begin, begin + token.image.length(), token.beginLine, token.beginColumn);
+        }
+      } catch (Fallback e) {
+        throw e;
+      } catch (RuntimeException e) {
+        // 词法错误（TokenMgrException）交给完整路径报告
+        throw new Fallback();
+      }
+    }
+
+    private void add(int kind, int begin, int end, int line, int column) {
+      if (size == kinds.length) {
+        int capacity = size * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        begins = Arrays.copyOf(begins, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+      }
+      kinds[size] = kind;
+      begins[size] = begin;
+      ends[size] = end;
+      lines[size] = line;
+      columns[size] = column;
+      size++;
+    }
+
+    private int kind(int i) {
+      return i >= 0 && i < size ? kinds[i] : EOF;
+    }
+
+    private String text(int i) {
+      return source.substring(begins[i], ends[i]);
+    }
+
+    private boolean isName(int i) {
+      int kind = kind(i);
+      // record、yield 等上下文关键字也可以作为名字
+      return kind == IDENTIFIER || kind == RECORD || kind == YIELD || kind == SEALED || kind == PERMITS
+          || kind >= REQUIRES && kind <= TRANSITIVE;
+    }
+
+    private int offset(int line, int column) {
+      return line < 1 || line > lineStarts.length ? -1 : lineStarts[line - 1] + column - 1;
+    }
+
+    // ---- import ----
+
+    private int skipPackage() {
+      if (kind(0) != PACKAGE) {
+        return 0;
+      }
+      int i = 0;
+      while (i < size && kinds[i] != SEMICOLON) {
+        i++;
+      }
+      return i + 1;
+    }
+
+    private int skipImports() {
+      int i = skipPackage();
+      while (kind(i) == IMPORT || kind(i) == SEMICOLON) {
+        while (i < size && kinds[i] != SEMICOLON) {
+          i++;
+        }
+        i++;
+      }
+      return i;
+    }
+
+    // 改名后的 import 与各条声明的 [开始, 结束)，供插入 Timeout 的 import 使用
+    private final List<ImportIndex.Import> importList = new ArrayList<>();
+    private final List<int[]> importSpans = new ArrayList<>();
+
+    /**
+     * 按 {@link JUnit4ImportProcessor#mapImport} 原位改名
+     *
+     * @return import 之后第一个 token 的下标
+     */
+    private int imports() {
+      int i = skipPackage();
+      Set<ImportIndex.Import> seen = new HashSet<>();
+      while (true) {
+        if (kind(i) == SEMICOLON) {
+          i++;
+          continue;
+        }
+        if (kind(i) != IMPORT) {
+          break;
+        }
+        int start = i++;
+        boolean isStatic = kind(i) == STATIC;
+        if (isStatic) {
+          i++;
+        }
+        int nameStart = i;
+        StringBuilder name = new StringBuilder();
+        boolean isAsterisk = false;
+        while (true) {
+          if (!isName(i)) {
+            throw new Fallback();
+          }
+          name.append(text(i));
+          if (kind(i + 1) != DOT) {
+            break;
+          }
+          if (kind(i + 2) == STAR) {
+            isAsterisk = true;
+            break;
+          }
+          name.append('.');
+          i += 2;
+        }
+        int nameEnd = i;
+        i += isAsterisk ? 3 : 1;
+        if (kind(i) != SEMICOLON) {
+          throw new Fallback();
+        }
+        ImportIndex.Import id = new ImportIndex.Import(name.toString(), isStatic, isAsterisk);
+        // 重复的 import 由完整路径删除
+        if (!seen.add(id)) {
+          throw new Fallback();
+        }
+        String newName = JUnit4ImportProcessor.mapImport(id, migratedNames);
+        if (newName != null && !newName.equals(id.name())) {
+          edits.add(Edit.replace(begins[nameStart], ends[nameEnd], newName));
+          id = new ImportIndex.Import(newName, isStatic, isAsterisk);
+        }
+        importList.add(id);
+        importSpans.add(new int[] {begins[start], ends[i]});
+        i++;
+      }
+      // 改名后与已有 import 重复的同样需要删除
+      if (new HashSet<>(importList).size() != importList.size()) {
+        throw new Fallback();
+      }
+      return i;
+    }
+
+    /**
+     * 与 {@link ImportIndex#apply()} 相同的位置插入 import org.junit.jupiter.api.Timeout
+     */
+    private void addTimeoutImport() {
+      if (importList.contains(TIMEOUT_IMPORT)) {
+        return;
+      }
+      if (importList.isEmpty()) {
+        throw new Fallback();
+      }
+      String declaration = "import " + TIMEOUT_IMPORT.name() + ";";
+      int index = ImportIndex.insertionPoint(importList, TIMEOUT_IMPORT);
+      if (index > 0) {
+        int end = importSpans.get(index - 1)[1];
+        edits.add(Edit.replace(end, end, lineSeparator() + declaration));
+      } else {
+        int begin = importSpans.get(-index - 1)[0];
+        edits.add(Edit.replace(begin, begin, declaration + lineSeparator()));
+      }
+    }
+
+    private String lineSeparator() {
+      int lf = source.indexOf('\n');
+      return lf > 0 && source.charAt(lf - 1) == '\r' ? "\r\n" : "\n";
+    }
+
+    // ---- 注解、Assert 限定名、断言调用 ----
+
+    /**
+     * 一次扫描 import 之后的所有 token，直接记录注解与限定名的替换，断言调用记入 calls 留待按成员解析
+     *
+     * @return 是否插入了 @Timeout
+     */
+    private boolean scan(int from, List<Integer> calls) {
+      boolean needTimeoutImport = false;
+      boolean assertMigrated = migratedNames.contains("Assert")
+          || migratedNames.contains(JUnit4ImportProcessor.WILDCARD);
+      for (int i = from; i < size; i++) {
+        int kind = kinds[i];
+        if (kind == AT && kind(i + 1) != INTERFACE) {
+          needTimeoutImport |= annotation(i);
+        } else if (kind == EXTENDS && (processors & assertScope) != 0) {
+          extendsAssert(i);
+        } else if (kind == IDENTIFIER && kind(i - 1) != DOT && (processors & assertScope) != 0) {
+          assertScope(i, assertMigrated);
+        }
+        if (kind == IDENTIFIER && kind(i + 1) == LPAREN && (processors & assertArguments) != 0
+            && isAssertCall(i)) {
+          calls.add(i);
+        }
+      }
+      return needTimeoutImport;
+    }
+
+    /**
+     * @return 是否把 @Test(timeout = n) 改成了 @Test @Timeout
+     */
+    private boolean annotation(int at) {
+      int i = at + 1;
+      if (!isName(i)) {
+        return false;
+      }
+      StringBuilder name = new StringBuilder(text(i));
+      while (kind(i + 1) == DOT && isName(i + 2)) {
+        i += 2;
+        name.append('.').append(text(i));
+      }
+      if (i > at + 1) {
+        // @org.junit.Before 需要整体替换注解节点，交给完整路径
+        if (name.toString().startsWith("org.junit.")) {
+          throw new Fallback();
+        }
+        return false;
+      }
+      String mapped = (processors & annotations) != 0
+          ? JUnit4AnnotationProcessor.mapAnnotation(name.toString(), migratedNames) : null;
+      if (mapped != null) {
+        edits.add(Edit.replace(begins[i], ends[i], mapped));
+      }
+      if ("Test".contentEquals(name) && kind(i + 1) == LPAREN && (processors & testTimeout) != 0) {
+        return testTimeout(at, i + 1);
+      }
+      return false;
+    }
+
+    /**
+     * 与 {@link TestTimeoutProcessor} 相同：方法上的 @Test(timeout = 整数字面量) 改为 @Test 加 @Timeout(value = 秒)，
+     * 不是整秒时为 @Timeout(value = 毫秒, unit = TimeUnit.MILLISECONDS)
+     */
+    private boolean testTimeout(int at, int open) {
+      int close = matching(open, LPAREN, RPAREN);
+      ParseResult<AnnotationExpr> parsed = parser().parseAnnotation(source.substring(begins[at], ends[close]));
+      if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+        throw new Fallback();
+      }
+      AnnotationExpr annotation = parsed.getResult().get();
+      if (!annotation.isNormalAnnotationExpr()) {
+        return false;
+      }
+      NodeList<MemberValuePair> pairs = annotation.asNormalAnnotationExpr().getPairs();
+      MemberValuePair timeout = pairs.stream()
+          .filter(p -> "timeout".equals(p.getNameAsString()))
+          .findFirst()
+          .orElse(null);
+      if (timeout == null || !timeout.getValue().isIntegerLiteralExpr() || !annotatesMethod(close + 1)) {
+        return false;
+      }
+      // 还有其它属性（expected 由 TestExpectedProcessor 处理）时交给完整路径
+      if (pairs.size() > 1) {
+        throw new Fallback();
+      }
+      long millis = timeout.getValue().asIntegerLiteralExpr().asNumber().longValue();
+      String value;
+      if (millis % 1000 == 0) {
+        value = Long.toString(millis / 1000);
+      } else if (coversTimeUnit()) {
+        // 不是整秒时保留毫秒数，与完整路径相同
+        value = timeout.getValue() + ", unit = TimeUnit.MILLISECONDS";
+      } else {
+        // 还需要插入 TimeUnit 的 import，两条 import 的插入顺序交给完整路径
+        throw new Fallback();
+      }
+      int begin = begins[at];
+      int end = ends[close];
+      int lineStart = lineStarts[lines[at] - 1];
+      int lineEnd = lineEnd(end);
+      String indent = source.substring(lineStart, begin);
+      // 独占一行时 @Timeout 另起一行并保持缩进，否则接在同一行
+      String separator = indent.isBlank() && source.substring(end, lineEnd).isBlank()
+          ? lineSeparator() + indent : " ";
+      edits.add(Edit.replace(begin, end, "@Test" + separator + "@Timeout(value = " + value + ")"));
+      return true;
+    }
+
+    private boolean coversTimeUnit() {
+      return importList.contains(TIME_UNIT_IMPORT)
+          || importList.contains(new ImportIndex.Import("java.util.concurrent", false, true));
+    }
+
+    private int lineEnd(int from) {
+      int i = from;
+      while (i < source.length() && source.charAt(i) != '\n' && source.charAt(i) != '\r') {
+        i++;
+      }
+      return i;
+    }
+
+    /**
+     * 注解之后（跳过其它注解）先遇到参数列表的左括号，而不是 ; = { 时，注解的是方法
+     */
+    private boolean annotatesMethod(int from) {
+      int i = from;
+      while (i < size) {
+        switch (kinds[i]) {
+          case AT -> {
+            i++;
+            while (kind(i + 1) == DOT) {
+              i += 2;
+            }
+            if (kind(i + 1) == LPAREN) {
+              i = matching(i + 1, LPAREN, RPAREN);
+            }
+          }
+          case LPAREN -> {
+            return true;
+          }
+          case SEMICOLON, ASSIGN, LBRACE, RBRACE -> {
+            return false;
+          }
+          default -> {
+          }
+        }
+        i++;
+      }
+      return false;
+    }
+
+    /**
+     * 与 {@link ClassExtendsAssertProcessor#processClassDeclaration} 相同：类或接口声明中 extends 的 Assert 改为 Assertions
+     */
+    private void extendsAssert(int i) {
+      int name = i - 1;
+      if (kind(name) == GT) {
+        // class Foo<T> extends ...
+        int depth = 0;
+        for (; name >= 0; name--) {
+          if (kinds[name] == GT) {
+            depth++;
+          } else if (kinds[name] == LT && --depth == 0) {
+            break;
+          }
+        }
+        name--;
+      }
+      if (!isName(name) || kind(name - 1) != CLASS && kind(name - 1) != INTERFACE) {
+        // 类型参数的上界 <T extends Assert> 等
+        return;
+      }
+      int j = i + 1;
+      while (isName(j)) {
+        int last = j;
+        while (kind(j + 1) == DOT && isName(j + 2)) {
+          j += 2;
+          last = j;
+        }
+        if ("Assert".equals(text(last))) {
+          edits.add(Edit.replace(begins[last], ends[last], "Assertions"));
+        }
+        j++;
+        if (kind(j) == LT) {
+          j = matching(j, LT, GT) + 1;
+        }
+        if (kind(j) != COMMA) {
+          return;
+        }
+        j++;
+      }
+    }
+
+    /**
+     * 与 {@link ClassExtendsAssertProcessor#processAssertScope} 相同：Assert.xxx(...) 与 org.junit.Assert.xxx(...) 的限定名
+     */
+    private void assertScope(int i, boolean assertMigrated) {
+      String name = text(i);
+      if ("Assert".equals(name) && kind(i + 1) == DOT) {
+        if (kind(i + 2) == LT) {
+          // Assert.<T>xxx(...)
+          throw new Fallback();
+        }
+        if (assertMigrated && isName(i + 2) && kind(i + 3) == LPAREN) {
+          edits.add(Edit.replace(begins[i], ends[i], "Assertions"));
+        }
+      } else if ("org".equals(name) && kind(i + 1) == DOT && "junit".equals(nameAt(i + 2))
+          && kind(i + 3) == DOT && "Assert".equals(nameAt(i + 4)) && kind(i + 5) == DOT
+          && isName(i + 6) && kind(i + 7) == LPAREN) {
+        edits.add(Edit.replace(begins[i], ends[i + 4], JUNIT5_ASSERTIONS));
+      }
+    }
+
+    private String nameAt(int i) {
+      return isName(i) ? text(i) : null;
+    }
+
+    /**
+     * 名字在 {@link AssertArgumentsProcessor} 的方法集合中的调用，排除同名的方法声明
+     */
+    private boolean isAssertCall(int i) {
+      String name = text(i);
+      if (!AssertArgumentsProcessor.SWAP_TWO_ARGS_METHODS.contains(name)
+          && !AssertArgumentsProcessor.SHIFT_THREE_ARGS_METHODS.contains(name)) {
+        return false;
+      }
+      int previous = kind(i - 1);
+      if (previous == GT || previous == RSIGNEDSHIFT || previous == RUNSIGNEDSHIFT) {
+        // 泛型调用 Assert.<T>assertEquals(...) 与返回泛型类型的方法声明无法只凭 token 区分
+        throw new Fallback();
+      }
+      // 返回类型之后的名字是方法声明
+      return previous != IDENTIFIER && previous != RBRACKET && previous != VOID && !isPrimitive(previous);
+    }
+
+    private static boolean isPrimitive(int kind) {
+      return kind == BOOLEAN || kind == BYTE || kind == CHAR || kind == SHORT || kind == INT || kind == LONG
+          || kind == FLOAT || kind == DOUBLE;
+    }
+
+    private int matching(int open, int openKind, int closeKind) {
+      int depth = 0;
+      for (int i = open; i < size; i++) {
+        if (kinds[i] == openKind) {
+          depth++;
+        } else if (kinds[i] == closeKind && --depth == 0) {
+          return i;
+        } else if (openKind == LT && (kinds[i] == RSIGNEDSHIFT || kinds[i] == RUNSIGNEDSHIFT)) {
+          throw new Fallback();
+        }
+      }
+      throw new Fallback();
+    }
+
+    // ---- 按成员解析断言调用 ----
+
+    /**
+     * 切分顶层类型中的成员：在类体这一层，成员以 ; 结束，或以把层级带回类体的 } 结束
+     * （之后紧跟 ; , . ) ] 的除外，例如数组初始化与匿名类）
+     */
+    private void members(int from) {
+      int depth = 0;
+      int start = -1;
+      int type = -1;
+      for (int i = from; i < size; i++) {
+        switch (kinds[i]) {
+          case LBRACE -> {
+            if (depth == 1 && start < 0) {
+              start = i;
+            }
+            depth++;
+            if (depth == 1) {
+              type++;
+            }
+          }
+          case RBRACE -> {
+            depth--;
+            if (depth == 0) {
+              start = -1;
+            } else if (depth == 1 && start >= 0) {
+              int next = kind(i + 1);
+              if (next != SEMICOLON && next != COMMA && next != DOT && next != RPAREN && next != RBRACKET) {
+                members.add(new int[] {start, i, type});
+                start = -1;
+              }
+            }
+          }
+          case SEMICOLON -> {
+            if (depth == 1 && start >= 0) {
+              members.add(new int[] {start, i, type});
+              start = -1;
+            }
+          }
+          default -> {
+            if (depth == 1 && start < 0) {
+              start = i;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * 与 {@link AssertArgumentsProcessor#processMethodCall} 相同的判断。
+     * 参数个数按 token 就能排除的调用不解析；参数中没有可能需要查声明类型的名字时只解析调用本身；
+     * 否则解析调用所在的成员，同一成员中的调用共用一次解析
+     */
+    private void arguments(List<Integer> calls) {
+      int member = -1;
+      BodyDeclaration<?> declaration = null;
+      DeclarationTypeIndex index = null;
+      Map<Position, MethodCallExpr> byName = null;
+      try {
+        for (int call : calls) {
+          int close = matching(call + 1, LPAREN, RPAREN);
+          int arity = AssertArgumentsProcessor.SWAP_TWO_ARGS_METHODS.contains(text(call)) ? 2 : 3;
+          if (!mayHaveArity(call + 1, close, arity)) {
+            continue;
+          }
+          if (!referencesNames(call + 2, close)) {
+            reorder(parseCall(call, close), call, null);
+            continue;
+          }
+          if (member < 0 || call > members.get(member)[1]) {
+            if (declaration != null) {
+              declaration.remove();
+            }
+            member = memberOf(call, member + 1);
+            declaration = parseMember(members.get(member));
+            ClassOrInterfaceDeclaration holder = holder(members.get(member)[2]);
+            holder.addMember(declaration);
+            index = new DeclarationTypeIndex(holder.findCompilationUnit().orElseThrow());
+            byName = callsByName(declaration);
+          }
+          int[] range = members.get(member);
+          MethodCallExpr mce = byName.get(relative(range[0], call));
+          if (mce == null) {
+            throw new Fallback();
+          }
+          reorder(mce, range[0], index);
+        }
+      } finally {
+        if (declaration != null) {
+          declaration.remove();
+        }
+      }
+    }
+
+    /**
+     * 按顶层的逗号数判断参数个数是否可能为 arity；参数中有 &lt; 时（泛型参数中的逗号）无法判断
+     */
+    private boolean mayHaveArity(int open, int close, int arity) {
+      int depth = 0;
+      int commas = 0;
+      for (int i = open + 1; i < close; i++) {
+        switch (kinds[i]) {
+          case LPAREN, LBRACE, LBRACKET -> depth++;
+          case RPAREN, RBRACE, RBRACKET -> depth--;
+          case COMMA -> commas += depth == 0 ? 1 : 0;
+          case LT -> {
+            return true;
+          }
+          default -> {
+          }
+        }
+      }
+      return close > open + 1 && commas + 1 == arity;
+    }
+
+    /**
+     * 参数中是否可能有按声明类型判断的变量名或 this.xxx：方法名、限定名中的前缀与成员名不算
+     */
+    private boolean referencesNames(int from, int close) {
+      for (int i = from; i < close; i++) {
+        if (kinds[i] == THIS && kind(i + 1) == DOT) {
+          return true;
+        }
+        if (isName(i) && kind(i - 1) != DOT && kind(i + 1) != DOT && kind(i + 1) != LPAREN) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private MethodCallExpr parseCall(int call, int close) {
+      ParseResult<Expression> parsed = parser().parseExpression(source.substring(begins[call], ends[close]));
+      if (!parsed.isSuccessful() || parsed.getResult().isEmpty() || !parsed.getResult().get().isMethodCallExpr()) {
+        throw new Fallback();
+      }
+      return parsed.getResult().get().asMethodCallExpr();
+    }
+
+    // 以方法名的位置查找调用，Assert.xxx(...) 的开始位置是限定名
+    private Map<Position, MethodCallExpr> callsByName(BodyDeclaration<?> declaration) {
+      Map<Position, MethodCallExpr> calls = new HashMap<>();
+      for (MethodCallExpr mce : declaration.findAll(MethodCallExpr.class)) {
+        mce.getName().getBegin().ifPresent(position -> calls.put(position, mce));
+      }
+      return calls;
+    }
+
+    private int memberOf(int token, int from) {
+      for (int m = from; m < members.size(); m++) {
+        int[] range = members.get(m);
+        if (token < range[0]) {
+          break;
+        }
+        if (token <= range[1]) {
+          return m;
+        }
+      }
+      throw new Fallback();
+    }
+
+    private BodyDeclaration<?> parseMember(int[] range) {
+      ParseResult<BodyDeclaration<?>> parsed =
+          parser().parseBodyDeclaration(source.substring(begins[range[0]], ends[range[1]]));
+      if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+        throw new Fallback();
+      }
+      return parsed.getResult().get();
+    }
+
+    /**
+     * 顶层类型的字段，作为 DeclarationTypeIndex 查找字段类型时的作用域
+     */
+    private ClassOrInterfaceDeclaration holder(int type) {
+      return holders.computeIfAbsent(type, t -> {
+        ClassOrInterfaceDeclaration holder = new ClassOrInterfaceDeclaration();
+        new CompilationUnit().addType(holder);
+        for (int[] range : members) {
+          if (range[2] != t || kinds[range[1]] != SEMICOLON) {
+            continue;
+          }
+          ParseResult<BodyDeclaration<?>> parsed =
+              parser().parseBodyDeclaration(source.substring(begins[range[0]], ends[range[1]]));
+          // 枚举常量等无法单独解析的成员不是字段，忽略
+          parsed.getResult()
+              .filter(declaration -> parsed.isSuccessful() && declaration.isFieldDeclaration())
+              .ifPresent(holder::addMember);
+        }
+        return holder;
+      });
+    }
+
+    private void reorder(MethodCallExpr mce, int base, DeclarationTypeIndex index) {
+      int[] order = AssertArgumentsProcessor.messageOrder(mce, AssertArgumentsProcessor.SWAP_TWO_ARGS_METHODS,
+          AssertArgumentsProcessor.SHIFT_THREE_ARGS_METHODS, index);
+      if (order == null) {
+        return;
+      }
+      NodeList<Expression> arguments = mce.getArguments();
+      int[] ranges = new int[arguments.size() * 2];
+      for (int a = 0; a < arguments.size(); a++) {
+        Expression argument = arguments.get(a);
+        ranges[2 * a] = absolute(base, argument.getBegin().orElseThrow(Fallback::new));
+        ranges[2 * a + 1] = absolute(base, argument.getEnd().orElseThrow(Fallback::new)) + 1;
+      }
+      edits.add(new Edit(ranges[0], ranges[ranges.length - 1], null, ranges, order));
+    }
+
+    // token 在以 base 开始的成员文本中的位置
+    private Position relative(int base, int token) {
+      int line = lines[token] - lines[base] + 1;
+      int column = line == 1 ? columns[token] - columns[base] + 1 : columns[token];
+      return new Position(line, column);
+    }
+
+    // 成员文本中的位置在整个文件中的下标
+    private int absolute(int base, Position position) {
+      int line = position.line + lines[base] - 1;
+      int column = position.line == 1 ? position.column + columns[base] - 1 : position.column;
+      int offset = offset(line, column);
+      if (offset < 0 || offset >= source.length()) {
+        throw new Fallback();
+      }
+      return offset;
+    }
+
+    // ---- 输出 ----
+
+    /**
+     * 替换之间只允许完全嵌套，且只能嵌套在参数换位的某个参数之内，例如参数中的 Assert.xxx(...)
+     */
+    private void checkNesting() {
+      Deque<Edit> open = new ArrayDeque<>();
+      for (Edit edit : edits) {
+        while (!open.isEmpty() && open.peek().end() <= edit.begin()) {
+          open.pop();
+        }
+        if (!open.isEmpty() && !open.peek().encloses(edit.begin(), edit.end())) {
+          throw new Fallback();
+        }
+        open.push(edit);
+      }
+    }
+
+    private String render(int from, int to) {
+      StringBuilder sb = new StringBuilder(to - from + 256);
+      int position = from;
+      for (int e = firstEdit(from); e < edits.size(); e++) {
+        Edit edit = edits.get(e);
+        if (edit.begin() >= to) {
+          break;
+        }
+        // 嵌套在前一处替换中的，由前一处替换输出
+        if (edit.begin() < position || edit.end() > to) {
+          continue;
+        }
+        sb.append(source, position, edit.begin());
+        if (edit.text() != null) {
+          sb.append(edit.text());
+        } else {
+          int[] ranges = edit.ranges();
+          int[] order = edit.order();
+          for (int p = 0; p < order.length; p++) {
+            sb.append(render(ranges[2 * order[p]], ranges[2 * order[p] + 1]));
+            if (p < order.length - 1) {
+              sb.append(source, ranges[2 * p + 1], ranges[2 * p + 2]);
+            }
+          }
+        }
+        position = edit.end();
+      }
+      sb.append(source, position, to);
+      return sb.toString();
+    }
+
+    // 第一个开始位置不小于 from 的替换
+    private int firstEdit(int from) {
+      int low = 0;
+      int high = edits.size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (edits.get(mid).begin() < from) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+  private static JavaParser parser() {
+    return PARSERS.get();
+  }
+
+  private static int[] lineStarts(String source) {
+    int[] starts = new int[16];
+    int count = 1;
+    for (int i = 0; i < source.length(); i++) {
+      char c = source.charAt(i);
+      if (c == '\n' || c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n')) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = i + 1;
+      }
+    }
+    return Arrays.copyOf(starts, count);
+  }
+}
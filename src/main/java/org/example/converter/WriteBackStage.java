@@ -0,0 +1,624 @@
+package org.example.converter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 异步写回：转换线程只把结果放入队列，由单独的写回线程批量写入磁盘，转换线程不再等待磁盘 I/O。
+ * <p>
+ * 每个文件先写到同目录下的临时文件，再原子重命名覆盖原文件，进程在任何时刻被杀掉都不会留下写了一半的源文件。
+ * 一批文件的临时文件全部写完后再依次 fsync，重命名之后每个目录只 fsync 一次，日志每批只 fsync 一次。
+ * <p>
+ * 指定日志文件时，覆盖前为原文件创建硬链接备份（不支持硬链接时复制），并在只追加的日志中记录：
+ * <pre>
+ * P  序号  文件  临时文件  备份      准备写入（不 fsync）
+ * C  序号                            临时文件与备份已经落盘（每批 fsync 一次）
+ * </pre>
+ * 之后才执行重命名。{@link #flush()} 时删除备份并清空日志。运行中断后日志不为空，
+ * 由 {@link #recover} 继续完成已提交的重命名，或者把这次运行写过的文件全部恢复为原内容。
+ * <p>
+ * 语法树的内存预算在提交后就归还，队列中的内容不再计入预算，因此排队等待写入的总字节数有上限：
+ * 超过上限时 {@link #submit} 阻塞，直到写回线程写完一批；队列为空时总是放行，超过上限的单个文件也能写入。
+ */
+public class WriteBackStage implements AutoCloseable {
+
+  // 每批最多写入的文件数
+  private static final int MAX_BATCH = 64;
+
+  private static final String TMP_SUFFIX = ".junit5-tmp";
+
+  private static final String BACKUP_SUFFIX = ".junit5-orig";
+
+  // 默认最多排队等待写入的字节数
+  public static final long DEFAULT_MAX_QUEUED_BYTES = 64L << 20;
+
+  /**
+   * 单个文件写回结束时在写回线程中调用
+   */
+  @FunctionalInterface
+  public interface Completion {
+
+    /**
+     * @param nanos 分摊到这个文件的写入耗时
+     * @param error 成功时为 null
+     */
+    void done(long nanos, IOException error);
+  }
+
+  private sealed interface Task permits Write, Flush, Stop {
+  }
+
+  private record Write(Path path, byte[] content, Completion completion) implements Task {
+  }
+
+  private record Flush(CountDownLatch latch, IOException[] error) implements Task {
+  }
+
+  private record Stop() implements Task {
+  }
+
+  // 一个待写入的文件在本批中的状态
+  private static final class Pending {
+
+    private final Write write;
+    private final long id;
+    private Path target;
+    private Path tmp;
+    private Path backup;
+    private FileChannel channel;
+    private IOException error;
+
+    Pending(Write write, long id) {
+      this.write = write;
+      this.id = id;
+    }
+  }
+
+  // flush / stop 不受字节上限限制，写入任务的上限由 queuedBytes 控制
+  private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+
+  private final long maxQueuedBytes;
+
+  private final ReentrantLock queuedLock = new ReentrantLock();
+
+  private final Condition written = queuedLock.newCondition();
+
+  // 已提交、还没有写完的内容字节数，由 queuedLock 保护
+  private long queuedBytes;
+
+  // 为 null 时不记录日志、不保留备份，仍然通过临时文件原子替换
+  private final FileChannel journal;
+
+  private final Path journalFile;
+
+  // 本次运行的临时文件、备份名中的随机部分，避免与上次中断留下的文件重名
+  private final String runId = Long.toHexString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+
+  // 上次 flush 之后创建的备份
+  private final List<Path> backups = new ArrayList<>();
+
+  private final Thread writer;
+
+  private long nextId;
+
+  private volatile boolean closed;
+
+  /**
+   * @param journalFile 日志文件，为 null 时不记录；存在且不为空时必须先调用 {@link #recover}
+   */
+  public WriteBackStage(Path journalFile) throws IOException {
+    this(journalFile, DEFAULT_MAX_QUEUED_BYTES);
+  }
+
+  /**
+   * @param journalFile    日志文件，为 null 时不记录；存在且不为空时必须先调用 {@link #recover}
+   * @param maxQueuedBytes 最多排队等待写入的字节数
+   */
+  public WriteBackStage(Path journalFile, long maxQueuedBytes) throws IOException {
+    if (maxQueuedBytes <= 0) {
+      throw new IllegalArgumentException("write-back queue limit must be positive: " + maxQueuedBytes);
+    }
+    this.maxQueuedBytes = maxQueuedBytes;
+    this.journalFile = journalFile;
+    if (journalFile != null) {
+      if (Files.exists(journalFile) && Files.size(journalFile) > 0) {
+        throw new IOException("journal of an interrupted run must be recovered first: " + journalFile);
+      }
+      Path parent = journalFile.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      this.journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+    } else {
+      this.journal = null;
+    }
+    this.writer = new Thread(this::run, "write-back");
+    // 没有关闭就退出时由日志负责恢复，不阻止 JVM 退出
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * 放入队列后返回，completion 在写回线程中调用；排队的内容超过上限时阻塞，直到写回线程写完一批
+   */
+  public void submit(Path path, byte[] content, Completion completion) throws InterruptedIOException {
+    if (closed) {
+      throw new IllegalStateException("write-back stage is closed");
+    }
+    try {
+      // 在 ForkJoinPool 的工作线程中阻塞时由线程池补充线程
+      ForkJoinPool.managedBlock(new Reservation(content.length));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for write-back: " + path);
+    }
+    queue.add(new Write(path, content, completion));
+  }
+
+  // 为一个文件的内容占用队列上限，isReleasable 或 block 返回 true 时已经占用
+  private final class Reservation implements ForkJoinPool.ManagedBlocker {
+
+    private final long length;
+
+    Reservation(long length) {
+      this.length = length;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      queuedLock.lock();
+      try {
+        return tryReserve();
+      } finally {
+        queuedLock.unlock();
+      }
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      queuedLock.lock();
+      try {
+        while (!tryReserve()) {
+          written.await();
+        }
+        return true;
+      } finally {
+        queuedLock.unlock();
+      }
+    }
+
+    private boolean tryReserve() {
+      if (queuedBytes > 0 && queuedBytes + length > maxQueuedBytes) {
+        return false;
+      }
+      queuedBytes += length;
+      return true;
+    }
+  }
+
+  // 一批文件写完后归还占用的队列上限
+  private void release(List<Pending> batch) {
+    long length = 0;
+    for (Pending pending : batch) {
+      length += pending.write.content().length;
+    }
+    queuedLock.lock();
+    try {
+      queuedBytes -= length;
+      written.signalAll();
+    } finally {
+      queuedLock.unlock();
+    }
+  }
+
+  /**
+   * 等待此前提交的文件全部写回，然后删除备份、清空日志：此后这些文件不再能通过日志回滚
+   */
+  public void flush() throws IOException {
+    if (closed) {
+      return;
+    }
+    Flush flush = new Flush(new CountDownLatch(1), new IOException[1]);
+    queue.add(flush);
+    try {
+      flush.latch().await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while flushing write-back");
+    }
+    if (flush.error()[0] != null) {
+      throw flush.error()[0];
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    flush();
+    closed = true;
+    queue.add(new Stop());
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (journal != null) {
+      journal.close();
+      Files.deleteIfExists(journalFile);
+    }
+  }
+
+  /**
+   * 同步写入单个文件：临时文件 + fsync + 原子重命名，未启用写回线程时使用
+   */
+  public static void writeAtomically(Path path, byte[] content) throws IOException {
+    Path target = target(path);
+    Path tmp = sibling(target, Long.toHexString(System.nanoTime()), TMP_SUFFIX);
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      write(channel, content);
+      channel.force(true);
+    }
+    try {
+      copyAttributes(target, tmp);
+      move(tmp, target);
+    } catch (IOException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    syncDirectory(target.getParent());
+  }
+
+  /**
+   * 处理中断的运行留下的日志，处理完后删除日志
+   *
+   * @param rollback true 时把日志中记录的文件恢复为原内容；false 时完成已提交但未重命名的写入
+   * @return 被恢复或被完成写入的文件
+   */
+  public static List<Path> recover(Path journalFile, boolean rollback) throws IOException {
+    List<Path> touched = new ArrayList<>();
+    if (!Files.exists(journalFile)) {
+      return touched;
+    }
+    List<String[]> prepared = new ArrayList<>();
+    Set<String> committed = new LinkedHashSet<>();
+    for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8)) {
+      // 保留末尾的空字段：没有备份时最后一列为空
+      String[] fields = line.split("\t", -1);
+      if (fields.length == 5 && "P".equals(fields[0])) {
+        prepared.add(fields);
+      } else if (fields.length == 2 && "C".equals(fields[0])) {
+        committed.add(fields[1]);
+      }
+      // 最后一行可能只写了一半，忽略无法识别的行
+    }
+    Set<Path> directories = new LinkedHashSet<>();
+    // 同一文件被写多次时：回滚倒序处理，最后恢复的是最早的备份；继续写入按原顺序处理
+    for (int n = 0; n < prepared.size(); n++) {
+      String[] fields = prepared.get(rollback ? prepared.size() - 1 - n : n);
+      Path target = Path.of(fields[2]);
+      Path tmp = Path.of(fields[3]);
+      Path backup = fields[4].isEmpty() ? null : Path.of(fields[4]);
+      if (!committed.contains(fields[1])) {
+        // 尚未提交：原文件没有被覆盖，只清理临时文件与备份
+        Files.deleteIfExists(tmp);
+        if (backup != null) {
+          Files.deleteIfExists(backup);
+        }
+        continue;
+      }
+      if (rollback) {
+        Files.deleteIfExists(tmp);
+        if (backup != null && Files.exists(backup)) {
+          // 备份是硬链接：原文件还没有被覆盖，或同一批中同一文件写了两次时，备份与目标是同一个文件，
+          // 对同一文件的 rename 什么也不做，备份会留下来，直接删除
+          if (Files.exists(target) && Files.isSameFile(backup, target)) {
+            Files.delete(backup);
+          } else {
+            move(backup, target);
+          }
+          touched.add(target);
+          directories.add(target.getParent());
+        }
+      } else {
+        // 临时文件还在说明重命名没有完成
+        if (Files.exists(tmp)) {
+          move(tmp, target);
+          touched.add(target);
+          directories.add(target.getParent());
+        }
+        if (backup != null) {
+          Files.deleteIfExists(backup);
+        }
+      }
+    }
+    for (Path directory : directories) {
+      syncDirectory(directory);
+    }
+    Files.delete(journalFile);
+    return touched;
+  }
+
+  private void run() {
+    List<Task> tasks = new ArrayList<>();
+    while (true) {
+      try {
+        tasks.add(queue.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      queue.drainTo(tasks, MAX_BATCH - 1);
+      List<Pending> batch = new ArrayList<>();
+      for (Task task : tasks) {
+        if (task instanceof Write write) {
+          batch.add(new Pending(write, nextId++));
+          continue;
+        }
+        // 文件之间没有顺序依赖，先写完这一批中之前的文件，再处理 flush / stop
+        writeBatch(batch);
+        batch.clear();
+        if (task instanceof Flush flush) {
+          try {
+            commitJournal();
+          } catch (IOException e) {
+            flush.error()[0] = e;
+          }
+          flush.latch().countDown();
+        } else {
+          return;
+        }
+      }
+      writeBatch(batch);
+      tasks.clear();
+    }
+  }
+
+  private void writeBatch(List<Pending> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      writeFiles(batch);
+    } finally {
+      release(batch);
+    }
+  }
+
+  private void writeFiles(List<Pending> batch) {
+    long start = System.nanoTime();
+    try {
+      batch.forEach(this::prepare);
+      if (journal != null) {
+        StringBuilder sb = new StringBuilder();
+        for (Pending pending : batch) {
+          sb.append("P\t").append(pending.id).append('\t').append(pending.target).append('\t')
+              .append(pending.tmp).append('\t').append(pending.backup == null ? "" : pending.backup).append('\n');
+        }
+        appendJournal(sb, false);
+      }
+
+      // 先写完所有临时文件，再依次 fsync
+      for (Pending pending : batch) {
+        if (pending.error == null) {
+          try {
+            pending.channel = FileChannel.open(pending.tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            copyAttributes(pending.target, pending.tmp);
+            write(pending.channel, pending.write.content());
+          } catch (IOException e) {
+            pending.error = e;
+          }
+        }
+      }
+      for (Pending pending : batch) {
+        if (pending.channel != null) {
+          try (FileChannel channel = pending.channel) {
+            if (pending.error == null) {
+              channel.force(true);
+            }
+          } catch (IOException e) {
+            pending.error = e;
+          }
+        }
+      }
+
+      if (journal != null) {
+        StringBuilder sb = new StringBuilder();
+        for (Pending pending : batch) {
+          if (pending.error == null) {
+            try {
+              backup(pending);
+              sb.append("C\t").append(pending.id).append('\n');
+            } catch (IOException e) {
+              pending.error = e;
+            }
+          }
+        }
+        appendJournal(sb, true);
+      }
+    } catch (IOException e) {
+      // 日志写入失败，这一批都不覆盖原文件
+      for (Pending pending : batch) {
+        if (pending.error == null) {
+          pending.error = e;
+        }
+      }
+    }
+
+    Set<Path> directories = new LinkedHashSet<>();
+    for (Pending pending : batch) {
+      if (pending.error == null) {
+        try {
+          move(pending.tmp, pending.target);
+          directories.add(pending.target.getParent());
+        } catch (IOException e) {
+          pending.error = e;
+        }
+      }
+      if (pending.error != null) {
+        cleanUp(pending);
+      }
+    }
+    for (Path directory : directories) {
+      syncDirectory(directory);
+    }
+
+    long nanos = (System.nanoTime() - start) / batch.size();
+    for (Pending pending : batch) {
+      try {
+        pending.write.completion().done(nanos, pending.error);
+      } catch (RuntimeException e) {
+        // 回调异常不能终止写回线程，否则 flush 永远等不到结束
+        System.err.println("Write-back callback failed for " + pending.target + ": " + e);
+      }
+    }
+  }
+
+  // 确定目标文件与临时文件、备份的名字，日志中记录绝对路径，恢复时不依赖当前目录
+  private void prepare(Pending pending) {
+    Path path = pending.write.path().toAbsolutePath();
+    try {
+      pending.target = target(path);
+    } catch (IOException e) {
+      pending.error = e;
+      pending.target = path;
+    }
+    String unique = runId + "-" + pending.id;
+    pending.tmp = sibling(pending.target, unique, TMP_SUFFIX);
+    if (journal != null) {
+      pending.backup = sibling(pending.target, unique, BACKUP_SUFFIX);
+    }
+  }
+
+  // 为原文件创建硬链接备份，不支持硬链接时复制
+  private void backup(Pending pending) throws IOException {
+    Files.deleteIfExists(pending.backup);
+    try {
+      Files.createLink(pending.backup, pending.target);
+    } catch (UnsupportedOperationException | IOException e) {
+      Files.copy(pending.target, pending.backup, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+    backups.add(pending.backup);
+  }
+
+  // 写入失败时原文件没有被覆盖，备份不再需要
+  private void cleanUp(Pending pending) {
+    try {
+      Files.deleteIfExists(pending.tmp);
+      if (pending.backup != null) {
+        Files.deleteIfExists(pending.backup);
+      }
+    } catch (IOException e) {
+      // 留给下次恢复清理
+    }
+  }
+
+  private void appendJournal(CharSequence records, boolean sync) throws IOException {
+    if (records.length() > 0) {
+      write(journal, records.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    if (sync) {
+      journal.force(false);
+    }
+  }
+
+  // 此前的写入已经全部完成：删除备份，清空日志
+  private void commitJournal() throws IOException {
+    if (journal == null) {
+      return;
+    }
+    for (Path backup : backups) {
+      Files.deleteIfExists(backup);
+    }
+    backups.clear();
+    journal.truncate(0);
+    journal.force(false);
+  }
+
+  // 符号链接写回到它指向的文件，保持链接本身不变
+  private static Path target(Path path) throws IOException {
+    return Files.isSymbolicLink(path) ? path.toRealPath() : path;
+  }
+
+  private static Path sibling(Path target, String unique, String suffix) {
+    return target.resolveSibling("." + target.getFileName() + "." + unique + suffix);
+  }
+
+  private static void write(FileChannel channel, byte[] content) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(content);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * 临时文件按默认权限新建，重命名后会替换原文件的权限与属主，因此重命名之前把原文件的这些属性复制到临时文件上。
+   * 非 POSIX 文件系统与原文件不存在时不处理；修改属主通常需要特权，失败时保留当前用户
+   */
+  private static void copyAttributes(Path source, Path tmp) throws IOException {
+    PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+    PosixFileAttributeView tmpView = Files.getFileAttributeView(tmp, PosixFileAttributeView.class);
+    if (sourceView == null || tmpView == null) {
+      return;
+    }
+    PosixFileAttributes original;
+    try {
+      original = sourceView.readAttributes();
+    } catch (NoSuchFileException e) {
+      return;
+    }
+    tmpView.setPermissions(original.permissions());
+    PosixFileAttributes created = tmpView.readAttributes();
+    try {
+      if (!created.group().equals(original.group())) {
+        tmpView.setGroup(original.group());
+      }
+      if (!created.owner().equals(original.owner())) {
+        tmpView.setOwner(original.owner());
+      }
+    } catch (IOException e) {
+      // 忽略
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  // 让重命名本身落盘；部分平台不支持打开目录，忽略
+  private static void syncDirectory(Path directory) {
+    if (directory == null) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // 忽略
+    }
+  }
+}
@@ -1,58 +1,121 @@
 package org.example.converter.processor;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import org.example.converter.ConversionContext;
+import org.example.util.DeclarationTypeIndex;
 import org.example.util.JUnitMigrationUtils;
 
+import java.util.HashSet;
 import java.util.Set;
 
 /**
  * 处理断言方法参数迁移 (JUnit4 -> JUnit5):
  * - 若方法是 assertTrue("msg", condition)，则改为 assertTrue(condition, "msg") 等
  */
-public class AssertArgumentsProcessor {
+public class AssertArgumentsProcessor implements MigrationProcessor {
+
+  // 需要交换两个参数
+  public static final Set<String> SWAP_TWO_ARGS_METHODS = Set.of(
+      "assertTrue",
+      "assertFalse",
+      "assertNull",
+      "assertNotNull"
+  );
+
+  // 需要交换三个参数
+  public static final Set<String> SHIFT_THREE_ARGS_METHODS = Set.of(
+      "assertEquals",
+      "assertNotEquals",
+      "assertSame",
+      "assertNotSame",
+      "assertArrayEquals"
+  );
 
   public static void processAssertArguments(CompilationUnit cu,
                                             Set<String> swapTwoArgsMethods,
                                             Set<String> shiftThreeArgsMethods) {
+    ConversionContext context = new ConversionContext(null);
+    context.setDeclarationTypeIndex(new DeclarationTypeIndex(cu));
     cu.accept(new VoidVisitorAdapter<Void>() {
       @Override
       public void visit(MethodCallExpr mce, Void arg) {
         super.visit(mce, arg);
-        String methodName = mce.getNameAsString();
-
-        // 处理2个参数的方法
-        if (swapTwoArgsMethods.contains(methodName) && mce.getArguments().size() == 2) {
-          var arg0 = mce.getArgument(0);
-          var arg1 = mce.getArgument(1);
-
-          // 若第一个参数是字符串，第二个不是，则认为是JUnit4风格，需要交换
-          if (JUnitMigrationUtils.isLikelyMessageParameter(arg0)
-              && !JUnitMigrationUtils.isLikelyMessageParameter(arg1)) {
-            mce.setArgument(0, arg1);
-            mce.setArgument(1, arg0);
-          }
-        }
-
-        // 处理3个参数的方法
-        if (shiftThreeArgsMethods.contains(methodName) && mce.getArguments().size() == 3) {
-          var arg0 = mce.getArgument(0);
-          var arg1 = mce.getArgument(1);
-          var arg2 = mce.getArgument(2);
-
-          // 若第一个参数是字符串，其他两个不是，则移位
-          if (JUnitMigrationUtils.isLikelyMessageParameter(arg0)
-              && !JUnitMigrationUtils.isLikelyMessageParameter(arg1)
-              && !JUnitMigrationUtils.isLikelyMessageParameter(arg2)) {
-            // (0,1,2) -> (1,2,0)
-            mce.setArgument(0, arg1);
-            mce.setArgument(1, arg2);
-            mce.setArgument(2, arg0);
-          }
-        }
+        processMethodCall(mce, swapTwoArgsMethods, shiftThreeArgsMethods, context);
       }
     }, null);
   }
-}
\ No newline at end of file
+
+  /**
+   * 处理单个方法调用，供单次遍历引擎直接调用
+   * 参数是否为 String 优先按 context 中当前文件的声明索引判断
+   */
+  public static void processMethodCall(MethodCallExpr mce,
+                                       Set<String> swapTwoArgsMethods,
+                                       Set<String> shiftThreeArgsMethods,
+                                       ConversionContext context) {
+    int[] order = messageOrder(mce, swapTwoArgsMethods, shiftThreeArgsMethods, context.getDeclarationTypeIndex());
+    if (order == null) {
+      return;
+    }
+    context.prepareRewrite();
+    Expression[] arguments = mce.getArguments().toArray(new Expression[0]);
+    for (int i = 0; i < order.length; i++) {
+      mce.setArgument(i, arguments[order[i]]);
+    }
+  }
+
+  /**
+   * 只读地判断调用是否为 JUnit4 风格（消息在第一个参数）的断言，不修改语法树
+   *
+   * @param index 当前文件的声明索引，可以为 null
+   * @return JUnit5 中参数的顺序，第 i 个参数取原来的第 order[i] 个；不需要调整时返回 null
+   */
+  public static int[] messageOrder(MethodCallExpr mce,
+                                   Set<String> swapTwoArgsMethods,
+                                   Set<String> shiftThreeArgsMethods,
+                                   DeclarationTypeIndex index) {
+    String methodName = mce.getNameAsString();
+    NodeList<Expression> arguments = mce.getArguments();
+
+    // 第一个参数是字符串，且最后一个参数不是 message（调用还不是 JUnit5 的顺序）时才调整。
+    // 被比较的参数只按写法判断：它们声明为 String 时不能据此认为调用已经是 JUnit5 风格
+
+    // 处理2个参数的方法：交换
+    if (swapTwoArgsMethods.contains(methodName) && arguments.size() == 2
+        && JUnitMigrationUtils.isLikelyMessageParameter(arguments.get(0), index)
+        && !JUnitMigrationUtils.isMessageExpression(arguments.get(1))) {
+      return new int[] {1, 0};
+    }
+
+    // 处理3个参数的方法：移位 (0,1,2) -> (1,2,0)
+    if (shiftThreeArgsMethods.contains(methodName) && arguments.size() == 3
+        && JUnitMigrationUtils.isLikelyMessageParameter(arguments.get(0), index)
+        && !JUnitMigrationUtils.isMessageExpression(arguments.get(2))) {
+      return new int[] {1, 2, 0};
+    }
+    return null;
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(MethodCallExpr.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    Set<String> triggers = new HashSet<>(SWAP_TWO_ARGS_METHODS);
+    triggers.addAll(SHIFT_THREE_ARGS_METHODS);
+    return triggers;
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    processMethodCall((MethodCallExpr) node, SWAP_TWO_ARGS_METHODS, SHIFT_THREE_ARGS_METHODS, context);
+    return node;
+  }
+}
@@ -1,22 +1,40 @@
 package org.example.converter.processor;
 
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.ImportDeclaration;
-import com.github.javaparser.ast.NodeList;
+import org.example.converter.ConversionContext;
+import org.example.util.ImportIndex;
+
+import java.util.Set;
 
 /**
- * 如果需要 Assertions（因 assertThrows）则插入相关 import
+ * 如果需要 Assertions（因 @Test(expected) 或 ExpectedException 迁移生成的 assertThrows）则插入相关 import
  */
-public class AssertionsImportAdder {
+public class AssertionsImportAdder implements MigrationProcessor {
 
   public static void addAssertionsImportIfNeeded(CompilationUnit cu, boolean needAssertionsImport) {
-    if (!needAssertionsImport) return;
+    ImportIndex imports = new ImportIndex(cu);
+    addAssertionsImportIfNeeded(imports, needAssertionsImport);
+    imports.apply();
+  }
 
-    NodeList<ImportDeclaration> importList = cu.getImports();
-    boolean hasAssertions = importList.stream()
-        .anyMatch(id -> "org.junit.jupiter.api.Assertions".equals(id.getNameAsString()));
-    if (!hasAssertions) {
-      importList.add(new ImportDeclaration("org.junit.jupiter.api.Assertions", false, false));
+  public static void addAssertionsImportIfNeeded(ImportIndex imports, boolean needAssertionsImport) {
+    if (needAssertionsImport) {
+      imports.add("org.junit.jupiter.api.Assertions");
     }
   }
-}
\ No newline at end of file
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("expected", "ExpectedException");
+  }
+
+  @Override
+  public Set<String> runsAfter() {
+    return Set.of(TestExpectedProcessor.class.getSimpleName(), RuleAnnotateProcessor.class.getSimpleName());
+  }
+
+  @Override
+  public void afterTraversal(CompilationUnit cu, ConversionContext context) {
+    addAssertionsImportIfNeeded(context.getImportIndex(cu), context.getNeedAssertionsImport().get());
+  }
+}
@@ -1,30 +1,112 @@
 package org.example.converter.processor;
 
+import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
+import org.example.converter.ConversionContext;
+
+import java.util.Set;
 
 /**
  * 识别 `extends Assert` 并将其改为 `extends Assertions`。
  * 同时如果原来有 import org.junit.Assert，就移除；并添加/保留 import org.junit.jupiter.api.Assertions。
+ * 代码中 Assert.assertXxx(...) 形式的调用也改为 Assertions.assertXxx(...)。
  */
-public class ClassExtendsAssertProcessor {
+public class ClassExtendsAssertProcessor implements MigrationProcessor {
 
   public static void processClassExtendsAssert(CompilationUnit cu) {
+    ConversionContext context = new ConversionContext(null);
     // 使用 ModifierVisitor 遍历所有类/接口声明
     cu.accept(new ModifierVisitor<Void>() {
       @Override
       public Visitable visit(ClassOrInterfaceDeclaration cid, Void arg) {
-        for (ClassOrInterfaceType et : cid.getExtendedTypes()) {
-          if ("Assert".equals(et.getNameAsString())) {
-            // 将 extends Assert 改为 extends Assertions
-            et.setName("Assertions");
-          }
-        }
+        processClassDeclaration(cid, context);
         return super.visit(cid, arg);
       }
     }, null);
   }
-}
\ No newline at end of file
+
+  /**
+   * 处理单个类/接口声明，供单次遍历引擎直接调用
+   */
+  public static void processClassDeclaration(ClassOrInterfaceDeclaration cid,
+                                             ConversionContext context) {
+    for (ClassOrInterfaceType et : cid.getExtendedTypes()) {
+      if (isAssert(et)) {
+        // 将 extends Assert 改为 extends Assertions
+        context.prepareRewrite();
+        et.setName("Assertions");
+      }
+    }
+  }
+
+  /**
+   * 只读地判断类/接口是否 extends Assert，不修改语法树
+   */
+  public static boolean extendsAssert(ClassOrInterfaceDeclaration cid) {
+    return cid.getExtendedTypes().stream().anyMatch(ClassExtendsAssertProcessor::isAssert);
+  }
+
+  private static boolean isAssert(ClassOrInterfaceType type) {
+    return "Assert".equals(type.getNameAsString());
+  }
+
+  /**
+   * 将 Assert.xxx(...) 改为 Assertions.xxx(...)，供单次遍历引擎直接调用。
+   * 只有 Assert 确实来自 JUnit4（{@link JUnit4ImportProcessor#processImports} 替换过它的 import）时才修改
+   */
+  public static void processAssertScope(MethodCallExpr mce, ConversionContext context) {
+    if (mce.getScope().isEmpty()) {
+      return;
+    }
+    Expression scopeExpr = mce.getScope().get();
+    // org.junit.Assert.xxx(...) 这种全限定写法
+    if (scopeExpr.isFieldAccessExpr() && "org.junit.Assert".equals(scopeExpr.toString())) {
+      context.prepareRewrite();
+      mce.setScope(StaticJavaParser.parseExpression("org.junit.jupiter.api.Assertions"));
+      return;
+    }
+    if (!scopeExpr.isNameExpr()) {
+      return;
+    }
+    NameExpr scope = scopeExpr.asNameExpr();
+    Set<String> migratedNames = context.getMigratedJUnit4Names();
+    if ("Assert".equals(scope.getNameAsString())
+        && (migratedNames.contains("Assert") || migratedNames.contains(JUnit4ImportProcessor.WILDCARD))) {
+      context.prepareRewrite();
+      scope.setName("Assertions");
+    }
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(ClassOrInterfaceDeclaration.class, MethodCallExpr.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("Assert");
+  }
+
+  @Override
+  public Set<String> runsAfter() {
+    return Set.of(JUnit4ImportProcessor.class.getSimpleName());
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    if (node instanceof ClassOrInterfaceDeclaration cid) {
+      processClassDeclaration(cid, context);
+    } else {
+      processAssertScope((MethodCallExpr) node, context);
+    }
+    return node;
+  }
+}
@@ -0,0 +1,409 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hamcrest matcher -> AssertJ 断言的规则表，规则定义在 classpath 的 hamcrest-assertj.rules 中（语法见该文件）。
+ * <p>
+ * 加载时把每条规则的模式与模板解析、编译为 {@link Rule}，按最外层 matcher 名称建立索引；
+ * 转换时按名称取出候选规则依次尝试，候选数与规则总数无关，每个 assertThat 的查找开销是常数。
+ * 匹配分两步：{@link #match} 只读地检查语法树并记录绑定，成功后再由 {@link Match#appendTo} 构造调用链，
+ * 原来的参数节点直接移动到新调用上，不使用 clone()。
+ * 构建完成后不可变，可在线程间共享。
+ */
+public class HamcrestRuleTable {
+
+  public static final String DEFAULT_RULES = "/hamcrest-assertj.rules";
+
+  private static final String TRANSPARENT = "transparent:";
+
+  private static final String MATCHER = "matcher:";
+
+  private static final String VARARGS = "all";
+
+  // matcher 名称 -> 按文件顺序排列的规则
+  private final Map<String, List<Rule>> rules;
+
+  // 匹配前直接去掉的修饰性 matcher，例如 is(...)
+  private final Set<String> transparent;
+
+  // 所有已知的 matcher 名称，包括没有规则的
+  private final Set<String> knownMatchers;
+
+  private HamcrestRuleTable(Map<String, List<Rule>> rules, Set<String> transparent,
+                            Set<String> knownMatchers) {
+    this.rules = rules;
+    this.transparent = transparent;
+    this.knownMatchers = knownMatchers;
+  }
+
+  /**
+   * 加载 classpath 上的默认规则表
+   */
+  public static HamcrestRuleTable loadDefault() {
+    try (InputStream in = HamcrestRuleTable.class.getResourceAsStream(DEFAULT_RULES)) {
+      if (in == null) {
+        throw new IllegalStateException("missing rule table: " + DEFAULT_RULES);
+      }
+      return load(new InputStreamReader(in, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException 规则语法错误，消息中包含行号
+   */
+  public static HamcrestRuleTable load(Reader reader) throws IOException {
+    JavaParser parser = new JavaParser();
+    Map<String, List<Rule>> rules = new HashMap<>();
+    Set<String> transparent = new HashSet<>();
+    Set<String> known = new HashSet<>();
+
+    BufferedReader in = new BufferedReader(reader);
+    StringBuilder pending = new StringBuilder();
+    int lineNumber = 0;
+    String line;
+    while ((line = in.readLine()) != null) {
+      lineNumber++;
+      String text = line.strip();
+      if (text.endsWith("\\")) {
+        pending.append(text, 0, text.length() - 1).append(' ');
+        continue;
+      }
+      text = pending.append(text).toString().strip();
+      pending.setLength(0);
+      if (text.isEmpty() || text.startsWith("#")) {
+        continue;
+      }
+      try {
+        if (text.startsWith(TRANSPARENT)) {
+          transparent.addAll(names(text.substring(TRANSPARENT.length())));
+        } else if (text.startsWith(MATCHER)) {
+          known.addAll(names(text.substring(MATCHER.length())));
+        } else {
+          Rule rule = compile(parser, text);
+          rules.computeIfAbsent(rule.pattern.name, k -> new ArrayList<>()).add(rule);
+        }
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+      }
+    }
+    known.addAll(rules.keySet());
+    known.addAll(transparent);
+    rules.replaceAll((name, list) -> List.copyOf(list));
+    return new HamcrestRuleTable(Map.copyOf(rules), Set.copyOf(transparent), Set.copyOf(known));
+  }
+
+  public int size() {
+    return rules.values().stream().mapToInt(List::size).sum();
+  }
+
+  /**
+   * 是否为已知的 Hamcrest matcher 调用：名称已知，且没有 scope 或 scope 是 Matchers、CoreMatchers、
+   * IsXxx 等 Hamcrest 类。list.contains(x) 这种普通方法调用不算
+   */
+  public boolean isMatcherCall(Expression expr) {
+    if (!expr.isMethodCallExpr()) {
+      return false;
+    }
+    MethodCallExpr call = expr.asMethodCallExpr();
+    if (!knownMatchers.contains(call.getNameAsString())) {
+      return false;
+    }
+    if (call.getScope().isEmpty()) {
+      return true;
+    }
+    String scope = call.getScope().get().toString();
+    String simpleName = scope.substring(scope.lastIndexOf('.') + 1);
+    return scope.startsWith("org.hamcrest.") || simpleName.endsWith("Matchers")
+        || simpleName.startsWith("Is");
+  }
+
+  /**
+   * 只读地匹配一个 matcher 表达式，不修改语法树
+   *
+   * @return 匹配结果；没有可用的规则时返回 null
+   */
+  public Match match(Expression matcher) {
+    Expression unwrapped = unwrap(matcher);
+    if (!isMatcherCall(unwrapped)) {
+      return null;
+    }
+    MethodCallExpr call = unwrapped.asMethodCallExpr();
+    List<Rule> candidates = rules.get(call.getNameAsString());
+    if (candidates == null) {
+      return null;
+    }
+    for (Rule rule : candidates) {
+      Map<String, Object> bindings = new HashMap<>();
+      if (matchArguments(rule.pattern.arguments, call.getArguments(), bindings)) {
+        return new Match(rule, bindings);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 去掉 is(matcher) 这种只起修饰作用的包装
+   */
+  private Expression unwrap(Expression expr) {
+    while (expr.isMethodCallExpr() && transparent.contains(expr.asMethodCallExpr().getNameAsString())
+        && expr.asMethodCallExpr().getArguments().size() == 1
+        && isMatcherCall(expr) && isMatcherCall(expr.asMethodCallExpr().getArgument(0))) {
+      expr = expr.asMethodCallExpr().getArgument(0);
+    }
+    return expr;
+  }
+
+  private boolean matchArguments(List<Param> params, NodeList<Expression> args,
+                                 Map<String, Object> bindings) {
+    boolean varargs = !params.isEmpty() && params.get(params.size() - 1).varargs();
+    int fixed = varargs ? params.size() - 1 : params.size();
+    if (varargs ? args.size() < fixed : args.size() != fixed) {
+      return false;
+    }
+    for (int i = 0; i < fixed; i++) {
+      if (!matchArgument(params.get(i), args.get(i), bindings)) {
+        return false;
+      }
+    }
+    if (varargs) {
+      Param rest = params.get(fixed);
+      List<Object> values = new ArrayList<>();
+      for (int i = fixed; i < args.size(); i++) {
+        Object value = bind(rest, args.get(i));
+        if (value == null) {
+          return false;
+        }
+        values.add(value);
+      }
+      bindings.put(rest.variable, values);
+    }
+    return true;
+  }
+
+  private boolean matchArgument(Param param, Expression arg, Map<String, Object> bindings) {
+    if (param.nested != null) {
+      Expression unwrapped = unwrap(arg);
+      return isMatcherCall(unwrapped)
+          && param.nested.name.equals(unwrapped.asMethodCallExpr().getNameAsString())
+          && matchArguments(param.nested.arguments, unwrapped.asMethodCallExpr().getArguments(), bindings);
+    }
+    Object value = bind(param, arg);
+    if (value == null) {
+      return false;
+    }
+    bindings.put(param.variable, value);
+    return true;
+  }
+
+  /**
+   * @return $m 变量绑定为 {@link Match}，其余变量绑定为表达式本身；不能绑定时返回 null
+   */
+  private Object bind(Param param, Expression arg) {
+    if (param.matcher) {
+      return match(arg);
+    }
+    // 普通参数不能是 matcher，否则例如 not(anyOf(...)) 会被错误地转换为 isNotEqualTo(anyOf(...))
+    return isMatcherCall(arg) ? null : arg;
+  }
+
+  private static Rule compile(JavaParser parser, String text) {
+    int eq = text.indexOf('=');
+    if (eq < 0) {
+      throw new IllegalArgumentException("expected 'pattern = template': " + text);
+    }
+    Expression patternExpr = parseExpression(parser, text.substring(0, eq).strip());
+    Expression templateExpr = parseExpression(parser, text.substring(eq + 1).strip());
+    if (!patternExpr.isMethodCallExpr()) {
+      throw new IllegalArgumentException("pattern must be a matcher call: " + patternExpr);
+    }
+    Pattern pattern = compilePattern(patternExpr.asMethodCallExpr());
+
+    List<Step> template = new ArrayList<>();
+    if (templateExpr.isNameExpr()) {
+      Param param = variable(templateExpr.asNameExpr());
+      if (!param.matcher) {
+        throw new IllegalArgumentException("template variable must be a matcher: " + templateExpr);
+      }
+      template.add(new Step(null, List.of(), param.variable));
+    } else {
+      Expression current = templateExpr;
+      while (current != null) {
+        if (!current.isMethodCallExpr()) {
+          throw new IllegalArgumentException("template must be a call chain: " + templateExpr);
+        }
+        MethodCallExpr call = current.asMethodCallExpr();
+        List<String> arguments = new ArrayList<>();
+        for (Expression argument : call.getArguments()) {
+          arguments.add(argument.toString());
+        }
+        template.add(0, new Step(call.getNameAsString(), arguments, null));
+        current = call.getScope().orElse(null);
+      }
+    }
+    return new Rule(pattern, List.copyOf(template));
+  }
+
+  private static Pattern compilePattern(MethodCallExpr call) {
+    if (call.getScope().isPresent()) {
+      throw new IllegalArgumentException("pattern must not have a scope: " + call);
+    }
+    List<Param> params = new ArrayList<>();
+    for (int i = 0; i < call.getArguments().size(); i++) {
+      Expression argument = call.getArgument(i);
+      Param param;
+      if (argument.isNameExpr()) {
+        param = variable(argument.asNameExpr());
+      } else if (argument.isMethodCallExpr()) {
+        param = new Param(null, false, false, compilePattern(argument.asMethodCallExpr()));
+      } else {
+        throw new IllegalArgumentException("unsupported pattern argument: " + argument);
+      }
+      if (param.varargs() && i != call.getArguments().size() - 1) {
+        throw new IllegalArgumentException("$all must be the last argument: " + call);
+      }
+      params.add(param);
+    }
+    return new Pattern(call.getNameAsString(), List.copyOf(params));
+  }
+
+  private static Param variable(NameExpr name) {
+    String variable = name.getNameAsString();
+    if (!variable.startsWith("$")) {
+      throw new IllegalArgumentException("variable must start with '$': " + variable);
+    }
+    boolean matcher = variable.startsWith("$m");
+    String suffix = variable.substring(matcher ? 2 : 1);
+    boolean varargs = VARARGS.equals(suffix);
+    if (!varargs && (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit))) {
+      throw new IllegalArgumentException("invalid variable: " + variable);
+    }
+    return new Param(variable, matcher, varargs, null);
+  }
+
+  private static Expression parseExpression(JavaParser parser, String text) {
+    ParseResult<Expression> result = parser.parseExpression(text);
+    if (!result.isSuccessful() || result.getResult().isEmpty()) {
+      throw new IllegalArgumentException("cannot parse '" + text + "': " + result.getProblems());
+    }
+    return result.getResult().get();
+  }
+
+  private static List<String> names(String text) {
+    List<String> names = new ArrayList<>();
+    for (String name : text.split(",")) {
+      if (!name.isBlank()) {
+        names.add(name.strip());
+      }
+    }
+    return names;
+  }
+
+  /**
+   * matcher 模式：名称与参数
+   */
+  private record Pattern(String name, List<Param> arguments) {
+  }
+
+  /**
+   * 模式参数：变量（$1、$m1、$all、$mall）或嵌套的模式
+   */
+  private record Param(String variable, boolean matcher, boolean varargs, Pattern nested) {
+  }
+
+  /**
+   * 模板中的一步：一个 AssertJ 方法调用，或展开一个 $m 变量（matcherVariable 不为 null）
+   * 参数保存为源码文本，构造时重新解析，其中的变量替换为绑定的原节点
+   */
+  private record Step(String method, List<String> arguments, String matcherVariable) {
+  }
+
+  private record Rule(Pattern pattern, List<Step> template) {
+  }
+
+  /**
+   * 一次成功的匹配
+   */
+  public static final class Match {
+
+    private final Rule rule;
+
+    private final Map<String, Object> bindings;
+
+    private Match(Rule rule, Map<String, Object> bindings) {
+      this.rule = rule;
+      this.bindings = bindings;
+    }
+
+    /**
+     * 在 chain 之后追加 AssertJ 调用，会把绑定的参数节点从原来的 matcher 调用中移走，只能调用一次
+     *
+     * @return 追加后的调用链
+     */
+    public Expression appendTo(Expression chain) {
+      for (Step step : rule.template) {
+        if (step.matcherVariable != null) {
+          Object bound = bindings.get(step.matcherVariable);
+          if (bound instanceof Match match) {
+            chain = match.appendTo(chain);
+          } else {
+            for (Object each : (List<?>) bound) {
+              chain = ((Match) each).appendTo(chain);
+            }
+          }
+          continue;
+        }
+        NodeList<Expression> arguments = new NodeList<>();
+        for (String argument : step.arguments) {
+          instantiate(argument, arguments);
+        }
+        chain = new MethodCallExpr(chain, step.method, arguments);
+      }
+      return chain;
+    }
+
+    private void instantiate(String argument, NodeList<Expression> arguments) {
+      Object bound = bindings.get(argument);
+      if (bound instanceof Expression expr) {
+        arguments.add(expr);
+        return;
+      }
+      if (bound instanceof List<?> values) {
+        values.forEach(value -> arguments.add((Expression) value));
+        return;
+      }
+      // 包含变量的表达式，例如 within($2)：重新解析，再把变量替换为绑定的节点
+      Expression expr = StaticJavaParser.parseExpression(argument);
+      for (NameExpr name : expr.findAll(NameExpr.class)) {
+        Object value = bindings.get(name.getNameAsString());
+        if (value instanceof Node node) {
+          name.replace(node);
+        }
+      }
+      arguments.add(expr);
+    }
+  }
+}
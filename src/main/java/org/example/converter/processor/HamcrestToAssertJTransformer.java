@@ -1,117 +1,139 @@
 package org.example.converter.processor;
 
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
+import org.example.converter.ConversionContext;
+import org.example.util.ImportIndex;
 
-import java.util.Map;
+import java.util.Set;
 
 /**
  * 识别并替换 `import static org.hamcrest.MatcherAssertions.assertThat;`
  * 为 `import static org.assertj.core.api.Assertions.assertThat;`
- * 同时将类似 `assertThat(obj, is(value))` → `assertThat(obj).isEqualTo(value)`
+ * 同时将类似 `assertThat(obj, is(value))` → `assertThat(obj).isEqualTo(value)`，
+ * `assertThat(reason, obj, matcher)` → `assertThat(obj).as(reason)...`。
+ * matcher 的对应关系见 {@link HamcrestRuleTable}，支持 not(...)、allOf(...) 等嵌套与组合
  */
-public class HamcrestToAssertJTransformer {
+public class HamcrestToAssertJTransformer implements MigrationProcessor {
 
-  public static void transformHamcrestAssertToAssertJ(CompilationUnit cu) {
-    // 1) 替换静态导入
-    for (ImportDeclaration id : cu.getImports()) {
-      if (id.isStatic() &&
-          "org.hamcrest.MatcherAssertions.assertThat".equals(id.getNameAsString())) {
-        id.setName("org.assertj.core.api.Assertions.assertThat");
-      }
-    }
-
-    // 2) 删除无用的 hamcrest 相关导入
-    cu.getImports().removeIf(id -> id.getNameAsString().startsWith("org.hamcrest"));
+  // 启动时加载并编译的规则表，ExpectedException 的迁移也用它识别 expectMessage 的 matcher 参数
+  public static final HamcrestRuleTable RULES = HamcrestRuleTable.loadDefault();
 
-    // 3) 将 Hamcrest 的调用转为 AssertJ
-    Map<String, String> matcherMap = Map.of(
-        "is", "isEqualTo",
-        "equalTo", "isEqualTo",
-        "not", "isNotEqualTo",
-        "containsString", "contains"
-        // 如果有更多需要映射，可在此继续添加
-    );
+  private static final String ASSERTJ_ASSERT_THAT = "org.assertj.core.api.Assertions.assertThat";
 
+  public static void transformHamcrestAssertToAssertJ(CompilationUnit cu) {
     // 用于记录是否代码中确实使用了 assertThat（方法调用名为 assertThat 的地方）
-    final boolean[] usedAssertThat = {false};
+    ConversionContext context = new ConversionContext(null);
 
+    // 将 Hamcrest 的调用转为 AssertJ
     cu.accept(new ModifierVisitor<Void>() {
       @Override
       public Visitable visit(MethodCallExpr mce, Void arg) {
-        if ("assertThat".equals(mce.getNameAsString())) {
-          usedAssertThat[0] = true; // 发现了 assertThat 调用
+        Expression transformed = transformMatcherCall(mce, context);
+        if (transformed != mce) {
+          return transformed;
+        }
+        return super.visit(mce, arg);
+      }
+    }, null);
 
-          NodeList<Expression> args = mce.getArguments();
-          // 只处理 assertThat( actual, matcher(...) ) 这种两个参数的情况
-          if (args.size() == 2) {
-            Expression actualExpr = args.get(0);
-            Expression matcherExpr = args.get(1);
+    transformImports(cu, context);
+    context.applyImports();
+  }
 
-            if (matcherExpr.isMethodCallExpr()) {
-              MethodCallExpr matcherCall = matcherExpr.asMethodCallExpr();
-              String matcherName = matcherCall.getNameAsString();
+  /**
+   * 处理单个方法调用，供单次遍历引擎直接调用
+   * 处理 assertThat(actual, matcher) 与 assertThat(reason, actual, matcher) 两种形式
+   *
+   * @return 转换后的链式调用；不需要或无法转换时返回 mce 本身
+   */
+  public static Expression transformMatcherCall(MethodCallExpr mce, ConversionContext context) {
+    if (!"assertThat".equals(mce.getNameAsString())) {
+      return mce;
+    }
+    context.getUsedAssertThat().set(true); // 发现了 assertThat 调用
 
-              if (matcherMap.containsKey(matcherName)) {
-                String assertJMethod = matcherMap.get(matcherName);
+    if (!isMatcherAssert(mce)) {
+      return mce;
+    }
+    NodeList<Expression> args = mce.getArguments();
+    Expression reasonExpr = args.size() == 3 ? args.get(0) : null;
+    Expression actualExpr = args.get(args.size() - 2);
+    HamcrestRuleTable.Match match = RULES.match(args.get(args.size() - 1));
+    if (match == null) {
+      // 没有对应规则的 matcher 留给人工处理
+      context.getUntranslatedAssertThat().set(true);
+      return mce;
+    }
 
-                if (!matcherCall.getArguments().isEmpty()) {
-                  Expression expectedExpr = matcherCall.getArgument(0);
+    // 1) 修改原始 assertThat(...) 调用为单参数：assertThat(actual)
+    context.prepareRewrite();
+    mce.setArguments(new NodeList<>(actualExpr));
 
-                  // 1) 修改原始 assertThat(...) 调用为单参数：assertThat(actual)
-                  mce.setArguments(new NodeList<>(actualExpr));
+    // 2) 拼接链式调用：.as(reason).isEqualTo(...).contains(...) 等
+    Expression chain = mce;
+    if (reasonExpr != null) {
+      chain = new MethodCallExpr(chain, "as", new NodeList<>(reasonExpr));
+    }
+    return match.appendTo(chain);
+  }
 
-                  // 2) 拼接链式调用：.isEqualTo(...) / .contains(...) 等
-                  MethodCallExpr newChainedCall = new MethodCallExpr(mce, assertJMethod);
-                  newChainedCall.addArgument(expectedExpr);
+  /**
+   * 只读地判断调用是否为 assertThat(actual, matcher) 或 assertThat(reason, actual, matcher)，
+   * matcher 是最后一个参数，是否有对应的规则由 {@link #RULES} 判断
+   */
+  public static boolean isMatcherAssert(MethodCallExpr mce) {
+    int size = mce.getArguments().size();
+    return "assertThat".equals(mce.getNameAsString()) && (size == 2 || size == 3);
+  }
 
-                  return newChainedCall;
-                }
-              }
-            }
-          }
-        }
-        return super.visit(mce, arg);
-      }
-    }, null);
+  /**
+   * 处理 hamcrest 相关的导入，需要在所有 assertThat 调用处理完之后执行
+   */
+  public static void transformImports(CompilationUnit cu, ConversionContext context) {
+    ImportIndex imports = context.getImportIndex(cu);
 
-    // 4) 如果发现了 assertThat 调用，但没有静态导入 org.assertj.core.api.Assertions.assertThat，则添加
-    if (usedAssertThat[0]) {
-      boolean hasAssertJStaticImport = false;
-      for (ImportDeclaration id : cu.getImports()) {
-        if (id.isStatic() &&
-            "org.assertj.core.api.Assertions.assertThat".equals(id.getNameAsString())) {
-          hasAssertJStaticImport = true;
-          break;
-        }
-      }
+    // 1) 替换静态导入
+    imports.rename(ImportIndex.Import.ofStatic("org.hamcrest.MatcherAssertions.assertThat"), ASSERTJ_ASSERT_THAT);
 
-      if (!hasAssertJStaticImport) {
-        ImportDeclaration newStaticImport =
-            new ImportDeclaration("org.assertj.core.api.Assertions.assertThat", true, false);
-
-        NodeList<ImportDeclaration> importList = cu.getImports();
-        // 找到最后一个静态导入的位置
-        int lastStaticIndex = -1;
-        for (int i = 0; i < importList.size(); i++) {
-          if (importList.get(i).isStatic()) {
-            lastStaticIndex = i;
-          }
-        }
-        if (lastStaticIndex != -1) {
-          // 在最后一个静态导入之后插入
-          importList.add(lastStaticIndex + 1, newStaticImport);
-        } else {
-          // 如果类里没有任何静态导入，就在所有 import 的末尾添加
-          importList.add(newStaticImport);
-        }
-      }
+    // 2) 删除无用的 hamcrest 相关导入，还有没转换的 assertThat 时保留
+    if (!context.getUntranslatedAssertThat().get()) {
+      imports.removeIf(HamcrestToAssertJTransformer::isHamcrestImport);
     }
+
+    // 3) 如果发现了 assertThat 调用，但没有静态导入 org.assertj.core.api.Assertions.assertThat，则添加，
+    // 写回时排在静态 import 中
+    if (context.getUsedAssertThat().get()) {
+      imports.add(ImportIndex.Import.ofStatic(ASSERTJ_ASSERT_THAT));
+    }
+  }
+
+  private static boolean isHamcrestImport(ImportIndex.Import id) {
+    return id.name().startsWith("org.hamcrest");
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(MethodCallExpr.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("assertThat", "org.hamcrest");
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    return transformMatcherCall((MethodCallExpr) node, context);
+  }
+
+  @Override
+  public void afterTraversal(CompilationUnit cu, ConversionContext context) {
+    transformImports(cu, context);
   }
-}
\ No newline at end of file
+}
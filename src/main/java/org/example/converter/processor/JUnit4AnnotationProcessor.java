@@ -0,0 +1,105 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.Name;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
+import org.example.converter.ConversionContext;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 将 JUnit4 的生命周期注解与 @Ignore 替换为 JUnit5 注解（原 shell 脚本中 sed 的注解替换部分）：
+ * - @Before -> @BeforeEach，@After -> @AfterEach
+ * - @BeforeClass -> @BeforeAll，@AfterClass -> @AfterAll
+ * - @Ignore -> @Disabled（包括 @Ignore("reason") 的形式）
+ * 只有注解确实来自 JUnit4（已导入或使用全限定名）时才替换
+ */
+public class JUnit4AnnotationProcessor implements MigrationProcessor {
+
+  private static final Map<String, String> ANNOTATION_MAPPING = Map.of(
+      "Before", "BeforeEach",
+      "After", "AfterEach",
+      "BeforeClass", "BeforeAll",
+      "AfterClass", "AfterAll",
+      "Ignore", "Disabled"
+  );
+
+  private static final String JUNIT4_PACKAGE = "org.junit.";
+
+  private static final String JUNIT5_PACKAGE = "org.junit.jupiter.api.";
+
+  /**
+   * 处理单个注解，供单次遍历引擎直接调用
+   * 是否来自 JUnit4 以 context 中 {@link JUnit4ImportProcessor#processImports} 替换过的类名为准
+   */
+  public static void processAnnotation(AnnotationExpr annotation, ConversionContext context) {
+    String name = annotation.getNameAsString();
+    if (name.startsWith(JUNIT4_PACKAGE)) {
+      // @org.junit.Before 这种全限定写法，Name 节点的层级发生变化，只能整体替换注解
+      String simpleName = name.substring(JUNIT4_PACKAGE.length());
+      String mapped = "Test".equals(simpleName) ? simpleName : ANNOTATION_MAPPING.get(simpleName);
+      if (mapped != null) {
+        context.prepareRewrite();
+        annotation.replace(rename(annotation, new Name(JUNIT5_PACKAGE + mapped)));
+      }
+      return;
+    }
+    String mapped = mapAnnotation(name, context.getMigratedJUnit4Names());
+    if (mapped != null) {
+      // 只修改 Name 节点的 identifier，直接替换 Name 节点会导致 LexicalPreservingPrinter 无法对齐 token
+      context.prepareRewrite();
+      annotation.getName().setIdentifier(mapped);
+    }
+  }
+
+  /**
+   * @param name          注解的简单名
+   * @param migratedNames {@link JUnit4ImportProcessor#processImports} 替换过的类名
+   * @return 来自 JUnit4 且需要替换时为 JUnit5 的注解名，否则为 null
+   */
+  public static String mapAnnotation(String name, Set<String> migratedNames) {
+    String mapped = ANNOTATION_MAPPING.get(name);
+    if (mapped != null
+        && (migratedNames.contains(name) || migratedNames.contains(JUnit4ImportProcessor.WILDCARD))) {
+      return mapped;
+    }
+    return null;
+  }
+
+  /**
+   * 以新名字构造注解，原注解的参数直接移动过去。
+   * 不使用 clone()，因为克隆会连同 LexicalPreservingPrinter 记录的原始文本一起复制
+   */
+  private static AnnotationExpr rename(AnnotationExpr annotation, Name name) {
+    if (annotation.isSingleMemberAnnotationExpr()) {
+      return new SingleMemberAnnotationExpr(name,
+          annotation.asSingleMemberAnnotationExpr().getMemberValue());
+    }
+    if (annotation.isNormalAnnotationExpr()) {
+      return new NormalAnnotationExpr(name,
+          new NodeList<>(annotation.asNormalAnnotationExpr().getPairs()));
+    }
+    return new MarkerAnnotationExpr(name);
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(AnnotationExpr.class);
+  }
+
+  @Override
+  public Set<String> runsAfter() {
+    return Set.of(JUnit4ImportProcessor.class.getSimpleName());
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    processAnnotation((AnnotationExpr) node, context);
+    return node;
+  }
+}
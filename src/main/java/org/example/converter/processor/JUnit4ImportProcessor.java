@@ -0,0 +1,90 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.ast.CompilationUnit;
+import org.example.converter.ConversionContext;
+import org.example.util.ImportIndex;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 将 JUnit4 的 import 替换为 JUnit5 对应的 import（原 shell 脚本中 sed 的 import 替换部分）：
+ * - org.junit.Before/After/BeforeClass/AfterClass/Ignore/Test
+ * - org.junit.Assert、junit.framework.TestCase（含静态导入）-> org.junit.jupiter.api.Assertions
+ * - org.junit.* -> org.junit.jupiter.api.*
+ * 替换后与已有 import 重复的会被删除
+ */
+public class JUnit4ImportProcessor implements MigrationProcessor {
+
+  public static final String WILDCARD = "*";
+
+  private static final Map<String, String> TYPE_MAPPING = Map.of(
+      "org.junit.After", "org.junit.jupiter.api.AfterEach",
+      "org.junit.AfterClass", "org.junit.jupiter.api.AfterAll",
+      "org.junit.Before", "org.junit.jupiter.api.BeforeEach",
+      "org.junit.BeforeClass", "org.junit.jupiter.api.BeforeAll",
+      "org.junit.Ignore", "org.junit.jupiter.api.Disabled",
+      "org.junit.Test", "org.junit.jupiter.api.Test",
+      "org.junit.Assert", "org.junit.jupiter.api.Assertions",
+      "junit.framework.TestCase", "org.junit.jupiter.api.Assertions"
+  );
+
+  /**
+   * @return 被替换的 JUnit4 类的简单类名（如 Before、Ignore），导入了 org.junit.* 时包含 {@link #WILDCARD}，
+   * 用于判断代码中的注解、Assert.xxx 调用是否来自 JUnit4
+   */
+  public static Set<String> processImports(CompilationUnit cu) {
+    ConversionContext context = new ConversionContext(null);
+    Set<String> migratedNames = processImports(cu, context);
+    context.applyImports();
+    return migratedNames;
+  }
+
+  /**
+   * 同 {@link #processImports(CompilationUnit)}，改名记录在 context 的 import 索引中，遍历结束后写回
+   */
+  public static Set<String> processImports(CompilationUnit cu, ConversionContext context) {
+    Set<String> migratedNames = new HashSet<>();
+    ImportIndex imports = context.getImportIndex(cu);
+    // 改名后与已有 import 重复的由索引直接删除，例如同时导入了 org.junit.Assert 和 junit.framework.TestCase
+    for (ImportIndex.Import id : imports.imports()) {
+      String newName = mapImport(id, migratedNames);
+      if (newName != null) {
+        imports.rename(id, newName);
+      }
+    }
+    return migratedNames;
+  }
+
+  /**
+   * 单条 import 替换后的名字，不需要替换时为 null；替换了非静态导入的类时把简单类名记入 migratedNames
+   */
+  public static String mapImport(ImportIndex.Import id, Set<String> migratedNames) {
+    String name = id.name();
+    if (id.isAsterisk()) {
+      if (!id.isStatic() && "org.junit".equals(name)) {
+        migratedNames.add(WILDCARD);
+        return "org.junit.jupiter.api";
+      }
+      // import static org.junit.Assert.*;
+      return TYPE_MAPPING.get(name);
+    }
+    if (id.isStatic()) {
+      // import static org.junit.Assert.assertEquals;
+      int dot = name.lastIndexOf('.');
+      String mappedType = dot < 0 ? null : TYPE_MAPPING.get(name.substring(0, dot));
+      return mappedType == null ? null : mappedType + name.substring(dot);
+    }
+    String mapped = TYPE_MAPPING.get(name);
+    if (mapped != null) {
+      migratedNames.add(name.substring(name.lastIndexOf('.') + 1));
+    }
+    return mapped;
+  }
+
+  @Override
+  public void beforeTraversal(CompilationUnit cu, ConversionContext context) {
+    context.setMigratedJUnit4Names(processImports(cu, context));
+  }
+}
@@ -0,0 +1,82 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import org.example.converter.ConversionContext;
+
+import java.util.Set;
+
+/**
+ * 迁移处理器 SPI，由 {@link org.example.converter.MigrationEngine} 通过 ServiceLoader 加载
+ * （META-INF/services/org.example.converter.processor.MigrationProcessor），第三方处理器以同样的方式接入。
+ * <p>
+ * 每个文件的处理顺序：
+ * 1) 按顺序调用所有启用的处理器的 {@link #beforeTraversal}；
+ * 2) 单次后序遍历语法树，每个节点只分发给订阅了该节点类型（含父类型）的处理器；
+ * 3) 按顺序调用 {@link #afterTraversal}。
+ * 处理器之间的顺序由 {@link #runsAfter()}、{@link #runsBefore()} 约束，没有约束时保持 ServiceLoader 的加载顺序。
+ * <p>
+ * {@link #triggers()} 不为空时，只有源码中出现至少一个触发词的文件才会启用该处理器，
+ * 触发词在解析前的字节级预过滤中与 JUnit4 引用一起扫描，不增加额外的读取。
+ * 修改语法树之前必须调用 {@link ConversionContext#prepareRewrite()}。
+ * 实现必须是无状态的（每个文件的状态保存在 ConversionContext 中），同一个实例会被多个线程同时使用。
+ */
+public interface MigrationProcessor {
+
+  /**
+   * 处理器名称，用于排序约束、统计与增量清单
+   */
+  default String name() {
+    return getClass().getSimpleName();
+  }
+
+  /**
+   * 关心的节点类型，遍历时只有这些类型（及其子类型）的节点会分发给 {@link #visit}；为空时不参与遍历
+   */
+  default Set<Class<? extends Node>> nodeTypes() {
+    return Set.of();
+  }
+
+  /**
+   * 触发词（import、类名、方法名等 ASCII 片段），为空表示对所有需要迁移的文件都启用
+   */
+  default Set<String> triggers() {
+    return Set.of();
+  }
+
+  /**
+   * 必须在这些处理器（按 {@link #name()}）之后执行，不存在的名称会被忽略
+   */
+  default Set<String> runsAfter() {
+    return Set.of();
+  }
+
+  /**
+   * 必须在这些处理器（按 {@link #name()}）之前执行，不存在的名称会被忽略
+   */
+  default Set<String> runsBefore() {
+    return Set.of();
+  }
+
+  /**
+   * 遍历之前处理整个文件，例如替换 import
+   */
+  default void beforeTraversal(CompilationUnit cu, ConversionContext context) {
+  }
+
+  /**
+   * 处理单个节点，节点的子节点已经处理过（后序遍历）
+   *
+   * @return 替换后的节点，由引擎替换到原位置；不需要替换时返回 node 本身。
+   * 同一节点上后续的处理器收到替换后的节点，替换后的节点类型不在其 {@link #nodeTypes()} 中时跳过
+   */
+  default Node visit(Node node, ConversionContext context) {
+    return node;
+  }
+
+  /**
+   * 遍历结束之后处理整个文件，例如根据遍历中收集的信息补充 import
+   */
+  default void afterTraversal(CompilationUnit cu, ConversionContext context) {
+  }
+}
@@ -1,61 +1,92 @@
 package org.example.converter.processor;
 
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.ImportDeclaration;
-import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
-import com.github.javaparser.ast.visitor.ModifierVisitor;
-import com.github.javaparser.ast.visitor.Visitable;
+import org.example.converter.ConversionContext;
+import org.example.util.ImportIndex;
+
+import java.util.Set;
 
 /**
  * 处理 org.assertj.core.api.Assertions 和 org.junit.jupiter.api.Assertions 重名问题
  */
-public class RedundantAssertionsImportProcessor {
+public class RedundantAssertionsImportProcessor implements MigrationProcessor {
+
+  private static final String ASSERTJ_ASSERTIONS = "org.assertj.core.api.Assertions";
+
+  private static final String JUNIT_ASSERTIONS = "org.junit.jupiter.api.Assertions";
 
   public static void processRedundantAssertionsImport(CompilationUnit cu) {
-    NodeList<ImportDeclaration> importList = cu.getImports();
-    boolean hasAssertJAssertions = false;
-    boolean hasJUnitAssertions = false;
-    boolean hasStaticAssertThat = false;
-
-    // 检查是否有 org.assertj.core.api.Assertions 和 org.junit.jupiter.api.Assertions 导入
-    for (ImportDeclaration id : importList) {
-      String importName = id.getNameAsString();
-      if ("org.assertj.core.api.Assertions".equals(importName)) {
-        hasAssertJAssertions = true;
-      } else if ("org.junit.jupiter.api.Assertions".equals(importName)) {
-        hasJUnitAssertions = true;
-      } else if (id.isStatic() &&
-          "org.assertj.core.api.Assertions.assertThat".equals(importName)) {
-        hasStaticAssertThat = true;
-      }
+    ConversionContext context = new ConversionContext(null);
+    context.getScopedAssertThatCalls().addAll(
+        cu.findAll(MethodCallExpr.class, RedundantAssertionsImportProcessor::isScopedAssertThat));
+    processRedundantAssertionsImport(cu, context);
+    context.applyImports();
+  }
+
+  /**
+   * 判断是否为 Assertions.assertThat(...) 调用，供单次遍历引擎在遍历过程中收集
+   */
+  public static boolean isScopedAssertThat(MethodCallExpr mce) {
+    if ("assertThat".equals(mce.getNameAsString()) &&
+        mce.getScope().isPresent() && mce.getScope().get() instanceof NameExpr) {
+      NameExpr scope = mce.getScope().get().asNameExpr();
+      return "Assertions".equals(scope.getNameAsString());
     }
+    return false;
+  }
+
+  /**
+   * 需要在遍历结束后执行，使用 context 中遍历时收集到的 Assertions.assertThat(...) 调用
+   */
+  public static void processRedundantAssertionsImport(CompilationUnit cu, ConversionContext context) {
+    ImportIndex imports = context.getImportIndex(cu);
 
-    // 如果同时存在两个导入，删除 JUnit 的 Assertions 导入
-    if (hasAssertJAssertions && hasJUnitAssertions) {
-      importList.removeIf(id -> "org.assertj.core.api.Assertions".equals(id.getNameAsString()));
+    // 如果同时存在两个导入，删除 AssertJ 的 Assertions 导入
+    if (imports.contains(ASSERTJ_ASSERTIONS) && imports.contains(JUNIT_ASSERTIONS)) {
+      imports.remove(ImportIndex.Import.of(ASSERTJ_ASSERTIONS));
 
       // 替换代码中的 Assertions.assertThat 为 assertThat
-      cu.accept(new ModifierVisitor<Void>() {
-        @Override
-        public Visitable visit(MethodCallExpr mce, Void arg) {
-          if ("assertThat".equals(mce.getNameAsString()) &&
-              mce.getScope().isPresent() && mce.getScope().get() instanceof NameExpr) {
-            NameExpr scope = mce.getScope().get().asNameExpr();
-            if ("Assertions".equals(scope.getNameAsString())) {
-              mce.removeScope();
-            }
-          }
-          return super.visit(mce, arg);
+      for (MethodCallExpr mce : context.getScopedAssertThatCalls()) {
+        if (isScopedAssertThat(mce)) {
+          mce.removeScope();
         }
-      }, null);
+      }
 
       // 如果不存在添加静态导入语句，则新增导入
-      if (!hasStaticAssertThat) {
-        importList.add(new ImportDeclaration("org.assertj.core.api.Assertions.assertThat",
-            true, false));
-      }
+      imports.add(ImportIndex.Import.ofStatic(ASSERTJ_ASSERTIONS + ".assertThat"));
     }
   }
-}
\ No newline at end of file
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(MethodCallExpr.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("org.assertj.core.api.Assertions");
+  }
+
+  @Override
+  public Set<String> runsAfter() {
+    return Set.of(HamcrestToAssertJTransformer.class.getSimpleName(),
+        AssertionsImportAdder.class.getSimpleName());
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    MethodCallExpr mce = (MethodCallExpr) node;
+    if (isScopedAssertThat(mce)) {
+      context.getScopedAssertThatCalls().add(mce);
+    }
+    return node;
+  }
+
+  @Override
+  public void afterTraversal(CompilationUnit cu, ConversionContext context) {
+    processRedundantAssertionsImport(cu, context);
+  }
+}
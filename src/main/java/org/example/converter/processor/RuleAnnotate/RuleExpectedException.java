@@ -1,11 +1,328 @@
 package org.example.converter.processor.RuleAnnotate;
 
-import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.ClassExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import org.example.converter.ConversionContext;
+import org.example.converter.processor.HamcrestToAssertJTransformer;
+import org.example.converter.processor.RuleAnnotateProcessor;
+import org.example.util.NodeRelocation;
+import org.example.util.TestClassIndex;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * 把 @Rule ExpectedException 迁移为 Assertions.assertThrows：
+ * <pre>
+ * thrown.expect(IOException.class);            IOException e = Assertions.assertThrows(IOException.class, () -> {
+ * thrown.expectMessage("closed");       ->       stream.read();
+ * stream.read();                               });
+ *                                              Assertions.assertTrue(e.getMessage().contains("closed"));
+ * </pre>
+ * JUnit4 在方法结束时才检查异常，因此第一个 expect 语句之后的所有语句都放进 lambda。
+ * 字段的所有引用（来自 {@link TestClassIndex}）必须都是测试方法体顶层的 expect / expectMessage 语句，
+ * 并且 lambda 中用到的局部变量是 effectively final、移动的语句之间没有不属于任何语句的注释，
+ * 否则整个字段保持不变，不会留下一半迁移的代码。
+ */
 public class RuleExpectedException {
 
-  public static void processExpectedExceptionRule(CompilationUnit cu) {
+  static final String RULE_TYPE = "ExpectedException";
+
+  private static final Set<String> MESSAGE_MATCHERS = Set.of("containsString", "startsWith", "endsWith",
+      "equalTo", "is");
+
+  // 单个测试方法的改写计划
+  private record Plan(MethodDeclaration method, List<ExpressionStmt> expects, int first, Type exceptionType,
+                      List<Expression> messages) {
+  }
+
+  /**
+   * 迁移类中所有可以迁移的 ExpectedException 字段
+   */
+  public static void migrate(TestClassIndex index, ConversionContext context) {
+    for (FieldDeclaration field : new ArrayList<>(index.ruleFields(RULE_TYPE))) {
+      if (field.getVariables().size() != 1 || TestClassIndex.isClassRule(field)) {
+        continue;
+      }
+      List<Plan> plans = plan(field.getVariable(0).getNameAsString(), index);
+      if (plans == null) {
+        continue;
+      }
+      context.prepareRewrite();
+      for (Plan plan : plans) {
+        apply(plan);
+      }
+      index.removeRuleField(field);
+      context.getMigratedRules().set(true);
+      context.getNeedAssertionsImport().set(true);
+    }
+  }
+
+  /**
+   * @return 每个引用了字段的方法的改写计划，有任何引用无法迁移时返回 null
+   */
+  private static List<Plan> plan(String fieldName, TestClassIndex index) {
+    Map<MethodDeclaration, List<ExpressionStmt>> byMethod = new IdentityHashMap<>();
+    for (Expression reference : index.references(fieldName)) {
+      ExpressionStmt statement = expectStatement(reference, index.getType());
+      if (statement == null) {
+        return null;
+      }
+      MethodDeclaration method = (MethodDeclaration) statement.getParentNode().get().getParentNode().get();
+      byMethod.computeIfAbsent(method, k -> new ArrayList<>()).add(statement);
+    }
+    List<Plan> plans = new ArrayList<>();
+    for (Map.Entry<MethodDeclaration, List<ExpressionStmt>> entry : byMethod.entrySet()) {
+      Plan plan = plan(entry.getKey(), entry.getValue(), fieldName);
+      if (plan == null) {
+        return null;
+      }
+      plans.add(plan);
+    }
+    return plans;
+  }
+
+  /**
+   * 引用必须是 field.expectXxx(...) 的 scope，且该调用是测试方法体中的顶层语句
+   */
+  private static ExpressionStmt expectStatement(Expression reference, ClassOrInterfaceDeclaration type) {
+    if (!(reference.getParentNode().orElse(null) instanceof MethodCallExpr call)
+        || call.getScope().orElse(null) != reference
+        || !(call.getParentNode().orElse(null) instanceof ExpressionStmt statement)
+        || !(statement.getParentNode().orElse(null) instanceof BlockStmt body)
+        || !(body.getParentNode().orElse(null) instanceof MethodDeclaration method)
+        || method.getParentNode().orElse(null) != type
+        || method.getAnnotationByName("Test").isEmpty()) {
+      return null;
+    }
+    return statement;
+  }
+
+  private static Plan plan(MethodDeclaration method, List<ExpressionStmt> expects, String fieldName) {
+    NodeList<Statement> statements = method.getBody().get().getStatements();
+    // 同名的局部变量或参数会遮蔽字段，无法确定引用的是谁
+    if (method.getParameterByName(fieldName).isPresent()
+        || method.findFirst(VariableDeclarator.class, v -> v.getNameAsString().equals(fieldName)).isPresent()) {
+      return null;
+    }
+    int first = statements.size();
+    for (ExpressionStmt expect : expects) {
+      first = Math.min(first, statements.indexOf(expect));
+    }
+    Type exceptionType = null;
+    List<Expression> messages = new ArrayList<>();
+    for (ExpressionStmt expect : expects) {
+      MethodCallExpr call = expect.getExpression().asMethodCallExpr();
+      if (call.getArguments().size() != 1) {
+        return null;
+      }
+      Expression argument = call.getArgument(0);
+      switch (call.getNameAsString()) {
+        case "expect" -> {
+          Type type = exceptionType(argument);
+          if (type == null || exceptionType != null) {
+            return null;
+          }
+          exceptionType = type;
+        }
+        case "expectMessage" -> {
+          if (argument.isMethodCallExpr() && HamcrestToAssertJTransformer.RULES.isMatcherCall(argument)
+              && (!MESSAGE_MATCHERS.contains(argument.asMethodCallExpr().getNameAsString())
+              || argument.asMethodCallExpr().getArguments().size() != 1)) {
+            return null;
+          }
+          messages.add(argument);
+        }
+        default -> {
+          // expectCause、reportMissingExceptionWithMessage 等
+          return null;
+        }
+      }
+    }
+    // expect 之后必须还有会抛出异常的语句
+    if (first + expects.size() >= statements.size()) {
+      return null;
+    }
+    // expect 之后有不属于任何语句的注释时，LexicalPreservingPrinter 无法正确地移动这些语句：
+    // 注释会留在 lambda 之后，甚至丢掉右括号或抛出异常
+    if (hasOrphanCommentAfter(method.getBody().get(), statements.get(first))) {
+      return null;
+    }
+    if (!capturesOnlyEffectivelyFinal(statements, first)) {
+      return null;
+    }
+    return new Plan(method, expects, first, exceptionType, messages);
+  }
+
+  private static boolean hasOrphanCommentAfter(BlockStmt body, Statement statement) {
+    Position begin = statement.getBegin().orElse(null);
+    return body.getOrphanComments().stream()
+        .anyMatch(comment -> begin == null || comment.getBegin().map(at -> !at.isBefore(begin)).orElse(true));
   }
 
+  /**
+   * expect(X.class) 或 expect(instanceOf(X.class))
+   */
+  private static Type exceptionType(Expression argument) {
+    if (argument instanceof ClassExpr classExpr) {
+      return classExpr.getType();
+    }
+    if (argument instanceof MethodCallExpr call && "instanceOf".equals(call.getNameAsString())
+        && call.getArguments().size() == 1 && call.getArgument(0) instanceof ClassExpr classExpr) {
+      return classExpr.getType();
+    }
+    return null;
+  }
+
+  /**
+   * 放进 lambda 的语句引用的、在前面声明的局部变量必须是 effectively final：
+   * 有初始化，且在整个方法中都没有被再次赋值
+   */
+  private static boolean capturesOnlyEffectivelyFinal(NodeList<Statement> statements, int first) {
+    Set<String> declaredBefore = new HashSet<>();
+    for (int i = 0; i < first; i++) {
+      for (VariableDeclarator variable : statements.get(i).findAll(VariableDeclarator.class)) {
+        declaredBefore.add(variable.getNameAsString());
+      }
+    }
+    if (declaredBefore.isEmpty()) {
+      return true;
+    }
+    Set<String> mutated = new HashSet<>();
+    for (Statement statement : statements) {
+      for (AssignExpr assign : statement.findAll(AssignExpr.class)) {
+        if (assign.getTarget().isNameExpr()) {
+          mutated.add(assign.getTarget().asNameExpr().getNameAsString());
+        }
+      }
+      for (UnaryExpr unary : statement.findAll(UnaryExpr.class)) {
+        if (unary.getExpression().isNameExpr() && (unary.isPrefix() || unary.isPostfix())
+            && unary.getOperator() != UnaryExpr.Operator.LOGICAL_COMPLEMENT
+            && unary.getOperator() != UnaryExpr.Operator.MINUS
+            && unary.getOperator() != UnaryExpr.Operator.PLUS
+            && unary.getOperator() != UnaryExpr.Operator.BITWISE_COMPLEMENT) {
+          mutated.add(unary.getExpression().asNameExpr().getNameAsString());
+        }
+      }
+    }
+    for (int i = 0; i < first; i++) {
+      for (VariableDeclarator variable : statements.get(i).findAll(VariableDeclarator.class)) {
+        if (variable.getInitializer().isEmpty()) {
+          mutated.add(variable.getNameAsString());
+        }
+      }
+    }
+    mutated.retainAll(declaredBefore);
+    for (int i = first; i < statements.size(); i++) {
+      for (NameExpr name : statements.get(i).findAll(NameExpr.class)) {
+        if (mutated.contains(name.getNameAsString())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static void apply(Plan plan) {
+    MethodDeclaration method = plan.method();
+    NodeList<Statement> statements = method.getBody().get().getStatements();
+
+    // expect 语句直接删除，其余语句原样移动到 lambda 中
+    List<Statement> moved = new ArrayList<>();
+    for (Statement statement : statements.subList(plan.first(), statements.size())) {
+      if (!containsIdentity(plan.expects(), statement)) {
+        moved.add(statement);
+      }
+    }
+    plan.expects().forEach(ExpressionStmt::remove);
+    NodeRelocation<Statement> tail = NodeRelocation.detach(moved);
+    LambdaExpr lambda = new LambdaExpr();
+    lambda.setEnclosingParameters(true);
+    List<Statement> tailStatements = tail.nodes();
+    Statement single = tailStatements.size() == 1 && tailStatements.get(0) instanceof ExpressionStmt
+        ? tailStatements.get(0) : null;
+    if (single != null) {
+      lambda.setBody(new ExpressionStmt(single.asExpressionStmt().getExpression()));
+    } else {
+      BlockStmt body = new BlockStmt();
+      tailStatements.forEach(body::addStatement);
+      lambda.setBody(body);
+    }
+
+    Type exceptionType = plan.exceptionType() != null
+        ? plan.exceptionType()
+        : new ClassOrInterfaceType(null, "Throwable");
+    MethodCallExpr assertThrows = new MethodCallExpr(new NameExpr("Assertions"), "assertThrows");
+    assertThrows.addArgument(new ClassExpr(exceptionType.clone()));
+    assertThrows.addArgument(lambda);
+
+    ExpressionStmt assertion;
+    String variable = null;
+    if (plan.messages().isEmpty()) {
+      assertion = new ExpressionStmt(assertThrows);
+    } else {
+      variable = RuleAnnotateProcessor.uniqueName(method, "e", "ex", "exception", "thrownException");
+      assertion = new ExpressionStmt(new VariableDeclarationExpr(
+          new VariableDeclarator(exceptionType.clone(), variable, assertThrows)));
+    }
+    statements.add(assertion);
+    for (Expression message : plan.messages()) {
+      statements.add(new ExpressionStmt(messageAssertion(variable, message)));
+    }
+    // 表达式 lambda 没有语句可以挂注释，挂到 assertThrows 语句上
+    tail.restoreComments(statement -> statement == single ? assertion : statement);
+  }
+
+  private static boolean containsIdentity(List<ExpressionStmt> expects, Statement statement) {
+    for (ExpressionStmt expect : expects) {
+      if (expect == statement) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * expectMessage 的参数：字符串表示包含，containsString / startsWith / endsWith / equalTo / is 按各自语义
+   */
+  private static Expression messageAssertion(String variable, Expression message) {
+    MethodCallExpr getMessage = new MethodCallExpr(new NameExpr(variable), "getMessage");
+    String matcher = "containsString";
+    Expression expected = message;
+    if (message.isMethodCallExpr() && HamcrestToAssertJTransformer.RULES.isMatcherCall(message)) {
+      matcher = message.asMethodCallExpr().getNameAsString();
+      expected = message.asMethodCallExpr().getArgument(0);
+    }
+    if ("equalTo".equals(matcher) || "is".equals(matcher)) {
+      return new MethodCallExpr(new NameExpr("Assertions"), "assertEquals", new NodeList<>(expected, getMessage));
+    }
+    String check = switch (matcher) {
+      case "startsWith" -> "startsWith";
+      case "endsWith" -> "endsWith";
+      default -> "contains";
+    };
+    MethodCallExpr condition = new MethodCallExpr(getMessage, check, new NodeList<>(expected));
+    return new MethodCallExpr(new NameExpr("Assertions"), "assertTrue", new NodeList<>(condition));
+  }
 }
@@ -0,0 +1,155 @@
+package org.example.converter.processor.RuleAnnotate;
+
+import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import org.example.converter.ConversionContext;
+import org.example.converter.processor.RuleAnnotateProcessor;
+import org.example.util.TestClassIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把 @Rule / @ClassRule TemporaryFolder 迁移为 JUnit5 的 @TempDir File 字段：
+ * <pre>
+ * folder.getRoot()         -> folder
+ * folder.newFile("a")      -> Files.createFile(folder.toPath().resolve("a")).toFile()
+ * folder.newFolder("a")    -> Files.createDirectories(folder.toPath().resolve("a")).toFile()
+ * folder.newFolder("a", "b") -> Files.createDirectories(folder.toPath().resolve("a").resolve("b")).toFile()
+ * folder.newFile()         -> File.createTempFile("junit", null, folder)
+ * folder.newFolder()       -> Files.createTempDirectory(folder.toPath(), "junit").toFile()
+ * </pre>
+ * 与 TemporaryFolder 一样，文件或目录已存在时抛出 IOException（createDirectories 除外）。
+ * 字段的每个引用都必须是上述调用之一，否则（例如作为参数传递、调用 create/delete）字段保持不变。
+ */
+public class RuleTemporaryFolder {
+
+  static final String RULE_TYPE = "TemporaryFolder";
+
+  /**
+   * 迁移类中所有可以迁移的 TemporaryFolder 字段
+   */
+  public static void migrate(TestClassIndex index, ConversionContext context) {
+    for (FieldDeclaration field : new ArrayList<>(index.ruleFields(RULE_TYPE))) {
+      if (field.getVariables().size() != 1) {
+        continue;
+      }
+      VariableDeclarator variable = field.getVariable(0);
+      // new TemporaryFolder(parent) 等自定义了父目录的规则没有对应的写法
+      boolean defaultFolder = variable.getInitializer()
+          .filter(init -> init instanceof ObjectCreationExpr creation && creation.getArguments().isEmpty())
+          .isPresent();
+      if (!defaultFolder) {
+        continue;
+      }
+      List<MethodCallExpr> calls = new ArrayList<>();
+      boolean migratable = true;
+      String fieldName = variable.getNameAsString();
+      for (Expression reference : index.references(fieldName)) {
+        MethodCallExpr call = folderCall(reference);
+        if (call == null || RuleAnnotateProcessor.isShadowed(reference, fieldName)) {
+          migratable = false;
+          break;
+        }
+        calls.add(call);
+      }
+      if (!migratable) {
+        continue;
+      }
+
+      context.prepareRewrite();
+      for (MethodCallExpr call : calls) {
+        call.replace(rewrite(call, context));
+      }
+      toTempDirField(field, variable);
+      context.getMigratedRules().set(true);
+      context.requireImport("org.junit.jupiter.api.io.TempDir");
+      context.requireImport("java.io.File");
+    }
+  }
+
+  /**
+   * @return 以字段为 scope 的 getRoot / newFile / newFolder 调用，其它用法返回 null
+   */
+  private static MethodCallExpr folderCall(Expression reference) {
+    if (!(reference.getParentNode().orElse(null) instanceof MethodCallExpr call)
+        || call.getScope().orElse(null) != reference) {
+      return null;
+    }
+    int args = call.getArguments().size();
+    return switch (call.getNameAsString()) {
+      case "getRoot" -> args == 0 ? call : null;
+      case "newFile" -> args <= 1 ? call : null;
+      case "newFolder" -> call;
+      default -> null;
+    };
+  }
+
+  private static Expression rewrite(MethodCallExpr call, ConversionContext context) {
+    Expression folder = call.getScope().get();
+    NodeList<Expression> args = call.getArguments();
+    switch (call.getNameAsString()) {
+      case "getRoot" -> {
+        return folder;
+      }
+      case "newFile" -> {
+        if (args.isEmpty()) {
+          return new MethodCallExpr(new NameExpr("File"), "createTempFile",
+              new NodeList<>(new StringLiteralExpr("junit"), new NameExpr("null"), folder));
+        }
+        context.requireImport("java.nio.file.Files");
+        return toFile(new MethodCallExpr(new NameExpr("Files"), "createFile",
+            new NodeList<>(resolve(folder, args))));
+      }
+      default -> {
+        context.requireImport("java.nio.file.Files");
+        if (args.isEmpty()) {
+          return toFile(new MethodCallExpr(new NameExpr("Files"), "createTempDirectory",
+              new NodeList<>(new MethodCallExpr(folder, "toPath"), new StringLiteralExpr("junit"))));
+        }
+        return toFile(new MethodCallExpr(new NameExpr("Files"), "createDirectories",
+            new NodeList<>(resolve(folder, args))));
+      }
+    }
+  }
+
+  private static Expression resolve(Expression folder, NodeList<Expression> names) {
+    Expression path = new MethodCallExpr(folder, "toPath");
+    for (Expression name : new ArrayList<>(names)) {
+      path = new MethodCallExpr(path, "resolve", new NodeList<>(name));
+    }
+    return path;
+  }
+
+  private static Expression toFile(Expression path) {
+    return new MethodCallExpr(path, "toFile");
+  }
+
+  /**
+   * &#64;Rule public final TemporaryFolder folder = new TemporaryFolder(); -> &#64;TempDir public File folder;
+   * JUnit5 在每个测试前注入，@ClassRule 的静态字段由整个类共享，与原来的语义一致
+   */
+  private static void toTempDirField(FieldDeclaration field, VariableDeclarator variable) {
+    NodeList<AnnotationExpr> annotations = field.getAnnotations();
+    for (int i = 0; i < annotations.size(); i++) {
+      String name = annotations.get(i).getNameAsString();
+      if (name.endsWith("Rule")) {
+        annotations.set(i, new MarkerAnnotationExpr("TempDir"));
+        break;
+      }
+    }
+    field.getModifiers().removeIf(modifier -> modifier.getKeyword() == Modifier.Keyword.FINAL);
+    variable.setType(new ClassOrInterfaceType(null, "File"));
+    variable.removeInitializer();
+  }
+}
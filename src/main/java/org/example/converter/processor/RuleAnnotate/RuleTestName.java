@@ -0,0 +1,121 @@
+package org.example.converter.processor.RuleAnnotate;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import org.example.converter.ConversionContext;
+import org.example.converter.processor.RuleAnnotateProcessor;
+import org.example.util.TestClassIndex;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 把 @Rule TestName 迁移为 JUnit5 注入的 TestInfo 参数：
+ * <pre>
+ * &#64;Rule public TestName name = new TestName();
+ * &#64;Test public void testRead() {                  &#64;Test public void testRead(TestInfo testInfo) {
+ *   open(name.getMethodName());              ->     open(testInfo.getTestMethod().get().getName());
+ * </pre>
+ * 字段的每个引用都必须是 name.getMethodName()，并且位于本类的 @Test / @BeforeEach / @AfterEach 方法中
+ * （这些方法都支持注入 TestInfo），否则字段保持不变。
+ */
+public class RuleTestName {
+
+  static final String RULE_TYPE = "TestName";
+
+  // 可以注入 TestInfo 的方法注解，@Before / @After 在遍历到类之前已经被改名，这里同时兼容两种写法
+  private static final Set<String> INJECTABLE = Set.of("Test", "BeforeEach", "AfterEach", "Before", "After");
+
+  /**
+   * 迁移类中所有可以迁移的 TestName 字段
+   */
+  public static void migrate(TestClassIndex index, ConversionContext context) {
+    for (FieldDeclaration field : new ArrayList<>(index.ruleFields(RULE_TYPE))) {
+      if (field.getVariables().size() != 1 || TestClassIndex.isClassRule(field)) {
+        continue;
+      }
+      String fieldName = field.getVariable(0).getNameAsString();
+      Map<MethodDeclaration, List<MethodCallExpr>> byMethod = new IdentityHashMap<>();
+      boolean migratable = true;
+      for (Expression reference : index.references(fieldName)) {
+        MethodCallExpr call = getMethodNameCall(reference);
+        MethodDeclaration method = call == null ? null : injectableMethod(call, index);
+        if (method == null || RuleAnnotateProcessor.isShadowed(reference, fieldName)) {
+          migratable = false;
+          break;
+        }
+        byMethod.computeIfAbsent(method, k -> new ArrayList<>()).add(call);
+      }
+      if (!migratable) {
+        continue;
+      }
+
+      context.prepareRewrite();
+      for (Map.Entry<MethodDeclaration, List<MethodCallExpr>> entry : byMethod.entrySet()) {
+        String testInfo = testInfoParameter(entry.getKey());
+        for (MethodCallExpr call : entry.getValue()) {
+          call.replace(methodName(testInfo));
+        }
+      }
+      index.removeRuleField(field);
+      context.getMigratedRules().set(true);
+      context.requireImport("org.junit.jupiter.api.TestInfo");
+    }
+  }
+
+  private static MethodCallExpr getMethodNameCall(Expression reference) {
+    if (reference.getParentNode().orElse(null) instanceof MethodCallExpr call
+        && call.getScope().orElse(null) == reference
+        && "getMethodName".equals(call.getNameAsString())
+        && call.getArguments().isEmpty()) {
+      return call;
+    }
+    return null;
+  }
+
+  /**
+   * @return 调用所在的、可以注入 TestInfo 的本类方法；在嵌套类或其它方法中时为 null
+   */
+  private static MethodDeclaration injectableMethod(MethodCallExpr call, TestClassIndex index) {
+    Node current = call.getParentNode().orElse(null);
+    while (current != null && !(current instanceof MethodDeclaration)) {
+      current = current.getParentNode().orElse(null);
+    }
+    if (!(current instanceof MethodDeclaration method)
+        || method.getParentNode().orElse(null) != index.getType()
+        || method.getAnnotations().stream().noneMatch(a -> INJECTABLE.contains(a.getNameAsString()))) {
+      return null;
+    }
+    return method;
+  }
+
+  /**
+   * @return 方法已有的 TestInfo 参数名，没有时添加一个
+   */
+  private static String testInfoParameter(MethodDeclaration method) {
+    for (Parameter parameter : method.getParameters()) {
+      if ("TestInfo".equals(parameter.getTypeAsString())
+          || "org.junit.jupiter.api.TestInfo".equals(parameter.getTypeAsString())) {
+        return parameter.getNameAsString();
+      }
+    }
+    String name = RuleAnnotateProcessor.uniqueName(method, "testInfo");
+    method.addParameter(new ClassOrInterfaceType(null, "TestInfo"), name);
+    return name;
+  }
+
+  // testInfo.getTestMethod().get().getName()
+  private static Expression methodName(String testInfo) {
+    MethodCallExpr testMethod = new MethodCallExpr(new NameExpr(testInfo), "getTestMethod");
+    return new MethodCallExpr(new MethodCallExpr(testMethod, "get"), "getName");
+  }
+}
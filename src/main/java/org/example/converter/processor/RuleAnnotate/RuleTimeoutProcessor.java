@@ -1,127 +1,339 @@
 package org.example.converter.processor.RuleAnnotate;
 
-
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
 import com.github.javaparser.ast.expr.IntegerLiteralExpr;
-import com.github.javaparser.ast.expr.Name;
+import com.github.javaparser.ast.expr.LongLiteralExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
-import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
-import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.example.converter.ConversionContext;
+import org.example.converter.processor.MigrationProcessor;
+import org.example.converter.processor.TimeoutImportAdder;
+import org.example.util.ImportIndex;
+import org.example.util.TestClassIndex;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+/**
+ * 把 @Rule Timeout 字段迁移为类上的 JUnit5 @Timeout 注解：
+ * <pre>
+ * &#64;Rule public Timeout timeout = new Timeout(30000);         -> &#64;Timeout(value = 30)
+ * &#64;Rule public Timeout timeout = Timeout.millis(1500);       -> &#64;Timeout(value = 1500, unit = TimeUnit.MILLISECONDS)
+ * &#64;Rule public Timeout timeout = new Timeout(2, TimeUnit.MINUTES); -> &#64;Timeout(value = 2, unit = TimeUnit.MINUTES)
+ * </pre>
+ * 类级别的 @Timeout 作用于类中（包括 @Nested 类中）的所有测试方法，方法上已有的 @Timeout 优先，
+ * 因此只生成一个注解，而不是给每个测试方法各加一个。
+ * <p>
+ * 每个类只处理一次，字段与注解都从 {@link TestClassIndex} 中查找。
+ * 超时不是编译期常量（字面量、字面量的运算、本类的 static final 常量）、字段在类中还被引用，
+ * 或者是 @ClassRule（作用于整个类的执行时间，JUnit5 没有对应的注解）时保持不变。
+ */
+public class RuleTimeoutProcessor implements MigrationProcessor {
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.Optional;
+  private static final String RULE_TYPE = "Timeout";
 
-public class RuleTimeoutProcessor {
+  private static final String JUNIT4_TIMEOUT = "org.junit.rules.Timeout";
 
+  private static final String JUNIT5_TIMEOUT = "org.junit.jupiter.api.Timeout";
+
+  private static final String TIME_UNIT = "java.util.concurrent.TimeUnit";
+
+  // 超时的数值与单位（TimeUnit 的常量名），数值不是字面量时保留原表达式
+  private record TimeoutValue(Expression value, String unit) {
+  }
+
+  /**
+   * 独立处理整个文件，供不经过单次遍历引擎的调用方使用
+   */
   public static void processTimeoutRule(CompilationUnit cu) {
-    // 遍历所有字段声明
-    cu.findAll(FieldDeclaration.class).forEach(field -> {
-      // 判断该字段是否有 @Rule 注解且类型为 Timeout
-      boolean hasRuleAnnotation = field.getAnnotations().stream()
-          .anyMatch(a -> a.getNameAsString().equals("Rule"));
-
-      boolean isTimeoutType = field.getElementType().asString().equals("Timeout");
-      if (hasRuleAnnotation && isTimeoutType) {
-        // 获取字段中定义的变量（通常只有一个）
-        VariableDeclarator var = field.getVariable(0);
-        Optional<Expression> initializerOpt = var.getInitializer();
-        if (initializerOpt.isPresent() && initializerOpt.get() instanceof ObjectCreationExpr) {
-          ObjectCreationExpr creationExpr = (ObjectCreationExpr) initializerOpt.get();
-          // 超时规则一般只有一个参数，例如 new Timeout(30 * 1000)
-          if (creationExpr.getArguments().size() == 1) {
-            Expression arg = creationExpr.getArgument(0);
-            long timeoutMillis = evaluateTimeoutExpression(arg);
-            if (timeoutMillis > 0) {
-              // 将毫秒转换为秒
-              long timeoutSeconds = timeoutMillis / 1000;
-              // 移除 JUnit4 的 Timeout rule 字段
-              field.remove();
-
-              // 找到包含该字段的类，然后为该类中每个测试方法添加 @Timeout 注解
-              Optional<ClassOrInterfaceDeclaration> parentClassOpt =
-                  field.findAncestor(ClassOrInterfaceDeclaration.class);
-              if (parentClassOpt.isPresent()) {
-                ClassOrInterfaceDeclaration parentClass = parentClassOpt.get();
-                // 遍历该类中的所有方法
-                parentClass.findAll(MethodDeclaration.class).forEach(method -> {
-                  // 假定带有 @Test 注解的方法为测试方法
-                  boolean isTestMethod = method.getAnnotations().stream()
-                      .anyMatch(a -> a.getNameAsString().equals("Test"));
-                  if (isTestMethod) {
-                    // 如果方法上还没有 @Timeout 注解，则添加
-                    boolean hasTimeoutAnnotation = method.getAnnotations().stream()
-                        .anyMatch(a -> a.getNameAsString().equals("Timeout"));
-                    if (!hasTimeoutAnnotation) {
-                      AnnotationExpr timeoutAnnotation = new SingleMemberAnnotationExpr(
-                          new Name("Timeout"),
-                          new IntegerLiteralExpr(String.valueOf(timeoutSeconds))
-                      );
-                      method.addAnnotation(timeoutAnnotation);
-                    }
-                  }
-                });
-              }
-
-              // 修改导入：移除 JUnit4 的 Timeout 导入，添加 JUnit5 的 Timeout 导入（如果尚未添加）
-              cu.getImports().removeIf(imp -> imp.getNameAsString().equals("org.junit.rules.Timeout"));
-              // 移除 JUnit4 的 Rule 导入
-              cu.getImports().removeIf(imp -> imp.getNameAsString().equals("org.junit.Rule"));
-              if (cu.getImports().stream().noneMatch(imp -> imp.getNameAsString().equals("org.junit.jupiter.api.Timeout"))) {
-                cu.addImport("org.junit.jupiter.api.Timeout");
-              }
-            }
-          }
-        }
+    ConversionContext context = new ConversionContext(null);
+    for (ClassOrInterfaceDeclaration type : cu.findAll(ClassOrInterfaceDeclaration.class)) {
+      processClass(type, context);
+    }
+    cleanImports(cu, context);
+    TimeoutImportAdder.addTimeoutImportIfNeeded(context.getImportIndex(cu), context.getNeedTimeoutImport().get());
+    context.applyImports();
+  }
+
+  /**
+   * 处理单个类，供单次遍历引擎直接调用
+   */
+  public static void processClass(ClassOrInterfaceDeclaration type, ConversionContext context) {
+    if (type.isInterface()) {
+      return;
+    }
+    TestClassIndex index = context.getTestClassIndex(type);
+    if (index.ruleFields(RULE_TYPE).isEmpty()) {
+      return;
+    }
+    for (FieldDeclaration field : new ArrayList<>(index.ruleFields(RULE_TYPE))) {
+      if (!hasAnnotation(field, "Rule") || field.getVariables().size() != 1 || index.isReferenced(field)) {
+        continue;
+      }
+      TimeoutValue timeout = field.getVariable(0).getInitializer()
+          .map(init -> timeoutOf(init, type, context))
+          .orElse(null);
+      if (timeout == null) {
+        continue;
+      }
+      context.prepareRewrite();
+      // 引用常量时加上类名，会修改初始化表达式，必须在 prepareRewrite 之后
+      TimeoutValue qualified = new TimeoutValue(qualifyConstants(timeout.value(), type, context), timeout.unit());
+      index.removeRuleField(field);
+      // 类上已经有 @Timeout（例如多个 Timeout 规则）时只保留第一个
+      if (!index.hasClassAnnotation("Timeout")) {
+        index.addClassAnnotation(annotation(qualified, context));
       }
-    });
+      context.getMigratedRules().set(true);
+      context.getNeedTimeoutImport().set(true);
+    }
+  }
+
+  private static NormalAnnotationExpr annotation(TimeoutValue timeout, ConversionContext context) {
+    NormalAnnotationExpr annotation = new NormalAnnotationExpr();
+    annotation.setName("Timeout");
+    annotation.addPair("value", timeout.value());
+    // JUnit5 @Timeout 的默认单位为秒
+    if (!"SECONDS".equals(timeout.unit())) {
+      annotation.addPair("unit", new FieldAccessExpr(new NameExpr("TimeUnit"), timeout.unit()));
+      context.getNeedTimeUnitImport().set(true);
+    }
+    return annotation;
   }
 
   /**
-   * 辅助方法：计算表达式的值。
-   * 支持整数字面量和简单的乘法运算（例如：30 * 1000）。
-   *
-   * @param expr 表达式
-   * @return 表达式的数值，如果无法计算则返回 0
+   * 只读地识别 new Timeout(ms)、new Timeout(n, TimeUnit.X)、Timeout.millis(n)、Timeout.seconds(n)，
+   * 返回的数值是换算后的新字面量或原表达式本身，其中的常量还没有加上类名
    */
-  private static long evaluateTimeoutExpression(Expression expr) {
-    if (expr.isIntegerLiteralExpr()) {
-      try {
-        // 去除下划线后再解析
-        String value = expr.asIntegerLiteralExpr().getValue().replace("_", "");
-        return Long.parseLong(value);
-      } catch (NumberFormatException e) {
-        return 0;
+  private static TimeoutValue timeoutOf(Expression init, ClassOrInterfaceDeclaration type,
+                                        ConversionContext context) {
+    Expression value;
+    String unit;
+    if (init instanceof ObjectCreationExpr creation
+        && RULE_TYPE.equals(creation.getType().getNameAsString())) {
+      NodeList<Expression> args = creation.getArguments();
+      if (args.size() == 1) {
+        value = args.get(0);
+        unit = "MILLISECONDS";
+      } else if (args.size() == 2) {
+        value = args.get(0);
+        unit = timeUnitOf(args.get(1));
+      } else {
+        return null;
       }
-    } else if (expr.isBinaryExpr()) {
-      BinaryExpr binaryExpr = expr.asBinaryExpr();
-      // 这里只支持乘法运算
-      if (binaryExpr.getOperator() == BinaryExpr.Operator.MULTIPLY) {
-        long left = evaluateTimeoutExpression(binaryExpr.getLeft());
-        long right = evaluateTimeoutExpression(binaryExpr.getRight());
-        return left * right;
+    } else if (init instanceof MethodCallExpr call && call.getArguments().size() == 1
+        && call.getScope().filter(scope -> scope.isNameExpr()
+        && RULE_TYPE.equals(scope.asNameExpr().getNameAsString())).isPresent()) {
+      value = call.getArgument(0);
+      unit = switch (call.getNameAsString()) {
+        case "millis" -> "MILLISECONDS";
+        case "seconds" -> "SECONDS";
+        default -> null;
+      };
+    } else {
+      return null;
+    }
+    if (unit == null || !isConstant(value, type, context, 0)) {
+      return null;
+    }
+    // 毫秒数是整秒时换算成秒，与 @Test(timeout=...) 的迁移结果一致
+    Long millis = "MILLISECONDS".equals(unit) ? evaluate(value) : null;
+    if (millis != null && millis > 0 && millis % 1000 == 0) {
+      return new TimeoutValue(literal(millis / 1000), "SECONDS");
+    }
+    return new TimeoutValue(value, unit);
+  }
+
+  /**
+   * 类上的注解不在类体的作用域内，引用常量时需要加上声明它的类名
+   */
+  private static Expression qualifyConstants(Expression value, ClassOrInterfaceDeclaration type,
+                                             ConversionContext context) {
+    if (value.isNameExpr()) {
+      return qualify(value.asNameExpr(), type, context);
+    }
+    for (NameExpr name : value.findAll(NameExpr.class)) {
+      name.replace(qualify(name, type, context));
+    }
+    return value;
+  }
+
+  private static Expression qualify(NameExpr name, ClassOrInterfaceDeclaration type, ConversionContext context) {
+    ClassOrInterfaceDeclaration declaring = declaringType(name.getNameAsString(), type, context);
+    return new FieldAccessExpr(new NameExpr(declaring.getNameAsString()), name.getNameAsString());
+  }
+
+  /**
+   * 从当前类向外查找声明了 static final 常量 name 的类
+   */
+  private static ClassOrInterfaceDeclaration declaringType(String name, ClassOrInterfaceDeclaration type,
+                                                           ConversionContext context) {
+    Node current = type;
+    while (current != null) {
+      if (current instanceof ClassOrInterfaceDeclaration candidate
+          && context.getTestClassIndex(candidate).constant(name).isPresent()) {
+        return candidate;
       }
+      current = current.getParentNode().orElse(null);
     }
-    // 如果不能识别则返回 0
-    return 0;
+    return null;
+  }
+
+  private static String timeUnitOf(Expression expr) {
+    if (expr.isFieldAccessExpr() && expr.asFieldAccessExpr().getScope().toString().endsWith("TimeUnit")) {
+      return expr.asFieldAccessExpr().getNameAsString();
+    }
+    return null;
+  }
+
+  /**
+   * 注解的值必须是编译期常量
+   */
+  private static boolean isConstant(Expression expr, ClassOrInterfaceDeclaration type,
+                                    ConversionContext context, int depth) {
+    if (depth > 8) {
+      return false;
+    }
+    if (expr.isIntegerLiteralExpr() || expr.isLongLiteralExpr()) {
+      return true;
+    }
+    if (expr.isEnclosedExpr()) {
+      return isConstant(expr.asEnclosedExpr().getInner(), type, context, depth + 1);
+    }
+    if (expr.isBinaryExpr()) {
+      return isConstant(expr.asBinaryExpr().getLeft(), type, context, depth + 1)
+          && isConstant(expr.asBinaryExpr().getRight(), type, context, depth + 1);
+    }
+    if (expr.isNameExpr()) {
+      String name = expr.asNameExpr().getNameAsString();
+      ClassOrInterfaceDeclaration declaring = declaringType(name, type, context);
+      return declaring != null && context.getTestClassIndex(declaring).constant(name)
+          .filter(init -> isConstant(init, declaring, context, depth + 1))
+          .isPresent();
+    }
+    return false;
+  }
+
+  /**
+   * 计算字面量及其加减乘运算的值，无法计算时为 null
+   */
+  private static Long evaluate(Expression expr) {
+    try {
+      if (expr.isIntegerLiteralExpr()) {
+        return expr.asIntegerLiteralExpr().asNumber().longValue();
+      }
+      if (expr.isLongLiteralExpr()) {
+        return expr.asLongLiteralExpr().asNumber().longValue();
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (expr.isEnclosedExpr()) {
+      return evaluate(expr.asEnclosedExpr().getInner());
+    }
+    if (expr.isBinaryExpr()) {
+      BinaryExpr binary = expr.asBinaryExpr();
+      Long left = evaluate(binary.getLeft());
+      Long right = evaluate(binary.getRight());
+      if (left == null || right == null) {
+        return null;
+      }
+      return switch (binary.getOperator()) {
+        case MULTIPLY -> left * right;
+        case PLUS -> left + right;
+        case MINUS -> left - right;
+        default -> null;
+      };
+    }
+    return null;
+  }
+
+  private static Expression literal(long value) {
+    return value <= Integer.MAX_VALUE
+        ? new IntegerLiteralExpr(String.valueOf(value))
+        : new LongLiteralExpr(value + "L");
+  }
+
+  private static boolean hasAnnotation(FieldDeclaration field, String name) {
+    for (AnnotationExpr annotation : field.getAnnotations()) {
+      String annotationName = annotation.getNameAsString();
+      if (name.equals(annotationName) || ("org.junit." + name).equals(annotationName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 清理 import：
+   * - 不再有 Timeout 规则时，org.junit.rules.Timeout 改为 org.junit.jupiter.api.Timeout（不需要时删除），保留原来的位置与格式
+   * - 还有无法迁移的 Timeout 规则时，两个 Timeout 不能同时按简单名导入，JUnit5 的 @Timeout 改用全限定名
+   * - 迁移过规则且不再有 @Rule 时删除 org.junit.Rule，按需导入 TimeUnit
+   */
+  static void cleanImports(CompilationUnit cu, ConversionContext context) {
+    ImportIndex imports = context.getImportIndex(cu);
+    ImportIndex.Import junit4Timeout = ImportIndex.Import.of(JUNIT4_TIMEOUT);
+    if (imports.contains(junit4Timeout)) {
+      boolean timeoutRuleLeft = cu.findFirst(FieldDeclaration.class,
+          field -> field.getVariables().stream().map(VariableDeclarator::getTypeAsString)
+              .anyMatch(type -> RULE_TYPE.equals(type) || JUNIT4_TIMEOUT.equals(type))).isPresent();
+      boolean needTimeout = context.getNeedTimeoutImport().get();
+      if (!timeoutRuleLeft) {
+        if (needTimeout && !imports.covers(JUNIT5_TIMEOUT)) {
+          imports.rename(junit4Timeout, JUNIT5_TIMEOUT);
+        } else {
+          imports.remove(junit4Timeout);
+        }
+      } else if (needTimeout) {
+        context.prepareRewrite();
+        for (AnnotationExpr annotation : cu.findAll(AnnotationExpr.class,
+            annotation -> RULE_TYPE.equals(annotation.getNameAsString()))) {
+          annotation.setName(JUNIT5_TIMEOUT);
+        }
+        context.getNeedTimeoutImport().set(false);
+      }
+    }
+    if (context.getMigratedRules().get()) {
+      boolean ruleLeft = cu.findFirst(AnnotationExpr.class,
+          annotation -> "Rule".equals(annotation.getNameAsString())).isPresent();
+      if (!ruleLeft) {
+        imports.remove(ImportIndex.Import.of("org.junit.Rule"));
+      }
+    }
+    if (context.getNeedTimeUnitImport().get() && !imports.covers(TIME_UNIT)) {
+      imports.add(TIME_UNIT);
+    }
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(ClassOrInterfaceDeclaration.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("Timeout");
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    processClass((ClassOrInterfaceDeclaration) node, context);
+    return node;
   }
 
-  public static void main(String[] args) throws IOException {
-    String testClass = "/Users/didi/IdeaProjects/hadoop/hadoop-hdfs-project/hadoop-hdfs/src/test/java/org/apache/hadoop/hdfs/client/impl/TestBlockReaderFactory.java";
-    String source = Files.readString(Path.of(testClass));
-    CompilationUnit cu = StaticJavaParser.parse(source);
-    // 启用词法级保留打印，保留原始代码格式
-    LexicalPreservingPrinter.setup(cu);
-    RuleTimeoutProcessor.processTimeoutRule(cu);
-    //Files.writeString(Path.of(testClass), LexicalPreservingPrinter.print(cu));
+  @Override
+  public void afterTraversal(CompilationUnit cu, ConversionContext context) {
+    cleanImports(cu, context);
   }
 }
@@ -1,33 +1,168 @@
 package org.example.converter.processor;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import org.example.converter.ConversionContext;
 import org.example.converter.processor.RuleAnnotate.RuleExpectedException;
+import org.example.converter.processor.RuleAnnotate.RuleTemporaryFolder;
+import org.example.converter.processor.RuleAnnotate.RuleTestName;
 import org.example.converter.processor.RuleAnnotate.RuleTimeoutProcessor;
+import org.example.util.ImportIndex;
+import org.example.util.TestClassIndex;
 
-
-import java.util.Optional;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
- * 主要包含如下类的处理
- * ExpectedException
- * MethodRule
- * TemporaryFolder
- * TestName
- * TestRule
- * TestWatcher
- * TestWatchman
- * Timeout
+ * 迁移 @Rule / @ClassRule 字段：
+ * ExpectedException -> Assertions.assertThrows
+ * TemporaryFolder   -> &#64;TempDir File
+ * TestName          -> TestInfo 参数
+ * Timeout 由 {@link RuleTimeoutProcessor} 处理；MethodRule、TestRule、TestWatcher 等自定义规则没有通用的对应写法，保持不变。
+ * <p>
+ * 每个类只处理一次：规则字段与它们的全部引用都来自同一个 {@link TestClassIndex}（一次遍历收集），
+ * 各规则的迁移直接使用索引中的引用，不再为每种规则各扫描一遍语法树。
+ * 任何一个引用无法迁移时对应的字段整体保持不变。
  */
-public class RuleAnnotateProcessor {
+public class RuleAnnotateProcessor implements MigrationProcessor {
+
+  // 规则迁移后可能不再需要的 import
+  private static final List<String> RULE_IMPORTS = List.of(
+      "org.junit.rules.ExpectedException",
+      "org.junit.rules.TemporaryFolder",
+      "org.junit.rules.TestName");
 
+  /**
+   * 独立处理整个文件，供不经过单次遍历引擎的调用方使用
+   */
   public static void processJUnit4Rules(CompilationUnit cu) {
     // 1) 处理 @Rule Timeout 的场景
     RuleTimeoutProcessor.processTimeoutRule(cu);
 
-    // 2)处理 @Rule ExpectedException 的场景
-    RuleExpectedException.processExpectedExceptionRule(cu);
+    // 2) 处理 ExpectedException、TemporaryFolder、TestName
+    ConversionContext context = new ConversionContext(null);
+    for (ClassOrInterfaceDeclaration type : cu.findAll(ClassOrInterfaceDeclaration.class)) {
+      processClass(type, context);
+    }
+    cleanImports(cu, context);
+    AssertionsImportAdder.addAssertionsImportIfNeeded(context.getImportIndex(cu),
+        context.getNeedAssertionsImport().get());
+    context.applyImports();
+  }
+
+  /**
+   * 处理单个类，供单次遍历引擎直接调用
+   */
+  public static void processClass(ClassOrInterfaceDeclaration type, ConversionContext context) {
+    if (type.isInterface()) {
+      return;
+    }
+    TestClassIndex index = context.getTestClassIndex(type);
+    if (!index.hasRules()) {
+      return;
+    }
+    RuleExpectedException.migrate(index, context);
+    RuleTemporaryFolder.migrate(index, context);
+    RuleTestName.migrate(index, context);
+  }
+
+  /**
+   * 删除不再使用的规则类 import；迁移过规则且不再有 @Rule / @ClassRule 时删除对应的 import；补充迁移需要的 import
+   */
+  static void cleanImports(CompilationUnit cu, ConversionContext context) {
+    if (!context.getMigratedRules().get()) {
+      return;
+    }
+    ImportIndex imports = context.getImportIndex(cu);
+    for (String name : RULE_IMPORTS) {
+      String simpleName = name.substring(name.lastIndexOf('.') + 1);
+      if (imports.contains(name) && !isUsed(cu, simpleName)) {
+        imports.remove(ImportIndex.Import.of(name));
+      }
+    }
+    for (String annotation : List.of("Rule", "ClassRule")) {
+      boolean left = cu.findFirst(AnnotationExpr.class,
+          a -> annotation.equals(a.getNameAsString())).isPresent();
+      if (!left) {
+        imports.remove(ImportIndex.Import.of("org.junit." + annotation));
+      }
+    }
+    for (String name : context.getRequiredImports()) {
+      if (!imports.covers(name)) {
+        imports.add(name);
+      }
+    }
+  }
+
+  private static boolean isUsed(CompilationUnit cu, String simpleName) {
+    return cu.findFirst(ClassOrInterfaceType.class, t -> simpleName.equals(t.getNameAsString())).isPresent()
+        || cu.findFirst(NameExpr.class, n -> simpleName.equals(n.getNameAsString())).isPresent();
+  }
+
+  /**
+   * @return candidates 中第一个在方法中没有被参数、局部变量使用的名字，都被使用时在第一个名字后加数字
+   */
+  public static String uniqueName(MethodDeclaration method, String... candidates) {
+    Set<String> used = new HashSet<>();
+    method.findAll(Parameter.class).forEach(parameter -> used.add(parameter.getNameAsString()));
+    method.findAll(VariableDeclarator.class).forEach(variable -> used.add(variable.getNameAsString()));
+    for (String candidate : candidates) {
+      if (!used.contains(candidate)) {
+        return candidate;
+      }
+    }
+    for (int i = 2; ; i++) {
+      if (!used.contains(candidates[0] + i)) {
+        return candidates[0] + i;
+      }
+    }
+  }
+
+  /**
+   * 字段引用 name 所在的方法或构造器中是否声明了同名的参数、局部变量，此时无法只凭名字确定引用的是字段。
+   * this.name 不会被遮蔽
+   */
+  public static boolean isShadowed(Expression reference, String name) {
+    if (!reference.isNameExpr()) {
+      return false;
+    }
+    Node current = reference.getParentNode().orElse(null);
+    while (current != null && !(current instanceof CallableDeclaration)) {
+      current = current.getParentNode().orElse(null);
+    }
+    return current != null
+        && (current.findFirst(Parameter.class, p -> name.equals(p.getNameAsString())).isPresent()
+        || current.findFirst(VariableDeclarator.class, v -> name.equals(v.getNameAsString())).isPresent());
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(ClassOrInterfaceDeclaration.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("ExpectedException", "TemporaryFolder", "TestName");
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    processClass((ClassOrInterfaceDeclaration) node, context);
+    return node;
   }
 
-  private static void processExpectedExceptionRule(CompilationUnit cu) {
+  @Override
+  public void afterTraversal(CompilationUnit cu, ConversionContext context) {
+    cleanImports(cu, context);
   }
 }
@@ -1,95 +1,138 @@
 package org.example.converter.processor;
 
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.expr.Expression;
-import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.expr.ClassExpr;
-import com.github.javaparser.ast.stmt.ExpressionStmt;
-import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.MemberValuePair;
+import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
 import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
 import com.github.javaparser.ast.stmt.Statement;
-import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
-import com.github.javaparser.ast.NodeList;
-import com.github.javaparser.ast.expr.AnnotationExpr;
-import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import org.example.converter.ConversionContext;
+import org.example.util.NodeRelocation;
 
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 单独处理 @Test(expected=xxx)，转换为 JUnit5 的 assertThrows(...)
  */
-public class TestExpectedProcessor {
+public class TestExpectedProcessor implements MigrationProcessor {
 
   public static void processTestExpected(CompilationUnit cu, AtomicBoolean needAssertionsImport) {
+    ConversionContext context = new ConversionContext(null);
     cu.accept(new ModifierVisitor<Void>() {
       @Override
       public Visitable visit(NormalAnnotationExpr nae, Void arg) {
-        if ("Test".equals(nae.getNameAsString())) {
-          nae.getPairs().stream()
-              .filter(p -> "expected".equals(p.getNameAsString()))
-              .findFirst()
-              .ifPresent(expectedPair -> {
-                Expression expectedValue = expectedPair.getValue();
-
-                nae.getParentNode().ifPresent(parent -> {
-                  if (parent instanceof MethodDeclaration) {
-                    MethodDeclaration method = (MethodDeclaration) parent;
+        processAnnotation(nae, context);
+        return super.visit(nae, arg);
+      }
+    }, null);
+    if (context.getNeedAssertionsImport().get()) {
+      needAssertionsImport.set(true);
+    }
+  }
 
-                    if (expectedValue.isClassExpr()) {
-                      String exceptionType = expectedValue.asClassExpr().getType().asString();
+  /**
+   * 处理单个 @Test(...) 注解，供单次遍历引擎直接调用
+   */
+  public static void processAnnotation(NormalAnnotationExpr nae, ConversionContext context) {
+    expectedPair(nae).ifPresent(expectedPair -> {
+      Expression expectedValue = expectedPair.getValue();
+      MethodDeclaration method = (MethodDeclaration) nae.getParentNode().get();
+      context.prepareRewrite();
 
-                      // 把原方法体包裹到 Assertions.assertThrows(...) 中
-                      method.getBody().ifPresent(oldBody -> {
-                        // 备份所有语句
-                        BlockStmt oldStmts = new BlockStmt();
-                        for (Statement st : oldBody.getStatements()) {
-                          oldStmts.addStatement(st.clone());
-                        }
-                        oldBody.getStatements().clear();
+      if (expectedValue.isClassExpr()) {
+        // 直接复制注解中的类型节点，不在转换线程中用 StaticJavaParser 按字符串重新解析
+        Type exceptionType = expectedValue.asClassExpr().getType();
 
-                        // 构造 Assertions.assertThrows(...)
-                        MethodCallExpr assertThrowsCall = new MethodCallExpr(
-                            new NameExpr("Assertions"), // 也可改为静态引用
-                            "assertThrows"
-                        );
-                        // 第一个参数
-                        assertThrowsCall.addArgument(
-                            new ClassExpr(StaticJavaParser.parseType(exceptionType))
-                        );
-                        // 第二个参数: () -> { 原先方法体的所有语句 }
-                        LambdaExpr lambda = new LambdaExpr();
-                        lambda.setEnclosingParameters(true);
-                        BlockStmt lambdaBody = new BlockStmt();
-                        oldStmts.getStatements().forEach(lambdaBody::addStatement);
-                        lambda.setBody(lambdaBody);
-                        assertThrowsCall.addArgument(lambda);
+        // 把原方法体包裹到 Assertions.assertThrows(...) 中
+        method.getBody().ifPresent(oldBody -> {
+          // 构造 Assertions.assertThrows(...)
+          MethodCallExpr assertThrowsCall = new MethodCallExpr(
+              new NameExpr("Assertions"), // 也可改为静态引用
+              "assertThrows"
+          );
+          // 第一个参数
+          assertThrowsCall.addArgument(
+              new ClassExpr(exceptionType.clone())
+          );
+          // 第二个参数: () -> { 原先方法体的所有语句 }
+          LambdaExpr lambda = new LambdaExpr();
+          lambda.setEnclosingParameters(true);
+          assertThrowsCall.addArgument(lambda);
 
-                        oldBody.addStatement(new ExpressionStmt(assertThrowsCall));
+          if (!oldBody.getOrphanComments().isEmpty()) {
+            // 不属于任何语句的注释是原方法体的文本，逐条移动语句时 LexicalPreservingPrinter 会把它们留在 lambda 之后，
+            // 甚至丢掉右括号。此时把整个方法体移动到 lambda 中，注释都留在原位，只是 lambda 中保持原来的缩进
+            BlockStmt newBody = new BlockStmt();
+            method.setBody(newBody);
+            lambda.setBody(oldBody);
+            newBody.addStatement(new ExpressionStmt(assertThrowsCall));
+          } else {
+            // 原来的语句直接移动到 lambda 中，不复制
+            NodeRelocation<Statement> oldStmts = NodeRelocation.detach(oldBody.getStatements());
+            BlockStmt lambdaBody = new BlockStmt();
+            oldStmts.nodes().forEach(lambdaBody::addStatement);
+            lambda.setBody(lambdaBody);
+            oldBody.addStatement(new ExpressionStmt(assertThrowsCall));
+            oldStmts.restoreComments();
+          }
 
-                        needAssertionsImport.set(true);
-                      });
-                    }
+          context.getNeedAssertionsImport().set(true);
+        });
+      }
 
-                    // 移除 @Test(expected=xxx) 中的 expected 属性
-                    nae.getPairs().remove(expectedPair);
-                    // 若移除后空了，就变成纯 Marker @Test
-                    if (nae.getPairs().isEmpty()) {
-                      NodeList<AnnotationExpr> annos = method.getAnnotations();
-                      int idx = annos.indexOf(nae);
-                      MarkerAnnotationExpr markerTest = new MarkerAnnotationExpr("Test");
-                      annos.set(idx, markerTest);
-                    }
-                  }
-                });
-              });
-        }
-        return super.visit(nae, arg);
+      // 移除 @Test(expected=xxx) 中的 expected 属性
+      nae.getPairs().remove(expectedPair);
+      // 若移除后空了，就变成纯 Marker @Test
+      if (nae.getPairs().isEmpty()) {
+        NodeList<AnnotationExpr> annos = method.getAnnotations();
+        int idx = annos.indexOf(nae);
+        MarkerAnnotationExpr markerTest = new MarkerAnnotationExpr("Test");
+        annos.set(idx, markerTest);
       }
-    }, null);
+    });
+  }
+
+  /**
+   * 只读地查找方法上 @Test(expected = ...) 的 expected 属性，不修改语法树
+   */
+  public static Optional<MemberValuePair> expectedPair(NormalAnnotationExpr nae) {
+    if (!"Test".equals(nae.getNameAsString())
+        || !(nae.getParentNode().orElse(null) instanceof MethodDeclaration)) {
+      return Optional.empty();
+    }
+    return nae.getPairs().stream()
+        .filter(p -> "expected".equals(p.getNameAsString()))
+        .findFirst();
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(NormalAnnotationExpr.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("expected");
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    processAnnotation((NormalAnnotationExpr) node, context);
+    return node;
   }
-}
\ No newline at end of file
+}
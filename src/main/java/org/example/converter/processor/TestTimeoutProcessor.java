@@ -1,69 +1,121 @@
 package org.example.converter.processor;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
 import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.NormalAnnotationExpr;
-import com.github.javaparser.ast.expr.IntegerLiteralExpr;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.NodeList;
-import com.github.javaparser.ast.expr.AnnotationExpr;
+import org.example.converter.ConversionContext;
 
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * 单独处理 @Test(timeout=xxx)，把它迁移到 JUnit5 的 @Timeout 注解上
+ * 单独处理 @Test(timeout=xxx)，把它迁移到 JUnit5 的 @Timeout 注解上：
+ * 整秒时为 @Timeout(value = 秒)，否则保留毫秒数 @Timeout(value = 毫秒, unit = TimeUnit.MILLISECONDS)
  */
-public class TestTimeoutProcessor {
+public class TestTimeoutProcessor implements MigrationProcessor {
 
   public static void processTestTimeout(CompilationUnit cu, AtomicBoolean needTimeoutImport) {
+    ConversionContext context = new ConversionContext(null);
     cu.accept(new ModifierVisitor<Void>() {
       @Override
       public Visitable visit(NormalAnnotationExpr nae, Void arg) {
-        if ("Test".equals(nae.getNameAsString())) {
-          nae.getPairs().stream()
-              .filter(p -> "timeout".equals(p.getNameAsString()))
-              .findFirst()
-              .ifPresent(timeoutPair -> {
-                Expression timeoutValue = timeoutPair.getValue();
-                if (timeoutValue.isIntegerLiteralExpr()) {
-                  int timeoutMs = timeoutValue.asIntegerLiteralExpr().asInt();
-                  int timeoutSec = timeoutMs / 1000;
+        processAnnotation(nae, context);
+        return super.visit(nae, arg);
+      }
+    }, null);
+    if (context.getNeedTimeoutImport().get()) {
+      needTimeoutImport.set(true);
+    }
+    TimeoutImportAdder.addTimeUnitImportIfNeeded(context.getImportIndex(cu), context.getNeedTimeUnitImport().get());
+    context.applyImports();
+  }
 
-                  nae.getParentNode().ifPresent(parent -> {
-                    if (parent instanceof MethodDeclaration) {
-                      MethodDeclaration method = (MethodDeclaration) parent;
-                      NodeList<AnnotationExpr> annos = method.getAnnotations();
+  /**
+   * 处理单个 @Test(...) 注解，供单次遍历引擎直接调用
+   */
+  public static void processAnnotation(NormalAnnotationExpr nae, ConversionContext context) {
+    if ("Test".equals(nae.getNameAsString())) {
+      nae.getPairs().stream()
+          .filter(p -> "timeout".equals(p.getNameAsString()))
+          .findFirst()
+          .ifPresent(timeoutPair -> {
+            Expression timeoutValue = timeoutPair.getValue();
+            if (timeoutValue.isIntegerLiteralExpr()) {
+              long timeoutMs = timeoutValue.asIntegerLiteralExpr().asNumber().longValue();
 
-                      int idx = annos.indexOf(nae);
+              nae.getParentNode().ifPresent(parent -> {
+                if (parent instanceof MethodDeclaration) {
+                  MethodDeclaration method = (MethodDeclaration) parent;
+                  context.prepareRewrite();
+                  NodeList<AnnotationExpr> annos = method.getAnnotations();
 
-                      // 构造新的 @Timeout(xxx)
-                      NormalAnnotationExpr timeoutAnno = new NormalAnnotationExpr();
-                      timeoutAnno.setName("Timeout");
-                      timeoutAnno.addPair("value", new IntegerLiteralExpr(timeoutSec));
+                  int idx = annos.indexOf(nae);
 
-                      // 移除 timeout=xxx 这个属性
-                      nae.getPairs().remove(timeoutPair);
+                  // 构造新的 @Timeout(xxx)
+                  NormalAnnotationExpr timeoutAnno = timeoutAnnotation(timeoutValue.asIntegerLiteralExpr(),
+                      timeoutMs);
+                  if (timeoutMs % 1000 != 0) {
+                    context.getNeedTimeUnitImport().set(true);
+                  }
 
-                      // 如果 @Test(...) 中已无其它属性，就改成 Marker @Test
-                      if (nae.getPairs().isEmpty()) {
-                        MarkerAnnotationExpr markerTest = new MarkerAnnotationExpr("Test");
-                        annos.set(idx, markerTest);
-                        annos.add(idx + 1, timeoutAnno);
-                      } else {
-                        // 否则保留 @Test(...) 中的其它属性
-                        annos.add(idx + 1, timeoutAnno);
-                      }
-                      needTimeoutImport.set(true);
-                    }
-                  });
+                  // 移除 timeout=xxx 这个属性
+                  nae.getPairs().remove(timeoutPair);
+
+                  // 如果 @Test(...) 中已无其它属性，就改成 Marker @Test
+                  if (nae.getPairs().isEmpty()) {
+                    MarkerAnnotationExpr markerTest = new MarkerAnnotationExpr("Test");
+                    annos.set(idx, markerTest);
+                    annos.add(idx + 1, timeoutAnno);
+                  } else {
+                    // 否则保留 @Test(...) 中的其它属性
+                    annos.add(idx + 1, timeoutAnno);
+                  }
+                  context.getNeedTimeoutImport().set(true);
                 }
               });
-        }
-        return super.visit(nae, arg);
-      }
-    }, null);
+            }
+          });
+    }
+  }
+
+  /**
+   * 整秒时换算成秒；否则保留原来的字面量，单位为毫秒，不会把不足一秒的超时截断成 0
+   */
+  private static NormalAnnotationExpr timeoutAnnotation(IntegerLiteralExpr literal, long timeoutMs) {
+    NormalAnnotationExpr timeoutAnno = new NormalAnnotationExpr();
+    timeoutAnno.setName("Timeout");
+    if (timeoutMs % 1000 == 0) {
+      timeoutAnno.addPair("value", new IntegerLiteralExpr(Long.toString(timeoutMs / 1000)));
+    } else {
+      timeoutAnno.addPair("value", literal.clone());
+      timeoutAnno.addPair("unit", new FieldAccessExpr(new NameExpr("TimeUnit"), "MILLISECONDS"));
+    }
+    return timeoutAnno;
+  }
+
+  @Override
+  public Set<Class<? extends Node>> nodeTypes() {
+    return Set.of(NormalAnnotationExpr.class);
+  }
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("timeout");
+  }
+
+  @Override
+  public Node visit(Node node, ConversionContext context) {
+    processAnnotation((NormalAnnotationExpr) node, context);
+    return node;
   }
-}
\ No newline at end of file
+}
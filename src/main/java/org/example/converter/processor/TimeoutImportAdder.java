@@ -1,36 +1,56 @@
 package org.example.converter.processor;
 
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.ImportDeclaration;
-import com.github.javaparser.ast.NodeList;
+import org.example.converter.ConversionContext;
+import org.example.converter.processor.RuleAnnotate.RuleTimeoutProcessor;
+import org.example.util.ImportIndex;
 
-import java.util.Optional;
+import java.util.Set;
 
 /**
  * 如果需要 @Timeout，则插入相关 import
  */
-public class TimeoutImportAdder {
+public class TimeoutImportAdder implements MigrationProcessor {
+
+  private static final String TIME_UNIT = "java.util.concurrent.TimeUnit";
 
   public static void addTimeoutImportIfNeeded(CompilationUnit cu, boolean needTimeoutImport) {
-    if (!needTimeoutImport) return;
-
-    NodeList<ImportDeclaration> importList = cu.getImports();
-    // 查找是否已经有 Timeout
-    boolean hasTimeout = importList.stream()
-        .anyMatch(id -> "org.junit.jupiter.api.Timeout".equals(id.getNameAsString()));
-    if (!hasTimeout) {
-      // 找一下是否有 @Test import，想插在它后面
-      Optional<ImportDeclaration> testImportOpt = importList.stream()
-          .filter(id -> "org.junit.jupiter.api.Test".equals(id.getNameAsString()))
-          .findFirst();
-      if (testImportOpt.isPresent()) {
-        int testIndex = importList.indexOf(testImportOpt.get());
-        importList.add(testIndex + 1,
-            new ImportDeclaration("org.junit.jupiter.api.Timeout", false, false));
-      } else {
-        // 如果没找到 @Test，就直接加在末尾
-        importList.add(new ImportDeclaration("org.junit.jupiter.api.Timeout", false, false));
-      }
+    ImportIndex imports = new ImportIndex(cu);
+    addTimeoutImportIfNeeded(imports, needTimeoutImport);
+    imports.apply();
+  }
+
+  /**
+   * 写回时按名字插在同包的 import 中，通常紧跟 org.junit.jupiter.api.Test
+   */
+  public static void addTimeoutImportIfNeeded(ImportIndex imports, boolean needTimeoutImport) {
+    if (needTimeoutImport) {
+      imports.add("org.junit.jupiter.api.Timeout");
+    }
+  }
+
+  /**
+   * &#64;Timeout 的单位不是秒时需要 TimeUnit
+   */
+  public static void addTimeUnitImportIfNeeded(ImportIndex imports, boolean needTimeUnitImport) {
+    if (needTimeUnitImport && !imports.covers(TIME_UNIT)) {
+      imports.add(TIME_UNIT);
     }
   }
-}
\ No newline at end of file
+
+  @Override
+  public Set<String> triggers() {
+    return Set.of("timeout", "Timeout");
+  }
+
+  @Override
+  public Set<String> runsAfter() {
+    return Set.of(TestTimeoutProcessor.class.getSimpleName(), RuleTimeoutProcessor.class.getSimpleName());
+  }
+
+  @Override
+  public void afterTraversal(CompilationUnit cu, ConversionContext context) {
+    addTimeoutImportIfNeeded(context.getImportIndex(cu), context.getNeedTimeoutImport().get());
+    addTimeUnitImportIfNeeded(context.getImportIndex(cu), context.getNeedTimeUnitImport().get());
+  }
+}
@@ -0,0 +1,284 @@
+package org.example.daemon;
+
+import org.example.converter.ConversionManifest;
+import org.example.converter.ConversionResult;
+import org.example.converter.JUnit4ToJUnit5Converter;
+import org.example.util.CachedTypeSolver;
+import org.example.util.JavaFileDiscovery;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 常驻进程：转换器、工作线程池（以及每个工作线程的 JavaParser）、类型解析缓存与增量清单在多次请求之间保持预热，
+ * 避免 IDE 钩子或 pre-commit 脚本每次只转换几个文件时都要付出 JVM 启动、类加载与 JIT 预热的开销。
+ * <p>
+ * 请求按行读取，可以来自 stdin 或本地 Unix socket，每个连接独立处理：
+ * <pre>
+ * convert &lt;path&gt;   转换文件或目录，每个改写或失败的文件输出一行 "CONVERTED path" / "FAILED path: 原因"，
+ *                  最后一行为 "done converted=.. skipped=.. upToDate=.. failed=.. ms=.."
+ * stats            输出累计的统计（JSON），最后一行为 "done"
+ * ping             输出 "pong"
+ * quit             关闭当前连接
+ * shutdown         持久化清单与类型缓存后退出
+ * </pre>
+ * 无法识别的请求输出 "error ..."。每次转换后持久化清单与类型缓存，进程被杀掉时最多丢失正在处理的请求。
+ * <p>
+ * 类型解析器内部对源码根目录的解析结果不会因为文件修改而失效，源码根目录中的声明变化较大时需要重启。
+ */
+public class ConversionDaemon implements AutoCloseable {
+
+  private final JUnit4ToJUnit5Converter converter;
+
+  private final JavaFileDiscovery discovery;
+
+  private final ForkJoinPool pool;
+
+  // 以下两项可以为 null
+  private final ConversionManifest manifest;
+
+  private final CachedTypeSolver typeSolver;
+
+  private final List<AutoCloseable> resources = new ArrayList<>();
+
+  private final CountDownLatch stopped = new CountDownLatch(1);
+
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  public ConversionDaemon(JUnit4ToJUnit5Converter converter, JavaFileDiscovery discovery, int parallelism,
+                          ConversionManifest manifest, CachedTypeSolver typeSolver) {
+    this.converter = converter;
+    this.discovery = discovery;
+    this.pool = new ForkJoinPool(parallelism);
+    this.manifest = manifest;
+    this.typeSolver = typeSolver;
+  }
+
+  /**
+   * 转换文件或目录，目录按 include/exclude 规则遍历
+   */
+  public List<ConversionResult> convert(Collection<Path> paths) {
+    Queue<ConversionResult> results = new ConcurrentLinkedQueue<>();
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (Path path : paths) {
+      tasks.add(ForkJoinTask.adapt(() -> discovery.walk(path, file -> results.add(converter.convertQuietly(file)))));
+    }
+    pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    List<ConversionResult> flushed;
+    try {
+      // 回复之前确认文件已经写回，清单中只记录写回成功的文件
+      flushed = converter.flush(List.copyOf(results));
+    } catch (IOException e) {
+      System.err.println("Failed to flush write-back: " + e);
+      flushed = List.copyOf(results);
+    }
+    persist();
+    return flushed;
+  }
+
+  /**
+   * 监听源码根目录，文件变化后立即重新转换，结果输出到 log
+   */
+  public void watch(List<Path> roots, PrintWriter log) throws IOException {
+    SourceWatcher watcher = new SourceWatcher(discovery, changed -> {
+      List<ConversionResult> results = convert(changed);
+      synchronized (log) {
+        printResults(results, log);
+        log.flush();
+      }
+    });
+    for (Path root : roots) {
+      watcher.register(root.toAbsolutePath().normalize());
+    }
+    resources.add(watcher);
+    Thread thread = new Thread(watcher, "conversion-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * 处理 stdin 上的请求，stdin 关闭时退出
+   */
+  public void serveStdin() {
+    BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    PrintWriter out = new PrintWriter(System.out, true, StandardCharsets.UTF_8);
+    serve(in, out);
+    close();
+  }
+
+  /**
+   * 在 Unix socket 上接受连接，每个连接一个线程，直到收到 shutdown 请求。
+   * socket 文件已存在时先删除（上次异常退出留下的）
+   */
+  public void serveSocket(Path socketFile) throws IOException {
+    Files.deleteIfExists(socketFile);
+    ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(socketFile));
+    resources.add(server);
+    resources.add(() -> Files.deleteIfExists(socketFile));
+    try {
+      while (stopped.getCount() > 0) {
+        SocketChannel channel = server.accept();
+        Thread thread = new Thread(() -> serveConnection(channel), "conversion-client");
+        thread.setDaemon(true);
+        thread.start();
+      }
+    } catch (AsynchronousCloseException e) {
+      // shutdown 请求关闭了 server
+    }
+  }
+
+  private void serveConnection(SocketChannel channel) {
+    try (channel;
+         BufferedReader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+         PrintWriter out = new PrintWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), true)) {
+      serve(in, out);
+    } catch (IOException e) {
+      // 客户端断开
+    }
+  }
+
+  private void serve(BufferedReader in, PrintWriter out) {
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (!handle(line.strip(), out)) {
+          return;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return 是否继续读取当前连接上的请求
+   */
+  boolean handle(String request, PrintWriter out) {
+    if (request.isEmpty()) {
+      return true;
+    }
+    int space = request.indexOf(' ');
+    String command = space < 0 ? request : request.substring(0, space);
+    String argument = space < 0 ? "" : request.substring(space + 1).strip();
+    switch (command) {
+      case "convert" -> {
+        if (argument.isEmpty()) {
+          out.println("error missing path");
+          return true;
+        }
+        Path path = Path.of(argument).toAbsolutePath().normalize();
+        if (!Files.exists(path)) {
+          out.println("error no such file: " + path);
+          return true;
+        }
+        long start = System.nanoTime();
+        try {
+          List<ConversionResult> results = convert(List.of(path));
+          printResults(results, out);
+          out.println("done" + counts(results) + " ms=" + (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+          // 目录遍历失败等，单个文件的失败已经包含在结果中
+          out.println("error " + e);
+        }
+      }
+      case "stats" -> {
+        out.print(converter.getMetrics().toJson());
+        out.println("done");
+      }
+      case "ping" -> out.println("pong");
+      case "quit" -> {
+        return false;
+      }
+      case "shutdown" -> {
+        out.println("bye");
+        close();
+        return false;
+      }
+      default -> out.println("error unknown request: " + command);
+    }
+    return true;
+  }
+
+  private static void printResults(List<ConversionResult> results, PrintWriter out) {
+    for (ConversionResult result : results) {
+      switch (result.status()) {
+        case CONVERTED -> out.println("CONVERTED " + result.path());
+        case FAILED -> out.println("FAILED " + result.path() + ": " + result.error());
+        default -> {
+        }
+      }
+    }
+  }
+
+  private static String counts(List<ConversionResult> results) {
+    StringBuilder sb = new StringBuilder();
+    for (ConversionResult.Status status : ConversionResult.Status.values()) {
+      long count = results.stream().filter(result -> result.status() == status).count();
+      String name = status == ConversionResult.Status.UP_TO_DATE ? "upToDate" : status.name().toLowerCase();
+      sb.append(' ').append(name).append('=').append(count);
+    }
+    return sb.toString();
+  }
+
+  private void persist() {
+    try {
+      if (manifest != null) {
+        manifest.persist();
+      }
+      if (typeSolver != null) {
+        typeSolver.persist();
+      }
+    } catch (IOException e) {
+      System.err.println("Failed to persist caches: " + e);
+    }
+  }
+
+  /**
+   * 阻塞直到收到 shutdown 请求或 stdin 关闭
+   */
+  public void awaitShutdown() throws InterruptedException {
+    stopped.await();
+  }
+
+  /**
+   * 停止监听与接受连接，持久化清单与类型缓存，可重复调用
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    stopped.countDown();
+    for (AutoCloseable resource : resources) {
+      try {
+        resource.close();
+      } catch (Exception e) {
+        System.err.println("Failed to close " + resource + ": " + e);
+      }
+    }
+    pool.shutdown();
+    persist();
+  }
+}
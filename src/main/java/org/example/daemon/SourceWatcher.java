@@ -0,0 +1,144 @@
+package org.example.daemon;
+
+import org.example.util.JavaFileDiscovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 用 WatchService 监听源码根目录（递归注册所有未被排除的子目录），把变化的候选文件成批交给 sink。
+ * <p>
+ * 编辑器保存一个文件往往产生多个事件，收到事件后等待 {@link #QUIET_PERIOD_MILLIS} 内没有新事件再提交，
+ * 同一批中的文件去重。新建的目录会被注册，其中已有的文件一并提交；事件溢出时提交整个根目录重新扫描。
+ * 转换器写回文件也会触发一次事件，再次处理时文件已没有 JUnit4 引用（或与清单一致），很快跳过。
+ */
+public class SourceWatcher implements Runnable, Closeable {
+
+  static final long QUIET_PERIOD_MILLIS = 200;
+
+  private final JavaFileDiscovery discovery;
+
+  private final Consumer<Set<Path>> sink;
+
+  private final WatchService watchService;
+
+  // 注册的目录 -> 它所属的根目录，include/exclude 相对于根目录匹配
+  private final Map<WatchKey, Path[]> directories = new ConcurrentHashMap<>();
+
+  public SourceWatcher(JavaFileDiscovery discovery, Consumer<Set<Path>> sink) throws IOException {
+    this.discovery = discovery;
+    this.sink = sink;
+    this.watchService = FileSystems.getDefault().newWatchService();
+  }
+
+  /**
+   * 递归注册 root 下的目录
+   */
+  public void register(Path root) throws IOException {
+    register(root, root, null);
+  }
+
+  /**
+   * @param existing 不为 null 时收集目录中已有的候选文件
+   */
+  private void register(Path root, Path start, Set<Path> existing) throws IOException {
+    Files.walkFileTree(start, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        if (!discovery.acceptsDirectory(root, dir)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        directories.put(key, new Path[]{root, dir});
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (existing != null && discovery.accepts(root, file)) {
+          existing.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        Set<Path> changed = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        // 合并静默期内的所有事件
+        while (key != null) {
+          collect(key, changed);
+          key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (!changed.isEmpty()) {
+          try {
+            sink.accept(changed);
+          } catch (RuntimeException e) {
+            System.err.println("Failed to convert changed files: " + e);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      // close() 结束监听
+    }
+  }
+
+  private void collect(WatchKey key, Set<Path> changed) {
+    Path[] watched = directories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (watched == null) {
+        continue;
+      }
+      Path root = watched[0];
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        changed.add(root);
+        continue;
+      }
+      Path path = watched[1].resolve((Path) event.context());
+      if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+          try {
+            register(root, path, changed);
+          } catch (IOException e) {
+            // 目录在注册前又被删除
+          }
+        }
+      } else if (discovery.accepts(root, path) && Files.isRegularFile(path)) {
+        changed.add(path);
+      }
+    }
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,243 @@
+package org.example.metrics;
+
+import org.example.converter.ConversionResult;
+import org.example.util.CachedTypeSolver;
+import org.example.util.HeapBudget;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次运行的全局统计：各阶段耗时、每个处理器的耗时与改写次数、各状态的文件数。
+ * 每个文件结束时由转换线程调用 {@link #record}，可在线程间共享
+ */
+public class ConversionMetrics {
+
+  private final long startNanos = System.nanoTime();
+
+  private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+
+  private final Map<Phase, LongAdder> phaseFiles = new EnumMap<>(Phase.class);
+
+  private final Map<ConversionResult.Status, LongAdder> files =
+      new EnumMap<>(ConversionResult.Status.class);
+
+  private final Map<String, ProcessorTotals> processors = new ConcurrentHashMap<>();
+
+  // 转换使用的堆内存预算，未启用时为 null
+  private volatile HeapBudget heapBudget;
+
+  public ConversionMetrics() {
+    for (Phase phase : Phase.values()) {
+      phaseNanos.put(phase, new LongAdder());
+      phaseFiles.put(phase, new LongAdder());
+    }
+    for (ConversionResult.Status status : ConversionResult.Status.values()) {
+      files.put(status, new LongAdder());
+    }
+  }
+
+  public void setHeapBudget(HeapBudget heapBudget) {
+    this.heapBudget = heapBudget;
+  }
+
+  /**
+   * 汇总一个文件的统计，file 为 null 时（例如读取前就失败）只计数
+   */
+  public void record(FileMetrics file, ConversionResult result) {
+    files.get(result.status()).increment();
+    if (file == null) {
+      return;
+    }
+    for (Phase phase : Phase.values()) {
+      long nanos = file.getPhaseNanos(phase);
+      if (nanos > 0) {
+        phaseNanos.get(phase).add(nanos);
+        phaseFiles.get(phase).increment();
+      }
+    }
+    for (FileMetrics.ProcessorStats stats : file.getProcessors()) {
+      ProcessorTotals totals = processors.computeIfAbsent(stats.getName(), k -> new ProcessorTotals());
+      totals.nanos.add(stats.getNanos());
+      totals.invocations.add(stats.getInvocations());
+      totals.rewrites.add(stats.getRewrites());
+    }
+  }
+
+  /**
+   * 汇总不在转换线程内计时的阶段，例如异步写回线程中的写入
+   */
+  public void record(Phase phase, long nanos) {
+    phaseNanos.get(phase).add(nanos);
+    phaseFiles.get(phase).increment();
+  }
+
+  /**
+   * 已经计入的文件状态发生变化，例如异步写回失败时由 CONVERTED 改为 FAILED
+   */
+  public void reclassify(ConversionResult.Status from, ConversionResult.Status to) {
+    files.get(from).decrement();
+    files.get(to).increment();
+  }
+
+  public long filesProcessed() {
+    long total = 0;
+    for (LongAdder count : files.values()) {
+      total += count.sum();
+    }
+    return total;
+  }
+
+  public long files(ConversionResult.Status status) {
+    return files.get(status).sum();
+  }
+
+  public long elapsedNanos() {
+    return System.nanoTime() - startNanos;
+  }
+
+  public double filesPerSecond() {
+    long elapsed = elapsedNanos();
+    return elapsed == 0 ? 0 : filesProcessed() * 1e9 / elapsed;
+  }
+
+  /**
+   * 按扩展名写出汇总：.csv 写 CSV，其它写 JSON
+   */
+  public void writeSummary(Path file) throws IOException {
+    String summary = file.getFileName().toString().endsWith(".csv") ? toCsv() : toJson();
+    Files.writeString(file, summary, StandardCharsets.UTF_8);
+  }
+
+  public String toJson() {
+    StringBuilder sb = new StringBuilder("{\n");
+    sb.append("  \"files\": {");
+    sb.append("\"total\": ").append(filesProcessed());
+    for (ConversionResult.Status status : ConversionResult.Status.values()) {
+      sb.append(", \"").append(status.name().toLowerCase(Locale.ROOT)).append("\": ")
+          .append(files(status));
+    }
+    sb.append("},\n");
+    sb.append("  \"wallTimeMs\": ").append(millis(elapsedNanos())).append(",\n");
+    sb.append("  \"filesPerSecond\": ").append(format(filesPerSecond())).append(",\n");
+
+    sb.append("  \"phases\": {");
+    String separator = "\n";
+    for (Phase phase : Phase.values()) {
+      sb.append(separator).append("    \"").append(phase.name()).append("\": {\"files\": ")
+          .append(phaseFiles.get(phase).sum()).append(", \"totalMs\": ")
+          .append(millis(phaseNanos.get(phase).sum())).append('}');
+      separator = ",\n";
+    }
+    sb.append("\n  },\n");
+
+    sb.append("  \"processors\": {");
+    separator = "\n";
+    for (Map.Entry<String, ProcessorTotals> entry : sortedProcessors().entrySet()) {
+      ProcessorTotals totals = entry.getValue();
+      sb.append(separator).append("    \"").append(escape(entry.getKey())).append("\": {\"invocations\": ")
+          .append(totals.invocations.sum()).append(", \"rewrites\": ").append(totals.rewrites.sum())
+          .append(", \"totalMs\": ").append(millis(totals.nanos.sum())).append('}');
+      separator = ",\n";
+    }
+    sb.append(processors.isEmpty() ? "},\n" : "\n  },\n");
+
+    Optional<CachedTypeSolver> solver = CachedTypeSolver.shared();
+    sb.append("  \"symbolResolution\": ");
+    if (solver.isPresent()) {
+      sb.append("{\"lookups\": ").append(solver.get().lookups())
+          .append(", \"resolutions\": ").append(solver.get().resolutions())
+          .append(", \"totalMs\": ").append(millis(solver.get().resolveNanos())).append('}');
+    } else {
+      sb.append("null");
+    }
+    sb.append(",\n");
+
+    HeapBudget budget = heapBudget;
+    sb.append("  \"heapBudget\": ");
+    if (budget != null) {
+      sb.append("{\"ceilingMb\": ").append(budget.ceiling() >> 20)
+          .append(", \"limitMb\": ").append(budget.limit() >> 20)
+          .append(", \"peakInFlightMb\": ").append(budget.peakInFlight() >> 20)
+          .append(", \"waits\": ").append(budget.waits())
+          .append(", \"shrinks\": ").append(budget.shrinks())
+          .append(", \"waitMs\": ").append(millis(budget.waitNanos())).append('}');
+    } else {
+      sb.append("null");
+    }
+    sb.append("\n}\n");
+    return sb.toString();
+  }
+
+  public String toCsv() {
+    StringBuilder sb = new StringBuilder("kind,name,count,rewrites,total_ms\n");
+    for (ConversionResult.Status status : ConversionResult.Status.values()) {
+      sb.append("files,").append(status.name()).append(',').append(files(status)).append(",,\n");
+    }
+    sb.append("run,wall_time,").append(filesProcessed()).append(",,")
+        .append(millis(elapsedNanos())).append('\n');
+    for (Phase phase : Phase.values()) {
+      sb.append("phase,").append(phase.name()).append(',').append(phaseFiles.get(phase).sum())
+          .append(",,").append(millis(phaseNanos.get(phase).sum())).append('\n');
+    }
+    for (Map.Entry<String, ProcessorTotals> entry : sortedProcessors().entrySet()) {
+      ProcessorTotals totals = entry.getValue();
+      sb.append("processor,").append(entry.getKey()).append(',').append(totals.invocations.sum())
+          .append(',').append(totals.rewrites.sum()).append(',').append(millis(totals.nanos.sum()))
+          .append('\n');
+    }
+    CachedTypeSolver.shared().ifPresent(solver -> sb.append("symbol_resolution,resolve,")
+        .append(solver.resolutions()).append(",,").append(millis(solver.resolveNanos())).append('\n'));
+    HeapBudget budget = heapBudget;
+    if (budget != null) {
+      sb.append("heap_budget,wait,").append(budget.waits()).append(",,")
+          .append(millis(budget.waitNanos())).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * 进度行：已处理文件数、各状态数量与每秒文件数
+   */
+  public String progressLine() {
+    return String.format(Locale.ROOT,
+        "%d files (%d converted, %d skipped, %d up-to-date, %d failed), %.1f files/s",
+        filesProcessed(), files(ConversionResult.Status.CONVERTED),
+        files(ConversionResult.Status.SKIPPED), files(ConversionResult.Status.UP_TO_DATE),
+        files(ConversionResult.Status.FAILED), filesPerSecond());
+  }
+
+  private Map<String, ProcessorTotals> sortedProcessors() {
+    return new TreeMap<>(processors);
+  }
+
+  private static String millis(long nanos) {
+    return format(nanos / 1e6);
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private static final class ProcessorTotals {
+
+    private final LongAdder nanos = new LongAdder();
+
+    private final LongAdder invocations = new LongAdder();
+
+    private final LongAdder rewrites = new LongAdder();
+  }
+}
@@ -0,0 +1,27 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 单个文件完整转换过程的 JFR 事件
+ */
+@Name("org.example.FileConversion")
+@Label("File Conversion")
+@Category({"JUnit Migration"})
+@Description("Conversion of one file, from reading to writing back")
+@StackTrace(false)
+public class FileEvent extends jdk.jfr.Event {
+
+  @Label("Path")
+  public String path;
+
+  @Label("Status")
+  public String status;
+
+  @Label("Rewrites")
+  public long rewrites;
+}
@@ -0,0 +1,184 @@
+package org.example.metrics;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个文件一次转换过程中的计时与改写计数，只在转换该文件的线程内使用，不是线程安全的。
+ * 文件结束后由 {@link ConversionMetrics#record} 汇总到全局统计
+ * <p>
+ * 阶段可以嵌套（例如 LEXICAL_SETUP 发生在 PROCESS 中），嵌套阶段的耗时不计入外层阶段，
+ * 也不计入正在执行的处理器
+ */
+public class FileMetrics {
+
+  private final Path path;
+
+  private final long[] phaseNanos = new long[Phase.values().length];
+
+  private final Map<String, ProcessorStats> processors = new LinkedHashMap<>();
+
+  // 当前未结束的阶段，用于扣除嵌套阶段的耗时
+  private PhaseTimer openPhase;
+
+  // 当前正在执行的处理器
+  private ProcessorStats current;
+
+  private long currentStart;
+
+  // 当前处理器执行期间嵌套阶段的耗时
+  private long currentExcluded;
+
+  private long rewrites;
+
+  public FileMetrics(Path path) {
+    this.path = path;
+  }
+
+  /**
+   * 开始计时一个阶段，调用方在 finally 中 close
+   */
+  public PhaseTimer time(Phase phase) {
+    PhaseTimer timer = new PhaseTimer(phase, openPhase);
+    openPhase = timer;
+    return timer;
+  }
+
+  public void beginProcessor(String name) {
+    current = processors.computeIfAbsent(name, ProcessorStats::new);
+    currentExcluded = 0;
+    currentStart = System.nanoTime();
+  }
+
+  public void endProcessor() {
+    if (current == null) {
+      return;
+    }
+    current.nanos += System.nanoTime() - currentStart - currentExcluded;
+    current.invocations++;
+    current = null;
+  }
+
+  /**
+   * 记录一次改写，计入当前正在执行的处理器
+   */
+  public void countRewrite() {
+    rewrites++;
+    if (current != null) {
+      current.rewrites++;
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public long getPhaseNanos(Phase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  public Collection<ProcessorStats> getProcessors() {
+    return processors.values();
+  }
+
+  public long getRewrites() {
+    return rewrites;
+  }
+
+  /**
+   * 提交每个处理器在本文件上的汇总 JFR 事件，JFR 未开启时直接返回
+   */
+  public void commitProcessorEvents() {
+    if (processors.isEmpty() || !new ProcessorEvent().isEnabled()) {
+      return;
+    }
+    for (ProcessorStats stats : processors.values()) {
+      ProcessorEvent event = new ProcessorEvent();
+      event.path = String.valueOf(path);
+      event.processor = stats.name;
+      event.processingTime = stats.nanos;
+      event.invocations = stats.invocations;
+      event.rewrites = stats.rewrites;
+      event.commit();
+    }
+  }
+
+  /**
+   * 单个处理器在本文件上的累计值
+   */
+  public static final class ProcessorStats {
+
+    private final String name;
+
+    private long nanos;
+
+    private long invocations;
+
+    private long rewrites;
+
+    ProcessorStats(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    public long getInvocations() {
+      return invocations;
+    }
+
+    public long getRewrites() {
+      return rewrites;
+    }
+  }
+
+  /**
+   * 一个阶段的计时，关闭时记录耗时并提交 JFR 事件
+   */
+  public final class PhaseTimer implements AutoCloseable {
+
+    private final Phase phase;
+
+    private final PhaseTimer parent;
+
+    private final PhaseEvent event = new PhaseEvent();
+
+    private final long start;
+
+    private long nested;
+
+    private PhaseTimer(Phase phase, PhaseTimer parent) {
+      this.phase = phase;
+      this.parent = parent;
+      event.begin();
+      this.start = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+      long elapsed = System.nanoTime() - start;
+      phaseNanos[phase.ordinal()] += elapsed - nested;
+      if (parent != null) {
+        parent.nested += elapsed;
+      }
+      if (current != null) {
+        currentExcluded += elapsed;
+      }
+      openPhase = parent;
+
+      event.end();
+      if (event.shouldCommit()) {
+        event.path = String.valueOf(path);
+        event.phase = phase.name();
+        event.commit();
+      }
+    }
+  }
+}
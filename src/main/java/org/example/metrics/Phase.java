@@ -0,0 +1,23 @@
+package org.example.metrics;
+
+/**
+ * 单个文件转换过程中的阶段
+ */
+public enum Phase {
+  // 预过滤与读取文件
+  READ,
+  // 等待堆内存预算，见 HeapBudget
+  ADMISSION,
+  // 大文件的 token 区间改写（见 TokenSpanRewriter），回退到完整路径时也计入
+  SPAN_REWRITE,
+  // 解析为 CompilationUnit
+  PARSE,
+  // LexicalPreservingPrinter.setup，只有需要修改的文件才会执行
+  LEXICAL_SETUP,
+  // 执行全部处理器（不含其中的 LEXICAL_SETUP）
+  PROCESS,
+  // LexicalPreservingPrinter.print
+  PRINT,
+  // 写回文件
+  WRITE
+}
@@ -0,0 +1,24 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 单个文件某个阶段的 JFR 事件，事件的持续时间即阶段耗时
+ */
+@Name("org.example.ConversionPhase")
+@Label("Conversion Phase")
+@Category({"JUnit Migration"})
+@Description("One phase (read, parse, lexical setup, process, print, write) of converting a file")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Phase")
+  String phase;
+}
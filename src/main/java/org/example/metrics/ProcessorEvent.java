@@ -0,0 +1,36 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 单个处理器在一个文件上的汇总 JFR 事件。
+ * 处理器在单次遍历中按节点交错执行，因此每个文件结束时提交一次汇总，而不是每个节点一个事件
+ */
+@Name("org.example.Processor")
+@Label("Processor")
+@Category({"JUnit Migration"})
+@Description("Time spent and rewrites made by one processor on one file")
+@StackTrace(false)
+public class ProcessorEvent extends jdk.jfr.Event {
+
+  @Label("Path")
+  String path;
+
+  @Label("Processor")
+  String processor;
+
+  @Label("Processing Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long processingTime;
+
+  @Label("Invocations")
+  long invocations;
+
+  @Label("Rewrites")
+  long rewrites;
+}
@@ -0,0 +1,54 @@
+package org.example.metrics;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时输出进度行（已处理文件数与每秒文件数），在终端上原地刷新，重定向到文件时逐行输出
+ */
+public class ProgressReporter implements AutoCloseable {
+
+  private final ConversionMetrics metrics;
+
+  private final PrintStream out;
+
+  private final boolean interactive = System.console() != null;
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "conversion-progress");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public ProgressReporter(ConversionMetrics metrics, PrintStream out, Duration interval) {
+    this.metrics = metrics;
+    this.out = out;
+    long millis = interval.toMillis();
+    scheduler.scheduleAtFixedRate(this::print, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void print() {
+    String line = "[progress] " + metrics.progressLine();
+    if (interactive) {
+      out.print("\r" + line);
+    } else {
+      out.println(line);
+    }
+    out.flush();
+  }
+
+  /**
+   * 停止定时输出并打印最终的进度行
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    print();
+    if (interactive) {
+      out.println();
+    }
+  }
+}
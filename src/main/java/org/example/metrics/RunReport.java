@@ -0,0 +1,283 @@
+package org.example.metrics;
+
+import org.example.converter.ConversionResult;
+import org.example.converter.Shard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次运行（或一个分片）的完整报告：{@link ConversionMetrics#toCsv()} 的统计行、分片行与每个文件的结果行，
+ * 同一个 CSV 文件，第六列 detail 只有结果行使用。
+ * <pre>
+ * kind,name,count,rewrites,total_ms,detail
+ * shard,2/8,1342,,61234.500,
+ * processor,JUnit4ImportProcessor,1342,1290,812.004,
+ * result,hadoop-hdfs/src/test/java/.../TestFoo.java,1,,35.120,CONVERTED
+ * result,hadoop-hdfs/src/test/java/.../TestBar.java,1,,3.004,FAILED: java.io.IOException: ...
+ * </pre>
+ * 多个分片的报告由 {@link #merge} 合并为一份：统计行按 (kind, name) 累加，墙钟时间取最慢的分片，
+ * 分片行与结果行直接拼接，因此合并后的报告还可以再次合并。
+ */
+public final class RunReport {
+
+  private static final String HEADER = "kind,name,count,rewrites,total_ms,detail";
+
+  private static final String SHARD = "shard";
+
+  private static final String RESULT = "result";
+
+  // 统计行：kind,name -> 数值，按出现顺序
+  private final Map<String, Metric> metrics = new LinkedHashMap<>();
+
+  private final List<ShardRow> shards = new ArrayList<>();
+
+  private final List<ResultRow> results = new ArrayList<>();
+
+  // 合并时发现的问题：缺少或重复的分片、出现在多个分片中的文件
+  private final List<String> problems = new ArrayList<>();
+
+  private record Metric(String kind, String name, Long count, Long rewrites, Double millis) {
+
+    Metric plus(Metric other) {
+      // 各分片并行执行，整体耗时取最慢的分片，其它耗时是各分片之和
+      Double total = "run".equals(kind) ? max(millis, other.millis) : sum(millis, other.millis);
+      return new Metric(kind, name, sum(count, other.count), sum(rewrites, other.rewrites), total);
+    }
+  }
+
+  private record ShardRow(String shard, long files, double millis) {
+  }
+
+  private record ResultRow(String path, String status, double millis, String error) {
+  }
+
+  private RunReport() {
+  }
+
+  /**
+   * 当前进程的报告
+   *
+   * @param base 结果行中的路径相对于 base，与 {@link Shard} 的划分一致；为 null 时保留原路径
+   */
+  public static RunReport of(Shard shard, Path base, List<ConversionResult> results, ConversionMetrics metrics) {
+    RunReport report = parse(metrics.toCsv());
+    report.shards.add(new ShardRow(shard.toString(), results.size(), metrics.elapsedNanos() / 1e6));
+    for (ConversionResult result : results) {
+      Path path = base != null && result.path().startsWith(base) ? base.relativize(result.path()) : result.path();
+      String error = result.error() == null ? null : result.error().toString();
+      report.results.add(new ResultRow(path.toString().replace(File.separatorChar, '/'), result.status().name(),
+          result.elapsedNanos() / 1e6, error));
+    }
+    return report;
+  }
+
+  public static RunReport read(Path file) throws IOException {
+    return parse(Files.readString(file, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * 合并多个分片的报告，{@link #problems()} 中记录缺少或重复的分片与重复转换的文件
+   */
+  public static RunReport merge(List<RunReport> reports) {
+    RunReport merged = new RunReport();
+    for (RunReport report : reports) {
+      report.metrics.forEach((key, metric) -> merged.metrics.merge(key, metric, Metric::plus));
+      merged.shards.addAll(report.shards);
+      merged.results.addAll(report.results);
+    }
+    merged.checkShards();
+    Set<String> seen = new HashSet<>();
+    for (ResultRow result : merged.results) {
+      if (!seen.add(result.path())) {
+        merged.problems.add("converted by more than one shard: " + result.path());
+      }
+    }
+    return merged;
+  }
+
+  public List<String> problems() {
+    return List.copyOf(problems);
+  }
+
+  public void write(Path file) throws IOException {
+    StringBuilder sb = new StringBuilder(HEADER).append('\n');
+    for (ShardRow shard : shards) {
+      row(sb, SHARD, shard.shard(), String.valueOf(shard.files()), "", format(shard.millis()), "");
+    }
+    for (Metric metric : metrics.values()) {
+      row(sb, metric.kind(), metric.name(), text(metric.count()), text(metric.rewrites()),
+          metric.millis() == null ? "" : format(metric.millis()), "");
+    }
+    for (ResultRow result : results) {
+      row(sb, RESULT, result.path(), "1", "", format(result.millis()),
+          result.error() == null ? result.status() : result.status() + ": " + result.error());
+    }
+    Files.writeString(file, sb, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 输出各分片的文件数与耗时、各状态的文件数，以及失败的文件
+   */
+  public void printSummary(PrintStream out) {
+    for (ShardRow shard : shards) {
+      out.printf(Locale.ROOT, "shard %-8s %8d files %12.3f ms%n", shard.shard(), shard.files(), shard.millis());
+    }
+    Map<ConversionResult.Status, Integer> counts = new EnumMap<>(ConversionResult.Status.class);
+    for (ResultRow result : results) {
+      try {
+        counts.merge(ConversionResult.Status.valueOf(result.status()), 1, Integer::sum);
+      } catch (IllegalArgumentException e) {
+        // 其它版本写出的未知状态不计入
+      }
+    }
+    out.printf(Locale.ROOT, "%d files (%d converted, %d skipped, %d up-to-date, %d failed)%n", results.size(),
+        counts.getOrDefault(ConversionResult.Status.CONVERTED, 0),
+        counts.getOrDefault(ConversionResult.Status.SKIPPED, 0),
+        counts.getOrDefault(ConversionResult.Status.UP_TO_DATE, 0),
+        counts.getOrDefault(ConversionResult.Status.FAILED, 0));
+    for (ResultRow result : results) {
+      if (ConversionResult.Status.FAILED.name().equals(result.status())) {
+        out.println("Failed: " + result.path() + " -> " + result.error());
+      }
+    }
+    for (String problem : problems) {
+      out.println("Warning: " + problem);
+    }
+  }
+
+  // 所有分片的总数应一致，1..N 各出现一次
+  private void checkShards() {
+    Set<Integer> counts = new HashSet<>();
+    BitSet present = new BitSet();
+    for (ShardRow row : shards) {
+      Shard shard = Shard.parse(row.shard());
+      counts.add(shard.count());
+      if (present.get(shard.index())) {
+        problems.add("duplicate shard " + shard);
+      }
+      present.set(shard.index());
+    }
+    if (counts.size() > 1) {
+      problems.add("shards of different counts: " + counts);
+    } else if (counts.size() == 1) {
+      int count = counts.iterator().next();
+      for (int i = 1; i <= count; i++) {
+        if (!present.get(i)) {
+          problems.add("missing shard " + i + "/" + count);
+        }
+      }
+    }
+  }
+
+  private static RunReport parse(String csv) {
+    RunReport report = new RunReport();
+    String[] lines = csv.split("\\R");
+    for (int i = 1; i < lines.length; i++) {
+      if (lines[i].isEmpty()) {
+        continue;
+      }
+      List<String> fields = fields(lines[i]);
+      while (fields.size() < 6) {
+        fields.add("");
+      }
+      String kind = fields.get(0);
+      String name = fields.get(1);
+      switch (kind) {
+        case SHARD -> report.shards.add(new ShardRow(name, Long.parseLong(fields.get(2)),
+            Double.parseDouble(fields.get(4))));
+        case RESULT -> {
+          String detail = fields.get(5);
+          int colon = detail.indexOf(": ");
+          report.results.add(new ResultRow(name, colon < 0 ? detail : detail.substring(0, colon),
+              Double.parseDouble(fields.get(4)), colon < 0 ? null : detail.substring(colon + 2)));
+        }
+        default -> report.metrics.put(kind + ',' + name, new Metric(kind, name, parseLong(fields.get(2)),
+            parseLong(fields.get(3)), fields.get(4).isEmpty() ? null : Double.parseDouble(fields.get(4))));
+      }
+    }
+    return report;
+  }
+
+  // 拆分一行 CSV，支持双引号包围的字段
+  private static List<String> fields(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private static void row(StringBuilder sb, String... fields) {
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      // 异常信息可能有多行，报告中一行一条记录
+      String field = fields[i].replaceAll("\\R", " ");
+      if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0) {
+        sb.append('"').append(field.replace("\"", "\"\"")).append('"');
+      } else {
+        sb.append(field);
+      }
+    }
+    sb.append('\n');
+  }
+
+  private static Long parseLong(String value) {
+    return value.isEmpty() ? null : Long.parseLong(value);
+  }
+
+  private static String text(Long value) {
+    return value == null ? "" : value.toString();
+  }
+
+  private static Long sum(Long a, Long b) {
+    return a == null ? b : b == null ? a : Long.valueOf(a + b);
+  }
+
+  private static Double sum(Double a, Double b) {
+    return a == null ? b : b == null ? a : Double.valueOf(a + b);
+  }
+
+  private static Double max(Double a, Double b) {
+    return a == null ? b : b == null ? a : Double.valueOf(Math.max(a, b));
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+}
@@ -0,0 +1,24 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次未命中缓存的类型解析的 JFR 事件
+ */
+@Name("org.example.SymbolResolution")
+@Label("Symbol Resolution")
+@Category({"JUnit Migration"})
+@Description("Resolving the type of an expression with the shared symbol solver (cache misses only)")
+@StackTrace(false)
+public class SymbolResolutionEvent extends jdk.jfr.Event {
+
+  @Label("Expression")
+  public String expression;
+
+  @Label("Resolved Type")
+  public String resolvedType;
+}
@@ -0,0 +1,144 @@
+package org.example.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * 基于 Aho-Corasick 的字节级多模式匹配器，直接在 ByteBuffer 上扫描，不做任何 String 解码
+ * <p>
+ * 构建时把 goto/failure 函数展开成完整的 DFA 转移表，扫描时每个字节只需一次查表；
+ * 每个模式属于一个分组（0~63），扫描结果是命中分组的位掩码。
+ * 模式按 UTF-8 编码，因此只适合 ASCII 触发词（java 关键字、包名、注解名等）。
+ * 构建完成后不可变，可在线程间共享。
+ */
+public class ByteMultiPatternMatcher {
+
+  private static final int ALPHABET = 256;
+
+  // 转移表：state * 256 + byte -> 下一个状态
+  private final int[] delta;
+
+  // 每个状态命中的分组位掩码（已沿 failure 链合并）
+  private final long[] output;
+
+  private ByteMultiPatternMatcher(int[] delta, long[] output) {
+    this.delta = delta;
+    this.output = output;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * 扫描 buffer 的 [position, limit) 区间，不修改 buffer 的 position
+   *
+   * @param stopMask 一旦命中的分组覆盖了 stopMask 就提前结束，传 0 表示命中任意分组即结束
+   * @return 命中分组的位掩码
+   */
+  public long scan(ByteBuffer buffer, long stopMask) {
+    long found = 0;
+    int state = 0;
+    int[] delta = this.delta;
+    long[] output = this.output;
+    for (int i = buffer.position(), limit = buffer.limit(); i < limit; i++) {
+      state = delta[(state << 8) | (buffer.get(i) & 0xFF)];
+      long hit = output[state];
+      if (hit != 0) {
+        found |= hit;
+        if (stopMask == 0 || (found & stopMask) == stopMask) {
+          return found;
+        }
+      }
+    }
+    return found;
+  }
+
+  public static class Builder {
+
+    private final List<byte[]> patterns = new ArrayList<>();
+
+    private final List<Integer> groups = new ArrayList<>();
+
+    public Builder add(int group, String... tokens) {
+      if (group < 0 || group >= Long.SIZE) {
+        throw new IllegalArgumentException("group must be in [0, 63]: " + group);
+      }
+      for (String token : tokens) {
+        if (token.isEmpty()) {
+          throw new IllegalArgumentException("empty token");
+        }
+        patterns.add(token.getBytes(StandardCharsets.UTF_8));
+        groups.add(group);
+      }
+      return this;
+    }
+
+    public ByteMultiPatternMatcher build() {
+      // 1) 构建 trie
+      List<int[]> gotoTable = new ArrayList<>();
+      List<Long> outputs = new ArrayList<>();
+      gotoTable.add(newRow());
+      outputs.add(0L);
+      for (int p = 0; p < patterns.size(); p++) {
+        int state = 0;
+        for (byte b : patterns.get(p)) {
+          int c = b & 0xFF;
+          if (gotoTable.get(state)[c] < 0) {
+            gotoTable.get(state)[c] = gotoTable.size();
+            gotoTable.add(newRow());
+            outputs.add(0L);
+          }
+          state = gotoTable.get(state)[c];
+        }
+        outputs.set(state, outputs.get(state) | (1L << groups.get(p)));
+      }
+
+      // 2) BFS 计算 failure，同时把缺失的转移补全为 DFA
+      int states = gotoTable.size();
+      int[] delta = new int[states * ALPHABET];
+      long[] output = new long[states];
+      int[] failure = new int[states];
+      for (int s = 0; s < states; s++) {
+        output[s] = outputs.get(s);
+      }
+      Queue<Integer> queue = new ArrayDeque<>();
+      for (int c = 0; c < ALPHABET; c++) {
+        int next = gotoTable.get(0)[c];
+        if (next < 0) {
+          delta[c] = 0;
+        } else {
+          delta[c] = next;
+          failure[next] = 0;
+          queue.add(next);
+        }
+      }
+      while (!queue.isEmpty()) {
+        int state = queue.poll();
+        output[state] |= output[failure[state]];
+        for (int c = 0; c < ALPHABET; c++) {
+          int next = gotoTable.get(state)[c];
+          if (next < 0) {
+            delta[(state << 8) | c] = delta[(failure[state] << 8) | c];
+          } else {
+            delta[(state << 8) | c] = next;
+            failure[next] = delta[(failure[state] << 8) | c];
+            queue.add(next);
+          }
+        }
+      }
+      return new ByteMultiPatternMatcher(delta, output);
+    }
+
+    private static int[] newRow() {
+      int[] row = new int[ALPHABET];
+      Arrays.fill(row, -1);
+      return row;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+package org.example.util;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JarTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import org.example.metrics.SymbolResolutionEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 整个项目共享的类型解析器：由项目的源码根目录与依赖 jar 构建 CombinedTypeSolver，
+ * 并对解析结果做记忆化缓存（包括解析失败的结果），可选地持久化到磁盘供下次运行复用。
+ * <p>
+ * JavaParser 的 TypeSolver 与 JavaParserFacade 内部缓存不是线程安全的，每个线程使用自己的一份 TypeSolver，
+ * 解析之间不加锁；缓存是并发 Map，命中时同样不竞争。
+ * 代价是依赖源码的语法树在每个线程中各解析、各保存一份，且不计入 {@link HeapBudget}，
+ * 因此每个线程的 JavaParserTypeSolver 最多保留 {@link #PARSED_FILES_PER_THREAD} 个文件，超出后按需重新解析，
+ * 以少量重复解析换取与线程数成正比、但有上限的内存占用。
+ * <p>
+ * 缓存以 文件路径 + 文件内容哈希 + 表达式位置 + 表达式文本 为键，文件本身改变后旧的键不再命中；
+ * 内容哈希由转换时通过 {@link #recordSource} 记录，没有记录的语法树不缓存。
+ * 表达式的类型还取决于其它文件与 jar 中的声明，因此持久化的缓存同时保存依赖的指纹
+ * （每个 jar 与源码根目录下每个 .java 文件的路径、大小、修改时间），加载时指纹不一致则整个丢弃。
+ * 指纹在持久化时重新计算：本次运行改写的测试文件修改时间已经改变，沿用启动时的指纹会让下次运行总是丢弃缓存；
+ * 转换只改写注解、断言调用与 import，不改变其它文件解析到的类型，已有的缓存项仍然有效。
+ */
+public class CachedTypeSolver {
+
+  // 解析失败时缓存的值
+  private static final String UNRESOLVED = "";
+
+  // 持久化文件中保存依赖指纹的键，缓存的键都以文件路径开头，不会与它冲突
+  private static final String FINGERPRINT_KEY = "@fingerprint";
+
+  // 每个线程的 JavaParserTypeSolver 最多缓存的依赖源码文件数；
+  // 按 Hadoop 单个文件解析后约 0.5 MB 估算，每个线程约 64 MB
+  public static final int PARSED_FILES_PER_THREAD = 128;
+
+  // 语法树对应的源码内容哈希
+  private static final DataKey<String> SOURCE_HASH = new DataKey<>() {
+  };
+
+  private static volatile CachedTypeSolver shared;
+
+  private final List<Path> sourceRoots;
+
+  private final List<Path> jars;
+
+  // 每个线程独享的 TypeSolver，第一次解析时才构建
+  private final ThreadLocal<TypeSolver> typeSolvers;
+
+  private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+  private final Path cacheFile;
+
+  // 查询次数、实际解析（未命中缓存）次数与解析耗时，用于运行结束时的统计
+  private final LongAdder lookups = new LongAdder();
+
+  private final LongAdder resolutions = new LongAdder();
+
+  private final LongAdder resolveNanos = new LongAdder();
+
+  public CachedTypeSolver(List<Path> sourceRoots, List<Path> jars, Path cacheFile)
+      throws IOException {
+    this.sourceRoots = List.copyOf(sourceRoots);
+    this.jars = List.copyOf(jars);
+    // 先构建一份，jar 无法读取时在启动时报错，而不是在工作线程中
+    TypeSolver first = newTypeSolver();
+    this.typeSolvers = ThreadLocal.withInitial(() -> {
+      try {
+        return newTypeSolver();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    typeSolvers.set(first);
+    this.cacheFile = cacheFile;
+    if (cacheFile != null && Files.exists(cacheFile)) {
+      load(cacheFile, fingerprint());
+    }
+  }
+
+  private TypeSolver newTypeSolver() throws IOException {
+    CombinedTypeSolver combined = new CombinedTypeSolver(new ReflectionTypeSolver(true));
+    for (Path root : sourceRoots) {
+      // 语言级别与只传目录的构造器一致
+      combined.add(new JavaParserTypeSolver(root,
+          new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.BLEEDING_EDGE),
+          PARSED_FILES_PER_THREAD));
+    }
+    for (Path jar : jars) {
+      combined.add(new JarTypeSolver(jar));
+    }
+    return combined;
+  }
+
+  /**
+   * 记录语法树的源码内容哈希，之后对其中表达式的解析结果才会被缓存
+   */
+  public static void recordSource(CompilationUnit cu, String source) {
+    cu.setData(SOURCE_HASH, HexFormat.of().formatHex(newDigest().digest(source.getBytes(StandardCharsets.UTF_8))));
+  }
+
+  /**
+   * 设置全局共享的解析器，未设置时 {@link #shared()} 为空，调用方应跳过类型解析
+   */
+  public static void install(CachedTypeSolver solver) {
+    shared = solver;
+  }
+
+  public static Optional<CachedTypeSolver> shared() {
+    return Optional.ofNullable(shared);
+  }
+
+  /**
+   * @return 表达式类型的全限定名，无法解析时为空
+   */
+  public Optional<String> resolveQualifiedName(Expression expr) {
+    lookups.increment();
+    String key = cacheKey(expr);
+    if (key == null) {
+      return Optional.ofNullable(resolve(expr)).filter(name -> !name.isEmpty());
+    }
+    String name = cache.get(key);
+    if (name == null) {
+      name = resolve(expr);
+      cache.put(key, name);
+    }
+    return name.isEmpty() ? Optional.empty() : Optional.of(name);
+  }
+
+  public int cacheSize() {
+    return cache.size();
+  }
+
+  public long lookups() {
+    return lookups.sum();
+  }
+
+  public long resolutions() {
+    return resolutions.sum();
+  }
+
+  public long resolveNanos() {
+    return resolveNanos.sum();
+  }
+
+  private String resolve(Expression expr) {
+    SymbolResolutionEvent event = new SymbolResolutionEvent();
+    event.begin();
+    long start = System.nanoTime();
+    String name = doResolve(expr);
+    resolveNanos.add(System.nanoTime() - start);
+    resolutions.increment();
+    event.end();
+    if (event.shouldCommit()) {
+      event.expression = expr.toString();
+      event.resolvedType = name;
+      event.commit();
+    }
+    return name;
+  }
+
+  private String doResolve(Expression expr) {
+    try {
+      ResolvedType type = JavaParserFacade.get(typeSolvers.get()).getType(expr);
+      if (type.isReferenceType()) {
+        return type.asReferenceType().getQualifiedName();
+      }
+      return type.describe();
+    } catch (RuntimeException | StackOverflowError e) {
+      // UnsolvedSymbolException、UnsupportedOperationException 等，统一视为无法解析
+      return UNRESOLVED;
+    }
+  }
+
+  /**
+   * 没有文件路径（例如直接从字符串解析）、没有记录内容哈希或没有位置信息的表达式不缓存
+   */
+  private static String cacheKey(Expression expr) {
+    Optional<CompilationUnit> cu = expr.findCompilationUnit();
+    Optional<Path> path = cu.flatMap(CompilationUnit::getStorage).map(CompilationUnit.Storage::getPath);
+    if (path.isEmpty() || !cu.get().containsData(SOURCE_HASH) || expr.getBegin().isEmpty()) {
+      return null;
+    }
+    return path.get() + "#" + cu.get().getData(SOURCE_HASH) + "#" + expr.getBegin().get() + "#" + expr;
+  }
+
+  /**
+   * 依赖的指纹，按路径排序后计算，与遍历顺序无关
+   */
+  private String fingerprint() throws IOException {
+    List<Path> files = new ArrayList<>(jars);
+    for (Path root : sourceRoots) {
+      try (Stream<Path> walk = Files.walk(root)) {
+        walk.filter(file -> file.toString().endsWith(".java") && Files.isRegularFile(file)).forEach(files::add);
+      }
+    }
+    files.sort(null);
+    MessageDigest digest = newDigest();
+    for (Path file : files) {
+      String entry = file.toAbsolutePath() + "|" + Files.size(file) + "|"
+          + Files.getLastModifiedTime(file).toMillis() + "\n";
+      digest.update(entry.getBytes(StandardCharsets.UTF_8));
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // 所有 JDK 都必须支持 SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 持久化缓存，先写临时文件再原子替换，避免中断时留下损坏的缓存文件；指纹按当前的依赖重新计算
+   */
+  public void persist() throws IOException {
+    if (cacheFile == null) {
+      return;
+    }
+    Properties properties = new Properties();
+    properties.putAll(cache);
+    properties.put(FINGERPRINT_KEY, fingerprint());
+    Path parent = cacheFile.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path tmp = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+    try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      properties.store(writer, "hadoop-junit-tool resolved type cache");
+    }
+    Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void load(Path file, String fingerprint) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    // 依赖有变化（或是没有指纹的旧格式缓存）时整个丢弃
+    if (!fingerprint.equals(properties.remove(FINGERPRINT_KEY))) {
+      return;
+    }
+    properties.forEach((k, v) -> cache.put((String) k, (String) v));
+  }
+}
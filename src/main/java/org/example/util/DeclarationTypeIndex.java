@@ -0,0 +1,139 @@
+package org.example.util;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 单个 CompilationUnit 内的声明索引：局部变量、参数、字段 -> 声明类型
+ * <p>
+ * 第一次查询时遍历一次语法树，把每个声明按其作用域节点（所在的代码块、方法、lambda、类等）登记；
+ * 查询名字时从表达式向上逐层查找作用域，结果按表达式对象做记忆化，同一表达式再次查询为常数时间。
+ * 不依赖 symbol solver，也不处理继承来的字段，查不到时返回空，由调用方退回其它判断方式。
+ * 只在单个文件的转换线程内使用，不是线程安全的。
+ */
+public class DeclarationTypeIndex {
+
+  private final CompilationUnit cu;
+
+  // 作用域节点 -> (名字 -> 声明类型)
+  private Map<Node, Map<String, String>> scopes;
+
+  // 表达式 -> 声明类型，查不到时记为 null
+  private final Map<Expression, String> typeMemo = new IdentityHashMap<>();
+
+  // 表达式 -> isLikelyMessageParameter 的结果
+  private final Map<Expression, Boolean> messageMemo = new IdentityHashMap<>();
+
+  public DeclarationTypeIndex(CompilationUnit cu) {
+    this.cu = cu;
+  }
+
+  /**
+   * 查询 NameExpr 或 this.xxx 的声明类型
+   */
+  public Optional<String> declaredType(Expression expr) {
+    if (typeMemo.containsKey(expr)) {
+      return Optional.ofNullable(typeMemo.get(expr));
+    }
+    String type = null;
+    if (expr.isNameExpr()) {
+      type = lookup(expr, expr.asNameExpr().getNameAsString(), false);
+    } else if (expr.isFieldAccessExpr()) {
+      FieldAccessExpr fieldAccess = expr.asFieldAccessExpr();
+      if (fieldAccess.getScope().isThisExpr()) {
+        type = lookup(expr, fieldAccess.getNameAsString(), true);
+      }
+    }
+    typeMemo.put(expr, type);
+    return Optional.ofNullable(type);
+  }
+
+  /**
+   * 声明类型是否为 String；未找到声明时为空
+   */
+  public Optional<Boolean> isDeclaredString(Expression expr) {
+    return declaredType(expr).map(type -> "String".equals(type) || "java.lang.String".equals(type));
+  }
+
+  Map<Expression, Boolean> messageMemo() {
+    return messageMemo;
+  }
+
+  private String lookup(Node from, String name, boolean fieldsOnly) {
+    if (scopes == null) {
+      scopes = buildScopes(cu);
+    }
+    Node current = from.getParentNode().orElse(null);
+    while (current != null) {
+      if (!fieldsOnly || current instanceof TypeDeclaration) {
+        Map<String, String> declared = scopes.get(current);
+        if (declared != null && declared.containsKey(name)) {
+          return declared.get(name);
+        }
+      }
+      current = current.getParentNode().orElse(null);
+    }
+    return null;
+  }
+
+  private static Map<Node, Map<String, String>> buildScopes(CompilationUnit cu) {
+    Map<Node, Map<String, String>> scopes = new IdentityHashMap<>();
+    cu.walk(node -> {
+      if (node instanceof VariableDeclarator variable) {
+        scopeOf(variable).ifPresent(scope -> scopes.computeIfAbsent(scope, k -> new HashMap<>())
+            .put(variable.getNameAsString(), typeOf(variable)));
+      } else if (node instanceof Parameter parameter) {
+        parameter.getParentNode().ifPresent(scope -> scopes.computeIfAbsent(scope, k -> new HashMap<>())
+            .put(parameter.getNameAsString(), parameter.getType().asString()));
+      }
+    });
+    return scopes;
+  }
+
+  /**
+   * 字段的作用域是所在的类；局部变量的作用域是声明语句所在的代码块，
+   * 或 for / foreach / try-with-resources 语句本身
+   */
+  private static Optional<Node> scopeOf(VariableDeclarator variable) {
+    Optional<Node> declaration = variable.getParentNode();
+    if (declaration.isEmpty()) {
+      return Optional.empty();
+    }
+    if (declaration.get() instanceof FieldDeclaration) {
+      return declaration.get().getParentNode();
+    }
+    if (declaration.get() instanceof VariableDeclarationExpr) {
+      Optional<Node> owner = declaration.get().getParentNode();
+      if (owner.isPresent() && owner.get() instanceof ExpressionStmt) {
+        return owner.get().getParentNode();
+      }
+      return owner;
+    }
+    return Optional.empty();
+  }
+
+  private static String typeOf(VariableDeclarator variable) {
+    if (variable.getType().isVarType()) {
+      // var s = "..."; 只能从初始化表达式推断出最常见的字符串情况
+      return variable.getInitializer()
+          .filter(init -> init.isStringLiteralExpr() || init.isTextBlockLiteralExpr())
+          .map(init -> "String")
+          .orElse(null);
+    }
+    return variable.getType().asString();
+  }
+}
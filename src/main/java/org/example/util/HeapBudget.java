@@ -0,0 +1,289 @@
+package org.example.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 并行转换时的堆内存预算：限制同时驻留在内存中的语法树总量，而不只是并发文件数。
+ * <p>
+ * 每个文件在解析前按源码大小估算驻留内存（语法树 + LexicalPreservingPrinter 的 token 列表，
+ * 用 BenchmarkCorpus 实测约为源码字节数的 200 倍），预算不足时阻塞，直到其它文件写回并释放语法树；
+ * 当前没有文件在处理时总是放行，因此超过预算的单个大文件也能完成。
+ * <p>
+ * 预算随 GC 压力自适应（AIMD）：每次有新的 GC 发生后查看老年代在 GC 之后的占用率，
+ * 超过 {@link #HIGH_OCCUPANCY} 时预算减半，低于 {@link #LOW_OCCUPANCY} 时按上限的 1/8 逐步恢复。
+ * 可在线程间共享。
+ */
+public class HeapBudget {
+
+  public static final int RETAINED_BYTES_PER_SOURCE_BYTE = 200;
+
+  // 默认预算为最大堆的比例，其余留给源码字符串、打印结果与 JVM 自身
+  public static final double DEFAULT_HEAP_FRACTION = 0.6;
+
+  static final double HIGH_OCCUPANCY = 0.75;
+
+  static final double LOW_OCCUPANCY = 0.5;
+
+  private final long ceiling;
+
+  private final long floor;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition released = lock.newCondition();
+
+  // 老年代（ZGC 等单代收集器为整个堆），GC 之后的占用率反映真实的驻留量
+  private final List<MemoryPoolMXBean> tenuredPools = new ArrayList<>();
+
+  private final List<GarbageCollectorMXBean> collectors =
+      ManagementFactory.getGarbageCollectorMXBeans();
+
+  // 以下字段由 lock 保护
+  private long limit;
+
+  private long inFlight;
+
+  private int files;
+
+  private long lastCollections = -1;
+
+  private long peakInFlight;
+
+  private long waits;
+
+  private long waitNanos;
+
+  private long shrinks;
+
+  /**
+   * @param ceiling 预算上限（字节）
+   */
+  public HeapBudget(long ceiling) {
+    if (ceiling <= 0) {
+      throw new IllegalArgumentException("heap budget must be positive: " + ceiling);
+    }
+    this.ceiling = ceiling;
+    this.floor = Math.max(1, ceiling / 16);
+    this.limit = ceiling;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+          && pool.isCollectionUsageThresholdSupported()) {
+        tenuredPools.add(pool);
+      }
+    }
+  }
+
+  /**
+   * 预算为最大堆的 {@link #DEFAULT_HEAP_FRACTION}
+   */
+  public static HeapBudget forMaxHeap() {
+    return new HeapBudget((long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION));
+  }
+
+  /**
+   * 估算一个文件处理期间驻留的内存
+   */
+  public static long estimate(long sourceLength) {
+    return sourceLength * RETAINED_BYTES_PER_SOURCE_BYTE;
+  }
+
+  /**
+   * 为一个源码长度为 sourceLength 的文件申请预算，预算不足时阻塞
+   *
+   * @return 文件处理完成、语法树不再被引用后关闭
+   */
+  public Permit acquire(long sourceLength) throws InterruptedException {
+    long cost = estimate(sourceLength);
+    // 转换在 ForkJoinPool 中运行，通过 managedBlock 等待，池在工作线程阻塞期间补充线程
+    ForkJoinPool.managedBlock(new Admission(cost));
+    return new Permit(cost);
+  }
+
+  // 调用方持有 lock
+  private boolean tryAdmit(long cost) {
+    adjust();
+    if (files > 0 && inFlight + cost > limit) {
+      return false;
+    }
+    inFlight += cost;
+    files++;
+    peakInFlight = Math.max(peakInFlight, inFlight);
+    return true;
+  }
+
+  /**
+   * 等待预算；isReleasable 或 block 返回 true 时预算已经计入
+   */
+  private final class Admission implements ForkJoinPool.ManagedBlocker {
+
+    private final long cost;
+
+    Admission(long cost) {
+      this.cost = cost;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      lock.lock();
+      try {
+        return tryAdmit(cost);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      lock.lock();
+      try {
+        waits++;
+        long start = System.nanoTime();
+        try {
+          while (!tryAdmit(cost)) {
+            // 定期醒来重新评估，预算可能因为 GC 之后占用率下降而恢复
+            released.await(100, TimeUnit.MILLISECONDS);
+          }
+        } finally {
+          waitNanos += System.nanoTime() - start;
+        }
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void release(long cost) {
+    lock.lock();
+    try {
+      inFlight -= cost;
+      files--;
+      adjust();
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 只在发生过新的 GC 之后调整，同一次 GC 的结果不会被重复计入
+   */
+  private void adjust() {
+    if (tenuredPools.isEmpty()) {
+      return;
+    }
+    long collections = 0;
+    for (GarbageCollectorMXBean collector : collectors) {
+      collections += Math.max(0, collector.getCollectionCount());
+    }
+    if (collections == lastCollections) {
+      return;
+    }
+    lastCollections = collections;
+
+    double occupancy = 0;
+    for (MemoryPoolMXBean pool : tenuredPools) {
+      MemoryUsage usage = pool.getCollectionUsage();
+      if (usage == null) {
+        continue;
+      }
+      long max = usage.getMax() > 0 ? usage.getMax() : Runtime.getRuntime().maxMemory();
+      occupancy = Math.max(occupancy, (double) usage.getUsed() / max);
+    }
+    if (occupancy > HIGH_OCCUPANCY) {
+      if (limit > floor) {
+        limit = Math.max(floor, limit / 2);
+        shrinks++;
+      }
+    } else if (occupancy < LOW_OCCUPANCY) {
+      limit = Math.min(ceiling, limit + ceiling / 8);
+    }
+  }
+
+  public long ceiling() {
+    return ceiling;
+  }
+
+  public long limit() {
+    lock.lock();
+    try {
+      return limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long peakInFlight() {
+    lock.lock();
+    try {
+      return peakInFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return 因预算不足而等待过的文件数
+   */
+  public long waits() {
+    lock.lock();
+    try {
+      return waits;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long waitNanos() {
+    lock.lock();
+    try {
+      return waitNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return 因 GC 压力收缩预算的次数
+   */
+  public long shrinks() {
+    lock.lock();
+    try {
+      return shrinks;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 已申请的预算，关闭时归还，重复关闭无效
+   */
+  public final class Permit implements AutoCloseable {
+
+    private final long cost;
+
+    private boolean closed;
+
+    private Permit(long cost) {
+      this.cost = cost;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        release(cost);
+      }
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package org.example.util;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.NodeList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 单个 CompilationUnit 的 import 索引，所有处理器共用
+ * <p>
+ * 构建时扫描一次 cu.getImports()，之后的查询都是常数时间；增加、删除、改名只记录在索引中，
+ * 查询结果已经包含这些修改。遍历结束后 {@link #apply()} 一次性写回语法树：
+ * 先删除、再原位改名（保留原来的位置与格式），最后把新增的 import 排序、去重后插入到最相近的 import 旁边。
+ * 在 LexicalPreservingPrinter 下每次修改 NodeList 都要重新计算文本，批量写回避免了每个处理器各改一遍。
+ * 只在单个文件的转换线程内使用，不是线程安全的。
+ */
+public class ImportIndex {
+
+  /**
+   * 一条 import，name 不含通配的 .*
+   */
+  public record Import(String name, boolean isStatic, boolean isAsterisk) {
+
+    public static Import of(String name) {
+      return new Import(name, false, false);
+    }
+
+    public static Import ofStatic(String name) {
+      return new Import(name, true, false);
+    }
+  }
+
+  private static final Runnable NO_OP = () -> {
+  };
+
+  private final CompilationUnit cu;
+
+  // 每次记录到实际修改时调用，用于通知 ConversionContext.prepareRewrite()
+  private final Runnable onChange;
+
+  // 当前的 import（含尚未写回的修改）-> 原来的声明，新增的为 null；按原顺序
+  private final Map<Import, ImportDeclaration> imports = new LinkedHashMap<>();
+
+  // 待删除的原有声明，包括重复的 import 与改名后与已有 import 重复的
+  private final List<ImportDeclaration> removed = new ArrayList<>();
+
+  private boolean changed;
+
+  public ImportIndex(CompilationUnit cu) {
+    this(cu, NO_OP);
+  }
+
+  public ImportIndex(CompilationUnit cu, Runnable onChange) {
+    this.cu = cu;
+    this.onChange = onChange;
+    for (ImportDeclaration id : cu.getImports()) {
+      Import key = new Import(id.getNameAsString(), id.isStatic(), id.isAsterisk());
+      if (imports.putIfAbsent(key, id) != null) {
+        removed.add(id);
+        changed();
+      }
+    }
+  }
+
+  /**
+   * @return 当前所有 import 的快照，按原顺序，新增的在后
+   */
+  public List<Import> imports() {
+    return new ArrayList<>(imports.keySet());
+  }
+
+  public boolean contains(Import id) {
+    return imports.containsKey(id);
+  }
+
+  /**
+   * 是否按类名导入了 name（非静态、非通配）
+   */
+  public boolean contains(String name) {
+    return imports.containsKey(Import.of(name));
+  }
+
+  /**
+   * 类 name 是否已经可以按简单名使用：按类名导入或者导入了它所在的包
+   */
+  public boolean covers(String name) {
+    int dot = name.lastIndexOf('.');
+    return contains(name) || dot > 0 && imports.containsKey(new Import(name.substring(0, dot), false, true));
+  }
+
+  public boolean anyMatch(Predicate<Import> predicate) {
+    for (Import id : imports.keySet()) {
+      if (predicate.test(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 按类名导入 name
+   *
+   * @return 原来没有时为 true
+   */
+  public boolean add(String name) {
+    return add(Import.of(name));
+  }
+
+  public boolean add(Import id) {
+    if (imports.containsKey(id)) {
+      return false;
+    }
+    imports.put(id, null);
+    changed();
+    return true;
+  }
+
+  /**
+   * @return 存在并被删除时为 true
+   */
+  public boolean remove(Import id) {
+    if (!imports.containsKey(id)) {
+      return false;
+    }
+    ImportDeclaration declaration = imports.remove(id);
+    if (declaration != null) {
+      removed.add(declaration);
+    }
+    changed();
+    return true;
+  }
+
+  public boolean removeIf(Predicate<Import> predicate) {
+    boolean any = false;
+    for (Import id : imports()) {
+      if (predicate.test(id)) {
+        any |= remove(id);
+      }
+    }
+    return any;
+  }
+
+  /**
+   * 把 id 改名为 newName，写回时原位修改声明。改名后与已有 import 重复时直接删除 id
+   *
+   * @return id 存在时为 true
+   */
+  public boolean rename(Import id, String newName) {
+    if (!imports.containsKey(id)) {
+      return false;
+    }
+    Import renamed = new Import(newName, id.isStatic(), id.isAsterisk());
+    if (renamed.equals(id)) {
+      return true;
+    }
+    ImportDeclaration declaration = imports.remove(id);
+    if (imports.containsKey(renamed)) {
+      if (declaration != null) {
+        removed.add(declaration);
+      }
+    } else {
+      imports.put(renamed, declaration);
+    }
+    changed();
+    return true;
+  }
+
+  /**
+   * 是否有尚未写回的修改
+   */
+  public boolean isChanged() {
+    return changed;
+  }
+
+  /**
+   * 把记录的修改一次性写回语法树
+   */
+  public void apply() {
+    if (!changed) {
+      return;
+    }
+    NodeList<ImportDeclaration> declarations = cu.getImports();
+    for (ImportDeclaration declaration : removed) {
+      declaration.remove();
+    }
+    List<Import> added = new ArrayList<>();
+    for (Map.Entry<Import, ImportDeclaration> entry : imports.entrySet()) {
+      ImportDeclaration declaration = entry.getValue();
+      if (declaration == null) {
+        added.add(entry.getKey());
+      } else if (!declaration.getNameAsString().equals(entry.getKey().name())) {
+        declaration.setName(entry.getKey().name());
+      }
+    }
+    added.sort(Comparator.comparing(Import::isStatic).thenComparing(Import::name));
+    for (Import id : added) {
+      int index = insertionPoint(keys(declarations), id);
+      if (index >= 0) {
+        ImportDeclaration declaration = new ImportDeclaration(id.name(), id.isStatic(), id.isAsterisk());
+        declarations.add(index, declaration);
+        imports.put(id, declaration);
+        continue;
+      }
+      // 排在某条 import 之前：LexicalPreservingPrinter 把插入的节点接在前一个节点的文本后面，
+      // 与上一组之间有空行时会落在上一组末尾。因此在它后面插入它的副本，再把它原位改成新的 import
+      ImportDeclaration head = declarations.get(-index - 1);
+      Import headId = new Import(head.getNameAsString(), head.isStatic(), head.isAsterisk());
+      ImportDeclaration copy = new ImportDeclaration(headId.name(), headId.isStatic(), headId.isAsterisk());
+      declarations.add(-index, copy);
+      head.setName(id.name());
+      head.setStatic(id.isStatic());
+      head.setAsterisk(id.isAsterisk());
+      imports.put(headId, copy);
+      imports.put(id, head);
+    }
+    removed.clear();
+    changed = false;
+  }
+
+  /**
+   * 插入位置：同类（静态 / 非静态）import 中包名前缀最长的那一组里，按名字排在合适的位置；
+   * 没有同类 import 时，非静态的放在静态 import 之前，静态的放在最后
+   *
+   * @param declarations 文件中现有的 import，按出现顺序
+   * @return 插在某条 import 之后（或末尾）时为插入的下标；排在某条 import 之前时为 -(它的下标) - 1
+   */
+  public static int insertionPoint(List<Import> declarations, Import id) {
+    int best = -1;
+    for (Import declaration : declarations) {
+      if (declaration.isStatic() == id.isStatic()) {
+        best = Math.max(best, commonSegments(declaration.name(), id.name()));
+      }
+    }
+    if (best < 0) {
+      if (id.isStatic()) {
+        return declarations.size();
+      }
+      for (int i = 0; i < declarations.size(); i++) {
+        if (declarations.get(i).isStatic()) {
+          return -i - 1;
+        }
+      }
+      return declarations.size();
+    }
+    int first = -1;
+    int after = -1;
+    for (int i = 0; i < declarations.size(); i++) {
+      Import declaration = declarations.get(i);
+      if (declaration.isStatic() != id.isStatic()
+          || commonSegments(declaration.name(), id.name()) != best) {
+        continue;
+      }
+      if (first < 0) {
+        first = i;
+      }
+      if (declaration.name().compareTo(id.name()) < 0) {
+        after = i;
+      }
+    }
+    return after >= 0 ? after + 1 : -first - 1;
+  }
+
+  private static List<Import> keys(NodeList<ImportDeclaration> declarations) {
+    List<Import> keys = new ArrayList<>(declarations.size());
+    for (ImportDeclaration declaration : declarations) {
+      keys.add(new Import(declaration.getNameAsString(), declaration.isStatic(), declaration.isAsterisk()));
+    }
+    return keys;
+  }
+
+  // 两个名字相同的前导包名段数
+  private static int commonSegments(String a, String b) {
+    String[] left = a.split("\\.");
+    String[] right = b.split("\\.");
+    int n = 0;
+    while (n < left.length - 1 && n < right.length - 1 && left[n].equals(right[n])) {
+      n++;
+    }
+    return n;
+  }
+
+  private void changed() {
+    changed = true;
+    onChange.run();
+  }
+}
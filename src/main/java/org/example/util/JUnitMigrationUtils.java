@@ -3,13 +3,15 @@ package org.example.util;
 
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.LiteralExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
-import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.ast.expr.TextBlockLiteralExpr;
 
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * @author zhtttylz
@@ -18,21 +20,63 @@ import java.util.List;
  */
 public class JUnitMigrationUtils {
 
+  // 变量名中包含这些关键字时，认为它是 message
+  private static final List<String> MESSAGE_KEYWORDS = List.of("Message", "message", "Out", "out");
+
   /**
    * 判断表达式是不是“像是字符串参数”，判断依据如下
    * 1.第一个参数是字符串字面量， 如“xxxx” 格式
    * 2.第一个参数是method.toString()，如err.toString()
    */
   public static boolean isLikelyMessageParameter(Expression expr) {
+    return isLikelyMessageParameter(expr, null);
+  }
+
+  /**
+   * 同 {@link #isLikelyMessageParameter(Expression)}，变量、参数、字段优先按 index 中的声明类型判断，
+   * 结果按表达式记忆化，同一个参数重复判断时直接返回
+   *
+   * @param index 当前文件的声明索引，可以为 null
+   */
+  public static boolean isLikelyMessageParameter(Expression expr, DeclarationTypeIndex index) {
+    if (index == null) {
+      return detect(expr, null, true);
+    }
+    Map<Expression, Boolean> memo = index.messageMemo();
+    Boolean cached = memo.get(expr);
+    if (cached == null) {
+      cached = detect(expr, index, true);
+      memo.put(expr, cached);
+    }
+    return cached;
+  }
+
+  /**
+   * 只按表达式本身的写法判断是否为 message（字面量、拼接、toString() 等调用、msg 之类的变量名），
+   * 不看变量的声明类型，也不走 symbol solver。
+   * 被比较的值本身声明为 String 很常见，用它判断调用是否已经是 JUnit5 的参数顺序（message 在最后）
+   */
+  public static boolean isMessageExpression(Expression expr) {
+    return detect(expr, null, false);
+  }
+
+  private static boolean detect(Expression expr, DeclarationTypeIndex index, boolean resolveTypes) {
     // 1) 直接是字符串字面量
-    if (expr instanceof StringLiteralExpr) {
+    if (expr instanceof StringLiteralExpr || expr instanceof TextBlockLiteralExpr) {
       return true;
     }
+    // 其它字面量（数字、布尔、null 等）一定不是 message，无需解析类型
+    if (expr instanceof LiteralExpr) {
+      return false;
+    }
     // 2) 字符串拼接 (BinaryExpr)，递归检查左右分支
     if (expr instanceof BinaryExpr) {
       BinaryExpr binExpr = (BinaryExpr) expr;
-      return isLikelyMessageParameter(binExpr.getLeft())
-          || isLikelyMessageParameter(binExpr.getRight());
+      if (!resolveTypes) {
+        return detect(binExpr.getLeft(), null, false) || detect(binExpr.getRight(), null, false);
+      }
+      return isLikelyMessageParameter(binExpr.getLeft(), index)
+          || isLikelyMessageParameter(binExpr.getRight(), index);
     }
     // 3) 如果是 MethodCall，比如 xxx.toString()、String.format(...) 等
     if (expr instanceof MethodCallExpr) {
@@ -58,27 +102,36 @@ public class JUnitMigrationUtils {
       }
     }
 
+    // 4) 变量、参数、字段直接查当前文件的声明类型，不需要 symbol solver
+    if (index != null && (expr.isNameExpr() || expr.isFieldAccessExpr())) {
+      Optional<Boolean> declaredString = index.isDeclaredString(expr);
+      if (declaredString.isPresent()) {
+        return declaredString.get();
+      }
+    }
+
+    // 5) 如果配置了共享的 symbol solver，以解析出的类型为准
+    //    未配置时直接跳过，避免每次都抛出并吞掉 UnsolvedSymbolException
+    Optional<CachedTypeSolver> solver = resolveTypes ? CachedTypeSolver.shared() : Optional.empty();
+    if (solver.isPresent()) {
+      Optional<String> qualifiedName = solver.get().resolveQualifiedName(expr);
+      if (qualifiedName.isPresent()) {
+        return String.class.getCanonicalName().equals(qualifiedName.get());
+      }
+    }
+
+    // 6) 解析不出类型时，根据变量名猜测
     if (expr instanceof NameExpr nameExpr) {
       String name = nameExpr.getNameAsString();
       if ("msg".equals(name)) {
         return true;
       }
-      // 将需要匹配的关键字放入列表
-      List<String> keywords = Arrays.asList("Message", "message", "Out", "out");
-      return keywords.stream().anyMatch(name::contains);
-    }
-
-    // 4) 最后，尝试走 symbol solver，看它能不能告诉我们是 String
-    try {
-      ResolvedType resolvedType = expr.calculateResolvedType();
-      if (resolvedType.isReferenceType()) {
-        if (resolvedType.asReferenceType().getQualifiedName()
-            .equals(String.class.getCanonicalName())) {
+      for (String keyword : MESSAGE_KEYWORDS) {
+        if (name.contains(keyword)) {
           return true;
         }
       }
-    } catch (Exception e) {
-
+      return false;
     }
 
     // 如果以上都不是，则认为它“不太像” message 参数
@@ -0,0 +1,155 @@
+package org.example.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * 进程内查找待迁移的 java 文件，替代原先 fork shell 脚本执行 grep -r 的方式
+ * <p>
+ * 每个目录是一个 ForkJoin 任务，子目录和文件都会被拆成子任务，空闲线程可以窃取；
+ * 只根据路径匹配 include/exclude glob，不读取文件内容，文件内容的判断交给转换器在唯一一次读取时完成。
+ * glob 相对于扫描根目录匹配，例如 "**.java"、"**&#47;target"
+ */
+public class JavaFileDiscovery {
+
+  public static final String DEFAULT_INCLUDE = "**.java";
+
+  private static final PathMatcher DEFAULT_MATCHER =
+      FileSystems.getDefault().getPathMatcher("glob:" + DEFAULT_INCLUDE);
+
+  private final List<PathMatcher> includes = new ArrayList<>();
+
+  private final List<PathMatcher> excludes = new ArrayList<>();
+
+  public JavaFileDiscovery() {
+  }
+
+  public JavaFileDiscovery(List<String> includeGlobs, List<String> excludeGlobs) {
+    includeGlobs.forEach(this::include);
+    excludeGlobs.forEach(this::exclude);
+  }
+
+  public JavaFileDiscovery include(String glob) {
+    includes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+    return this;
+  }
+
+  public JavaFileDiscovery exclude(String glob) {
+    excludes.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+    return this;
+  }
+
+  /**
+   * 在当前 ForkJoinPool（不在池中时使用 commonPool）中并行遍历 root，
+   * 每找到一个候选文件就交给 sink 处理，sink 会被多个线程并发调用
+   */
+  public void walk(Path root, Consumer<Path> sink) {
+    if (Files.isRegularFile(root)) {
+      sink.accept(root);
+      return;
+    }
+    new DirectoryTask(root, root, sink).invoke();
+  }
+
+  /**
+   * 使用指定并行度遍历，返回全部候选文件
+   */
+  public List<Path> discover(Path root, int parallelism) {
+    Queue<Path> found = new ConcurrentLinkedQueue<>();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(ForkJoinTask.adapt(() -> walk(root, found::add)));
+    } finally {
+      pool.shutdown();
+    }
+    return new ArrayList<>(found);
+  }
+
+  /**
+   * 判断 root 下的单个文件是否为候选文件，供监听目录变化时使用
+   */
+  public boolean accepts(Path root, Path file) {
+    return isIncluded(root.relativize(file));
+  }
+
+  /**
+   * 判断 root 下的目录是否需要遍历（或监听）
+   */
+  public boolean acceptsDirectory(Path root, Path dir) {
+    return root.equals(dir) || !isExcluded(root.relativize(dir));
+  }
+
+  private boolean isIncluded(Path relative) {
+    // 未配置 include 时默认匹配所有 java 文件
+    if (includes.isEmpty()) {
+      return DEFAULT_MATCHER.matches(relative) && !isExcluded(relative);
+    }
+    for (PathMatcher matcher : includes) {
+      if (matcher.matches(relative)) {
+        return !isExcluded(relative);
+      }
+    }
+    return false;
+  }
+
+  private boolean isExcluded(Path relative) {
+    for (PathMatcher matcher : excludes) {
+      if (matcher.matches(relative)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private class DirectoryTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path root;
+    private final Path dir;
+    private final Consumer<Path> sink;
+
+    DirectoryTask(Path root, Path dir, Consumer<Path> sink) {
+      this.root = root;
+      this.dir = dir;
+      this.sink = sink;
+    }
+
+    @Override
+    protected void compute() {
+      List<ForkJoinTask<?>> subtasks = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+        for (Path entry : entries) {
+          Path relative = root.relativize(entry);
+          if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+            // 被排除的目录整体剪枝，不再向下遍历
+            if (!isExcluded(relative)) {
+              subtasks.add(new DirectoryTask(root, entry, sink).fork());
+            }
+          } else if (isIncluded(relative)) {
+            subtasks.add(ForkJoinTask.adapt(() -> sink.accept(entry)).fork());
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      for (ForkJoinTask<?> subtask : subtasks) {
+        subtask.join();
+      }
+    }
+  }
+}
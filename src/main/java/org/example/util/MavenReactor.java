@@ -0,0 +1,127 @@
+package org.example.util;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读取 Maven reactor 的 pom.xml 树，列出每个模块的测试源码根目录
+ * <p>
+ * 从根 pom 开始递归读取 &lt;module&gt;（包括 profile 中声明的模块，Hadoop 的部分模块只在 profile 里），
+ * 只解析 XML 本身，不做继承与属性插值：测试源码目录取 build/testSourceDirectory（不含属性引用时），
+ * 否则为默认的 src/test/java。没有测试源码目录的模块（例如只做聚合的 pom 模块）不会列出。
+ */
+public final class MavenReactor {
+
+  private static final String DEFAULT_TEST_SOURCE_DIRECTORY = "src/test/java";
+
+  /**
+   * @param dir       模块目录
+   * @param testRoots 存在的测试源码根目录
+   */
+  public record Module(String artifactId, Path dir, List<Path> testRoots) {
+  }
+
+  private MavenReactor() {
+  }
+
+  /**
+   * @param pomOrDir 根 pom.xml 或它所在的目录
+   * @return 按 reactor 声明顺序（深度优先）排列的模块，同一目录只出现一次
+   */
+  public static List<Module> read(Path pomOrDir) throws IOException {
+    Path pom = Files.isDirectory(pomOrDir) ? pomOrDir.resolve("pom.xml") : pomOrDir;
+    DocumentBuilder builder = newDocumentBuilder();
+    Map<Path, Module> modules = new LinkedHashMap<>();
+    collect(builder, pom.toAbsolutePath().normalize(), modules);
+    List<Module> withTests = new ArrayList<>();
+    for (Module module : modules.values()) {
+      if (!module.testRoots().isEmpty()) {
+        withTests.add(module);
+      }
+    }
+    return withTests;
+  }
+
+  private static void collect(DocumentBuilder builder, Path pom, Map<Path, Module> modules)
+      throws IOException {
+    Path dir = pom.getParent();
+    if (modules.containsKey(dir)) {
+      return;
+    }
+    Element project = parse(builder, pom).getDocumentElement();
+    String artifactId = childText(project, "artifactId");
+    Element build = child(project, "build");
+    String testSourceDirectory = build == null ? null : childText(build, "testSourceDirectory");
+    if (testSourceDirectory == null || testSourceDirectory.contains("${")) {
+      testSourceDirectory = DEFAULT_TEST_SOURCE_DIRECTORY;
+    }
+    Path testRoot = dir.resolve(testSourceDirectory).normalize();
+    List<Path> testRoots = Files.isDirectory(testRoot) ? List.of(testRoot) : List.of();
+    modules.put(dir, new Module(artifactId == null ? dir.getFileName().toString() : artifactId,
+        dir, testRoots));
+
+    // project/modules 与 project/profiles/profile/modules
+    NodeList declared = project.getElementsByTagName("modules");
+    for (int i = 0; i < declared.getLength(); i++) {
+      for (Node node = declared.item(i).getFirstChild(); node != null; node = node.getNextSibling()) {
+        if (!(node instanceof Element element) || !"module".equals(element.getTagName())) {
+          continue;
+        }
+        Path child = dir.resolve(element.getTextContent().strip()).normalize();
+        Path childPom = Files.isDirectory(child) ? child.resolve("pom.xml") : child;
+        if (Files.isRegularFile(childPom)) {
+          collect(builder, childPom, modules);
+        }
+      }
+    }
+  }
+
+  private static Document parse(DocumentBuilder builder, Path pom) throws IOException {
+    try {
+      return builder.parse(pom.toFile());
+    } catch (SAXException e) {
+      throw new IOException("invalid pom: " + pom, e);
+    }
+  }
+
+  private static DocumentBuilder newDocumentBuilder() throws IOException {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    try {
+      // pom 不需要 DTD 与外部实体
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      return factory.newDocumentBuilder();
+    } catch (ParserConfigurationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static Element child(Element parent, String name) {
+    for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+      if (node instanceof Element element && name.equals(element.getTagName())) {
+        return element;
+      }
+    }
+    return null;
+  }
+
+  private static String childText(Element parent, String name) {
+    Element element = child(parent, name);
+    return element == null ? null : element.getTextContent().strip();
+  }
+}
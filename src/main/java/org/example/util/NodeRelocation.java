@@ -0,0 +1,71 @@
+package org.example.util;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.comments.Comment;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 把已有的子树从原来的父节点上摘下，移动到新的父节点下，不使用 clone()
+ * <p>
+ * 移动的是原节点本身：LexicalPreservingPrinter 记录在节点上的原始 token 随节点一起移动，打印时原样输出，
+ * 不会像 clone() 那样为整棵子树复制一份节点与文本。
+ * 节点的注释在 LexicalPreservingPrinter 中属于父节点的文本，随节点移动会丢失，
+ * 因此摘下时先取下注释，所有节点插入新位置之后由 {@link #restoreComments} 重新挂上才会被打印出来。
+ * 只在单个文件的转换线程内使用，不是线程安全的。
+ */
+public final class NodeRelocation<N extends Node> {
+
+  private final List<N> nodes;
+
+  private final Map<N, Comment> comments = new IdentityHashMap<>();
+
+  private NodeRelocation(List<N> nodes) {
+    this.nodes = nodes;
+  }
+
+  /**
+   * 按顺序把节点从各自的父节点上摘下
+   *
+   * @param nodes 要移动的节点，可以是父节点 NodeList 的视图（例如 subList），摘下之前先复制
+   */
+  public static <N extends Node> NodeRelocation<N> detach(List<? extends N> nodes) {
+    NodeRelocation<N> relocation = new NodeRelocation<>(new ArrayList<>(nodes));
+    for (N node : relocation.nodes) {
+      // 注释的文本属于父节点，要在摘下节点之前删除，否则会留在原位置
+      node.getComment().ifPresent(comment -> relocation.comments.put(node, comment));
+      node.removeComment();
+    }
+    // 先删除全部注释再摘下节点：交替进行时，行尾注释之后紧跟带注释的语句会让
+    // LexicalPreservingPrinter 记录的文本位置错开，之后插入节点时越界或丢掉缩进
+    for (N node : relocation.nodes) {
+      node.remove();
+    }
+    return relocation;
+  }
+
+  /**
+   * @return 摘下的节点，顺序与 {@link #detach} 时一致
+   */
+  public List<N> nodes() {
+    return nodes;
+  }
+
+  /**
+   * 把注释挂回原节点，必须在节点插入新位置之后调用
+   */
+  public void restoreComments() {
+    restoreComments(node -> node);
+  }
+
+  /**
+   * 把注释挂到 target 返回的节点上，用于节点没有原样插入（例如只移动了语句中的表达式）的情况
+   */
+  public void restoreComments(Function<? super N, ? extends Node> target) {
+    comments.forEach((node, comment) -> target.apply(node).setComment(comment));
+  }
+}
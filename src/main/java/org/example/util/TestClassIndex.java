@@ -0,0 +1,193 @@
+package org.example.util;
+
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 单个测试类的成员索引，供 @Rule 迁移等按类处理的处理器共享
+ * <p>
+ * 构建时只遍历一次类的直接成员（不进入方法体与嵌套类，嵌套类有自己的索引）：
+ * 方法按注解简单名登记，带 @Rule / @ClassRule 的字段按声明类型的简单名登记，
+ * 同时记录 static final 常量的初始化表达式与类上的注解。
+ * 处理器修改类成员时通过本类的方法同步更新，避免对同一个类反复 findAll。
+ * 只在单个文件的转换线程内使用，不是线程安全的。
+ */
+public class TestClassIndex {
+
+  private final ClassOrInterfaceDeclaration type;
+
+  // 注解简单名 -> 带该注解的方法，按声明顺序
+  private final Map<String, List<MethodDeclaration>> methodsByAnnotation = new HashMap<>();
+
+  // 字段类型简单名 -> 带 @Rule 或 @ClassRule 的字段，按声明顺序
+  private final Map<String, List<FieldDeclaration>> rulesByType = new HashMap<>();
+
+  // static final 常量名 -> 初始化表达式
+  private final Map<String, Expression> constants = new HashMap<>();
+
+  private final Set<String> classAnnotations = new HashSet<>();
+
+  // 简单名字（NameExpr 与 this.xxx）-> 类中（含嵌套类）引用它的表达式，第一次查询时一次遍历收集
+  private Map<String, List<Expression>> references;
+
+  public TestClassIndex(ClassOrInterfaceDeclaration type) {
+    this.type = type;
+    for (AnnotationExpr annotation : type.getAnnotations()) {
+      classAnnotations.add(simpleName(annotation.getNameAsString()));
+    }
+    for (BodyDeclaration<?> member : type.getMembers()) {
+      if (member instanceof MethodDeclaration method) {
+        for (AnnotationExpr annotation : method.getAnnotations()) {
+          methodsByAnnotation.computeIfAbsent(simpleName(annotation.getNameAsString()),
+              k -> new ArrayList<>()).add(method);
+        }
+      } else if (member instanceof FieldDeclaration field) {
+        if (isRule(field)) {
+          rulesByType.computeIfAbsent(simpleName(field.getElementType()), k -> new ArrayList<>()).add(field);
+        }
+        if (field.isStatic() && field.isFinal()) {
+          for (VariableDeclarator variable : field.getVariables()) {
+            variable.getInitializer().ifPresent(init -> constants.put(variable.getNameAsString(), init));
+          }
+        }
+      }
+    }
+  }
+
+  public ClassOrInterfaceDeclaration getType() {
+    return type;
+  }
+
+  /**
+   * @return 带 @Test 的方法
+   */
+  public List<MethodDeclaration> testMethods() {
+    return methodsAnnotatedWith("Test");
+  }
+
+  public List<MethodDeclaration> methodsAnnotatedWith(String annotation) {
+    return methodsByAnnotation.getOrDefault(annotation, List.of());
+  }
+
+  /**
+   * @param ruleType 规则类型的简单名，例如 Timeout、ExpectedException
+   * @return 该类型的 @Rule / @ClassRule 字段
+   */
+  public List<FieldDeclaration> ruleFields(String ruleType) {
+    return rulesByType.getOrDefault(ruleType, List.of());
+  }
+
+  /**
+   * @return 类中 @Rule / @ClassRule 字段的类型简单名
+   */
+  public Set<String> ruleTypes() {
+    return Set.copyOf(rulesByType.keySet());
+  }
+
+  public boolean hasRules() {
+    return !rulesByType.isEmpty();
+  }
+
+  public Optional<Expression> constant(String name) {
+    return Optional.ofNullable(constants.get(name));
+  }
+
+  public boolean hasClassAnnotation(String annotation) {
+    return classAnnotations.contains(annotation);
+  }
+
+  /**
+   * 在类上添加注解并登记
+   */
+  public void addClassAnnotation(AnnotationExpr annotation) {
+    type.addAnnotation(annotation);
+    classAnnotations.add(simpleName(annotation.getNameAsString()));
+  }
+
+  /**
+   * 从类中删除规则字段并注销
+   */
+  public void removeRuleField(FieldDeclaration field) {
+    String ruleType = simpleName(field.getElementType());
+    List<FieldDeclaration> fields = rulesByType.get(ruleType);
+    if (fields != null && fields.remove(field) && fields.isEmpty()) {
+      rulesByType.remove(ruleType);
+    }
+    field.remove();
+  }
+
+  /**
+   * 字段名是否在类的成员中（字段声明本身之外）被引用。只按名字判断，同名的局部变量也算引用，结果偏保守
+   */
+  public boolean isReferenced(FieldDeclaration field) {
+    for (VariableDeclarator variable : field.getVariables()) {
+      if (!references(variable.getNameAsString()).isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return 以 name 或 this.name 引用该名字的表达式，按出现顺序。所有规则字段的引用在同一次遍历中收集
+   */
+  public List<Expression> references(String name) {
+    if (references == null) {
+      references = new HashMap<>();
+      type.walk(node -> {
+        if (node instanceof NameExpr nameExpr) {
+          references.computeIfAbsent(nameExpr.getNameAsString(), k -> new ArrayList<>()).add(nameExpr);
+        } else if (node instanceof FieldAccessExpr access && access.getScope().isThisExpr()) {
+          references.computeIfAbsent(access.getNameAsString(), k -> new ArrayList<>()).add(access);
+        }
+      });
+    }
+    return references.getOrDefault(name, List.of());
+  }
+
+  /**
+   * 字段是否带 @ClassRule
+   */
+  public static boolean isClassRule(FieldDeclaration field) {
+    return field.getAnnotations().stream().map(AnnotationExpr::getNameAsString)
+        .anyMatch(name -> "ClassRule".equals(name) || "org.junit.ClassRule".equals(name));
+  }
+
+  private static boolean isRule(FieldDeclaration field) {
+    for (AnnotationExpr annotation : field.getAnnotations()) {
+      String name = annotation.getNameAsString();
+      if ("Rule".equals(name) || "ClassRule".equals(name)
+          || "org.junit.Rule".equals(name) || "org.junit.ClassRule".equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String simpleName(Type type) {
+    String name = type.isClassOrInterfaceType()
+        ? type.asClassOrInterfaceType().getNameAsString()
+        : type.asString();
+    return simpleName(name);
+  }
+
+  private static String simpleName(String name) {
+    return name.substring(name.lastIndexOf('.') + 1);
+  }
+}
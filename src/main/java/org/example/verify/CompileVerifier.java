@@ -0,0 +1,164 @@
+package org.example.verify;
+
+import com.sun.source.util.JavacTask;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 转换后的编译校验：在进程内用 javax.tools.JavaCompiler 并行编译改写过的文件，找出被启发式规则改坏的文件
+ * （例如把非 String 参数误判为断言消息），不需要对整个模块执行 mvn test-compile。
+ * <p>
+ * 每个文件单独一个 javac 任务，只做到类型检查与流分析（{@link JavacTask#analyze()}），不生成 class 文件；
+ * 所有任务共用一个 {@link SharedFileManager}，类路径只列举一次。源码路径用于解析同一测试目录中的辅助类，
+ * 只统计属于被校验文件本身的错误。
+ * <p>
+ * 改写后无法编译时，再编译一次改写前的内容：原来能编译的文件判定为 BROKEN，可以回滚为原内容；
+ * 原来就无法编译的（通常是类路径不全）判定为 UNVERIFIABLE，不回滚。
+ * 必须在所有文件写回之后执行，校验期间源码路径下的文件不应再被修改。
+ */
+public class CompileVerifier implements AutoCloseable {
+
+  // 单个文件最多保留的错误信息条数
+  private static final int MAX_DIAGNOSTICS = 5;
+
+  private static final List<String> OPTIONS = List.of("-proc:none", "-implicit:none", "-nowarn", "-Xlint:none");
+
+  private final JavaCompiler compiler;
+
+  private final StandardJavaFileManager standardFileManager;
+
+  private final SharedFileManager fileManager;
+
+  /**
+   * 单个文件的校验结果
+   *
+   * @param diagnostics 改写后的错误，"行号: 信息"，最多 {@link #MAX_DIAGNOSTICS} 条
+   */
+  public record Result(Path path, Status status, List<String> diagnostics) {
+  }
+
+  public enum Status {
+    // 改写后可以编译
+    OK,
+    // 改写前可以编译，改写后不能
+    BROKEN,
+    // 改写前后都不能编译，无法判断
+    UNVERIFIABLE
+  }
+
+  /**
+   * @param classpath  编译测试代码所需的类路径：依赖的 jar、模块的 target/classes 等
+   * @param sourcepath 测试源码根目录，用于解析被校验文件引用的其它测试类
+   */
+  public CompileVerifier(List<Path> classpath, List<Path> sourcepath) throws IOException {
+    this.compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("no system Java compiler, run with a JDK instead of a JRE");
+    }
+    this.standardFileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+    standardFileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classpath);
+    standardFileManager.setLocationFromPaths(StandardLocation.SOURCE_PATH, sourcepath);
+    this.fileManager = new SharedFileManager(standardFileManager);
+  }
+
+  /**
+   * 并行校验
+   *
+   * @param originals 被校验的文件 -> 改写前的内容
+   * @return 每个文件的结果，顺序不固定
+   */
+  public List<Result> verify(Map<Path, String> originals, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    Queue<Result> results = new ConcurrentLinkedQueue<>();
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (Map.Entry<Path, String> entry : originals.entrySet()) {
+      tasks.add(ForkJoinTask.adapt(() -> results.add(verify(entry.getKey(), entry.getValue()))));
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    } finally {
+      pool.shutdown();
+    }
+    return List.copyOf(results);
+  }
+
+  /**
+   * 校验单个文件
+   *
+   * @param original 改写前的内容
+   */
+  public Result verify(Path path, String original) {
+    try {
+      List<String> errors = errors(path, Files.readString(path, StandardCharsets.UTF_8));
+      if (errors.isEmpty()) {
+        return new Result(path, Status.OK, List.of());
+      }
+      Status status = errors(path, original).isEmpty() ? Status.BROKEN : Status.UNVERIFIABLE;
+      return new Result(path, status, errors);
+    } catch (IOException | RuntimeException e) {
+      // 文件被删除、javac 内部异常等，不影响其它文件
+      return new Result(path, Status.UNVERIFIABLE, List.of(e.toString()));
+    }
+  }
+
+  /**
+   * 把 BROKEN 的文件恢复为改写前的内容
+   */
+  public static void rollback(Result result, String original) throws IOException {
+    if (result.status() == Status.BROKEN) {
+      Files.writeString(result.path(), original, StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * @return content 作为 path 编译时，属于该文件本身的错误
+   */
+  private List<String> errors(Path path, String content) throws IOException {
+    JavaFileObject source = new SimpleJavaFileObject(path.toUri(), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return content;
+      }
+    };
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics, OPTIONS, null, List.of(source));
+    task.analyze();
+    List<String> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getSource() == source
+          && errors.size() < MAX_DIAGNOSTICS) {
+        // javac 的信息可能有多行（symbol: / location:），合并为一行
+        errors.add(diagnostic.getLineNumber() + ": "
+            + diagnostic.getMessage(Locale.ROOT).replaceAll("\\R\\s*", ", "));
+      }
+    }
+    return errors;
+  }
+
+  @Override
+  public void close() throws IOException {
+    standardFileManager.close();
+  }
+}
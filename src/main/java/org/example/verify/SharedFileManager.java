@@ -0,0 +1,128 @@
+package org.example.verify;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 所有编译任务共用的文件管理器：类路径、源码路径只配置一次，包的列举结果与类的二进制名按需缓存。
+ * <p>
+ * 每个 javac 任务都会按包列举类路径（包括 JDK 的系统模块），同一个包在成百上千个任务中被重复列举，
+ * 缓存之后除第一次外都不再访问 jar 与目录。列举与推断二进制名之外的调用在底层的
+ * StandardJavaFileManager 上串行执行（它不保证线程安全），这些调用远少于前两者。
+ * <p>
+ * 缓存在整个校验过程中有效，期间类路径与源码路径下的文件不应再被修改。
+ */
+public class SharedFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+  private record ListKey(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) {
+  }
+
+  private final Map<ListKey, List<JavaFileObject>> listings = new ConcurrentHashMap<>();
+
+  private final Map<JavaFileObject, String> binaryNames = new ConcurrentHashMap<>();
+
+  public SharedFileManager(StandardJavaFileManager fileManager) {
+    super(fileManager);
+  }
+
+  @Override
+  public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+                                       boolean recurse) throws IOException {
+    ListKey key = new ListKey(location, packageName, Set.copyOf(kinds), recurse);
+    try {
+      return listings.computeIfAbsent(key, k -> {
+        synchronized (this) {
+          try {
+            List<JavaFileObject> files = new ArrayList<>();
+            fileManager.list(location, packageName, kinds, recurse).forEach(files::add);
+            return List.copyOf(files);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public String inferBinaryName(Location location, JavaFileObject file) {
+    String cached = binaryNames.get(file);
+    if (cached != null) {
+      return cached;
+    }
+    String name;
+    synchronized (this) {
+      name = fileManager.inferBinaryName(location, file);
+    }
+    if (name != null) {
+      binaryNames.put(file, name);
+    }
+    return name;
+  }
+
+  @Override
+  public synchronized boolean hasLocation(Location location) {
+    return fileManager.hasLocation(location);
+  }
+
+  @Override
+  public synchronized boolean isSameFile(FileObject a, FileObject b) {
+    return fileManager.isSameFile(a, b);
+  }
+
+  @Override
+  public synchronized JavaFileObject getJavaFileForInput(Location location, String className,
+                                                         JavaFileObject.Kind kind) throws IOException {
+    return fileManager.getJavaFileForInput(location, className, kind);
+  }
+
+  @Override
+  public synchronized FileObject getFileForInput(Location location, String packageName, String relativeName)
+      throws IOException {
+    return fileManager.getFileForInput(location, packageName, relativeName);
+  }
+
+  @Override
+  public synchronized Location getLocationForModule(Location location, String moduleName) throws IOException {
+    return fileManager.getLocationForModule(location, moduleName);
+  }
+
+  @Override
+  public synchronized Location getLocationForModule(Location location, JavaFileObject fo) throws IOException {
+    return fileManager.getLocationForModule(location, fo);
+  }
+
+  @Override
+  public synchronized String inferModuleName(Location location) throws IOException {
+    return fileManager.inferModuleName(location);
+  }
+
+  @Override
+  public synchronized Iterable<Set<Location>> listLocationsForModules(Location location) throws IOException {
+    List<Set<Location>> locations = new ArrayList<>();
+    fileManager.listLocationsForModules(location).forEach(locations::add);
+    return locations;
+  }
+
+  @Override
+  public synchronized boolean contains(Location location, FileObject fo) throws IOException {
+    return fileManager.contains(location, fo);
+  }
+
+  @Override
+  public synchronized boolean handleOption(String current, Iterator<String> remaining) {
+    return fileManager.handleOption(current, remaining);
+  }
+}
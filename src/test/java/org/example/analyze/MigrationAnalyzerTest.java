@@ -0,0 +1,188 @@
+package org.example.analyze;
+
+import org.example.analyze.MigrationAnalyzer.Construct;
+import org.example.analyze.MigrationAnalyzer.FileAnalysis;
+import org.example.converter.JUnit4ToJUnit5Converter;
+import org.example.util.JavaFileDiscovery;
+import org.example.util.MavenReactor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigrationAnalyzerTest {
+
+  private static final String SOURCE = "package p;\n"
+      + "\n"
+      + "import org.junit.Assert;\n"
+      + "import org.junit.Rule;\n"
+      + "import org.junit.Test;\n"
+      + "import org.junit.rules.ExpectedException;\n"
+      + "import org.junit.rules.TemporaryFolder;\n"
+      + "\n"
+      + "import static org.hamcrest.MatcherAssert.assertThat;\n"
+      + "import static org.hamcrest.Matchers.equalTo;\n"
+      + "import static org.junit.Assert.assertEquals;\n"
+      + "\n"
+      + "public class T extends Assert {\n"
+      + "\n"
+      + "  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+      + "  @Rule public TemporaryFolder folder = new TemporaryFolder();\n"
+      + "  @Rule public TemporaryFolder other = new TemporaryFolder();\n"
+      + "\n"
+      + "  @Test(expected = IllegalStateException.class)\n"
+      + "  public void expected() {\n"
+      + "    run();\n"
+      + "  }\n"
+      + "\n"
+      + "  @Test\n"
+      + "  public void asserts() {\n"
+      + "    int count = 1;\n"
+      + "    assertEquals(\"count\", 1, count);\n"
+      + "    assertEquals(1, count);\n"
+      + "    assertThat(count, equalTo(1));\n"
+      + "    assertThat(\"custom\", count, isOdd());\n"
+      + "  }\n"
+      + "}\n";
+
+  @TempDir
+  Path root;
+
+  private final MigrationAnalyzer analyzer = new MigrationAnalyzer(new JavaFileDiscovery());
+
+  @Test
+  void countsConstructsOfFile() throws IOException {
+    FileAnalysis analysis = analyzer.analyzeQuietly(write("T.java", SOURCE));
+    assertTrue(analysis.junit4());
+    assertNull(analysis.error());
+    assertEquals(1, count(analysis, Construct.TEST_EXPECTED));
+    assertEquals(3, count(analysis, Construct.RULE_FIELD));
+    assertEquals(2, count(analysis, Construct.HAMCREST_MATCHER));
+    assertEquals(1, count(analysis, Construct.UNMAPPED_MATCHER));
+    assertEquals(1, count(analysis, Construct.MESSAGE_FIRST_ASSERT));
+    assertEquals(1, count(analysis, Construct.EXTENDS_ASSERT));
+    assertEquals(Map.of("ExpectedException", 1, "TemporaryFolder", 2), analysis.rules());
+  }
+
+  /**
+   * 分析不修改文件；转换之后能迁移的写法都不再计数，只剩无法迁移的规则字段与没有对应规则的 matcher
+   */
+  @Test
+  void countsOnlyWhatConversionLeavesBehind() throws IOException {
+    // 作为参数传递的 TestName 无法迁移，文件仍然引用 JUnit4
+    String source = SOURCE.replace("  @Rule public TemporaryFolder other",
+            "  @Rule public org.junit.rules.TestName name = new org.junit.rules.TestName();\n"
+                + "  @Rule public TemporaryFolder other")
+        .replace("    run();\n", "    run(name);\n");
+    Path file = write("T.java", source);
+    assertEquals(4, count(analyzer.analyzeQuietly(file), Construct.RULE_FIELD));
+    assertEquals(source, Files.readString(file, StandardCharsets.UTF_8));
+
+    new JUnit4ToJUnit5Converter().converter(file);
+    FileAnalysis analysis = analyzer.analyzeQuietly(file);
+    assertTrue(analysis.junit4());
+    assertNull(analysis.error());
+    assertEquals(0, count(analysis, Construct.TEST_EXPECTED));
+    assertEquals(Map.of("TestName", 1), analysis.rules());
+    assertEquals(1, count(analysis, Construct.HAMCREST_MATCHER));
+    assertEquals(1, count(analysis, Construct.UNMAPPED_MATCHER));
+    assertEquals(0, count(analysis, Construct.MESSAGE_FIRST_ASSERT));
+    assertEquals(0, count(analysis, Construct.EXTENDS_ASSERT));
+  }
+
+  /**
+   * 转换之后不再引用 JUnit4 的文件不解析
+   */
+  @Test
+  void skipsConvertedFile() throws IOException {
+    Path file = write("T.java", SOURCE);
+    new JUnit4ToJUnit5Converter().converter(file);
+    FileAnalysis analysis = analyzer.analyzeQuietly(file);
+    assertFalse(analysis.junit4());
+    assertArrayEquals(new int[Construct.values().length], analysis.counts());
+  }
+
+  @Test
+  void skipsFileWithoutJUnit4() throws IOException {
+    FileAnalysis analysis = analyzer.analyzeQuietly(write("Plain.java",
+        "class Plain { @Test(expected = X.class) void t() {} }\n"));
+    assertFalse(analysis.junit4());
+    assertNull(analysis.error());
+    assertArrayEquals(new int[Construct.values().length], analysis.counts());
+  }
+
+  @Test
+  void recordsFailuresInsteadOfThrowing() throws IOException {
+    FileAnalysis broken = analyzer.analyzeQuietly(write("Broken.java", "import org.junit.Test;\nclass Broken {\n"));
+    assertTrue(broken.junit4());
+    assertNotNull(broken.error());
+    assertTrue(broken.error().startsWith("parse error"), broken.error());
+
+    FileAnalysis missing = analyzer.analyzeQuietly(root.resolve("Missing.java"));
+    assertFalse(missing.junit4());
+    assertNotNull(missing.error());
+  }
+
+  /**
+   * 按模块汇总，CSV 中不输出个数为 0 的行
+   */
+  @Test
+  void summarizesModulesAndWritesCsv() throws IOException {
+    Path a = Files.createDirectories(root.resolve("a/src/test/java"));
+    Path b = Files.createDirectories(root.resolve("b/src/test/java"));
+    write(a.resolve("T.java"), SOURCE);
+    write(a.resolve("Broken.java"), "import org.junit.Test;\nclass Broken {\n");
+    write(b.resolve("Plain.java"), "class Plain {}\n");
+    AnalysisReport report = analyzer.analyze(List.of(
+        new MavenReactor.Module("a", root.resolve("a"), List.of(a)),
+        new MavenReactor.Module("b", root.resolve("b"), List.of(b))), 2);
+
+    List<AnalysisReport.ModuleCounts> modules = report.modules();
+    assertEquals(2, modules.size());
+    assertEquals(2, modules.get(0).files());
+    assertEquals(2, modules.get(0).junit4Files());
+    assertEquals(1, modules.get(0).failed());
+    assertEquals(0, modules.get(1).junit4Files());
+
+    Path csv = root.resolve("report.csv");
+    report.write(csv);
+    assertEquals(List.of(
+        "module,construct,count",
+        "a,files,2",
+        "a,junit4-files,2",
+        "a,failed,1",
+        "a,test-expected,1",
+        "a,rule,3",
+        "a,hamcrest,2",
+        "a,hamcrest-unmapped,1",
+        "a,message-first-assert,1",
+        "a,extends-assert,1",
+        "a,rule:ExpectedException,1",
+        "a,rule:TemporaryFolder,2",
+        "b,files,1"), Files.readAllLines(csv, StandardCharsets.UTF_8));
+  }
+
+  private static int count(FileAnalysis analysis, Construct construct) {
+    return analysis.counts()[construct.ordinal()];
+  }
+
+  private Path write(String name, String content) throws IOException {
+    return write(root.resolve(name), content);
+  }
+
+  private static Path write(Path file, String content) throws IOException {
+    return Files.writeString(file, content, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,172 @@
+package org.example.benchmark;
+
+/**
+ * JMH 基准使用的合成语料，按 Hadoop 测试类的常见形态生成 JUnit4 源码：
+ * - SMALL：几十行的小测试类，@Before/@After 加少量断言
+ * - HUGE：上千个方法的大测试类（类似 TestDFSShell、TestRouterRpc）
+ * - ASSERT_HEAVY：每个方法大量 JUnit4 风格断言（message 在前、Assert.xxx、Hamcrest）
+ * - RULE_HEAVY：大量 @Rule 字段与 @Test(timeout/expected)
+ */
+public enum BenchmarkCorpus {
+
+  SMALL {
+    @Override
+    String generate() {
+      StringBuilder sb = header("TestSmallRpc");
+      sb.append("  private int port;\n\n")
+          .append("  @Before\n")
+          .append("  public void setUp() {\n")
+          .append("    port = 8020;\n")
+          .append("  }\n\n")
+          .append("  @After\n")
+          .append("  public void tearDown() {\n")
+          .append("    port = 0;\n")
+          .append("  }\n\n");
+      for (int i = 0; i < 3; i++) {
+        sb.append("  @Test\n")
+            .append("  public void testPort").append(i).append("() {\n")
+            .append("    assertEquals(\"port mismatch\", 8020, port);\n")
+            .append("    assertTrue(\"port should be positive\", port > 0);\n")
+            .append("  }\n\n");
+      }
+      return sb.append("}\n").toString();
+    }
+  },
+
+  HUGE {
+    @Override
+    String generate() {
+      StringBuilder sb = header("TestHugeShell");
+      sb.append("  private static final String MESSAGE = \"shell\";\n\n")
+          .append("  @BeforeClass\n")
+          .append("  public static void setUpCluster() {\n")
+          .append("  }\n\n");
+      for (int i = 0; i < 1500; i++) {
+        if (i % 25 == 0) {
+          sb.append("  @Test(timeout = 60000)\n");
+        } else if (i % 25 == 1) {
+          sb.append("  @Test(expected = IOException.class)\n");
+        } else if (i % 50 == 2) {
+          sb.append("  @Ignore\n  @Test\n");
+        } else {
+          sb.append("  @Test\n");
+        }
+        sb.append("  public void testCommand").append(i).append("() throws Exception {\n")
+            .append("    int exitCode = ").append(i % 3).append(";\n")
+            .append("    String out = \"-ls /user/\" + exitCode;\n");
+        if (i % 5 == 0) {
+          sb.append("    assertEquals(\"exit code\", ").append(i % 3).append(", exitCode);\n");
+        } else {
+          sb.append("    assertEquals(").append(i % 3).append(", exitCode);\n");
+        }
+        sb.append("    assertNotNull(out);\n")
+            .append("  }\n\n");
+      }
+      return sb.append("}\n").toString();
+    }
+  },
+
+  ASSERT_HEAVY {
+    @Override
+    String generate() {
+      StringBuilder sb = header("TestAssertHeavyBlockManager");
+      sb.append("  private final String message = \"block report\";\n\n");
+      for (int i = 0; i < 150; i++) {
+        sb.append("  @Test\n")
+            .append("  public void testReport").append(i).append("() throws Exception {\n")
+            .append("    long blocks = ").append(i).append("L;\n")
+            .append("    String msg = \"blocks=\" + blocks;\n")
+            .append("    assertEquals(msg, ").append(i).append("L, blocks);\n")
+            .append("    assertEquals(\"count \" + blocks, blocks, blocks);\n")
+            .append("    assertTrue(message, blocks >= 0);\n")
+            .append("    assertFalse(\"negative\", blocks < 0);\n")
+            .append("    assertNotNull(\"report\", msg);\n")
+            .append("    assertNull(\"no error\", null);\n")
+            .append("    Assert.assertSame(\"same\", msg, msg);\n")
+            .append("    Assert.assertArrayEquals(\"arrays\", new long[] {blocks}, new long[] {blocks});\n")
+            .append("    assertThat(blocks, is(").append(i).append("L));\n")
+            .append("    assertThat(msg, containsString(\"blocks\"));\n")
+            .append("    assertEquals(blocks, blocks, 0.1);\n")
+            .append("  }\n\n");
+      }
+      return sb.append("}\n").toString();
+    }
+  },
+
+  RULE_HEAVY {
+    @Override
+    String generate() {
+      StringBuilder sb = header("TestRuleHeavyDataNode");
+      sb.append("  @Rule\n")
+          .append("  public Timeout globalTimeout = new Timeout(120000);\n\n")
+          .append("  @Rule\n")
+          .append("  public ExpectedException thrown = ExpectedException.none();\n\n")
+          .append("  @Rule\n")
+          .append("  public TemporaryFolder baseDir = new TemporaryFolder();\n\n")
+          .append("  @Rule\n")
+          .append("  public TestName name = new TestName();\n\n");
+      for (int i = 0; i < 200; i++) {
+        if (i % 3 == 0) {
+          sb.append("  @Test(timeout = ").append(30000 + i).append(")\n");
+        } else if (i % 3 == 1) {
+          sb.append("  @Test(expected = IOException.class)\n");
+        } else {
+          sb.append("  @Test\n");
+        }
+        sb.append("  public void testVolume").append(i).append("() throws Exception {\n")
+            .append("    File dir = baseDir.newFolder(name.getMethodName());\n");
+        if (i % 3 == 2) {
+          sb.append("    thrown.expect(IOException.class);\n")
+              .append("    thrown.expectMessage(\"volume failed\");\n");
+        }
+        sb.append("    assertTrue(\"dir should exist\", dir.exists());\n");
+        if (i % 3 == 1) {
+          sb.append("    throw new IOException(\"volume \" + dir);\n");
+        }
+        sb.append("  }\n\n");
+      }
+      return sb.append("}\n").toString();
+    }
+  };
+
+  private String source;
+
+  abstract String generate();
+
+  /**
+   * 生成的源码，同一个语料只生成一次
+   */
+  public synchronized String source() {
+    if (source == null) {
+      source = generate();
+    }
+    return source;
+  }
+
+  private static StringBuilder header(String className) {
+    return new StringBuilder()
+        .append("/**\n")
+        .append(" * Licensed to the Apache Software Foundation (ASF) under one\n")
+        .append(" * or more contributor license agreements.\n")
+        .append(" */\n")
+        .append("package org.apache.hadoop.hdfs;\n\n")
+        .append("import java.io.File;\n")
+        .append("import java.io.IOException;\n\n")
+        .append("import org.junit.After;\n")
+        .append("import org.junit.Assert;\n")
+        .append("import org.junit.Before;\n")
+        .append("import org.junit.BeforeClass;\n")
+        .append("import org.junit.Ignore;\n")
+        .append("import org.junit.Rule;\n")
+        .append("import org.junit.Test;\n")
+        .append("import org.junit.rules.ExpectedException;\n")
+        .append("import org.junit.rules.TemporaryFolder;\n")
+        .append("import org.junit.rules.TestName;\n")
+        .append("import org.junit.rules.Timeout;\n\n")
+        .append("import static org.hamcrest.CoreMatchers.containsString;\n")
+        .append("import static org.hamcrest.CoreMatchers.is;\n")
+        .append("import static org.hamcrest.MatcherAssert.assertThat;\n")
+        .append("import static org.junit.Assert.*;\n\n")
+        .append("public class ").append(className).append(" {\n\n");
+  }
+}
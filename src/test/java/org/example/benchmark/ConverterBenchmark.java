@@ -0,0 +1,72 @@
+package org.example.benchmark;
+
+import org.example.converter.JUnit4ToJUnit5Converter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端基准：完整的 converter()，包括读文件、预过滤、解析、全部处理器与写回
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+
+  @State(Scope.Thread)
+  public static class SourceFile {
+
+    @Param
+    BenchmarkCorpus corpus;
+
+    JUnit4ToJUnit5Converter converter;
+
+    Path dir;
+
+    Path file;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+      converter = new JUnit4ToJUnit5Converter();
+      dir = Files.createTempDirectory("junit5-benchmark");
+      file = dir.resolve("TestBenchmark.java");
+    }
+
+    /**
+     * 转换会改写文件，每次调用前恢复为 JUnit4 源码
+     */
+    @Setup(Level.Invocation)
+    public void restoreSource() throws IOException {
+      Files.writeString(file, corpus.source());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @Benchmark
+  public Path converter(SourceFile state) throws IOException {
+    state.converter.converter(state.file);
+    return state.file;
+  }
+}
@@ -0,0 +1,164 @@
+package org.example.benchmark;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.example.converter.ConversionContext;
+import org.example.converter.MigrationEngine;
+import org.example.converter.processor.AssertArgumentsProcessor;
+import org.example.converter.processor.AssertionsImportAdder;
+import org.example.converter.processor.ClassExtendsAssertProcessor;
+import org.example.converter.processor.HamcrestToAssertJTransformer;
+import org.example.converter.processor.RedundantAssertionsImportProcessor;
+import org.example.converter.processor.TestExpectedProcessor;
+import org.example.converter.processor.TestTimeoutProcessor;
+import org.example.converter.processor.TimeoutImportAdder;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 对比逐个处理器多趟遍历与单次遍历引擎的耗时
+ * 语料为模拟 TestDFSShell 规模的测试类，解析与 LexicalPreservingPrinter.setup 不计入耗时
+ * 用法：FusedTraversalBenchmark [方法数] [迭代次数]
+ */
+public class FusedTraversalBenchmark {
+
+  private static final Set<String> SHIFT_THREE_ARGS = Set.of(
+      "assertEquals", "assertNotEquals", "assertSame", "assertNotSame", "assertArrayEquals");
+
+  private static final Set<String> SWAP_TWO_ARGS = Set.of(
+      "assertTrue", "assertFalse", "assertNull", "assertNotNull");
+
+  // 与 runSequential 相同的处理器集合，不含 import 与生命周期注解的迁移
+  private static final MigrationEngine ENGINE = new MigrationEngine(List.of(
+      new ClassExtendsAssertProcessor(),
+      new AssertArgumentsProcessor(),
+      new TestTimeoutProcessor(),
+      new TestExpectedProcessor(),
+      new TimeoutImportAdder(),
+      new AssertionsImportAdder(),
+      new HamcrestToAssertJTransformer(),
+      new RedundantAssertionsImportProcessor()));
+
+  // 原先 converter() 中完整遍历语法树的处理器个数
+  private static final int SEQUENTIAL_PASSES = 6;
+
+  public static void main(String[] args) {
+    int methods = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    String source = generateTestClass(methods);
+
+    long nodes = countNodes(StaticJavaParser.parse(source));
+    System.out.printf("corpus: %d methods, %d lines, %d nodes%n",
+        methods, source.lines().count(), nodes);
+    System.out.printf("node visits per file: sequential=%d fused=%d%n",
+        nodes * SEQUENTIAL_PASSES, nodes);
+
+    // 不启用词法保留时，耗时主要是遍历与匹配本身；启用后还包含 LexicalPreservingPrinter 维护文本的开销
+    measure("ast only", source, iterations, false);
+    measure("lexical preserving", source, iterations, true);
+  }
+
+  private static void measure(String label, String source, int iterations, boolean lexical) {
+    // 预热
+    for (int i = 0; i < iterations; i++) {
+      runSequential(prepare(source, lexical));
+      runFused(prepare(source, lexical));
+    }
+
+    long sequentialNanos = 0;
+    long fusedNanos = 0;
+    for (int i = 0; i < iterations; i++) {
+      CompilationUnit cu = prepare(source, lexical);
+      long start = System.nanoTime();
+      runSequential(cu);
+      sequentialNanos += System.nanoTime() - start;
+
+      cu = prepare(source, lexical);
+      start = System.nanoTime();
+      runFused(cu);
+      fusedNanos += System.nanoTime() - start;
+    }
+
+    double sequentialMs = sequentialNanos / 1e6 / iterations;
+    double fusedMs = fusedNanos / 1e6 / iterations;
+    System.out.printf("[%s] sequential: %.3f ms/file, fused: %.3f ms/file, speedup: %.2fx%n",
+        label, sequentialMs, fusedMs, sequentialMs / fusedMs);
+  }
+
+  private static CompilationUnit prepare(String source, boolean lexical) {
+    CompilationUnit cu = StaticJavaParser.parse(source);
+    if (lexical) {
+      LexicalPreservingPrinter.setup(cu);
+    }
+    return cu;
+  }
+
+  private static void runSequential(CompilationUnit cu) {
+    AtomicBoolean needTimeoutImport = new AtomicBoolean(false);
+    AtomicBoolean needAssertionsImport = new AtomicBoolean(false);
+    ClassExtendsAssertProcessor.processClassExtendsAssert(cu);
+    AssertArgumentsProcessor.processAssertArguments(cu, SWAP_TWO_ARGS, SHIFT_THREE_ARGS);
+    TestTimeoutProcessor.processTestTimeout(cu, needTimeoutImport);
+    TestExpectedProcessor.processTestExpected(cu, needAssertionsImport);
+    TimeoutImportAdder.addTimeoutImportIfNeeded(cu, needTimeoutImport.get());
+    AssertionsImportAdder.addAssertionsImportIfNeeded(cu, needAssertionsImport.get());
+    HamcrestToAssertJTransformer.transformHamcrestAssertToAssertJ(cu);
+    RedundantAssertionsImportProcessor.processRedundantAssertionsImport(cu);
+  }
+
+  private static void runFused(CompilationUnit cu) {
+    ENGINE.process(cu, new ConversionContext(null), ENGINE.allProcessors());
+  }
+
+  private static long countNodes(Node node) {
+    long count = 1;
+    for (Node child : node.getChildNodes()) {
+      count += countNodes(child);
+    }
+    return count;
+  }
+
+  /**
+   * 生成一个断言密集的测试类，其中只有少量需要改写，使耗时主要体现在遍历与匹配上
+   */
+  static String generateTestClass(int methods) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("package org.apache.hadoop.fs;\n\n")
+        .append("import org.junit.jupiter.api.Test;\n")
+        .append("import static org.junit.jupiter.api.Assertions.*;\n")
+        .append("import static org.hamcrest.MatcherAssert.assertThat;\n")
+        .append("import static org.hamcrest.CoreMatchers.is;\n\n")
+        .append("public class TestDFSShellLike extends Assert {\n\n")
+        .append("  private String message = \"shell\";\n\n");
+    for (int i = 0; i < methods; i++) {
+      // 大多数方法不需要改写，只有少量 @Test(timeout/expected) 与 JUnit4 风格断言
+      if (i % 20 == 0) {
+        sb.append("  @Test(timeout = 30000)\n");
+      } else if (i % 20 == 1) {
+        sb.append("  @Test(expected = java.io.IOException.class)\n");
+      } else {
+        sb.append("  @Test\n");
+      }
+      sb.append("  public void testCase").append(i).append("() throws Exception {\n")
+          .append("    int value = ").append(i).append(";\n")
+          .append("    String out = \"result\" + value;\n")
+          .append("    assertEquals(").append(i).append(", value, \"value mismatch\");\n")
+          .append("    assertTrue(value >= 0, \"value should be positive \" + value);\n")
+          .append("    assertNotNull(out, message);\n");
+      if (i % 10 == 0) {
+        sb.append("    assertEquals(\"legacy order\", ").append(i).append(", value);\n")
+            .append("    assertThat(value, is(").append(i).append("));\n");
+      }
+      sb.append("    for (int j = 0; j < value % 7; j++) {\n")
+          .append("      assertFalse(j < 0 && value < 0, \"loop \" + j);\n")
+          .append("    }\n")
+          .append("  }\n\n");
+    }
+    sb.append("}\n");
+    return sb.toString();
+  }
+}
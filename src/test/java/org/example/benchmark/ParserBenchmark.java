@@ -0,0 +1,91 @@
+package org.example.benchmark;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析与词法保留打印的基准：StaticJavaParser.parse、LexicalPreservingPrinter.setup/print
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+  @State(Scope.Thread)
+  public static class Source {
+
+    @Param
+    BenchmarkCorpus corpus;
+
+    String source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      source = corpus.source();
+    }
+  }
+
+  /**
+   * 每次调用前重新解析，setup 不能在同一个 CompilationUnit 上重复执行
+   */
+  @State(Scope.Thread)
+  public static class ParsedUnit {
+
+    @Param
+    BenchmarkCorpus corpus;
+
+    CompilationUnit cu;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+      cu = StaticJavaParser.parse(corpus.source());
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class LexicalUnit {
+
+    @Param
+    BenchmarkCorpus corpus;
+
+    CompilationUnit cu;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      cu = StaticJavaParser.parse(corpus.source());
+      LexicalPreservingPrinter.setup(cu);
+    }
+  }
+
+  @Benchmark
+  public CompilationUnit parse(Source state) {
+    return StaticJavaParser.parse(state.source);
+  }
+
+  @Benchmark
+  public CompilationUnit lexicalSetup(ParsedUnit state) {
+    return LexicalPreservingPrinter.setup(state.cu);
+  }
+
+  @Benchmark
+  public String lexicalPrint(LexicalUnit state) {
+    return LexicalPreservingPrinter.print(state.cu);
+  }
+}
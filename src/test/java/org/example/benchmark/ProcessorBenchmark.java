@@ -0,0 +1,165 @@
+package org.example.benchmark;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.example.converter.ConversionContext;
+import org.example.converter.processor.AssertArgumentsProcessor;
+import org.example.converter.processor.AssertionsImportAdder;
+import org.example.converter.processor.ClassExtendsAssertProcessor;
+import org.example.converter.processor.HamcrestToAssertJTransformer;
+import org.example.converter.processor.JUnit4AnnotationProcessor;
+import org.example.converter.processor.JUnit4ImportProcessor;
+import org.example.converter.processor.RedundantAssertionsImportProcessor;
+import org.example.converter.processor.RuleAnnotateProcessor;
+import org.example.converter.processor.TestExpectedProcessor;
+import org.example.converter.processor.TestTimeoutProcessor;
+import org.example.converter.processor.TimeoutImportAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个处理器的基准：每个处理器单独在一棵刚解析、已执行 LexicalPreservingPrinter.setup 的语法树上运行，
+ * 解析与 setup 不计入耗时。除 JUnit4ImportProcessor 外，语法树的 import 已预先替换，与转换流程中的状态一致。
+ * 注意 gc.alloc.rate.norm 中包含每次调用前解析与 setup 的分配，比较时以 ParserBenchmark 的结果为基线
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorBenchmark {
+
+  private static final Set<String> SHIFT_THREE_ARGS = Set.of(
+      "assertEquals", "assertNotEquals", "assertSame", "assertNotSame", "assertArrayEquals");
+
+  private static final Set<String> SWAP_TWO_ARGS = Set.of(
+      "assertTrue", "assertFalse", "assertNull", "assertNotNull");
+
+  /**
+   * import 尚未替换的语法树
+   */
+  @State(Scope.Thread)
+  public static class FreshUnit {
+
+    @Param
+    BenchmarkCorpus corpus;
+
+    CompilationUnit cu;
+
+    ConversionContext context;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+      cu = StaticJavaParser.parse(corpus.source());
+      LexicalPreservingPrinter.setup(cu);
+      context = new ConversionContext(null);
+    }
+  }
+
+  /**
+   * import 已经替换过的语法树
+   */
+  @State(Scope.Thread)
+  public static class MigratedUnit {
+
+    @Param
+    BenchmarkCorpus corpus;
+
+    CompilationUnit cu;
+
+    ConversionContext context;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+      cu = StaticJavaParser.parse(corpus.source());
+      LexicalPreservingPrinter.setup(cu);
+      context = new ConversionContext(null);
+      context.setMigratedJUnit4Names(JUnit4ImportProcessor.processImports(cu, context));
+    }
+  }
+
+  @Benchmark
+  public Set<String> junit4Import(FreshUnit state) {
+    return JUnit4ImportProcessor.processImports(state.cu, state.context);
+  }
+
+  @Benchmark
+  public CompilationUnit junit4Annotation(MigratedUnit state) {
+    for (AnnotationExpr annotation : state.cu.findAll(AnnotationExpr.class)) {
+      JUnit4AnnotationProcessor.processAnnotation(annotation, state.context);
+    }
+    return state.cu;
+  }
+
+  @Benchmark
+  public CompilationUnit classExtendsAssert(MigratedUnit state) {
+    ClassExtendsAssertProcessor.processClassExtendsAssert(state.cu);
+    return state.cu;
+  }
+
+  @Benchmark
+  public CompilationUnit assertArguments(MigratedUnit state) {
+    AssertArgumentsProcessor.processAssertArguments(state.cu, SWAP_TWO_ARGS, SHIFT_THREE_ARGS);
+    return state.cu;
+  }
+
+  @Benchmark
+  public boolean testTimeout(MigratedUnit state) {
+    AtomicBoolean needTimeoutImport = new AtomicBoolean(false);
+    TestTimeoutProcessor.processTestTimeout(state.cu, needTimeoutImport);
+    return needTimeoutImport.get();
+  }
+
+  @Benchmark
+  public boolean testExpected(MigratedUnit state) {
+    AtomicBoolean needAssertionsImport = new AtomicBoolean(false);
+    TestExpectedProcessor.processTestExpected(state.cu, needAssertionsImport);
+    return needAssertionsImport.get();
+  }
+
+  @Benchmark
+  public CompilationUnit timeoutImportAdder(MigratedUnit state) {
+    TimeoutImportAdder.addTimeoutImportIfNeeded(state.cu, true);
+    return state.cu;
+  }
+
+  @Benchmark
+  public CompilationUnit assertionsImportAdder(MigratedUnit state) {
+    AssertionsImportAdder.addAssertionsImportIfNeeded(state.cu, true);
+    return state.cu;
+  }
+
+  @Benchmark
+  public CompilationUnit hamcrestToAssertJ(MigratedUnit state) {
+    HamcrestToAssertJTransformer.transformHamcrestAssertToAssertJ(state.cu);
+    return state.cu;
+  }
+
+  @Benchmark
+  public CompilationUnit redundantAssertionsImport(MigratedUnit state) {
+    RedundantAssertionsImportProcessor.processRedundantAssertionsImport(state.cu);
+    return state.cu;
+  }
+
+  @Benchmark
+  public CompilationUnit ruleAnnotate(MigratedUnit state) {
+    RuleAnnotateProcessor.processJUnit4Rules(state.cu);
+    return state.cu;
+  }
+}
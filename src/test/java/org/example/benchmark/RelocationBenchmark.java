@@ -0,0 +1,137 @@
+package org.example.benchmark;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.ClassExpr;
+import com.github.javaparser.ast.expr.LambdaExpr;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.example.converter.processor.TestExpectedProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 改写 @Test(expected) 的分配对比：原先把方法体的语句逐条 clone() 到临时块、清空方法体再放进 lambda，
+ * 现在由 {@link org.example.util.NodeRelocation} 把原语句直接移动到 lambda 中。
+ * 两者都在已执行 LexicalPreservingPrinter.setup 的语法树上改写并打印，比较 gc.alloc.rate.norm；
+ * 与 ProcessorBenchmark 一样，其中包含每次调用前解析与 setup 的分配，两者相同，差值即为改写与打印的差别。
+ * 用法：mvn -Pbenchmark test-compile exec:exec -Djmh.args="RelocationBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelocationBenchmark {
+
+  private static final int METHODS = 100;
+
+  @State(Scope.Thread)
+  public static class ExpectedUnit {
+
+    // 每个 @Test(expected) 方法体中的语句数
+    @Param({"5", "50"})
+    int statements;
+
+    String source;
+
+    CompilationUnit cu;
+
+    @Setup(Level.Trial)
+    public void generate() {
+      source = generateTestClass(statements);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+      cu = StaticJavaParser.parse(source);
+      LexicalPreservingPrinter.setup(cu);
+    }
+  }
+
+  @Benchmark
+  public String cloneBody(ExpectedUnit state) {
+    for (NormalAnnotationExpr annotation : state.cu.findAll(NormalAnnotationExpr.class)) {
+      wrapByCloning(annotation);
+    }
+    return LexicalPreservingPrinter.print(state.cu);
+  }
+
+  @Benchmark
+  public String relocateBody(ExpectedUnit state) {
+    TestExpectedProcessor.processTestExpected(state.cu, new AtomicBoolean());
+    return LexicalPreservingPrinter.print(state.cu);
+  }
+
+  /**
+   * 改用 NodeRelocation 之前 TestExpectedProcessor 的做法，作为基线
+   */
+  private static void wrapByCloning(NormalAnnotationExpr annotation) {
+    TestExpectedProcessor.expectedPair(annotation).ifPresent(pair -> {
+      MethodDeclaration method = (MethodDeclaration) annotation.getParentNode().get();
+      BlockStmt oldBody = method.getBody().get();
+      BlockStmt oldStmts = new BlockStmt();
+      for (Statement st : oldBody.getStatements()) {
+        oldStmts.addStatement(st.clone());
+      }
+      oldBody.getStatements().clear();
+
+      MethodCallExpr assertThrows = new MethodCallExpr(new NameExpr("Assertions"), "assertThrows");
+      assertThrows.addArgument(new ClassExpr(pair.getValue().asClassExpr().getType().clone()));
+      LambdaExpr lambda = new LambdaExpr();
+      lambda.setEnclosingParameters(true);
+      BlockStmt lambdaBody = new BlockStmt();
+      oldStmts.getStatements().forEach(lambdaBody::addStatement);
+      lambda.setBody(lambdaBody);
+      assertThrows.addArgument(lambda);
+      oldBody.addStatement(new ExpressionStmt(assertThrows));
+
+      annotation.getPairs().remove(pair);
+      method.getAnnotations().set(method.getAnnotations().indexOf(annotation), new MarkerAnnotationExpr("Test"));
+    });
+  }
+
+  /**
+   * 每个测试方法都带 @Test(expected)，方法体有 statements 条语句，其中夹有注释
+   */
+  static String generateTestClass(int statements) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("package org.apache.hadoop.hdfs;\n\n")
+        .append("import java.io.IOException;\n\n")
+        .append("import org.junit.jupiter.api.Test;\n\n")
+        .append("public class TestExpectedHeavyNameNode {\n\n");
+    for (int i = 0; i < METHODS; i++) {
+      sb.append("  @Test(expected = IOException.class)\n")
+          .append("  public void testRename").append(i).append("() throws Exception {\n");
+      for (int j = 0; j < statements; j++) {
+        if (j % 10 == 0) {
+          sb.append("    // step ").append(j).append('\n');
+        }
+        sb.append("    String path").append(j).append(" = \"/user/test/\" + ").append(i * j).append(";\n");
+      }
+      sb.append("    throw new IOException(\"rename failed\");\n")
+          .append("  }\n\n");
+    }
+    return sb.append("}\n").toString();
+  }
+}
@@ -0,0 +1,94 @@
+package org.example.converter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversionManifestTest {
+
+  private static final List<String> PROCESSORS = List.of("JUnit4AnnotationProcessor", "TestExpectedProcessor");
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void hashesBufferWithoutMovingIt() {
+    byte[] content = "class A {}".getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.wrap(content);
+    buffer.position(0);
+    assertEquals(ConversionManifest.hash(content), ConversionManifest.hash(buffer));
+    assertEquals(0, buffer.position());
+    assertNotEquals(ConversionManifest.hash(content), ConversionManifest.hash("class B {}".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void upToDateOnlyForRecordedHash() throws IOException {
+    ConversionManifest manifest = new ConversionManifest(dir.resolve("manifest"), PROCESSORS);
+    Path file = dir.resolve("A.java");
+    assertFalse(manifest.isUpToDate(file, "h1"));
+    manifest.record(file, "h1");
+    assertTrue(manifest.isUpToDate(file, "h1"));
+    assertFalse(manifest.isUpToDate(file, "h2"));
+    // 同一文件的不同写法指向同一条记录
+    assertTrue(manifest.isUpToDate(dir.resolve("x/../A.java"), "h1"));
+    manifest.forget(file);
+    assertFalse(manifest.isUpToDate(file, "h1"));
+  }
+
+  @Test
+  void persistsAndReloads() throws IOException {
+    Path manifestFile = dir.resolve("state/manifest");
+    ConversionManifest manifest = new ConversionManifest(manifestFile, PROCESSORS);
+    Path file = dir.resolve("A.java");
+    manifest.record(file, "h1");
+    manifest.persist();
+
+    ConversionManifest reloaded = new ConversionManifest(manifestFile, PROCESSORS);
+    assertEquals(1, reloaded.size());
+    assertTrue(reloaded.isUpToDate(file, "h1"));
+    try (var files = Files.list(manifestFile.getParent())) {
+      // 原子替换后不留下临时文件
+      assertEquals(List.of(manifestFile), files.toList());
+    }
+  }
+
+  /**
+   * 处理器集合变化后，所有记录都不再视为最新
+   */
+  @Test
+  void processorSetChangeInvalidatesEntries() throws IOException {
+    Path manifestFile = dir.resolve("manifest");
+    ConversionManifest manifest = new ConversionManifest(manifestFile, PROCESSORS);
+    Path file = dir.resolve("A.java");
+    manifest.record(file, "h1");
+    manifest.persist();
+
+    ConversionManifest changed = new ConversionManifest(manifestFile, List.of("JUnit4AnnotationProcessor"));
+    assertFalse(changed.isUpToDate(file, "h1"));
+  }
+
+  /**
+   * 版本号由 Maven 在构建时填充，不能是未替换的占位符
+   */
+  @Test
+  void recordsFilteredToolVersion() throws IOException {
+    Path manifestFile = dir.resolve("manifest");
+    ConversionManifest manifest = new ConversionManifest(manifestFile, PROCESSORS);
+    manifest.record(dir.resolve("A.java"), "h1");
+    manifest.persist();
+    String content = Files.readString(manifestFile);
+    assertFalse(content.contains("${"), content);
+    assertFalse(content.contains("unknown"), content);
+  }
+}
@@ -0,0 +1,95 @@
+package org.example.converter;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import org.example.converter.processor.MigrationProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MigrationEngineTest {
+
+  /**
+   * 两个处理器订阅同一种节点：后一个处理器收到前一个的替换结果，两次替换都保留
+   */
+  @Test
+  void passesReplacementToNextProcessor() {
+    List<String> visited = new ArrayList<>();
+    MigrationEngine engine = new MigrationEngine(List.of(
+        new Replacing("rename", visited, call -> new MethodCallExpr("b")),
+        new Replacing("wrap", visited, call -> new MethodCallExpr("c", call))));
+    assertEquals("class T {\n"
+        + "\n"
+        + "    void m() {\n"
+        + "        c(b());\n"
+        + "    }\n"
+        + "}\n", process(engine, "class T { void m() { a(); } }"));
+    assertEquals(List.of("rename a()", "wrap b()"), visited);
+  }
+
+  /**
+   * 替换后的节点类型不在后续处理器订阅的类型中时，后续处理器不再收到它
+   */
+  @Test
+  void skipsProcessorNotSubscribedToReplacement() {
+    List<String> visited = new ArrayList<>();
+    MigrationEngine engine = new MigrationEngine(List.of(
+        new Replacing("toName", visited, call -> new NameExpr("x")),
+        new Replacing("wrap", visited, call -> new MethodCallExpr("c", call))));
+    assertEquals("class T {\n"
+        + "\n"
+        + "    void m() {\n"
+        + "        x;\n"
+        + "    }\n"
+        + "}\n", process(engine, "class T { void m() { a(); } }"));
+    assertEquals(List.of("toName a()"), visited);
+  }
+
+  private static String process(MigrationEngine engine, String source) {
+    CompilationUnit cu = StaticJavaParser.parse(source);
+    engine.process(cu, new ConversionContext(null), engine.allProcessors());
+    return cu.toString();
+  }
+
+  /**
+   * 订阅方法调用，把每个调用替换为 replace 的结果，并记录收到的节点
+   */
+  private static final class Replacing implements MigrationProcessor {
+
+    private final String name;
+
+    private final List<String> visited;
+
+    private final Function<MethodCallExpr, ? extends Node> replace;
+
+    Replacing(String name, List<String> visited, Function<MethodCallExpr, ? extends Node> replace) {
+      this.name = name;
+      this.visited = visited;
+      this.replace = replace;
+    }
+
+    @Override
+    public String name() {
+      return name;
+    }
+
+    @Override
+    public Set<Class<? extends Node>> nodeTypes() {
+      return Set.of(MethodCallExpr.class);
+    }
+
+    @Override
+    public Node visit(Node node, ConversionContext context) {
+      visited.add(name + " " + node);
+      return replace.apply((MethodCallExpr) node);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package org.example.converter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardTest {
+
+  @TempDir
+  Path root;
+
+  /**
+   * 各片互不相交，合起来正好是全部文件，累计权重相差不超过最大的文件
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 3, 7, 16})
+  void partitionIsDisjointAndCoversEveryFile(int count) {
+    Random random = new Random(count);
+    List<Path> files = new ArrayList<>();
+    List<Long> weights = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      files.add(root.resolve("m" + i % 5).resolve("T" + i + ".java"));
+      // 包括空文件与大量同样大小的文件
+      weights.add(i % 10 == 0 ? 0L : random.nextInt(5) * 1000L);
+    }
+    Set<Path> seen = new HashSet<>();
+    long max = Long.MIN_VALUE;
+    long min = Long.MAX_VALUE;
+    for (int i = 1; i <= count; i++) {
+      List<Path> selected = new Shard(i, count).select(files, root, path -> path,
+          path -> weights.get(files.indexOf(path)));
+      long load = 0;
+      for (Path file : selected) {
+        assertTrue(seen.add(file), () -> file + " is in two shards");
+        load += Math.max(weights.get(files.indexOf(file)), 1);
+      }
+      max = Math.max(max, load);
+      min = Math.min(min, load);
+    }
+    assertEquals(new HashSet<>(files), seen);
+    assertTrue(max - min <= 4000, max + " - " + min);
+  }
+
+  /**
+   * 检出目录与遍历顺序不影响划分
+   */
+  @Test
+  void partitionDependsOnlyOnRelativePathAndWeight() {
+    Path other = Path.of("/elsewhere/checkout");
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      names.add("src/test/java/T" + i + ".java");
+    }
+    List<String> reversed = new ArrayList<>(names);
+    Collections.reverse(reversed);
+    for (int i = 1; i <= 4; i++) {
+      Shard shard = new Shard(i, 4);
+      assertEquals(relative(root, shard.select(paths(root, names), root, path -> path, path -> 100)),
+          relative(other, shard.select(paths(other, reversed), other, path -> path, path -> 100)));
+    }
+  }
+
+  /**
+   * 同一批文件按 LF 与 CRLF 检出，每一片选出的文件相同
+   */
+  @Test
+  void lineEndingsDoNotChangePartition() throws Exception {
+    Path lf = Files.createDirectories(root.resolve("lf"));
+    Path crlf = Files.createDirectories(root.resolve("crlf"));
+    List<Path> lfFiles = new ArrayList<>();
+    List<Path> crlfFiles = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      // 行数与每行长度都不同，CRLF 下字节数的差异不是常数
+      StringBuilder source = new StringBuilder("class T" + i + " {\n");
+      for (int line = 0; line < (i * 7) % 23; line++) {
+        source.append("  int f").append(line).append(" = ").append(i * line).append(";\n");
+      }
+      source.append("}\n");
+      String name = "T" + i + ".java";
+      lfFiles.add(Files.writeString(lf.resolve(name), source, StandardCharsets.UTF_8));
+      crlfFiles.add(Files.writeString(crlf.resolve(name), source.toString().replace("\n", "\r\n"),
+          StandardCharsets.UTF_8));
+    }
+    assertEquals(Shard.weight(lfFiles.get(5)), Shard.weight(crlfFiles.get(5)));
+    for (int i = 1; i <= 3; i++) {
+      Shard shard = new Shard(i, 3);
+      assertEquals(relative(lf, shard.select(lf, lfFiles)), relative(crlf, shard.select(crlf, crlfFiles)));
+    }
+  }
+
+  @Test
+  void missingFileWeighsNothing() {
+    assertEquals(0, Shard.weight(root.resolve("missing.java")));
+  }
+
+  @Test
+  void parsesSpec() {
+    assertEquals(new Shard(2, 8), Shard.parse(" 2 / 8 "));
+    assertEquals("2/8", Shard.parse("2/8").toString());
+    assertTrue(Shard.parse("1/1").isAll());
+    assertThrows(IllegalArgumentException.class, () -> Shard.parse("3"));
+    assertThrows(IllegalArgumentException.class, () -> Shard.parse("0/2"));
+    assertThrows(IllegalArgumentException.class, () -> Shard.parse("3/2"));
+  }
+
+  private static List<Path> paths(Path base, List<String> names) {
+    return names.stream().map(base::resolve).toList();
+  }
+
+  private static List<String> relative(Path base, List<Path> files) {
+    return files.stream().map(file -> base.relativize(file).toString()).toList();
+  }
+}
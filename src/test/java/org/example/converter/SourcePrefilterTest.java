@@ -0,0 +1,93 @@
+package org.example.converter;
+
+import org.example.converter.processor.MigrationProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SourcePrefilterTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void skipsFilesWithoutJUnit4References() throws IOException {
+    SourcePrefilter prefilter = new SourcePrefilter();
+    assertNull(prefilter.readIfMigratable(write("import org.junit.jupiter.api.Test;\nclass A {}\n")));
+    assertNull(prefilter.readIfMigratable(write("")));
+    assertNotNull(prefilter.readIfMigratable(write("import org.junit.Test;\nclass A {}\n")));
+    assertNotNull(prefilter.readIfMigratable(write("import static org.junit.Assert.*;\n")));
+    assertNotNull(prefilter.readIfMigratable(write("import org.junit.*;\n")));
+    assertNotNull(prefilter.readIfMigratable(write("class A extends junit.framework.TestCase {}\n")));
+  }
+
+  @Test
+  void returnsDecodedSource() throws IOException {
+    String source = "import org.junit.Test;\n// 中文注释\nclass A {}\n";
+    assertEquals(source, new SourcePrefilter().readIfMigratable(write(source)).source());
+  }
+
+  /**
+   * 与 Files.readString 一致，非法的 UTF-8 字节报错而不是替换
+   */
+  @Test
+  void rejectsMalformedUtf8() throws IOException {
+    Path file = dir.resolve("Bad.java");
+    byte[] prefix = "import org.junit.Test; // ".getBytes(StandardCharsets.UTF_8);
+    byte[] bytes = Arrays.copyOf(prefix, prefix.length + 1);
+    bytes[prefix.length] = (byte) 0xC3;
+    Files.write(file, bytes);
+    assertThrows(CharacterCodingException.class, () -> new SourcePrefilter().readIfMigratable(file));
+  }
+
+  /**
+   * 处理器 i 对应掩码第 i 位：没有触发词的始终启用，其余只在出现触发词时启用
+   */
+  @Test
+  void enablesProcessorsByTrigger() throws IOException {
+    SourcePrefilter prefilter = new SourcePrefilter(List.of(
+        processor(Set.of()),
+        processor(Set.of("assertThat", "org.hamcrest")),
+        processor(Set.of("@Rule"))));
+    assertEquals(0b011, prefilter.readIfMigratable(write("import org.junit.Test;\n"
+        + "class A { void t() { assertThat(1, is(1)); } }\n")).processors());
+    assertEquals(0b101, prefilter.readIfMigratable(write("class A { @Rule public TemporaryFolder f; }\n"
+        + "import org.junit.Rule;\n")).processors());
+    assertEquals(0b001, prefilter.readIfMigratable(write("import org.junit.Test;\n")).processors());
+  }
+
+  @Test
+  void inspectorCanSkipBeforeScanning() throws IOException {
+    Path file = write("import org.junit.Test;\n");
+    assertNull(new SourcePrefilter().readIfMigratable(file, content -> false));
+    assertNotNull(new SourcePrefilter().readIfMigratable(file, content -> content.remaining() > 0));
+  }
+
+  private Path write(String source) throws IOException {
+    Path file = Files.createTempFile(dir, "Test", ".java");
+    Files.writeString(file, source);
+    return file;
+  }
+
+  private static MigrationProcessor processor(Set<String> triggers) {
+    return new MigrationProcessor() {
+      @Override
+      public Set<String> triggers() {
+        return triggers;
+      }
+    };
+  }
+}
@@ -0,0 +1,127 @@
+package org.example.converter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenSpanRewriterTest {
+
+  private static final String SOURCE = "package p;\n"
+      + "\n"
+      + "import java.util.List;\n"
+      + "%s"
+      + "import org.junit.Assert;\n"
+      + "import org.junit.Before;\n"
+      + "import org.junit.Test;\n"
+      + "\n"
+      + "import static org.junit.Assert.assertEquals;\n"
+      + "\n"
+      + "public class T {\n"
+      + "\n"
+      + "  private String name;\n"
+      + "\n"
+      + "  @Before\n"
+      + "  public void setUp() {\n"
+      + "    name = \"n\";\n"
+      + "  }\n"
+      + "\n"
+      + "  // 超时\n"
+      + "  @Test(timeout = %s)\n"
+      + "  public void timeout() {\n"
+      + "    assertEquals(\"names differ\", name, List.of(name).get(0));\n"
+      + "    Assert.assertTrue(\"flag\", !name.isEmpty());\n"
+      + "  }\n"
+      + "\n"
+      + "  @Test\n"
+      + "  public void other() {\n"
+      + "    assertEquals(1, name.length());\n"
+      + "  }\n"
+      + "}\n";
+
+  private static final String TIME_UNIT = "import java.util.concurrent.TimeUnit;\n";
+
+  @TempDir
+  Path root;
+
+  /**
+   * 快速路径与完整路径的结果逐字节相同
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"2000", "60_000", "0x3E8", "500", "1_500"})
+  void fastPathMatchesFullPath(String timeout) throws IOException {
+    String source = String.format(SOURCE, TIME_UNIT, timeout);
+    assertNotNull(fastPath(source), "expected the fast path to handle the file");
+    assertEquals(convert(source, Long.MAX_VALUE), convert(source, 0));
+  }
+
+  /**
+   * 不足一秒的超时保留毫秒数，不会被截断成 0
+   */
+  @Test
+  void keepsSubSecondTimeoutInMilliseconds() throws IOException {
+    String converted = convert(String.format(SOURCE, TIME_UNIT, "500"), 0);
+    assertTrue(converted.contains("  @Test\n  @Timeout(value = 500, unit = TimeUnit.MILLISECONDS)\n"), converted);
+    assertTrue(converted.contains("import org.junit.jupiter.api.Timeout;\n"), converted);
+  }
+
+  @Test
+  void convertsWholeSecondsToSeconds() throws IOException {
+    String converted = convert(String.format(SOURCE, "", "2000"), 0);
+    assertTrue(converted.contains("  @Test\n  @Timeout(value = 2)\n"), converted);
+    assertFalse(converted.contains("TimeUnit"), converted);
+  }
+
+  /**
+   * 还需要插入 TimeUnit 的 import 时交给完整路径，结果仍然是毫秒
+   */
+  @Test
+  void subSecondTimeoutWithoutTimeUnitImportFallsBack() throws IOException {
+    String source = String.format(SOURCE, "", "500");
+    assertNull(fastPath(source));
+    String converted = convert(source, 0);
+    assertTrue(converted.contains("@Timeout(value = 500, unit = TimeUnit.MILLISECONDS)"), converted);
+    assertTrue(converted.contains("import java.util.concurrent.TimeUnit;\n"), converted);
+    assertEquals(convert(source, Long.MAX_VALUE), converted);
+  }
+
+  @Test
+  void keepsCrlfLineEndings() throws IOException {
+    String source = String.format(SOURCE, TIME_UNIT, "500").replace("\n", "\r\n");
+    assertNotNull(fastPath(source));
+    String converted = convert(source, 0);
+    assertTrue(converted.contains("@Test\r\n  @Timeout(value = 500, unit = TimeUnit.MILLISECONDS)\r\n"), converted);
+    assertEquals(convert(source, Long.MAX_VALUE), converted);
+  }
+
+  // 与转换时一样由预过滤决定启用的处理器
+  private String fastPath(String source) throws IOException {
+    MigrationEngine engine = MigrationEngine.load();
+    SourcePrefilter.Candidate candidate = new SourcePrefilter(engine.getProcessors())
+        .readIfMigratable(write(source));
+    return new TokenSpanRewriter(engine.getProcessors()).rewrite(source, candidate.processors());
+  }
+
+  private String convert(String source, long fastPathThreshold) throws IOException {
+    Path file = write(source);
+    JUnit4ToJUnit5Converter converter = new JUnit4ToJUnit5Converter();
+    converter.setFastPathThreshold(fastPathThreshold);
+    converter.converter(file);
+    return Files.readString(file, StandardCharsets.UTF_8);
+  }
+
+  private Path write(String source) throws IOException {
+    return Files.writeString(Files.createTempFile(root, "T", ".java"), source, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,233 @@
+package org.example.converter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBackStageTest {
+
+  @TempDir
+  Path root;
+
+  @Test
+  void flushWritesFilesAndClearsJournal() throws Exception {
+    Path journal = root.resolve("journal");
+    Path a = write("A.java", "old a");
+    Path b = write("B.java", "old b");
+    AtomicInteger failed = new AtomicInteger();
+    try (WriteBackStage stage = new WriteBackStage(journal)) {
+      stage.submit(a, bytes("new a"), (nanos, error) -> failed.addAndGet(error == null ? 0 : 1));
+      stage.submit(b, bytes("new b"), (nanos, error) -> failed.addAndGet(error == null ? 0 : 1));
+      stage.flush();
+      assertEquals(0, failed.get());
+      assertEquals("new a", read(a));
+      assertEquals("new b", read(b));
+      assertEquals(0, Files.size(journal));
+      assertEquals(List.of("A.java", "B.java", "journal"), listing());
+    }
+    assertFalse(Files.exists(journal));
+  }
+
+  /**
+   * 排队的内容超过上限时 submit 阻塞到前一批写完；队列为空时超过上限的单个文件也能提交
+   */
+  @Test
+  void submitBlocksWhileQueueIsFull() throws Exception {
+    Path a = write("A.java", "old a");
+    Path b = write("B.java", "old b");
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    try (WriteBackStage stage = new WriteBackStage(null, 10)) {
+      stage.submit(a, bytes("new content a"), (nanos, error) -> {
+        writing.countDown();
+        await(proceed);
+      });
+      assertTrue(writing.await(10, TimeUnit.SECONDS));
+      Thread submitter = new Thread(() -> {
+        try {
+          stage.submit(b, bytes("new b"), (nanos, error) -> { });
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      submitter.start();
+      submitter.join(200);
+      assertTrue(submitter.isAlive(), "submit should wait until the previous batch is written");
+      proceed.countDown();
+      submitter.join(10_000);
+      assertFalse(submitter.isAlive());
+      stage.flush();
+    }
+    assertEquals("new content a", read(a));
+    assertEquals("new b", read(b));
+  }
+
+  @Test
+  void refusesUnrecoveredJournal() throws Exception {
+    Path journal = write("journal", "P\t0\t/x\t/x.tmp\t\n");
+    assertThrows(IOException.class, () -> new WriteBackStage(journal));
+  }
+
+  /**
+   * 运行在 flush 之前中断：回滚把这次写过的文件恢复为原内容，并清理备份。
+   * 同一文件写了两次，两个备份都是原文件的硬链接
+   */
+  @Test
+  void rollsBackInterruptedRun() throws Exception {
+    Path journal = root.resolve("journal");
+    Path a = write("A.java", "old a");
+    WriteBackStage stage = interruptedRun(journal, a);
+
+    assertEquals(List.of(a), WriteBackStage.recover(journal, true).stream().distinct().toList());
+    assertEquals("old a", read(a));
+    assertEquals(List.of("A.java"), listing());
+    stage.close();
+  }
+
+  /**
+   * 重命名都已完成时继续只删除备份与日志，不再改动文件
+   */
+  @Test
+  void resumesInterruptedRun() throws Exception {
+    Path journal = root.resolve("journal");
+    Path a = write("A.java", "old a");
+    WriteBackStage stage = interruptedRun(journal, a);
+
+    assertEquals(List.of(), WriteBackStage.recover(journal, false));
+    assertEquals("second", read(a));
+    assertEquals(List.of("A.java"), listing());
+    stage.close();
+  }
+
+  /**
+   * 已提交、还没有重命名的写入：继续时完成重命名，回滚时保留原文件
+   */
+  @Test
+  void resumesCommittedWriteThatWasNotRenamed() throws Exception {
+    Path journal = crashedBeforeRename();
+    Path a = root.resolve("A.java");
+    assertEquals(List.of(a), WriteBackStage.recover(journal, false));
+    assertEquals("new a", read(a));
+    assertEquals(List.of("A.java"), listing());
+  }
+
+  @Test
+  void rollsBackCommittedWriteThatWasNotRenamed() throws Exception {
+    Path journal = crashedBeforeRename();
+    Path a = root.resolve("A.java");
+    assertEquals(List.of(a), WriteBackStage.recover(journal, true));
+    assertEquals("old a", read(a));
+    assertEquals(List.of("A.java"), listing());
+  }
+
+  /**
+   * 没有 C 记录的写入没有覆盖原文件：两种方式都只清理临时文件与备份；写了一半的最后一行被忽略
+   */
+  @Test
+  void discardsUncommittedWrite() throws Exception {
+    for (boolean rollback : new boolean[] {false, true}) {
+      Path a = write("A.java", "old a");
+      Path tmp = write(".A.java.r-0.junit5-tmp", "new a");
+      Path journal = write("journal", "P\t0\t" + a + "\t" + tmp + "\t\n" + "C\t");
+      assertEquals(List.of(), WriteBackStage.recover(journal, rollback));
+      assertEquals("old a", read(a));
+      assertEquals(List.of("A.java"), listing());
+    }
+  }
+
+  @Test
+  void recoverWithoutJournalDoesNothing() throws Exception {
+    assertEquals(List.of(), WriteBackStage.recover(root.resolve("journal"), true));
+  }
+
+  @Test
+  void writesAtomicallyWithoutLeavingTemporaryFiles() throws Exception {
+    Path a = write("A.java", "old a");
+    WriteBackStage.writeAtomically(a, bytes("new a"));
+    assertEquals("new a", read(a));
+    assertEquals(List.of("A.java"), listing());
+  }
+
+  /**
+   * 覆盖后保留原文件的权限，同步写入与写回线程都一样
+   */
+  @Test
+  void keepsPermissionsOfOverwrittenFile() throws Exception {
+    Path a = write("A.java", "old a");
+    Path b = write("B.java", "old b");
+    Files.setPosixFilePermissions(a, PosixFilePermissions.fromString("rwxr-x---"));
+    Files.setPosixFilePermissions(b, PosixFilePermissions.fromString("rw-------"));
+    WriteBackStage.writeAtomically(a, bytes("new a"));
+    try (WriteBackStage stage = new WriteBackStage(root.resolve("journal"))) {
+      stage.submit(b, bytes("new b"), (nanos, error) -> { });
+      stage.flush();
+    }
+    assertEquals("new a", read(a));
+    assertEquals("new b", read(b));
+    assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(a)));
+    assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(b)));
+  }
+
+  // 写回线程完成两次写入，但没有 flush：日志与备份都还在
+  private static WriteBackStage interruptedRun(Path journal, Path file) throws Exception {
+    WriteBackStage stage = new WriteBackStage(journal);
+    CountDownLatch written = new CountDownLatch(2);
+    stage.submit(file, bytes("first"), (nanos, error) -> written.countDown());
+    stage.submit(file, bytes("second"), (nanos, error) -> written.countDown());
+    assertTrue(written.await(10, TimeUnit.SECONDS));
+    assertEquals("second", read(file));
+    assertTrue(Files.size(journal) > 0);
+    return stage;
+  }
+
+  // 模拟在 C 记录落盘之后、重命名之前中断：原文件、备份、临时文件都在
+  private Path crashedBeforeRename() throws IOException {
+    Path a = write("A.java", "old a");
+    Path tmp = write(".A.java.r-0.junit5-tmp", "new a");
+    Path backup = root.resolve(".A.java.r-0.junit5-orig");
+    Files.createLink(backup, a);
+    return write("journal", "P\t0\t" + a + "\t" + tmp + "\t" + backup + "\nC\t0\n");
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Path write(String name, String content) throws IOException {
+    return Files.writeString(root.resolve(name), content, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String read(Path path) throws IOException {
+    return Files.readString(path, StandardCharsets.UTF_8);
+  }
+
+  private List<String> listing() throws IOException {
+    try (Stream<Path> files = Files.list(root)) {
+      return files.map(path -> path.getFileName().toString()).sorted().toList();
+    }
+  }
+}
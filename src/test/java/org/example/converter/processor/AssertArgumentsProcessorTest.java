@@ -0,0 +1,76 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AssertArgumentsProcessorTest {
+
+  /**
+   * 被比较的值是什么类型（局部变量、字段都有），JUnit4 风格的调用都要把 message 移到最后
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"String", "int", "Object"})
+  void shiftsMessageWhateverTheComparedType(String type) {
+    String members = "  " + type + " expectedField;\n"
+        + "  void test(" + type + " actualParam) {\n"
+        + "    " + type + " expected = null;\n"
+        + "    " + type + " actual = null;\n"
+        + "    String message = \"m\";\n";
+    assertEquals("assertEquals(expected, actual, \"names differ\")",
+        convert(members, "assertEquals(\"names differ\", expected, actual)"));
+    assertEquals("assertEquals(this.expectedField, actualParam, \"names differ\")",
+        convert(members, "assertEquals(\"names differ\", this.expectedField, actualParam)"));
+    assertEquals("assertNotEquals(expected, actual, \"a\" + expected)",
+        convert(members, "assertNotEquals(\"a\" + expected, expected, actual)"));
+    assertEquals("assertEquals(expected, actual, message)",
+        convert(members, "assertEquals(message, expected, actual)"));
+    assertEquals("assertNull(actual, \"missing\")",
+        convert(members, "assertNull(\"missing\", actual)"));
+  }
+
+  /**
+   * 已经是 JUnit5 顺序（最后一个参数是 message）的调用不调整
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"String", "int", "Object"})
+  void keepsJUnit5Order(String type) {
+    String members = "  void test() {\n"
+        + "    " + type + " expected = null;\n"
+        + "    " + type + " actual = null;\n"
+        + "    String msg = \"m\";\n";
+    assertEquals("assertEquals(expected, actual, \"names differ\")",
+        convert(members, "assertEquals(expected, actual, \"names differ\")"));
+    assertEquals("assertEquals(expected, actual, msg)",
+        convert(members, "assertEquals(expected, actual, msg)"));
+    assertEquals("assertNotNull(actual, String.format(\"%s\", actual))",
+        convert(members, "assertNotNull(actual, String.format(\"%s\", actual))"));
+  }
+
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "assertTrue(\"msg\", flag)       | assertTrue(flag, \"msg\")",
+      "assertFalse(flag)               | assertFalse(flag)",
+      "assertEquals(1, count)          | assertEquals(1, count)",
+      "assertEquals(count, 1, \"msg\") | assertEquals(count, 1, \"msg\")",
+      "assertEquals(\"x\", 1, count)   | assertEquals(1, count, \"x\")",
+  })
+  void otherArguments(String call, String expected) {
+    String members = "  void test(boolean flag, int count) {\n";
+    assertEquals(expected, convert(members, call));
+  }
+
+  private static String convert(String members, String call) {
+    CompilationUnit cu = StaticJavaParser.parse("class T {\n" + members + "    " + call + ";\n  }\n}\n");
+    AssertArgumentsProcessor.processAssertArguments(cu, AssertArgumentsProcessor.SWAP_TWO_ARGS_METHODS,
+        AssertArgumentsProcessor.SHIFT_THREE_ARGS_METHODS);
+    return cu.findAll(MethodCallExpr.class).stream()
+        .filter(mce -> mce.getNameAsString().startsWith("assert"))
+        .findFirst().orElseThrow().toString();
+  }
+}
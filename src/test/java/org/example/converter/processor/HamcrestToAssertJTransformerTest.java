@@ -0,0 +1,170 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HamcrestToAssertJTransformerTest {
+
+  /**
+   * 每一类规则取几条：左边是 assertThat 的参数，右边是转换后的语句
+   */
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      // 相等、同一性、类型
+      "actual, is(1)                        | assertThat(actual).isEqualTo(1)",
+      "actual, equalTo(\"a\")               | assertThat(actual).isEqualTo(\"a\")",
+      "actual, Matchers.equalTo(1)          | assertThat(actual).isEqualTo(1)",
+      "actual, sameInstance(other)          | assertThat(actual).isSameAs(other)",
+      "actual, instanceOf(List.class)       | assertThat(actual).isInstanceOf(List.class)",
+      "actual, nullValue()                  | assertThat(actual).isNull()",
+      "actual, notNullValue()               | assertThat(actual).isNotNull()",
+      "actual, isOneOf(1, 2, 3)             | assertThat(actual).isIn(1, 2, 3)",
+      "actual, hasToString(equalTo(\"a\"))  | assertThat(actual).hasToString(\"a\")",
+      // 数值、比较
+      "actual, greaterThan(1)               | assertThat(actual).isGreaterThan(1)",
+      "actual, lessThanOrEqualTo(1)         | assertThat(actual).isLessThanOrEqualTo(1)",
+      "actual, closeTo(1.0, 0.1)            | assertThat(actual).isCloseTo(1.0, org.assertj.core.api.Assertions.within(0.1))",
+      // 字符串
+      "actual, containsString(\"a\")        | assertThat(actual).contains(\"a\")",
+      "actual, startsWith(\"a\")            | assertThat(actual).startsWith(\"a\")",
+      "actual, equalToIgnoringCase(\"a\")   | assertThat(actual).isEqualToIgnoringCase(\"a\")",
+      "actual, emptyString()                | assertThat(actual).isEmpty()",
+      "actual, matchesPattern(\"a.*\")      | assertThat(actual).matches(\"a.*\")",
+      // 集合、数组
+      "actual, hasItem(1)                   | assertThat(actual).contains(1)",
+      "actual, hasItem(equalTo(1))          | assertThat(actual).contains(1)",
+      "actual, hasItem(nullValue())         | assertThat(actual).containsNull()",
+      "actual, hasItems(1, 2)               | assertThat(actual).contains(1, 2)",
+      "actual, contains(1, 2)               | assertThat(actual).containsExactly(1, 2)",
+      "actual, containsInAnyOrder(1, 2)     | assertThat(actual).containsExactlyInAnyOrder(1, 2)",
+      "actual, empty()                      | assertThat(actual).isEmpty()",
+      "actual, hasSize(2)                   | assertThat(actual).hasSize(2)",
+      "actual, hasSize(greaterThan(2))      | assertThat(actual).hasSizeGreaterThan(2)",
+      "actual, everyItem(notNullValue())    | assertThat(actual).doesNotContainNull()",
+      "actual, arrayContaining(1, 2)        | assertThat(actual).containsExactly(1, 2)",
+      // Map
+      "actual, hasKey(\"k\")                | assertThat(actual).containsKey(\"k\")",
+      "actual, hasEntry(\"k\", 1)           | assertThat(actual).containsEntry(\"k\", 1)",
+      "actual, hasEntry(equalTo(\"k\"), equalTo(1)) | assertThat(actual).containsEntry(\"k\", 1)",
+      "actual, aMapWithSize(1)              | assertThat(actual).hasSize(1)",
+      // 取反
+      "actual, not(1)                       | assertThat(actual).isNotEqualTo(1)",
+      "actual, not(equalTo(1))              | assertThat(actual).isNotEqualTo(1)",
+      "actual, not(nullValue())             | assertThat(actual).isNotNull()",
+      "actual, not(containsString(\"a\"))   | assertThat(actual).doesNotContain(\"a\")",
+      "actual, not(hasItem(nullValue()))    | assertThat(actual).doesNotContainNull()",
+      "actual, not(hasItems(1))             | assertThat(actual).doesNotContain(1)",
+      "actual, not(blankOrNullString())     | assertThat(actual).isNotBlank()",
+      "actual, not(emptyOrNullString())     | assertThat(actual).isNotEmpty()",
+      "actual, not(greaterThan(1))          | assertThat(actual).isLessThanOrEqualTo(1)",
+      // 嵌套与组合
+      "actual, is(not(1))                   | assertThat(actual).isNotEqualTo(1)",
+      "actual, is(nullValue())              | assertThat(actual).isNull()",
+      "actual, is(not(nullValue()))         | assertThat(actual).isNotNull()",
+      "actual, is(equalTo(1))               | assertThat(actual).isEqualTo(1)",
+      "actual, allOf(greaterThan(1), lessThan(5)) | assertThat(actual).isGreaterThan(1).isLessThan(5)",
+      "actual, allOf(notNullValue(), is(not(empty()))) | assertThat(actual).isNotNull().isNotEmpty()",
+      "actual, not(is(1))                   | assertThat(actual).isNotEqualTo(1)",
+      // 带 reason 的三参数形式
+      "\"reason\", actual, is(1)            | assertThat(actual).as(\"reason\").isEqualTo(1)",
+  })
+  void translatesRule(String arguments, String expected) {
+    MethodDeclaration method = transform("    assertThat(" + arguments + ");\n").findFirst(MethodDeclaration.class)
+        .orElseThrow();
+    assertEquals(expected + ";", method.getBody().orElseThrow().getStatement(0).toString());
+  }
+
+  /**
+   * 没有规则的 matcher（anyOf、自定义 matcher、参数中嵌有 matcher 的 not）保持不变；
+   * 取反后语义与 AssertJ 不同的写法（多个参数的 not(hasItems)、接受 null 的 not(blankString)）也保持不变
+   */
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "actual, anyOf(is(1), is(2))",
+      "actual, isRunning()",
+      "actual, not(anyOf(is(1), is(2)))",
+      "actual, hasItem(anyOf(is(1), is(2)))",
+      "actual, not(hasItems(1, 2))",
+      "actual, not(blankString())",
+      "actual, not(emptyString())",
+      "actual, is(not(isEmptyString()))",
+  })
+  void leavesUnmappedMatcher(String arguments) {
+    String statement = "assertThat(" + arguments + ");";
+    MethodDeclaration method = transform("    " + statement + "\n").findFirst(MethodDeclaration.class)
+        .orElseThrow();
+    assertEquals(statement, method.getBody().orElseThrow().getStatement(0).toString());
+  }
+
+  @Test
+  void removesHamcrestImportsWhenEverythingIsTranslated() {
+    List<String> imports = imports(transform("    assertThat(actual, is(1));\n"));
+    assertFalse(imports.stream().anyMatch(name -> name.startsWith("org.hamcrest")), imports::toString);
+    assertTrue(imports.contains("static org.assertj.core.api.Assertions.assertThat"), imports::toString);
+  }
+
+  /**
+   * 还有没转换的 assertThat 时保留 hamcrest 的 import，文件仍然可以编译
+   */
+  @Test
+  void keepsHamcrestImportsForUnmappedMatcher() {
+    List<String> imports = imports(transform("    assertThat(actual, is(1));\n"
+        + "    assertThat(actual, anyOf(is(1), is(2)));\n"));
+    assertTrue(imports.contains("static org.hamcrest.Matchers.anyOf"), imports::toString);
+    assertTrue(imports.contains("org.hamcrest.Matchers"), imports::toString);
+  }
+
+  @Test
+  void ordinaryCallsAreNotMatchers() {
+    String statement = "assertThat(actual, list.contains(1));";
+    MethodDeclaration method = transform("    " + statement + "\n").findFirst(MethodDeclaration.class)
+        .orElseThrow();
+    assertEquals(statement, method.getBody().orElseThrow().getStatement(0).toString());
+  }
+
+  @Test
+  void rejectsMalformedRules() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> HamcrestRuleTable.load(new StringReader("equalTo($1) = isEqualTo($1)\nequalTo(x) = isEqualTo(x)\n")));
+    assertTrue(e.getMessage().startsWith("line 2:"), e.getMessage());
+  }
+
+  @Test
+  void loadsCustomTable() throws IOException {
+    HamcrestRuleTable table = HamcrestRuleTable.load(new StringReader("transparent: is\n"
+        + "# comment\n"
+        + "between($1, \\\n  $2) = isBetween($1, $2)\n"));
+    assertEquals(1, table.size());
+    assertTrue(table.isMatcherCall(StaticJavaParser.parseExpression("is(between(1, 2))")));
+  }
+
+  private static CompilationUnit transform(String statements) {
+    CompilationUnit cu = StaticJavaParser.parse("import static org.hamcrest.MatcherAssertions.assertThat;\n"
+        + "import static org.hamcrest.Matchers.anyOf;\n"
+        + "import org.hamcrest.Matchers;\n"
+        + "import java.util.List;\n"
+        + "class T {\n  void test() {\n" + statements + "  }\n}\n");
+    HamcrestToAssertJTransformer.transformHamcrestAssertToAssertJ(cu);
+    return cu;
+  }
+
+  private static List<String> imports(CompilationUnit cu) {
+    return cu.getImports().stream()
+        .map(id -> (id.isStatic() ? "static " : "") + id.getNameAsString() + (id.isAsterisk() ? ".*" : ""))
+        .toList();
+  }
+}
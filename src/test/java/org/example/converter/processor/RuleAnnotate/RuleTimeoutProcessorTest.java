@@ -0,0 +1,100 @@
+package org.example.converter.processor.RuleAnnotate;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import org.example.converter.ConversionContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleTimeoutProcessorTest {
+
+  private static final String IMPORTS = "import org.junit.Rule;\n"
+      + "import org.junit.Test;\n"
+      + "import org.junit.rules.Timeout;\n"
+      + "import java.util.concurrent.TimeUnit;\n";
+
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "new Timeout(30000)                | @Timeout(value = 30)",
+      "Timeout.millis(1500)              | @Timeout(value = 1500, unit = TimeUnit.MILLISECONDS)",
+      "Timeout.seconds(20)               | @Timeout(value = 20)",
+      "new Timeout(2, TimeUnit.MINUTES)  | @Timeout(value = 2, unit = TimeUnit.MINUTES)",
+      "new Timeout(60 * 1000)            | @Timeout(value = 60)",
+      "new Timeout(BASE * 2)             | @Timeout(value = T.BASE * 2, unit = TimeUnit.MILLISECONDS)",
+      "Timeout.seconds(BASE)             | @Timeout(value = T.BASE)",
+  })
+  void movesRuleToClassAnnotation(String initializer, String annotation) {
+    CompilationUnit cu = convert(IMPORTS + "public class T {\n"
+        + "  private static final int BASE = 1500;\n"
+        + "  @Rule public Timeout timeout = " + initializer + ";\n"
+        + "  @Test public void test() {}\n"
+        + "}\n");
+    ClassOrInterfaceDeclaration type = cu.getClassByName("T").orElseThrow();
+    assertEquals(annotation, type.getAnnotation(0).toString());
+    assertTrue(type.getFieldByName("timeout").isEmpty());
+    assertTrue(cu.getImports().stream().anyMatch(i -> i.getNameAsString().equals("org.junit.jupiter.api.Timeout")));
+    assertFalse(cu.getImports().stream().anyMatch(i -> i.getNameAsString().equals("org.junit.rules.Timeout")));
+    assertFalse(cu.getImports().stream().anyMatch(i -> i.getNameAsString().equals("org.junit.Rule")));
+  }
+
+  /**
+   * 引用了字段、@ClassRule、不是常量的超时都保持不变，import 也不改
+   */
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "@Rule public Timeout timeout = new Timeout(1000); @Test public void t() { timeout.toString(); }",
+      "@ClassRule public static Timeout timeout = new Timeout(1000);",
+      "@Rule public Timeout timeout = new Timeout(Integer.getInteger(\"t\", 1000));",
+      "@Rule public Timeout timeout = Timeout.builder().build();",
+  })
+  void leavesUnsupportedRules(String members) {
+    String source = IMPORTS + "import org.junit.ClassRule;\npublic class T {\n  " + members + "\n}\n";
+    assertEquals(StaticJavaParser.parse(source).toString(), convert(source).toString());
+  }
+
+  @Test
+  void keepsOneAnnotationForSeveralRules() {
+    CompilationUnit cu = convert(IMPORTS + "public class T {\n"
+        + "  @Rule public Timeout a = new Timeout(1000);\n"
+        + "  @Rule public Timeout b = new Timeout(2000);\n"
+        + "}\n");
+    ClassOrInterfaceDeclaration type = cu.getClassByName("T").orElseThrow();
+    assertEquals(1, type.getAnnotations().size());
+    assertEquals("@Timeout(value = 1)", type.getAnnotation(0).toString());
+    assertTrue(type.getFields().isEmpty());
+  }
+
+  /**
+   * 第一次修改语法树之前才执行 beforeFirstRewrite（LexicalPreservingPrinter.setup），
+   * 此时语法树必须还是原样，包括给常量加类名在内的所有修改都在它之后
+   */
+  @Test
+  void doesNotMutateBeforePrepareRewrite() {
+    CompilationUnit cu = StaticJavaParser.parse(IMPORTS + "public class T {\n"
+        + "  private static final int BASE = 1500;\n"
+        + "  @Rule public Timeout timeout = new Timeout(BASE + 1);\n"
+        + "}\n");
+    String original = cu.toString();
+    AtomicReference<String> atFirstRewrite = new AtomicReference<>();
+    ConversionContext context = new ConversionContext(null);
+    context.setBeforeFirstRewrite(() -> atFirstRewrite.set(cu.toString()));
+    RuleTimeoutProcessor.processClass(cu.getClassByName("T").orElseThrow(), context);
+    assertEquals(original, atFirstRewrite.get());
+    assertEquals("@Timeout(value = T.BASE + 1, unit = TimeUnit.MILLISECONDS)",
+        cu.getClassByName("T").orElseThrow().getAnnotation(0).toString());
+  }
+
+  private static CompilationUnit convert(String source) {
+    CompilationUnit cu = StaticJavaParser.parse(source);
+    RuleTimeoutProcessor.processTimeoutRule(cu);
+    return cu;
+  }
+}
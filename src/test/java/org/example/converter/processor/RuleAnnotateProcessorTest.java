@@ -0,0 +1,309 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleAnnotateProcessorTest {
+
+  private static final String IMPORTS = "import org.junit.Rule;\n"
+      + "import org.junit.Test;\n"
+      + "import org.junit.rules.ExpectedException;\n"
+      + "import org.junit.rules.TemporaryFolder;\n"
+      + "import org.junit.rules.TestName;\n"
+      + "import java.io.IOException;\n";
+
+  /**
+   * 第一个 expect 之后的语句（连同注释）移动到 lambda 中，之前的语句不动，expectMessage 变成对异常的断言
+   */
+  @Test
+  void movesStatementsAfterExpectIntoLambda() {
+    CompilationUnit cu = convert("  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+        + "  @Test public void read() throws IOException {\n"
+        + "    Stream stream = open();\n"
+        + "    thrown.expect(IOException.class);\n"
+        + "    thrown.expectMessage(\"closed\");\n"
+        + "    // read after close\n"
+        + "    stream.read();\n"
+        + "    stream.close();\n"
+        + "  }\n");
+    assertEquals("{\n"
+        + "    Stream stream = open();\n"
+        + "    IOException e = Assertions.assertThrows(IOException.class, () -> {\n"
+        + "        // read after close\n"
+        + "        stream.read();\n"
+        + "        stream.close();\n"
+        + "    });\n"
+        + "    Assertions.assertTrue(e.getMessage().contains(\"closed\"));\n"
+        + "}", body(cu, "read"));
+    assertTrue(cu.getClassByName("T").orElseThrow().getFields().isEmpty());
+    List<String> imports = imports(cu);
+    assertTrue(imports.contains("org.junit.jupiter.api.Assertions"), imports::toString);
+    assertFalse(imports.contains("org.junit.rules.ExpectedException"), imports::toString);
+    assertFalse(imports.contains("org.junit.Rule"), imports::toString);
+  }
+
+  /**
+   * 只有一条语句时用表达式 lambda；expect(X.class) 与 expect(instanceOf(X.class)) 的结果相同
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"IllegalStateException.class", "instanceOf(IllegalStateException.class)"})
+  void usesExpressionLambdaForSingleStatement(String expected) {
+    CompilationUnit cu = convert("  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+        + "  @Test public void t() {\n"
+        + "    thrown.expect(" + expected + ");\n"
+        + "    thrown.expectMessage(\"bad\");\n"
+        + "    run();\n"
+        + "  }\n");
+    assertEquals("{\n"
+        + "    IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> run());\n"
+        + "    Assertions.assertTrue(e.getMessage().contains(\"bad\"));\n"
+        + "}", body(cu, "t"));
+  }
+
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "startsWith(\"bad\")      | Assertions.assertTrue(e.getMessage().startsWith(\"bad\"))",
+      "endsWith(\"bad\")        | Assertions.assertTrue(e.getMessage().endsWith(\"bad\"))",
+      "containsString(\"bad\")  | Assertions.assertTrue(e.getMessage().contains(\"bad\"))",
+      "equalTo(\"bad\")         | Assertions.assertEquals(\"bad\", e.getMessage())",
+      "is(\"bad\")              | Assertions.assertEquals(\"bad\", e.getMessage())",
+  })
+  void translatesMessageMatcher(String matcher, String assertion) {
+    CompilationUnit cu = convert("  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+        + "  @Test public void t() {\n"
+        + "    thrown.expect(IllegalStateException.class);\n"
+        + "    thrown.expectMessage(" + matcher + ");\n"
+        + "    run();\n"
+        + "  }\n");
+    MethodDeclaration method = cu.getClassByName("T").orElseThrow().getMethodsByName("t").get(0);
+    assertEquals(assertion + ";", method.getBody().orElseThrow().getStatement(1).toString());
+  }
+
+  /**
+   * 没有 expect 时断言 Throwable；异常变量名避开方法中已有的局部变量
+   */
+  @Test
+  void avoidsExistingVariableNames() {
+    CompilationUnit cu = convert("  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+        + "  @Test public void t() {\n"
+        + "    Object e = null;\n"
+        + "    thrown.expectMessage(\"bad\");\n"
+        + "    run(e);\n"
+        + "  }\n");
+    assertEquals("{\n"
+        + "    Object e = null;\n"
+        + "    Throwable ex = Assertions.assertThrows(Throwable.class, () -> run(e));\n"
+        + "    Assertions.assertTrue(ex.getMessage().contains(\"bad\"));\n"
+        + "}", body(cu, "t"));
+  }
+
+  /**
+   * 任何一个引用无法迁移时整个字段保持不变：expectCause、不在测试方法顶层、lambda 捕获被修改的变量、
+   * expect 之后没有语句、不支持的 message matcher
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "@Test public void t() { thrown.expect(IOException.class); run(); }"
+          + " @Test public void u() { thrown.expectCause(isA(IOException.class)); run(); }",
+      "@Test public void t() { if (flag) { thrown.expect(IOException.class); } run(); }",
+      "void helper() { thrown.expect(IOException.class); }",
+      "@Test public void t() { int n = 0; n++; thrown.expect(IOException.class); run(n); }",
+      "@Test public void t() { int n; n = 1; thrown.expect(IOException.class); run(n); }",
+      "@Test public void t() { run(); thrown.expect(IOException.class); }",
+      "@Test public void t() { thrown.expect(IOException.class); thrown.expectMessage(anyOf(is(\"a\"))); run(); }",
+      "@Test public void t() { thrown.expect(IOException.class); thrown.expect(RuntimeException.class); run(); }",
+      "@Test public void t(Object thrown) { thrown.expect(IOException.class); run(); }",
+  })
+  void leavesExpectedExceptionThatCannotMigrate(String methods) {
+    String source = IMPORTS + "public class T {\n"
+        + "  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+        + "  " + methods + "\n"
+        + "}\n";
+    assertEquals(StaticJavaParser.parse(source).toString(), convert(StaticJavaParser.parse(source)).toString());
+  }
+
+  /**
+   * 在 LexicalPreservingPrinter 下移动带行尾注释的语句，后面紧跟带注释的语句：注释都保留，方法的右括号不丢
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"/* read */", "// read"})
+  void movesCommentedStatementsUnderLexicalPreservation(String comment) {
+    String source = IMPORTS + "public class T {\n"
+        + "  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+        + "  @Test public void read() throws IOException {\n"
+        + "    Stream stream = open();\n"
+        + "    thrown.expect(IOException.class);\n"
+        + "    stream.close(); // close first\n"
+        + "    " + comment + "\n"
+        + "    stream.read();\n"
+        + "  }\n"
+        + "}\n";
+    CompilationUnit cu = StaticJavaParser.parse(source);
+    LexicalPreservingPrinter.setup(cu);
+    convert(cu);
+    String printed = LexicalPreservingPrinter.print(cu);
+    assertTrue(printed.endsWith("  @Test public void read() throws IOException {\n"
+        + "    Stream stream = open();\n"
+        + "    Assertions.assertThrows(IOException.class, () -> {\n"
+        + "        // close first\n"
+        + "        stream.close();\n"
+        + "        " + comment + "\n"
+        + "        stream.read();\n"
+        + "    });\n"
+        + "  }\n"
+        + "}\n"), printed);
+  }
+
+  /**
+   * expect 之后有不属于任何语句的注释时无法正确移动，字段保持不变
+   */
+  @Test
+  void leavesExpectedExceptionFollowedByOrphanComment() {
+    String source = IMPORTS + "public class T {\n"
+        + "  @Rule public ExpectedException thrown = ExpectedException.none();\n"
+        + "  @Test public void read() throws IOException {\n"
+        + "    thrown.expect(IOException.class);\n"
+        + "    read();\n"
+        + "    // done\n"
+        + "  }\n"
+        + "}\n";
+    CompilationUnit cu = StaticJavaParser.parse(source);
+    LexicalPreservingPrinter.setup(cu);
+    convert(cu);
+    assertEquals(source, LexicalPreservingPrinter.print(cu));
+  }
+
+  @ParameterizedTest
+  @CsvSource(delimiter = '|', value = {
+      "folder.getRoot()            | folder",
+      "folder.newFile(\"a\")         | Files.createFile(folder.toPath().resolve(\"a\")).toFile()",
+      "folder.newFolder(\"a\")       | Files.createDirectories(folder.toPath().resolve(\"a\")).toFile()",
+      "folder.newFolder(\"a\", \"b\") | Files.createDirectories(folder.toPath().resolve(\"a\").resolve(\"b\")).toFile()",
+      "folder.newFile()              | File.createTempFile(\"junit\", null, folder)",
+      "folder.newFolder()            | Files.createTempDirectory(folder.toPath(), \"junit\").toFile()",
+      "this.folder.getRoot()         | this.folder",
+  })
+  void rewritesTemporaryFolderCalls(String call, String expected) {
+    CompilationUnit cu = convert("  @Rule public final TemporaryFolder folder = new TemporaryFolder();\n"
+        + "  @Test public void t() throws Exception {\n"
+        + "    use(" + call + ");\n"
+        + "  }\n");
+    assertEquals("{\n    use(" + expected + ");\n}", body(cu, "t"));
+    ClassOrInterfaceDeclaration type = cu.getClassByName("T").orElseThrow();
+    assertEquals("@TempDir\npublic File folder;", type.getFieldByName("folder").orElseThrow().toString());
+    List<String> imports = imports(cu);
+    assertTrue(imports.contains("org.junit.jupiter.api.io.TempDir"), imports::toString);
+    assertTrue(imports.contains("java.io.File"), imports::toString);
+    assertEquals(expected.startsWith("Files."), imports.contains("java.nio.file.Files"), imports::toString);
+    assertFalse(imports.contains("org.junit.rules.TemporaryFolder"), imports::toString);
+  }
+
+  @Test
+  void keepsStaticModifierOfClassRuleFolder() {
+    CompilationUnit cu = convert("  @ClassRule public static TemporaryFolder folder = new TemporaryFolder();\n"
+        + "  @Test public void t() { use(folder.getRoot()); }\n");
+    assertEquals("@TempDir\npublic static File folder;",
+        cu.getClassByName("T").orElseThrow().getFieldByName("folder").orElseThrow().toString());
+  }
+
+  /**
+   * 作为参数传递、调用 create/delete、自定义父目录、被局部变量遮蔽时字段保持不变
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "@Rule public TemporaryFolder folder = new TemporaryFolder(); @Test public void t() { use(folder); }",
+      "@Rule public TemporaryFolder folder = new TemporaryFolder(); @Test public void t() { folder.delete(); }",
+      "@Rule public TemporaryFolder folder = new TemporaryFolder(parent); @Test public void t() { use(folder.getRoot()); }",
+      "@Rule public TemporaryFolder folder = new TemporaryFolder(); @Test public void t(Dir folder) { use(folder.getRoot()); }",
+  })
+  void leavesTemporaryFolderThatCannotMigrate(String members) {
+    String source = IMPORTS + "public class T {\n  " + members + "\n}\n";
+    assertEquals(StaticJavaParser.parse(source).toString(), convert(StaticJavaParser.parse(source)).toString());
+  }
+
+  /**
+   * getMethodName() 变成注入的 TestInfo：已有 TestInfo 参数时复用，参数名避开局部变量
+   */
+  @Test
+  void injectsTestInfoForTestName() {
+    CompilationUnit cu = convert("  @Rule public TestName name = new TestName();\n"
+        + "  @Before public void setUp() { log(name.getMethodName()); }\n"
+        + "  @Test public void reuse(TestInfo info) { open(name.getMethodName()); }\n"
+        + "  @Test public void clash() { String testInfo = \"x\"; open(name.getMethodName() + testInfo); }\n");
+    ClassOrInterfaceDeclaration type = cu.getClassByName("T").orElseThrow();
+    assertTrue(type.getFields().isEmpty());
+    assertEquals("[TestInfo testInfo]", parameters(type, "setUp"));
+    assertEquals("{\n    log(testInfo.getTestMethod().get().getName());\n}", body(cu, "setUp"));
+    assertEquals("[TestInfo info]", parameters(type, "reuse"));
+    assertEquals("{\n    open(info.getTestMethod().get().getName());\n}", body(cu, "reuse"));
+    assertEquals("[TestInfo testInfo2]", parameters(type, "clash"));
+    List<String> imports = imports(cu);
+    assertTrue(imports.contains("org.junit.jupiter.api.TestInfo"), imports::toString);
+    assertFalse(imports.contains("org.junit.rules.TestName"), imports::toString);
+  }
+
+  /**
+   * 在不能注入 TestInfo 的方法、嵌套类中使用，或调用 getMethodName 以外的方法时字段保持不变
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "@Rule public TestName name = new TestName(); void helper() { open(name.getMethodName()); }",
+      "@Rule public TestName name = new TestName(); @Test public void t() { use(name); }",
+      "@Rule public TestName name = new TestName();"
+          + " class Inner { @Test public void t() { open(name.getMethodName()); } }",
+      "@ClassRule public static TestName name = new TestName(); @Test public void t() { open(name.getMethodName()); }",
+  })
+  void leavesTestNameThatCannotMigrate(String members) {
+    String source = IMPORTS + "public class T {\n  " + members + "\n}\n";
+    assertEquals(StaticJavaParser.parse(source).toString(), convert(StaticJavaParser.parse(source)).toString());
+  }
+
+  /**
+   * 只迁移了一部分规则时，仍在使用的规则类与 @Rule 的 import 保留
+   */
+  @Test
+  void keepsImportsOfRulesLeftInPlace() {
+    CompilationUnit cu = convert("  @Rule public TestName name = new TestName();\n"
+        + "  @Rule public TemporaryFolder folder = new TemporaryFolder();\n"
+        + "  @Test public void t() { open(name.getMethodName()); use(folder); }\n");
+    List<String> imports = imports(cu);
+    assertTrue(imports.contains("org.junit.Rule"), imports::toString);
+    assertTrue(imports.contains("org.junit.rules.TemporaryFolder"), imports::toString);
+    assertFalse(imports.contains("org.junit.rules.TestName"), imports::toString);
+  }
+
+  private static CompilationUnit convert(String members) {
+    return convert(StaticJavaParser.parse(IMPORTS + "public class T {\n" + members + "}\n"));
+  }
+
+  private static CompilationUnit convert(CompilationUnit cu) {
+    RuleAnnotateProcessor.processJUnit4Rules(cu);
+    return cu;
+  }
+
+  private static String body(CompilationUnit cu, String method) {
+    return cu.getClassByName("T").orElseThrow().getMethodsByName(method).get(0).getBody().orElseThrow().toString();
+  }
+
+  private static String parameters(ClassOrInterfaceDeclaration type, String method) {
+    return type.getMethodsByName(method).get(0).getParameters().toString();
+  }
+
+  private static List<String> imports(CompilationUnit cu) {
+    return cu.getImports().stream().map(ImportDeclaration::getNameAsString).toList();
+  }
+}
@@ -0,0 +1,111 @@
+package org.example.converter.processor;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestExpectedProcessorTest {
+
+  /**
+   * 异常类型照原样复制（包括全限定名），注解中的其他属性保留
+   */
+  @Test
+  void copiesExceptionTypeAndKeepsOtherPairs() {
+    CompilationUnit cu = StaticJavaParser.parse("class T {\n"
+        + "  @Test(expected = java.io.IOException.class, timeout = 10)\n"
+        + "  public void read() { open(); read(); }\n"
+        + "  @Test(expected = IllegalStateException.class)\n"
+        + "  public void run() { run(); }\n"
+        + "}\n");
+    AtomicBoolean needAssertionsImport = new AtomicBoolean();
+    TestExpectedProcessor.processTestExpected(cu, needAssertionsImport);
+
+    MethodDeclaration read = cu.getClassByName("T").orElseThrow().getMethodsByName("read").get(0);
+    assertEquals("@Test(timeout = 10)", read.getAnnotation(0).toString());
+    assertEquals("{\n"
+        + "    Assertions.assertThrows(java.io.IOException.class, () -> {\n"
+        + "        open();\n"
+        + "        read();\n"
+        + "    });\n"
+        + "}", read.getBody().orElseThrow().toString());
+    MethodDeclaration run = cu.getClassByName("T").orElseThrow().getMethodsByName("run").get(0);
+    assertEquals("@Test", run.getAnnotation(0).toString());
+    assertTrue(needAssertionsImport.get());
+  }
+
+  @Test
+  void leavesTestWithoutExpectedUnchanged() {
+    String source = "class T {\n  @Test(timeout = 10)\n  public void t() { run(); }\n}\n";
+    CompilationUnit cu = StaticJavaParser.parse(source);
+    AtomicBoolean needAssertionsImport = new AtomicBoolean();
+    TestExpectedProcessor.processTestExpected(cu, needAssertionsImport);
+    assertEquals(StaticJavaParser.parse(source), cu);
+    assertFalse(needAssertionsImport.get());
+  }
+
+  /**
+   * 在 LexicalPreservingPrinter 下逐条移动语句，语句的注释（包括行尾注释）随语句移动到 lambda 中
+   */
+  @Test
+  void movesStatementCommentsIntoLambda() {
+    assertEquals("class T {\n"
+        + "\n"
+        + "  @Test\n"
+        + "  public void read() throws Exception {\n"
+        + "      Assertions.assertThrows(IOException.class, () -> {\n"
+        + "          // open the stream\n"
+        + "          Stream s = open();\n"
+        + "          // close first\n"
+        + "          s.close();\n"
+        + "          /* read it */\n"
+        + "          s.read();\n"
+        + "      });\n"
+        + "  }\n"
+        + "}\n", convertPreserving("    // open the stream\n"
+        + "    Stream s = open();\n"
+        + "    s.close(); // close first\n"
+        + "    /* read it */\n"
+        + "    s.read();\n"));
+  }
+
+  /**
+   * 方法体中有不属于任何语句的注释时整个方法体移动到 lambda 中，所有注释留在原位
+   */
+  @Test
+  void movesWholeBodyWithOrphanComments() {
+    assertEquals("class T {\n"
+        + "\n"
+        + "  @Test\n"
+        + "  public void read() throws Exception {\n"
+        + "      Assertions.assertThrows(IOException.class, () -> {\n"
+        + "    Stream s = open();\n"
+        + "    s.read();\n"
+        + "    // done\n"
+        + "  });\n"
+        + "  }\n"
+        + "}\n", convertPreserving("    Stream s = open();\n"
+        + "    s.read();\n"
+        + "    // done\n"));
+  }
+
+  private static String convertPreserving(String body) {
+    CompilationUnit cu = StaticJavaParser.parse("class T {\n"
+        + "\n"
+        + "  @Test(expected = IOException.class)\n"
+        + "  public void read() throws Exception {\n"
+        + body
+        + "  }\n"
+        + "}\n");
+    LexicalPreservingPrinter.setup(cu);
+    TestExpectedProcessor.processTestExpected(cu, new AtomicBoolean());
+    return LexicalPreservingPrinter.print(cu);
+  }
+}
@@ -0,0 +1,99 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ByteMultiPatternMatcherTest {
+
+  /**
+   * 经典的 he/she/his/hers：重叠、互为后缀的模式都要命中
+   */
+  @Test
+  void findsOverlappingPatterns() {
+    ByteMultiPatternMatcher matcher = ByteMultiPatternMatcher.builder()
+        .add(0, "he")
+        .add(1, "she")
+        .add(2, "his")
+        .add(3, "hers")
+        .build();
+    assertEquals(0b1011, matcher.scan(bytes("ushers"), -1L));
+    assertEquals(0b0100, matcher.scan(bytes("this"), -1L));
+    assertEquals(0, matcher.scan(bytes("hs sh e"), -1L));
+  }
+
+  @Test
+  void stopsAtFirstHitOrWhenStopMaskIsCovered() {
+    ByteMultiPatternMatcher matcher = ByteMultiPatternMatcher.builder()
+        .add(0, "org.junit.Test")
+        .add(1, "assertThat")
+        .add(2, "@Rule")
+        .build();
+    ByteBuffer source = bytes("import org.junit.Test; @Rule x; assertThat(a, b);");
+    assertEquals(0b001, matcher.scan(source, 0));
+    assertEquals(0b101, matcher.scan(source, 0b101));
+    assertEquals(0b111, matcher.scan(source, 0b111));
+  }
+
+  @Test
+  void scansOnlyBetweenPositionAndLimit() {
+    ByteMultiPatternMatcher matcher = ByteMultiPatternMatcher.builder().add(0, "abc").build();
+    ByteBuffer buffer = bytes("abc--abc");
+    buffer.position(1).limit(7);
+    assertEquals(0, matcher.scan(buffer, 0));
+    buffer.limit(8);
+    assertEquals(1, matcher.scan(buffer, 0));
+    assertEquals(1, buffer.position());
+  }
+
+  /**
+   * 与逐个 indexOf 的结果对比，字母表很小，模式之间大量共享前缀和后缀
+   */
+  @Test
+  void agreesWithNaiveSearch() {
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      List<String> patterns = new ArrayList<>();
+      ByteMultiPatternMatcher.Builder builder = ByteMultiPatternMatcher.builder();
+      for (int group = 0; group < 8; group++) {
+        String pattern = randomText(random, 1 + random.nextInt(4));
+        patterns.add(pattern);
+        builder.add(group, pattern);
+      }
+      ByteMultiPatternMatcher matcher = builder.build();
+      String text = randomText(random, random.nextInt(60));
+      long expected = 0;
+      for (int group = 0; group < patterns.size(); group++) {
+        if (text.contains(patterns.get(group))) {
+          expected |= 1L << group;
+        }
+      }
+      assertEquals(expected, matcher.scan(bytes(text), -1L), () -> patterns + " in " + text);
+    }
+  }
+
+  @Test
+  void rejectsInvalidPatterns() {
+    assertThrows(IllegalArgumentException.class, () -> ByteMultiPatternMatcher.builder().add(64, "x"));
+    assertThrows(IllegalArgumentException.class, () -> ByteMultiPatternMatcher.builder().add(0, ""));
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('a' + random.nextInt(3)));
+    }
+    return sb.toString();
+  }
+
+  private static ByteBuffer bytes(String text) {
+    return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,144 @@
+package org.example.util;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.expr.NameExpr;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CachedTypeSolverTest {
+
+  @TempDir
+  Path root;
+
+  /**
+   * 文件中的声明改变后，同一位置、同一文本的表达式不能命中持久化缓存中的旧结果
+   */
+  @Test
+  void changedFileMissesPersistedEntry() throws Exception {
+    Path cache = root.resolve("types.properties");
+    Path file = write("T.java", "class T { String s; void m() { use(s); } }", 1_000);
+    CachedTypeSolver solver = new CachedTypeSolver(List.of(), List.of(), cache);
+    assertEquals(Optional.of("java.lang.String"), resolve(solver, file));
+    solver.persist();
+    Path changed = write("T.java", "class T { Object s; void m() { use(s); } }", 1_000);
+
+    CachedTypeSolver reloaded = new CachedTypeSolver(List.of(), List.of(), cache);
+    assertEquals(1, reloaded.cacheSize());
+    assertEquals(Optional.of("java.lang.Object"), resolve(reloaded, changed));
+  }
+
+  @Test
+  void unchangedFileHitsPersistedEntry() throws Exception {
+    Path cache = root.resolve("types.properties");
+    Path src = Files.createDirectories(root.resolve("src"));
+    Path file = write("src/T.java", "class T { String s; void m() { use(s); } }", 1_000);
+    CachedTypeSolver solver = new CachedTypeSolver(List.of(src), List.of(), cache);
+    resolve(solver, file);
+    solver.persist();
+
+    CachedTypeSolver reloaded = new CachedTypeSolver(List.of(src), List.of(), cache);
+    assertEquals(1, reloaded.cacheSize());
+    assertEquals(Optional.of("java.lang.String"), resolve(reloaded, file));
+    assertEquals(0, reloaded.resolutions());
+  }
+
+  /**
+   * 本次运行改写了源码根目录下的文件（修改时间改变），持久化的缓存在下次运行仍然有效
+   */
+  @Test
+  void fileRewrittenDuringRunKeepsPersistedCache() throws Exception {
+    Path cache = root.resolve("types.properties");
+    Path src = Files.createDirectories(root.resolve("src"));
+    Path file = write("src/T.java", "class T { String s; void m() { use(s); } }", 1_000);
+    write("src/ATest.java", "class ATest { @org.junit.Test public void t() { } }", 1_000);
+    CachedTypeSolver solver = new CachedTypeSolver(List.of(src), List.of(), cache);
+    resolve(solver, file);
+    write("src/ATest.java", "class ATest { @org.junit.jupiter.api.Test void t() { } }", 2_000);
+    solver.persist();
+
+    CachedTypeSolver reloaded = new CachedTypeSolver(List.of(src), List.of(), cache);
+    assertEquals(1, reloaded.cacheSize());
+    assertEquals(Optional.of("java.lang.String"), resolve(reloaded, file));
+    assertEquals(0, reloaded.resolutions());
+  }
+
+  /**
+   * 父类在另一个文件中改变了字段类型，子类文件内容不变，持久化缓存也要失效
+   */
+  @Test
+  void changedDependencyDiscardsPersistedCache() throws Exception {
+    Path cache = root.resolve("types.properties");
+    Path src = Files.createDirectories(root.resolve("src"));
+    write("src/Base.java", "class Base { protected String f; }", 1_000);
+    Path file = write("src/T.java", "class T extends Base { void m() { use(f); } }", 1_000);
+    CachedTypeSolver solver = new CachedTypeSolver(List.of(src), List.of(), cache);
+    assertEquals(Optional.of("java.lang.String"), resolve(solver, file));
+    solver.persist();
+
+    write("src/Base.java", "class Base { protected Object f; }", 2_000);
+    CachedTypeSolver reloaded = new CachedTypeSolver(List.of(src), List.of(), cache);
+    assertEquals(0, reloaded.cacheSize());
+    assertEquals(Optional.of("java.lang.Object"), resolve(reloaded, file));
+  }
+
+  /**
+   * 多个线程同时解析，每个线程使用自己的 TypeSolver，结果互不影响
+   */
+  @Test
+  void resolvesConcurrently() throws Exception {
+    Path src = Files.createDirectories(root.resolve("src"));
+    write("src/Base.java", "class Base { protected String f; protected int n; }", 1_000);
+    CachedTypeSolver solver = new CachedTypeSolver(List.of(src), List.of(), null);
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Optional<String>>> strings = new ArrayList<>();
+      List<Future<Optional<String>>> ints = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        Path a = write("src/S" + i + ".java", "class S" + i + " extends Base { void m() { use(f); } }", 1_000);
+        Path b = write("src/I" + i + ".java", "class I" + i + " extends Base { void m() { use(n); } }", 1_000);
+        strings.add(pool.submit(() -> resolve(solver, a)));
+        ints.add(pool.submit(() -> resolve(solver, b)));
+      }
+      for (int i = 0; i < strings.size(); i++) {
+        assertEquals(Optional.of("java.lang.String"), strings.get(i).get());
+        assertEquals(Optional.of("int"), ints.get(i).get());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private Path write(String name, String source, long modified) throws Exception {
+    Path file = root.resolve(name);
+    Files.writeString(file, source, StandardCharsets.UTF_8);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    return file;
+  }
+
+  /**
+   * 与转换时一样记录路径与内容哈希，解析 use(...) 的参数
+   */
+  private static Optional<String> resolve(CachedTypeSolver solver, Path file) throws Exception {
+    String source = Files.readString(file);
+    CompilationUnit cu = StaticJavaParser.parse(source);
+    cu.setStorage(file, StandardCharsets.UTF_8);
+    CachedTypeSolver.recordSource(cu, source);
+    NameExpr argument = cu.findFirst(NameExpr.class, name -> name.getParentNode()
+        .filter(parent -> parent.toString().startsWith("use(")).isPresent()).orElseThrow();
+    return solver.resolveQualifiedName(argument);
+  }
+}
@@ -0,0 +1,66 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeapBudgetTest {
+
+  /**
+   * 预算不足时阻塞，当前没有文件在处理时超过预算的文件也放行
+   */
+  @Test
+  void blocksUntilReleasedAndAdmitsOversizedFileAlone() throws Exception {
+    HeapBudget budget = new HeapBudget(HeapBudget.estimate(10));
+    HeapBudget.Permit big = budget.acquire(100);
+    Thread waiter = new Thread(() -> {
+      try {
+        budget.acquire(5).close();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiter.start();
+    waiter.join(200);
+    assertTrue(waiter.isAlive());
+    big.close();
+    waiter.join(10_000);
+    assertEquals(1, budget.waits());
+    assertEquals(HeapBudget.estimate(100), budget.peakInFlight());
+  }
+
+  /**
+   * 在 ForkJoinPool 中等待预算时池补充线程，只有一个工作线程时其它任务也能继续执行
+   */
+  @Test
+  void waitingWorkerDoesNotStallPool() throws Exception {
+    HeapBudget budget = new HeapBudget(HeapBudget.estimate(10));
+    HeapBudget.Permit held = budget.acquire(10);
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      ForkJoinTask<?> waiting = pool.submit(() -> {
+        try {
+          budget.acquire(10).close();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      while (budget.waits() == 0) {
+        Thread.sleep(10);
+      }
+      CountDownLatch ran = new CountDownLatch(1);
+      pool.execute(ran::countDown);
+      assertTrue(ran.await(10, TimeUnit.SECONDS));
+      held.close();
+      waiting.get(10, TimeUnit.SECONDS);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
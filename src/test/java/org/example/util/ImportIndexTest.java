@@ -0,0 +1,176 @@
+package org.example.util;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportIndexTest {
+
+  private static final String HEADER = "package p;\n"
+      + "\n"
+      + "import java.io.File;\n"
+      + "import java.util.List;\n"
+      + "import org.junit.Assert;\n"
+      + "import org.junit.Test;\n"
+      + "\n"
+      + "import static org.junit.Assert.assertEquals;\n"
+      + "\n"
+      + "class T {\n"
+      + "}\n";
+
+  @Test
+  void queriesSeePendingChanges() {
+    CompilationUnit cu = StaticJavaParser.parse(HEADER);
+    ImportIndex imports = new ImportIndex(cu);
+    assertTrue(imports.contains("org.junit.Test"));
+    assertTrue(imports.add("org.junit.jupiter.api.Test"));
+    assertFalse(imports.add("org.junit.jupiter.api.Test"));
+    assertTrue(imports.remove(ImportIndex.Import.of("org.junit.Test")));
+    assertFalse(imports.remove(ImportIndex.Import.of("org.junit.Test")));
+    assertTrue(imports.rename(ImportIndex.Import.ofStatic("org.junit.Assert.assertEquals"),
+        "org.junit.jupiter.api.Assertions.assertEquals"));
+
+    assertTrue(imports.contains("org.junit.jupiter.api.Test"));
+    assertFalse(imports.contains("org.junit.Test"));
+    assertTrue(imports.contains(ImportIndex.Import.ofStatic("org.junit.jupiter.api.Assertions.assertEquals")));
+    assertTrue(imports.isChanged());
+    // 写回之前语法树不变
+    assertEquals(StaticJavaParser.parse(HEADER).toString(), cu.toString());
+  }
+
+  @Test
+  void coversClassesOfAsteriskImport() {
+    ImportIndex imports = new ImportIndex(StaticJavaParser.parse("import java.util.*;\nimport java.io.File;\nclass T {}"));
+    assertTrue(imports.covers("java.util.List"));
+    assertTrue(imports.covers("java.io.File"));
+    assertFalse(imports.covers("java.io.InputStream"));
+    assertFalse(imports.covers("java.util.concurrent.Future"));
+    assertFalse(imports.contains("java.util.List"));
+  }
+
+  /**
+   * 改名原位修改，删除的声明去掉，新增的按名字排进包名最相近的一组
+   */
+  @Test
+  void appliesChangesInPlace() {
+    CompilationUnit cu = StaticJavaParser.parse(HEADER);
+    ImportIndex imports = new ImportIndex(cu);
+    imports.rename(ImportIndex.Import.of("org.junit.Test"), "org.junit.jupiter.api.Test");
+    imports.remove(ImportIndex.Import.of("org.junit.Assert"));
+    imports.add("org.junit.jupiter.api.Assertions");
+    imports.add("java.nio.file.Files");
+    imports.add(ImportIndex.Import.ofStatic("org.assertj.core.api.Assertions.assertThat"));
+    imports.apply();
+
+    assertEquals(List.of(
+        "java.io.File",
+        "java.nio.file.Files",
+        "java.util.List",
+        "org.junit.jupiter.api.Assertions",
+        "org.junit.jupiter.api.Test",
+        "static org.assertj.core.api.Assertions.assertThat",
+        "static org.junit.Assert.assertEquals"), names(cu));
+    assertFalse(imports.isChanged());
+    assertEquals(new HashSet<>(names(cu)), imports.imports().stream().map(ImportIndexTest::name).collect(toSet()));
+  }
+
+  /**
+   * 在 LexicalPreservingPrinter 下插在一组开头的 import 仍然留在这一组里，组之间的空行不变
+   */
+  @Test
+  void keepsGroupsUnderLexicalPreservation() {
+    CompilationUnit cu = StaticJavaParser.parse(HEADER);
+    LexicalPreservingPrinter.setup(cu);
+    ImportIndex imports = new ImportIndex(cu);
+    imports.add("java.io.Closeable");
+    imports.add(ImportIndex.Import.ofStatic("org.junit.Assert.assertArrayEquals"));
+    imports.remove(ImportIndex.Import.of("org.junit.Assert"));
+    imports.apply();
+
+    assertEquals("package p;\n"
+        + "\n"
+        + "import java.io.Closeable;\n"
+        + "import java.io.File;\n"
+        + "import java.util.List;\n"
+        + "import org.junit.Test;\n"
+        + "\n"
+        + "import static org.junit.Assert.assertArrayEquals;\n"
+        + "import static org.junit.Assert.assertEquals;\n"
+        + "\n"
+        + "class T {\n"
+        + "}\n", LexicalPreservingPrinter.print(cu));
+  }
+
+  @Test
+  void dropsDuplicatesAndRenameCollisions() {
+    CompilationUnit cu = StaticJavaParser.parse("import org.junit.Test;\n"
+        + "import org.junit.Test;\n"
+        + "import org.junit.Assert;\n"
+        + "import org.junit.jupiter.api.Assertions;\n"
+        + "class T {}");
+    ImportIndex imports = new ImportIndex(cu);
+    assertTrue(imports.isChanged());
+    imports.rename(ImportIndex.Import.of("org.junit.Assert"), "org.junit.jupiter.api.Assertions");
+    imports.apply();
+    assertEquals(List.of("org.junit.Test", "org.junit.jupiter.api.Assertions"), names(cu));
+  }
+
+  /**
+   * 还没有同类 import 时，非静态的插在静态 import 之前，静态的排在最后
+   */
+  @Test
+  void placesFirstImportOfKindAroundStaticGroup() {
+    CompilationUnit statics = StaticJavaParser.parse("import static org.junit.Assert.assertTrue;\nclass T {}");
+    ImportIndex imports = new ImportIndex(statics);
+    imports.add("java.io.File");
+    imports.apply();
+    assertEquals(List.of("java.io.File", "static org.junit.Assert.assertTrue"), names(statics));
+
+    CompilationUnit plain = StaticJavaParser.parse("import java.io.File;\nclass T {}");
+    imports = new ImportIndex(plain);
+    imports.add(ImportIndex.Import.ofStatic("org.junit.Assert.assertTrue"));
+    imports.apply();
+    assertEquals(List.of("java.io.File", "static org.junit.Assert.assertTrue"), names(plain));
+
+    CompilationUnit empty = StaticJavaParser.parse("class T {}");
+    imports = new ImportIndex(empty);
+    imports.add("java.io.File");
+    imports.apply();
+    assertEquals(List.of("java.io.File"), names(empty));
+  }
+
+  @Test
+  void notifiesOnlyOnActualChange() {
+    AtomicInteger changes = new AtomicInteger();
+    ImportIndex imports = new ImportIndex(StaticJavaParser.parse(HEADER), changes::incrementAndGet);
+    imports.add("java.io.File");
+    imports.remove(ImportIndex.Import.of("java.io.InputStream"));
+    imports.rename(ImportIndex.Import.of("java.io.File"), "java.io.File");
+    imports.apply();
+    assertEquals(0, changes.get());
+    assertFalse(imports.isChanged());
+
+    imports.add("java.io.InputStream");
+    assertEquals(1, changes.get());
+  }
+
+  private static List<String> names(CompilationUnit cu) {
+    return cu.getImports().stream()
+        .map(id -> (id.isStatic() ? "static " : "") + id.getNameAsString() + (id.isAsterisk() ? ".*" : ""))
+        .toList();
+  }
+
+  private static String name(ImportIndex.Import id) {
+    return (id.isStatic() ? "static " : "") + id.name() + (id.isAsterisk() ? ".*" : "");
+  }
+}
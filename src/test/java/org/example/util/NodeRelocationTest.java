@@ -0,0 +1,82 @@
+package org.example.util;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NodeRelocationTest {
+
+  /**
+   * 移动的是原节点；注释在 restoreComments 之后随节点打印，原位置不留下注释，原方法体的右括号不丢
+   */
+  @Test
+  void movesNodesWithTheirComments() {
+    CompilationUnit cu = StaticJavaParser.parse("class T {\n"
+        + "  void from() {\n"
+        + "    // first\n"
+        + "    a();\n"
+        + "    b(); // second\n"
+        + "    /* third */\n"
+        + "    c();\n"
+        + "  }\n"
+        + "  void to() {\n"
+        + "  }\n"
+        + "}\n");
+    LexicalPreservingPrinter.setup(cu);
+    BlockStmt from = body(cu, "from");
+    Statement first = from.getStatement(0);
+    NodeRelocation<Statement> relocation = NodeRelocation.detach(from.getStatements());
+    assertTrue(from.isEmpty());
+    assertSame(first, relocation.nodes().get(0));
+    BlockStmt to = body(cu, "to");
+    relocation.nodes().forEach(to::addStatement);
+    from.addStatement(StaticJavaParser.parseStatement("to();"));
+    relocation.restoreComments();
+
+    assertEquals("class T {\n"
+        + "  void from() {\n"
+        + "      to();\n"
+        + "  }\n"
+        + "  void to() {\n"
+        + "      // first\n"
+        + "      a();\n"
+        + "      // second\n"
+        + "      b();\n"
+        + "      /* third */\n"
+        + "      c();\n"
+        + "  }\n"
+        + "}\n", LexicalPreservingPrinter.print(cu));
+  }
+
+  /**
+   * 节点没有原样插入时注释挂到 target 返回的节点上
+   */
+  @Test
+  void restoresCommentsOnTargetNodes() {
+    CompilationUnit cu = StaticJavaParser.parse("class T {\n"
+        + "  void from() {\n"
+        + "    // first\n"
+        + "    a();\n"
+        + "  }\n"
+        + "}\n");
+    BlockStmt from = body(cu, "from");
+    NodeRelocation<Statement> relocation = NodeRelocation.detach(from.getStatements());
+    Statement replacement = StaticJavaParser.parseStatement("b();");
+    from.addStatement(replacement);
+    relocation.restoreComments(statement -> replacement);
+    assertEquals("// first\nb();", replacement.toString());
+  }
+
+  private static BlockStmt body(CompilationUnit cu, String method) {
+    MethodDeclaration declaration = cu.getClassByName("T").orElseThrow().getMethodsByName(method).get(0);
+    return declaration.getBody().orElseThrow();
+  }
+}